@@ -0,0 +1,145 @@
+package com.example.governmentapp;
+
+import android.app.Instrumentation;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.util.DisplayMetrics;
+import android.util.Log;
+import android.view.ContextThemeWrapper;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.governmentapp.utils.DocumentRow;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Frame times for scrolling the admin dashboard's user list through 10,000 users.
+ * <p>
+ * The list is laid out off screen at the display's size; each frame scrolls it by a quarter
+ * of its height, as in a fast fling, and draws it into a bitmap, so a frame's time covers
+ * binding the cards that come into view, layout and drawing. Percentiles are logged under
+ * the tag below. Run with:
+ * {@code ./gradlew :app:connectedDebugAndroidTest -Pandroid.testInstrumentationRunnerArguments.class=com.example.governmentapp.AdminListScrollBenchmark}
+ */
+@RunWith(AndroidJUnit4.class)
+public class AdminListScrollBenchmark {
+    private static final String TAG = "AdminListScrollBenchmark";
+
+    private static final int ITEM_COUNT = 10_000;
+    private static final long FRAME_BUDGET_NS = 16_666_667L;
+
+    @Test
+    public void scrollTenThousandUsers() {
+        Instrumentation instrumentation = InstrumentationRegistry.getInstrumentation();
+        ContextThemeWrapper context = new ContextThemeWrapper(instrumentation.getTargetContext(),
+                R.style.Theme_GovernmentApp);
+        DisplayMetrics metrics = context.getResources().getDisplayMetrics();
+        int width = metrics.widthPixels;
+        int height = metrics.heightPixels;
+
+        List<DocumentRow> users = new ArrayList<>(ITEM_COUNT);
+        for (int i = 0; i < ITEM_COUNT; i++) {
+            Map<String, Object> fields = new HashMap<>();
+            fields.put("name", String.format(Locale.US, "User %05d", i));
+            fields.put("email", "user" + i + "@example.com");
+            fields.put("sevarthId", String.format(Locale.US, "SEV%06d", i));
+            fields.put("locations", Arrays.asList("Office " + (i % 40), "Office " + ((i + 1) % 40)));
+            users.add(new DocumentRow("user" + i, fields));
+        }
+
+        UserCardAdapter adapter = new UserCardAdapter();
+        RecyclerView[] list = new RecyclerView[1];
+        Set<View> builtCards = Collections.newSetFromMap(new IdentityHashMap<>());
+        Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+
+        // First frame: the list appears with its rows already submitted
+        long[] firstFrameNs = new long[1];
+        instrumentation.runOnMainSync(() -> {
+            long start = System.nanoTime();
+            RecyclerView recyclerView = new RecyclerView(context);
+            recyclerView.setLayoutManager(new LinearLayoutManager(context));
+            recyclerView.setHasFixedSize(true);
+            recyclerView.addOnChildAttachStateChangeListener(new RecyclerView.OnChildAttachStateChangeListener() {
+                @Override
+                public void onChildViewAttachedToWindow(@NonNull View view) {
+                    builtCards.add(view);
+                }
+
+                @Override
+                public void onChildViewDetachedFromWindow(@NonNull View view) {
+                }
+            });
+            recyclerView.setAdapter(adapter);
+            // The first list is applied at once; there is nothing to diff against
+            adapter.submitList(users);
+            recyclerView.measure(View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY),
+                    View.MeasureSpec.makeMeasureSpec(height, View.MeasureSpec.EXACTLY));
+            recyclerView.layout(0, 0, width, height);
+            recyclerView.draw(canvas);
+            firstFrameNs[0] = System.nanoTime() - start;
+            list[0] = recyclerView;
+        });
+
+        RecyclerView recyclerView = list[0];
+        LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+        int step = height / 4;
+        long[] frameNs = new long[ITEM_COUNT * 4];
+        int frames = 0;
+        boolean[] atEnd = new boolean[1];
+        while (!atEnd[0] && frames < frameNs.length) {
+            long[] elapsed = new long[1];
+            // One frame per main thread message, so the thread is free between frames as on screen
+            instrumentation.runOnMainSync(() -> {
+                long start = System.nanoTime();
+                recyclerView.scrollBy(0, step);
+                recyclerView.draw(canvas);
+                elapsed[0] = System.nanoTime() - start;
+                atEnd[0] = layoutManager.findLastVisibleItemPosition() == ITEM_COUNT - 1;
+            });
+            frameNs[frames++] = elapsed[0];
+        }
+
+        long[] sorted = Arrays.copyOf(frameNs, frames);
+        Arrays.sort(sorted);
+        int slowFrames = 0;
+        for (long ns : sorted) {
+            if (ns > FRAME_BUDGET_NS) slowFrames++;
+        }
+        Log.i(TAG, String.format(Locale.US,
+                "%d items, %d frames of %d px: first frame %.2f ms, p50 %.2f ms, p90 %.2f ms, "
+                        + "p99 %.2f ms, max %.2f ms, %d over 16.7 ms, %d cards built",
+                ITEM_COUNT, frames, step, firstFrameNs[0] / 1e6, percentile(sorted, 50) / 1e6,
+                percentile(sorted, 90) / 1e6, percentile(sorted, 99) / 1e6,
+                sorted[sorted.length - 1] / 1e6, slowFrames, builtCards.size()));
+
+        assertTrue("Did not reach the end of the list", atEnd[0]);
+        // Recycling: only about a screenful of cards is ever built, however long the list
+        assertTrue("Built " + builtCards.size() + " cards", builtCards.size() < 100);
+        bitmap.recycle();
+    }
+
+    private static long percentile(long[] sorted, int percent) {
+        int index = (int) Math.ceil(percent / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+}
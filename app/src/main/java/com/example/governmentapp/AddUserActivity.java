@@ -36,10 +36,12 @@ import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 import androidx.core.content.FileProvider;
 
+import com.example.governmentapp.utils.UserDirectory;
 import com.google.android.material.chip.Chip;
 import com.google.android.material.chip.ChipGroup;
 import com.google.android.material.textfield.TextInputLayout;
 import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.QueryDocumentSnapshot;
 import com.google.firebase.storage.FirebaseStorage;
@@ -477,6 +479,8 @@ public class AddUserActivity extends AppCompatActivity {
                     userData.put("createdAt", Calendar.getInstance().getTime());
                     userData.put("sevarthId", sevarthId);
                     userData.put("taluka", selectedTaluka);
+                    // Lets user lists pick up the new user without reading every user again
+                    userData.put(UserDirectory.FIELD_UPDATED_AT, FieldValue.serverTimestamp());
                     
                     // Check camera permission and open camera
                     checkCameraPermission();
@@ -586,6 +590,7 @@ public class AddUserActivity extends AppCompatActivity {
             .document(userId)
             .set(userData)
             .addOnSuccessListener(aVoid -> {
+                UserDirectory.getInstance(this).put(userId, userData);
                 Toast.makeText(AddUserActivity.this, "User created successfully", Toast.LENGTH_SHORT).show();
                 // Return to the previous screen
                 finish();
@@ -4,11 +4,15 @@ import android.content.Intent;
 import android.graphics.Color;
 import android.graphics.Typeface;
 import android.os.Bundle;
+import android.os.Parcelable;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.animation.Animation;
 import android.view.animation.AnimationUtils;
+import android.widget.EditText;
 import android.widget.ImageView;
 import android.widget.LinearLayout;
 import android.widget.TextView;
@@ -17,30 +21,46 @@ import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.app.AppCompatDelegate;
 import androidx.cardview.widget.CardView;
+import androidx.lifecycle.LiveData;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.work.Data;
+import androidx.work.WorkInfo;
+import androidx.work.WorkManager;
 
+import com.example.governmentapp.utils.AttendanceMigrationWorker;
+import com.example.governmentapp.utils.AttendanceWriter;
+import com.example.governmentapp.utils.DocumentRow;
+import com.example.governmentapp.utils.DocumentRowAdapter;
+import com.example.governmentapp.utils.LiveQuery;
+import com.example.governmentapp.utils.LiveQueryPager;
+import com.example.governmentapp.utils.OfficeDirectory;
+import com.example.governmentapp.utils.UserDirectory;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
+import com.google.android.material.textfield.TextInputLayout;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.QueryDocumentSnapshot;
 import com.google.firebase.storage.FirebaseStorage;
 
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 
 import android.animation.AnimatorSet;
 import android.animation.ObjectAnimator;
 import android.content.res.ColorStateList;
 import android.view.animation.OvershootInterpolator;
 
-import java.util.AbstractMap;
-import java.util.ArrayList;
-import java.util.Collections;
-
 public class AdminDashboardActivity extends AppCompatActivity {
 
     private TextView welcomeText;
@@ -50,6 +70,9 @@ public class AdminDashboardActivity extends AppCompatActivity {
     private TextView reportsTab;
     private TextView sectionTitleText;
     private LinearLayout userListContainer;
+    private View cardScrollView;
+    private View contentFrame;
+    private RecyclerView adminList;
     private FloatingActionButton fabAddUser;
     
     private FirebaseAuth mAuth;
@@ -58,6 +81,49 @@ public class AdminDashboardActivity extends AppCompatActivity {
     // Keep track of the selected tab
     private TextView selectedTab;
     
+    // Cards of each type kept for reuse across tab switches; a screenful survives the swap
+    private static final int POOLED_CARDS = 12;
+    
+    // Live users, offices and today's attendance, listened to for the life of the screen so
+    // tab switches and returns to the screen read nothing again. The lists load a page at a
+    // time as they scroll.
+    private LiveQueryPager usersPager;
+    private LiveQueryPager officesPager;
+    private LiveQuery todayQuery;
+    private final UserCardAdapter userAdapter = new UserCardAdapter();
+    private final OfficeCardAdapter officeAdapter = new OfficeCardAdapter();
+    // Scroll position of each list while the other tab is shown
+    private final Map<RecyclerView.Adapter<?>, Parcelable> listStates = new HashMap<>();
+    private long today;
+    private final Set<String> todayCheckIns = new HashSet<>();
+    private TextView todayCheckInsText;
+    
+    // Search over the users or offices tab; matches replace the tab's live list while shown
+    private static final int SEARCH_LIMIT = 50;
+    private TextInputLayout searchInputLayout;
+    private EditText searchEditText;
+    private String searchQuery = "";
+    private List<DocumentRow> searchMatches = Collections.emptyList();
+    private UserDirectory userDirectory;
+    private final OfficeDirectory.Listener officeSearchListener = new OfficeDirectory.Listener() {
+        @Override
+        public void onOfficesChanged() {
+            if (selectedTab == officesTab && !searchQuery.isEmpty()) {
+                applySearch(searchQuery);
+            }
+        }
+        
+        @Override
+        public void onError(Exception e) {
+            Log.e("AdminDashboard", "Error loading offices for search", e);
+        }
+    };
+    
+    // Status lines of the report cards, updated while the Reports tab is shown
+    private TextView userReportsStatus;
+    private TextView dailyReportsStatus;
+    private TextView locationReportsStatus;
+    
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -78,7 +144,13 @@ public class AdminDashboardActivity extends AppCompatActivity {
         reportsTab = findViewById(R.id.reportsTab);
         sectionTitleText = findViewById(R.id.sectionTitleText);
         userListContainer = findViewById(R.id.userListContainer);
+        cardScrollView = findViewById(R.id.cardScrollView);
+        contentFrame = findViewById(R.id.contentFrame);
+        adminList = findViewById(R.id.adminList);
         fabAddUser = findViewById(R.id.fabAddUser);
+        todayCheckInsText = findViewById(R.id.todayCheckInsText);
+        searchInputLayout = findViewById(R.id.searchInputLayout);
+        searchEditText = findViewById(R.id.searchEditText);
         
         // Initialize selectedTab to usersTab
         selectedTab = usersTab;
@@ -95,6 +167,13 @@ public class AdminDashboardActivity extends AppCompatActivity {
         // Set up tab navigation
         setupTabNavigation();
         
+        // Start the live lists and counter, then show the users tab
+        setupAdminList();
+        setupLiveQueries();
+        setupSearch();
+        startTodayCounter();
+        loadUsers();
+        
         // Set up button click listeners
         refreshButton.setOnClickListener(v -> refreshData());
         logoutButton.setOnClickListener(v -> logout());
@@ -124,13 +203,321 @@ public class AdminDashboardActivity extends AppCompatActivity {
     protected void onResume() {
         super.onResume();
         
-        // Log the current state
-        String currentTab = selectedTab == usersTab ? "Users" : 
-                            selectedTab == officesTab ? "Offices" : "Reports";
-        Log.d("AdminDashboard", "Activity resumed, loading data for " + currentTab + " tab");
+        // The lists are kept current by their listeners; only restart one that failed
+        if (!usersPager.isListening() || !officesPager.isListening()) {
+            Log.d("AdminDashboard", "Activity resumed, restarting live lists");
+            usersPager.start();
+            officesPager.start();
+            refreshData();
+        }
         
-        // Load data for the currently selected tab
-        refreshData();
+        // Past midnight the counter starts over for the new day
+        startTodayCounter();
+    }
+    
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        usersPager.stop();
+        officesPager.stop();
+        OfficeDirectory.getInstance().removeListener(officeSearchListener);
+        if (todayQuery != null) {
+            todayQuery.stop();
+        }
+    }
+    
+    private void setupAdminList() {
+        adminList.setLayoutManager(new LinearLayoutManager(this));
+        adminList.setHasFixedSize(true);
+        
+        // One pool for both tabs; swapping adapters keeps it, so switching back rebinds
+        // pooled cards instead of inflating new ones
+        RecyclerView.RecycledViewPool pool = new RecyclerView.RecycledViewPool();
+        pool.setMaxRecycledViews(UserCardAdapter.VIEW_TYPE, POOLED_CARDS);
+        pool.setMaxRecycledViews(OfficeCardAdapter.VIEW_TYPE, POOLED_CARDS);
+        adminList.setRecycledViewPool(pool);
+        
+        userAdapter.setOnRowActionListener(new DocumentRowAdapter.OnRowActionListener() {
+            @Override
+            public void onEdit(DocumentRow row) {
+                editUser(row.id, row.fields);
+            }
+            
+            @Override
+            public void onDelete(DocumentRow row) {
+                deleteUser(row.id);
+            }
+        });
+        officeAdapter.setOnRowActionListener(new DocumentRowAdapter.OnRowActionListener() {
+            @Override
+            public void onEdit(DocumentRow row) {
+                editOffice(row.id, row.fields);
+            }
+            
+            @Override
+            public void onDelete(DocumentRow row) {
+                deleteOffice(row.id);
+            }
+        });
+    }
+    
+    private void setupLiveQueries() {
+        // Ordering by name leaves out documents without one, as the lists always have
+        usersPager = new LiveQueryPager(db.collection("users").orderBy("name"),
+                new TabRows(usersTab, userAdapter, "users"));
+        officesPager = new LiveQueryPager(db.collection("locations").orderBy("officeName"),
+                new TabRows(officesTab, officeAdapter, "offices"));
+        usersPager.start();
+        officesPager.start();
+    }
+    
+    /**
+     * Hands the rows of a live list to its adapter, whose differ updates only the changed
+     * cards, and keeps the tab's empty state and the Reports tab counts current.
+     */
+    private class TabRows implements LiveQueryPager.Listener {
+        private final TextView tab;
+        private final DocumentRowAdapter<?> adapter;
+        private final String name;
+        
+        TabRows(TextView tab, DocumentRowAdapter<?> adapter, String name) {
+            this.tab = tab;
+            this.adapter = adapter;
+            this.name = name;
+        }
+        
+        @Override
+        public void onRowsChanged(List<DocumentRow> rows, boolean complete) {
+            // While the tab shows search matches the rows wait; clearing the search submits them
+            if (selectedTab == tab && !searchQuery.isEmpty()) return;
+            adapter.submitList(rows);
+            if (selectedTab == tab) {
+                updateListVisibility();
+            } else if (selectedTab == reportsTab) {
+                updateReportCounts();
+            }
+        }
+        
+        @Override
+        public void onError(Exception e) {
+            Toast.makeText(AdminDashboardActivity.this, 
+                    "Error loading " + name + ": " + e.getMessage(), 
+                    Toast.LENGTH_SHORT).show();
+        }
+    }
+    
+    /**
+     * Show a tab's live list, keeping the scroll position the other list had
+     */
+    private void showList(LiveQueryPager pager, DocumentRowAdapter<?> adapter) {
+        resetSearch();
+        userListContainer.removeAllViews();
+        if (adminList.getAdapter() != adapter) {
+            saveListState();
+            // Swapping rather than setting the adapter keeps the shared pool
+            adminList.swapAdapter(adapter, true);
+            Parcelable state = listStates.get(adapter);
+            if (state != null) {
+                adminList.getLayoutManager().onRestoreInstanceState(state);
+            }
+        }
+        usersPager.detach();
+        officesPager.detach();
+        pager.start();
+        pager.attachTo(adminList);
+        updateListVisibility();
+        
+        // Add animation to the list
+        adminList.setLayoutAnimation(AnimationUtils.loadLayoutAnimation(this, R.anim.layout_animation_scale_up));
+        adminList.scheduleLayoutAnimation();
+    }
+    
+    /**
+     * Show the card list for the Reports tab in place of the live lists
+     */
+    private void showCards() {
+        resetSearch();
+        saveListState();
+        usersPager.detach();
+        officesPager.detach();
+        adminList.setVisibility(View.GONE);
+        cardScrollView.setVisibility(View.VISIBLE);
+    }
+    
+    private void setupSearch() {
+        userDirectory = UserDirectory.getInstance(this);
+        OfficeDirectory.getInstance().addListener(officeSearchListener);
+        searchEditText.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+            
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+            
+            @Override
+            public void afterTextChanged(Editable s) {
+                applySearch(s.toString().trim());
+            }
+        });
+    }
+    
+    /**
+     * Show the tab's matches for the query in place of its live list, or the list again once
+     * the query is cleared. Matches come from the in-memory directories, so typing sends no
+     * queries to Firestore.
+     */
+    private void applySearch(String query) {
+        if (selectedTab == reportsTab && !query.isEmpty()) return;
+        boolean wasSearching = !searchQuery.isEmpty();
+        searchQuery = query;
+        if (query.isEmpty()) {
+            if (!wasSearching) return;
+            searchMatches = Collections.emptyList();
+            // The live lists kept loading while the matches were shown
+            userAdapter.submitList(usersPager.getRows());
+            officeAdapter.submitList(officesPager.getRows());
+            // Cleared by a switch to the Reports tab, which shows its own cards
+            if (selectedTab == reportsTab) return;
+            userListContainer.removeAllViews();
+            (selectedTab == usersTab ? usersPager : officesPager).attachTo(adminList);
+        } else if (selectedTab == usersTab) {
+            if (!wasSearching) {
+                // Bring the directory up to date, then search again with what it adds
+                userDirectory.refresh().addOnCompleteListener(this, task -> {
+                    if (selectedTab == usersTab && !searchQuery.isEmpty()) {
+                        applySearch(searchQuery);
+                    }
+                });
+            }
+            usersPager.detach();
+            List<DocumentRow> matches = new ArrayList<>();
+            for (UserDirectory.User user : userDirectory.search(query, SEARCH_LIMIT)) {
+                matches.add(new DocumentRow(user.id, user.fields));
+            }
+            searchMatches = matches;
+            userAdapter.submitList(matches);
+        } else {
+            officesPager.detach();
+            searchMatches = OfficeDirectory.getInstance().search(query, SEARCH_LIMIT);
+            officeAdapter.submitList(searchMatches);
+        }
+        updateListVisibility();
+    }
+    
+    // Each tab starts with an empty search field; the Reports tab has none
+    private void resetSearch() {
+        if (!searchQuery.isEmpty()) {
+            searchEditText.setText("");
+        }
+        searchInputLayout.setVisibility(selectedTab == reportsTab ? View.GONE : View.VISIBLE);
+        searchInputLayout.setHint(selectedTab == officesTab
+                ? "Search offices by name or taluka"
+                : "Search users by name, Sevarth ID or email");
+    }
+    
+    private void saveListState() {
+        if (adminList.getAdapter() != null && adminList.getVisibility() == View.VISIBLE) {
+            listStates.put(adminList.getAdapter(), adminList.getLayoutManager().onSaveInstanceState());
+        }
+    }
+    
+    // The list, or the empty state once a list has loaded without rows
+    private void updateListVisibility() {
+        LiveQueryPager pager = selectedTab == usersTab ? usersPager : officesPager;
+        boolean searching = !searchQuery.isEmpty();
+        boolean empty = searching ? searchMatches.isEmpty() : pager.isLoaded() && pager.getRows().isEmpty();
+        adminList.setVisibility(empty ? View.GONE : View.VISIBLE);
+        cardScrollView.setVisibility(empty ? View.VISIBLE : View.GONE);
+        if (!empty) {
+            hideEmptyState();
+        } else if (searching) {
+            showNoMatchesState();
+        } else if (selectedTab == usersTab) {
+            showEmptyState();
+        } else {
+            showEmptyOfficesState();
+        }
+    }
+    
+    private void updateReportCounts() {
+        if (userReportsStatus != null) {
+            userReportsStatus.setText(countText(usersPager, "users"));
+        }
+        if (locationReportsStatus != null) {
+            locationReportsStatus.setText(countText(officesPager, "offices"));
+        }
+    }
+    
+    // Lists load as they scroll, so until the last page has loaded the count is a minimum
+    private String countText(LiveQueryPager pager, String noun) {
+        return pager.getRows().size() + (pager.isComplete() ? " " : "+ ") + noun;
+    }
+    
+    /**
+     * Count today's check-ins with a listener on today's attendance records. Each record is
+     * read once; after that only new, changed or removed records are.
+     */
+    private void startTodayCounter() {
+        long day = AttendanceWriter.epochDay(new Date());
+        if (todayQuery != null && todayQuery.isListening() && day == today) return;
+        if (todayQuery != null) {
+            todayQuery.stop();
+        }
+        today = day;
+        todayCheckIns.clear();
+        updateTodayCheckIns();
+        todayQuery = new LiveQuery(db.collection(AttendanceWriter.COLLECTION)
+                .whereEqualTo(AttendanceWriter.FIELD_EPOCH_DAY, day))
+                .setListener(new LiveQuery.Listener() {
+                    @Override
+                    public void onAdded(int index, DocumentSnapshot document) {
+                        if (isCheckIn(document)) {
+                            todayCheckIns.add(document.getId());
+                        }
+                    }
+                    
+                    @Override
+                    public void onModified(int oldIndex, int newIndex, DocumentSnapshot document) {
+                        if (isCheckIn(document)) {
+                            todayCheckIns.add(document.getId());
+                        } else {
+                            todayCheckIns.remove(document.getId());
+                        }
+                    }
+                    
+                    @Override
+                    public void onRemoved(int index, DocumentSnapshot document) {
+                        todayCheckIns.remove(document.getId());
+                    }
+                    
+                    @Override
+                    public void onSnapshot(boolean first) {
+                        updateTodayCheckIns();
+                    }
+                    
+                    @Override
+                    public void onError(Exception e) {
+                        Log.e("AdminDashboard", "Error listening to today's attendance", e);
+                    }
+                });
+        todayQuery.start();
+    }
+    
+    // Anything that is not a check-out counts as a check-in, as in the reports
+    private static boolean isCheckIn(DocumentSnapshot document) {
+        String type = document.getString(AttendanceWriter.FIELD_TYPE);
+        return type == null || !type.toLowerCase(Locale.US).contains("out");
+    }
+    
+    private void updateTodayCheckIns() {
+        int count = todayCheckIns.size();
+        String text = count == 1 ? "1 check-in today" : count + " check-ins today";
+        todayCheckInsText.setText(text);
+        if (dailyReportsStatus != null && selectedTab == reportsTab) {
+            dailyReportsStatus.setText(text);
+        }
     }
     
     private void setupWelcomeMessage() {
@@ -171,106 +558,8 @@ public class AdminDashboardActivity extends AppCompatActivity {
     }
     
     private void loadUsers() {
-        // Clear existing user list
-        userListContainer.removeAllViews();
-        
-        // Add animation to container
-        userListContainer.setLayoutAnimation(AnimationUtils.loadLayoutAnimation(this, R.anim.layout_animation_scale_up));
-        
-        // Load users from Firestore
-        db.collection("users")
-            .get()
-            .addOnCompleteListener(task -> {
-                if (task.isSuccessful()) {
-                    if (task.getResult().isEmpty()) {
-                        // No users found, show empty state
-                        showEmptyState();
-                    } else {
-                        // Hide empty state if it exists
-                        hideEmptyState();
-                        
-                        // Create a list to sort users by name
-                        List<Map.Entry<String, QueryDocumentSnapshot>> users = new ArrayList<>();
-                        for (QueryDocumentSnapshot document : task.getResult()) {
-                            String name = document.getString("name");
-                            if (name != null) {
-                                users.add(new AbstractMap.SimpleEntry<>(name, document));
-                            }
-                        }
-                        
-                        // Sort users by name
-                        Collections.sort(users, (a, b) -> a.getKey().compareTo(b.getKey()));
-                        
-                        // Add sorted users to the view
-                        for (Map.Entry<String, QueryDocumentSnapshot> entry : users) {
-                            QueryDocumentSnapshot document = entry.getValue();
-                            Map<String, Object> userData = document.getData();
-                            String userId = document.getId();
-                            addUserCard(userId, userData);
-                        }
-                        
-                        // Start the layout animation
-                        userListContainer.scheduleLayoutAnimation();
-                    }
-                } else {
-                    Toast.makeText(AdminDashboardActivity.this, 
-                            "Error loading users: " + task.getException().getMessage(), 
-                            Toast.LENGTH_SHORT).show();
-                }
-            });
-    }
-    
-    private void addUserCard(String userId, Map<String, Object> userData) {
-        // Inflate the user card layout
-        View userCardView = LayoutInflater.from(this).inflate(
-                R.layout.item_user_card, userListContainer, false);
-        
-        // Get views from the user card layout
-        TextView nameText = userCardView.findViewById(R.id.userNameText);
-        TextView sevarthIdText = userCardView.findViewById(R.id.sevarthIdText);
-        TextView emailText = userCardView.findViewById(R.id.emailText);
-        TextView locationText = userCardView.findViewById(R.id.locationText);
-        ImageView editButton = userCardView.findViewById(R.id.editButton);
-        ImageView deleteButton = userCardView.findViewById(R.id.deleteButton);
-        
-        // Set user data to views
-        String name = (String) userData.get("name");
-        String sevarthId = (String) userData.get("sevarthId");
-        String email = (String) userData.get("email");
-        
-        // Handle both old and new location format
-        String locationDisplay = "Not assigned";
-        
-        // Check for multiple locations format first
-        Object locationsObj = userData.get("locations");
-        if (locationsObj instanceof List && !((List<?>) locationsObj).isEmpty()) {
-            List<?> locations = (List<?>) locationsObj;
-            if (locations.size() == 1) {
-                // Single location
-                locationDisplay = locations.get(0).toString();
-            } else if (locations.size() > 1) {
-                // Multiple locations
-                locationDisplay = locations.get(0).toString() + " + " + (locations.size() - 1) + " more";
-            }
-        } else {
-            // Check for legacy single location format
-            String singleLocation = (String) userData.get("location");
-            if (singleLocation != null && !singleLocation.isEmpty()) {
-                locationDisplay = singleLocation;
-            }
-        }
-        
-        nameText.setText(name != null ? name : "User");
-        sevarthIdText.setText("Sevarth ID: " + (sevarthId != null ? sevarthId : "Not set"));
-        emailText.setText("Email: " + (email != null ? email : "Not set"));
-        locationText.setText("Location: " + locationDisplay);
-        
-        // Set click listeners for action buttons
-        editButton.setOnClickListener(v -> editUser(userId, userData));
-        deleteButton.setOnClickListener(v -> deleteUser(userId));
-        
-        // Add the user card to the container
-        userListContainer.addView(userCardView);
+        // Users come from the live list; nothing is read again on a tab switch
+        showList(usersPager, userAdapter);
     }
     
     private void showEmptyState() {
@@ -286,6 +575,18 @@ public class AdminDashboardActivity extends AppCompatActivity {
         }
     }
     
+    private void showNoMatchesState() {
+        userListContainer.removeAllViews();
+        View emptyStateView = LayoutInflater.from(this).inflate(
+                R.layout.item_empty_state, userListContainer, false);
+        
+        TextView emptyStateText = emptyStateView.findViewById(R.id.emptyStateText);
+        emptyStateText.setText("No " + (selectedTab == usersTab ? "users" : "offices")
+                + " match \"" + searchQuery + "\".");
+        
+        userListContainer.addView(emptyStateView);
+    }
+    
     private void hideEmptyState() {
         // Remove empty state if it exists
         for (int i = 0; i < userListContainer.getChildCount(); i++) {
@@ -305,7 +606,7 @@ public class AdminDashboardActivity extends AppCompatActivity {
         usersTab.setOnClickListener(v -> {
             if (selectedTab != usersTab) {
                 // Add exit animation for current content
-                userListContainer.animate()
+                contentFrame.animate()
                     .alpha(0f)
                     .translationX(-25f)
                     .setDuration(100)
@@ -318,8 +619,8 @@ public class AdminDashboardActivity extends AppCompatActivity {
             // Update FAB action
             updateFabAction();
                         // Add entrance animation for new content
-                        userListContainer.setTranslationX(25f);
-                        userListContainer.animate()
+                        contentFrame.setTranslationX(25f);
+                        contentFrame.animate()
                             .alpha(1f)
                             .translationX(0f)
                             .setDuration(100)
@@ -331,7 +632,7 @@ public class AdminDashboardActivity extends AppCompatActivity {
         officesTab.setOnClickListener(v -> {
             if (selectedTab != officesTab) {
                 // Add exit animation for current content
-                userListContainer.animate()
+                contentFrame.animate()
                     .alpha(0f)
                     .translationX(-25f)
                     .setDuration(100)
@@ -344,8 +645,8 @@ public class AdminDashboardActivity extends AppCompatActivity {
             // Update FAB action
             updateFabAction();
                         // Add entrance animation for new content
-                        userListContainer.setTranslationX(25f);
-                        userListContainer.animate()
+                        contentFrame.setTranslationX(25f);
+                        contentFrame.animate()
                             .alpha(1f)
                             .translationX(0f)
                             .setDuration(100)
@@ -357,7 +658,7 @@ public class AdminDashboardActivity extends AppCompatActivity {
         reportsTab.setOnClickListener(v -> {
             if (selectedTab != reportsTab) {
                 // Add exit animation for current content
-                userListContainer.animate()
+                contentFrame.animate()
                     .alpha(0f)
                     .translationX(-25f)
                     .setDuration(100)
@@ -370,8 +671,8 @@ public class AdminDashboardActivity extends AppCompatActivity {
             // Update FAB action
             updateFabAction();
                         // Add entrance animation for new content
-                        userListContainer.setTranslationX(25f);
-                        userListContainer.animate()
+                        contentFrame.setTranslationX(25f);
+                        contentFrame.animate()
                             .alpha(1f)
                             .translationX(0f)
                             .setDuration(100)
@@ -497,8 +798,11 @@ public class AdminDashboardActivity extends AppCompatActivity {
                                             Log.w("AdminDashboard", "Error deleting user photo", e));
                                 }
                                 
-                                // Refresh the user list
-                                loadUsers();
+                                // The live list drops the card itself
+                                userDirectory.remove(userId);
+                                if (selectedTab == usersTab && !searchQuery.isEmpty()) {
+                                    applySearch(searchQuery);
+                                }
                             })
                             .addOnFailureListener(e -> {
                                 Log.e("AdminDashboard", "Error deleting user document", e);
@@ -523,122 +827,9 @@ public class AdminDashboardActivity extends AppCompatActivity {
     }
     
     private void loadOffices() {
-        // Clear existing user list
-        userListContainer.removeAllViews();
-        
-        // Add animation to container
-        userListContainer.setLayoutAnimation(AnimationUtils.loadLayoutAnimation(this, R.anim.layout_animation_scale_up));
-        
-        // Debug message
-        Log.d("AdminDashboard", "Loading offices from Firestore...");
-        
-        // Load offices from Firestore
-        db.collection("locations")
-            .get()
-            .addOnCompleteListener(task -> {
-                if (task.isSuccessful()) {
-                    Log.d("AdminDashboard", "Query completed successfully");
-                    if (task.getResult().isEmpty()) {
-                        // No offices found, show empty state
-                        Log.d("AdminDashboard", "No offices found in database");
-                        showEmptyOfficesState();
-                    } else {
-                        // Hide empty state if it exists
-                        hideEmptyState();
-                        
-                        // Create a list to sort offices by name
-                        List<Map.Entry<String, QueryDocumentSnapshot>> offices = new ArrayList<>();
-                        for (QueryDocumentSnapshot document : task.getResult()) {
-                            String officeName = document.getString("officeName");
-                            if (officeName != null) {
-                                offices.add(new AbstractMap.SimpleEntry<>(officeName, document));
-                            }
-                        }
-                        
-                        // Sort offices by name
-                        Collections.sort(offices, (a, b) -> a.getKey().compareTo(b.getKey()));
-                        
-                        // Add sorted offices to the view
-                        int count = 0;
-                        for (Map.Entry<String, QueryDocumentSnapshot> entry : offices) {
-                            count++;
-                            QueryDocumentSnapshot document = entry.getValue();
-                            Map<String, Object> officeData = document.getData();
-                            String officeId = document.getId();
-                            Log.d("AdminDashboard", "Adding office: " + entry.getKey() + " (ID: " + officeId + ")");
-                            addOfficeCard(officeId, officeData);
-                        }
-                        Log.d("AdminDashboard", "Added " + count + " office(s) to the view");
-                        
-                        // Start the layout animation
-                        userListContainer.scheduleLayoutAnimation();
-                    }
-                } else {
-                    Log.e("AdminDashboard", "Error loading offices", task.getException());
-                    Toast.makeText(AdminDashboardActivity.this, 
-                            "Error loading offices: " + task.getException().getMessage(), 
-                            Toast.LENGTH_SHORT).show();
-                }
-            });
-    }
-    
-    private void addOfficeCard(String officeId, Map<String, Object> officeData) {
-        // Inflate the office card layout
-        View officeCardView = LayoutInflater.from(this).inflate(
-                R.layout.item_office_card, userListContainer, false);
-        
-        // Get views from the card layout
-        TextView nameText = officeCardView.findViewById(R.id.userNameText);
-        TextView sevarthIdText = officeCardView.findViewById(R.id.sevarthIdText);
-        TextView emailText = officeCardView.findViewById(R.id.emailText);
-        TextView locationText = officeCardView.findViewById(R.id.locationText);
-        ImageView editButton = officeCardView.findViewById(R.id.editButton);
-        ImageView deleteButton = officeCardView.findViewById(R.id.deleteButton);
-        
-        // Set office data to views
-        String officeName = (String) officeData.get("officeName");
-        String taluka = (String) officeData.get("taluka");
-        Double latitude = (Double) officeData.get("latitude");
-        Double longitude = (Double) officeData.get("longitude");
-        
-        // Handle radius which could be Integer or Long
-        Object radiusObj = officeData.get("radius");
-        String radiusStr = "100m"; // Default
-        if (radiusObj instanceof Long) {
-            radiusStr = ((Long) radiusObj) + "m";
-        } else if (radiusObj instanceof Integer) {
-            radiusStr = ((Integer) radiusObj) + "m";
-        } else if (radiusObj instanceof Double) {
-            radiusStr = ((int) ((Double) radiusObj).doubleValue()) + "m";
-        }
-        
-        nameText.setText(officeName != null ? officeName : "Office");
-        sevarthIdText.setText("Taluka: " + (taluka != null ? taluka : "Not set"));
-        emailText.setText("Location: " + (latitude != null && longitude != null ? 
-                latitude + ", " + longitude : "Not set"));
-        locationText.setText("Radius: " + radiusStr);
-        
-        // Set click listeners for action buttons
-        editButton.setOnClickListener(v -> editOffice(officeId, officeData));
-        deleteButton.setOnClickListener(v -> deleteOffice(officeId));
-        
-        // Add the office card to the container with animation
-        officeCardView.setAlpha(0f);
-        officeCardView.setTranslationY(25);
-        officeCardView.setScaleX(0.9f);
-        officeCardView.setScaleY(0.9f);
-        userListContainer.addView(officeCardView);
-        
-        // Animate the card entry with scale and fade
-        officeCardView.animate()
-                .alpha(1f)
-                .translationY(0)
-                .scaleX(1f)
-                .scaleY(1f)
-                .setDuration(150)
-                .setStartDelay(50)
-                .setInterpolator(new OvershootInterpolator(0.5f))
-                .start();
+        // Offices come from the live list, sorted by name; nothing is read again on a tab switch
+        Log.d("AdminDashboard", "Showing offices, " + officesPager.getRows().size() + " loaded");
+        showList(officesPager, officeAdapter);
     }
     
     private void showEmptyOfficesState() {
@@ -673,8 +864,7 @@ public class AdminDashboardActivity extends AppCompatActivity {
                 .addOnSuccessListener(aVoid -> {
                     Log.d("AdminDashboard", "Office deleted successfully");
                     Toast.makeText(AdminDashboardActivity.this, "Office deleted successfully", Toast.LENGTH_SHORT).show();
-                    // Refresh the office list
-                    loadOffices();
+                    // The live list drops the card itself
                 })
                 .addOnFailureListener(e -> {
                     Log.e("AdminDashboard", "Error deleting office", e);
@@ -692,6 +882,7 @@ public class AdminDashboardActivity extends AppCompatActivity {
      */
     private void loadReports() {
         // Clear existing list
+        showCards();
         userListContainer.removeAllViews();
         
         // Create modern UI for reports dashboard
@@ -703,7 +894,7 @@ public class AdminDashboardActivity extends AppCompatActivity {
                 "User Reports",
                 "View attendance records for individual users",
                 "View Details",
-                String.valueOf(getUserCount()) + " users",
+                countText(usersPager, "users"),
                 R.drawable.gradient_users,
                 v -> {
                     Intent intent = new Intent(AdminDashboardActivity.this, UserReportsActivity.class);
@@ -711,6 +902,7 @@ public class AdminDashboardActivity extends AppCompatActivity {
                     overridePendingTransition(R.anim.slide_in_right, R.anim.slide_out_left);
                 });
         userListContainer.addView(userReportsCard);
+        userReportsStatus = userReportsCard.findViewById(R.id.statusInfo);
         
         // Add Daily Reports option
         View dailyReportsCard = createDashboardCard(
@@ -718,7 +910,7 @@ public class AdminDashboardActivity extends AppCompatActivity {
                 "Daily Reports",
                 "View attendance statistics for specific dates",
                 "View Details",
-                "Today",
+                todayCheckInsText.getText().toString(),
                 R.drawable.gradient_primary,
                 v -> {
                     Intent intent = new Intent(AdminDashboardActivity.this, DailyReportsActivity.class);
@@ -726,6 +918,7 @@ public class AdminDashboardActivity extends AppCompatActivity {
                     overridePendingTransition(R.anim.slide_in_right, R.anim.slide_out_left);
                 });
         userListContainer.addView(dailyReportsCard);
+        dailyReportsStatus = dailyReportsCard.findViewById(R.id.statusInfo);
         
         // Add Location Reports option
         View locationReportsCard = createDashboardCard(
@@ -733,7 +926,7 @@ public class AdminDashboardActivity extends AppCompatActivity {
                 "Location Reports",
                 "View attendance data for different office locations",
                 "View Details",
-                String.valueOf(getOfficeCount()) + " offices",
+                countText(officesPager, "offices"),
                 R.drawable.gradient_office,
                 v -> {
                     Intent intent = new Intent(AdminDashboardActivity.this, LocationReportsActivity.class);
@@ -741,11 +934,74 @@ public class AdminDashboardActivity extends AppCompatActivity {
                     overridePendingTransition(R.anim.slide_in_right, R.anim.slide_out_left);
                 });
         userListContainer.addView(locationReportsCard);
+        locationReportsStatus = locationReportsCard.findViewById(R.id.statusInfo);
+        
+        // Add attendance data migration option
+        View migrationCard = createDashboardCard(
+                R.drawable.ic_calendar,
+                "Migrate Attendance Data",
+                "Merge legacy attendance records into the current format",
+                "Start Migration",
+                "Checking...",
+                R.drawable.gradient_reports,
+                v -> confirmAttendanceMigration());
+        userListContainer.addView(migrationCard);
+        observeAttendanceMigration(migrationCard.findViewById(R.id.statusInfo));
         
         // Start the layout animation
         userListContainer.scheduleLayoutAnimation();
     }
     
+    /**
+     * Ask before starting the attendance migration; it rewrites every legacy record
+     */
+    private void confirmAttendanceMigration() {
+        new androidx.appcompat.app.AlertDialog.Builder(this)
+                .setTitle("Migrate Attendance Data")
+                .setMessage("Legacy attendance records will be copied into the current format. "
+                        + "The migration runs in the background and resumes if interrupted.")
+                .setPositiveButton("Start", (dialog, which) -> {
+                    AttendanceMigrationWorker.start(this);
+                    Toast.makeText(this, "Attendance migration started", Toast.LENGTH_SHORT).show();
+                })
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+    
+    /**
+     * Show the migration state in the card's status line
+     */
+    private void observeAttendanceMigration(TextView statusView) {
+        LiveData<List<WorkInfo>> workInfos = WorkManager.getInstance(this)
+                .getWorkInfosForUniqueWorkLiveData(AttendanceMigrationWorker.WORK_NAME);
+        workInfos.removeObservers(this);
+        workInfos.observe(this, infos -> {
+            if (infos == null || infos.isEmpty()) {
+                statusView.setText("Not started");
+                return;
+            }
+            WorkInfo info = infos.get(0);
+            Data data = info.getState() == WorkInfo.State.SUCCEEDED ? info.getOutputData() : info.getProgress();
+            long migrated = data.getLong(AttendanceMigrationWorker.KEY_MIGRATED, 0);
+            switch (info.getState()) {
+                case SUCCEEDED:
+                    statusView.setText("Complete, " + migrated + " records");
+                    break;
+                case RUNNING:
+                    statusView.setText(String.format(Locale.getDefault(), "%d records, %.0f/s",
+                            migrated, data.getFloat(AttendanceMigrationWorker.KEY_DOCS_PER_SECOND, 0f)));
+                    break;
+                case ENQUEUED:
+                case BLOCKED:
+                    statusView.setText("Waiting for network");
+                    break;
+                default:
+                    statusView.setText("Stopped");
+                    break;
+            }
+        });
+    }
+    
     /**
      * Create a dashboard card with the modern design
      */
@@ -792,20 +1048,4 @@ public class AdminDashboardActivity extends AppCompatActivity {
         
         return cardView;
     }
-    
-    /**
-     * Get count of users for status display
-     */
-    private int getUserCount() {
-        // Default value
-        return 0;
-    }
-    
-    /**
-     * Get count of offices for status display
-     */
-    private int getOfficeCount() {
-        // Default value
-        return 0;
-    }
 } 
\ No newline at end of file
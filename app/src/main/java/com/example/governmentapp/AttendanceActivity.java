@@ -9,6 +9,9 @@ import androidx.activity.result.ActivityResultLauncher;
 import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.app.AppCompatDelegate;
+import androidx.work.WorkManager;
+import com.example.governmentapp.utils.AttendanceQueue;
+import com.example.governmentapp.utils.AttendanceSyncWorker;
 import com.google.android.material.button.MaterialButton;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
@@ -16,9 +19,7 @@ import com.google.firebase.firestore.FirebaseFirestore;
 
 import java.text.SimpleDateFormat;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.Locale;
-import java.util.Map;
 
 public class AttendanceActivity extends AppCompatActivity {
     private static final int REQUEST_CODE_FACE_DETECTION = 100;
@@ -27,6 +28,7 @@ public class AttendanceActivity extends AppCompatActivity {
     private TextView welcomeText;
     private TextView dateText;
     private TextView officeText;
+    private TextView pendingSyncText;
     private MaterialButton checkInButton;
     private MaterialButton checkOutButton;
     private MaterialButton viewHistoryButton;
@@ -55,6 +57,7 @@ public class AttendanceActivity extends AppCompatActivity {
                         // Record the attendance in Firestore
                         recordAttendance(type);
                     }
+                    updatePendingSyncState();
                 }
             });
 
@@ -92,6 +95,7 @@ public class AttendanceActivity extends AppCompatActivity {
         welcomeText = findViewById(R.id.welcomeTextView);
         dateText = findViewById(R.id.dateTextView);
         officeText = findViewById(R.id.officeTextView);
+        pendingSyncText = findViewById(R.id.pendingSyncTextView);
         checkInButton = findViewById(R.id.checkInButton);
         checkOutButton = findViewById(R.id.checkOutButton);
         viewHistoryButton = findViewById(R.id.viewHistoryButton);
@@ -117,6 +121,11 @@ public class AttendanceActivity extends AppCompatActivity {
             backButton.setOnClickListener(v -> goBack());
         }
         logoutButton.setOnClickListener(v -> logout());
+
+        // Refresh the pending sync count whenever the upload job changes state
+        WorkManager.getInstance(this)
+            .getWorkInfosForUniqueWorkLiveData(AttendanceSyncWorker.WORK_NAME)
+            .observe(this, workInfos -> updatePendingSyncState());
     }
     
     private void setupUserInfo() {
@@ -152,27 +161,31 @@ public class AttendanceActivity extends AppCompatActivity {
     }
     
     private void recordAttendance(String type) {
-        FirebaseUser user = mAuth.getCurrentUser();
-        if (user == null) return;
-        
-        // Create a record of the attendance with the location
-        Map<String, Object> attendanceRecord = new HashMap<>();
-        attendanceRecord.put("userId", user.getUid());
-        attendanceRecord.put("userEmail", user.getEmail());
-        attendanceRecord.put("type", type);
-        attendanceRecord.put("timestamp", new Date());
-        attendanceRecord.put("locationId", locationId);
-        attendanceRecord.put("locationName", locationName);
-        
-        // Add to Firestore
-        db.collection("attendance")
-            .add(attendanceRecord)
-            .addOnSuccessListener(documentReference -> {
-                Toast.makeText(this, type + " successful", Toast.LENGTH_SHORT).show();
-            })
-            .addOnFailureListener(e -> {
-                Toast.makeText(this, "Failed to record " + type + ". Please try again.", Toast.LENGTH_SHORT).show();
-            });
+        // FaceDetectionActivity has already queued the canonical record for this check-in,
+        // with this screen's location, so there is nothing more to write here
+        boolean pendingSync = AttendanceQueue.getInstance(this).getPendingCount() > 0;
+        Toast.makeText(this, type + " successful" + (pendingSync ? " (pending sync)" : ""),
+                Toast.LENGTH_SHORT).show();
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        updatePendingSyncState();
+    }
+
+    // Show how many check-ins are saved on the device but not yet uploaded
+    private void updatePendingSyncState() {
+        if (pendingSyncText == null) return;
+        int pending = AttendanceQueue.getInstance(this).getPendingCount();
+        if (pending > 0) {
+            pendingSyncText.setText(pending == 1
+                    ? "1 record pending sync"
+                    : pending + " records pending sync");
+            pendingSyncText.setVisibility(View.VISIBLE);
+        } else {
+            pendingSyncText.setVisibility(View.GONE);
+        }
     }
     
     private void viewAttendanceHistory() {
@@ -15,6 +15,12 @@ import androidx.appcompat.widget.Toolbar;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.example.governmentapp.time.AttendanceTimeParser;
+import com.example.governmentapp.utils.AttendanceAggregator;
+import com.example.governmentapp.utils.AttendanceMigration;
+import com.example.governmentapp.utils.AttendanceMirror;
+import com.example.governmentapp.utils.AttendanceTimes;
+import com.example.governmentapp.utils.AttendanceWriter;
 import com.google.android.material.progressindicator.LinearProgressIndicator;
 import com.google.android.material.tabs.TabLayout;
 import com.google.firebase.auth.FirebaseAuth;
@@ -22,7 +28,6 @@ import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.QueryDocumentSnapshot;
 
-import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -32,6 +37,7 @@ import java.util.Comparator;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 public class AttendanceHistoryActivity extends AppCompatActivity {
     private static final String TAG = "AttendanceHistory";
@@ -168,8 +174,84 @@ public class AttendanceHistoryActivity extends AppCompatActivity {
         
         Log.d(TAG, "Looking for attendance records for user with email: " + userEmail + " and UID: " + userUid);
         
-        // First, check exactly as shown in the screenshot
-        checkAttendanceCollection(userEmail, userUid);
+        // Devices that already hold a local copy of the records answer from it
+        AttendanceMirror mirror = AttendanceMirror.getInstance(this);
+        if (mirror.isReady()) {
+            loadMirroredAttendance(mirror, userEmail, userUid, true);
+        } else {
+            loadFromFirestore(userEmail, userUid);
+        }
+    }
+    
+    private void loadMirroredAttendance(AttendanceMirror mirror, String userEmail, String userUid, boolean sync) {
+        mirror.loadRecords(AttendanceMirror.Selection.allDays().userId(userUid).newestFirst())
+            .addOnSuccessListener(records -> {
+                if (records == null) {
+                    loadFromFirestore(userEmail, userUid);
+                    return;
+                }
+                allRecords.clear();
+                for (Map<String, Object> data : records) {
+                    AttendanceRecord record = getAttendanceRecord((String) data.get(AttendanceMirror.FIELD_ID), data);
+                    if (record != null) {
+                        allRecords.add(record);
+                    }
+                }
+                processRecordsAndUpdateUI();
+                
+                // Then bring the copy up to date and show any new records
+                if (sync) {
+                    mirror.sync().addOnSuccessListener(changed -> {
+                        if (changed > 0 && !isFinishing()) {
+                            loadMirroredAttendance(mirror, userEmail, userUid, false);
+                        }
+                    });
+                }
+            })
+            .addOnFailureListener(e -> {
+                Log.e(TAG, "Error reading local attendance, loading from Firestore", e);
+                loadFromFirestore(userEmail, userUid);
+            });
+    }
+    
+    private void loadFromFirestore(String userEmail, String userUid) {
+        // Once the legacy collections are migrated every record is canonical and keyed by UID
+        db.collection(AttendanceMigration.CHECKPOINT_COLLECTION)
+            .document(AttendanceMigration.CHECKPOINT_DOCUMENT)
+            .get()
+            .addOnSuccessListener(checkpoint -> {
+                if (AttendanceMigration.STATUS_COMPLETE.equals(checkpoint.getString("status"))) {
+                    loadCanonicalAttendance(userUid);
+                } else {
+                    checkAttendanceCollection(userEmail, userUid);
+                }
+            })
+            .addOnFailureListener(e -> {
+                Log.e(TAG, "Error reading migration status", e);
+                checkAttendanceCollection(userEmail, userUid);
+            });
+    }
+    
+    private void loadCanonicalAttendance(String userUid) {
+        db.collection(AttendanceWriter.COLLECTION)
+            .whereEqualTo(AttendanceWriter.FIELD_USER_ID, userUid)
+            .get()
+            .addOnSuccessListener(queryDocumentSnapshots -> {
+                Log.d(TAG, "Retrieved " + queryDocumentSnapshots.size() + " canonical attendance records");
+                for (QueryDocumentSnapshot document : queryDocumentSnapshots) {
+                    AttendanceRecord record = getAttendanceRecordFromDocument(document);
+                    if (record != null) {
+                        allRecords.add(record);
+                    }
+                }
+                processRecordsAndUpdateUI();
+            })
+            .addOnFailureListener(e -> {
+                Log.e(TAG, "Error loading attendance records", e);
+                hideLoading();
+                showEmptyState();
+                Toast.makeText(AttendanceHistoryActivity.this, "Failed to load attendance records", Toast.LENGTH_SHORT).show();
+            });
     }
     
     private void checkAttendanceCollection(String userEmail, String userUid) {
@@ -327,53 +409,33 @@ public class AttendanceHistoryActivity extends AppCompatActivity {
     }
     
     private AttendanceRecord getAttendanceRecordFromDocument(QueryDocumentSnapshot document) {
-        String date = document.getString("date");
-        String time = document.getString("time");
-        String type = document.getString("type");
-        String locationName = document.getString("locationName");
-        
-        // Handle Firebase timestamp format (as seen in screenshot)
-        if (date == null && document.contains("timestamp")) {
-            // Extract date and time from timestamp field
-            try {
-                // Try to get timestamp as a Date object first
-                Date timestamp = document.getDate("timestamp");
-                if (timestamp != null) {
-                    SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
-                    SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm:ss", Locale.getDefault());
-                    date = dateFormat.format(timestamp);
-                    time = timeFormat.format(timestamp);
-                    Log.d(TAG, "Converted timestamp to date: " + date + " and time: " + time);
-                } else {
-                    // If not a Date, try as string (as seen in the screenshot)
-                    String timestampStr = document.getString("timestamp");
-                    if (timestampStr != null) {
-                        Log.d(TAG, "Found timestamp string: " + timestampStr);
-                        // Parse timestamp like "May 13, 2025 at 10:18:10PM UTC+5:30"
-                        // This is complex, so we'll extract approximately
-                        try {
-                            // Parse a string like "May 13, 2025 at 10:18:10PM"
-                            SimpleDateFormat inputFormat = new SimpleDateFormat("MMM dd, yyyy 'at' hh:mm:ssa", Locale.US);
-                            // Remove timezone part for parsing
-                            String trimmedTimestamp = timestampStr;
-                            if (timestampStr.contains("UTC")) {
-                                trimmedTimestamp = timestampStr.substring(0, timestampStr.indexOf("UTC")).trim();
-                            }
-                            Date parsedDate = inputFormat.parse(trimmedTimestamp);
-                            if (parsedDate != null) {
-                                SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
-                                SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm:ss", Locale.getDefault());
-                                date = dateFormat.format(parsedDate);
-                                time = timeFormat.format(parsedDate);
-                                Log.d(TAG, "Parsed timestamp string to date: " + date + " and time: " + time);
-                            }
-                        } catch (ParseException e) {
-                            Log.e(TAG, "Error parsing timestamp string", e);
-                        }
-                    }
-                }
-            } catch (Exception e) {
-                Log.e(TAG, "Error processing timestamp field", e);
+        return getAttendanceRecord(document.getId(), document.getData());
+    }
+    
+    private AttendanceRecord getAttendanceRecord(String id, Map<String, Object> data) {
+        String date = stringField(data, "date");
+        String time = stringField(data, "time");
+        String type = stringField(data, "type");
+        String locationName = stringField(data, "locationName");
+
+        // Canonical records store CHECK_IN/CHECK_OUT; this screen shows and filters "check in"/"check out"
+        if (AttendanceWriter.TYPE_CHECK_IN.equals(type)) {
+            type = "check in";
+        } else if (AttendanceWriter.TYPE_CHECK_OUT.equals(type)) {
+            type = "check out";
+        }
+
+        // Records without date/time fields only have a Timestamp or a legacy timestamp string
+        // like "May 13, 2025 at 10:18:10PM UTC+5:30"
+        if (date == null && data.containsKey("timestamp")) {
+            Object timestamp = data.get("timestamp");
+            long millis = AttendanceTimes.toMillis(timestamp);
+            if (millis != AttendanceTimes.UNKNOWN) {
+                date = AttendanceTimes.formatDate(millis);
+                time = AttendanceTimes.formatTime(millis);
+                Log.d(TAG, "Converted timestamp to date: " + date + " and time: " + time);
+            } else {
+                Log.e(TAG, "Error parsing timestamp: " + timestamp);
             }
         }
         
@@ -381,13 +443,13 @@ public class AttendanceHistoryActivity extends AppCompatActivity {
             // Handle case where type is missing
             if (type == null) {
                 // Try to infer from other fields or use default
-                if (document.contains("checkInTime")) {
+                if (data.containsKey("checkInTime")) {
                     type = "check in";
-                } else if (document.contains("checkOutTime")) {
+                } else if (data.containsKey("checkOutTime")) {
                     type = "check out";
                 } else {
                     // Check the format in the screenshot
-                    type = document.getString("type");
+                    type = stringField(data, "type");
                     if (type == null) {
                         type = "attendance";
                     }
@@ -396,7 +458,7 @@ public class AttendanceHistoryActivity extends AppCompatActivity {
             
             // Handle missing location name
             if (locationName == null) {
-                locationName = document.getString("locationName");
+                locationName = stringField(data, "locationName");
                 if (locationName == null) {
                     // Try other possible field names seen in the screenshot
                     locationName = "Unknown Location";
@@ -404,7 +466,7 @@ public class AttendanceHistoryActivity extends AppCompatActivity {
             }
             
             return new AttendanceRecord(
-                    document.getId(),
+                    id,
                     date,
                     time,
                     type,
@@ -414,24 +476,20 @@ public class AttendanceHistoryActivity extends AppCompatActivity {
         return null;
     }
     
+    private static String stringField(Map<String, Object> data, String field) {
+        Object value = data.get(field);
+        return value instanceof String ? (String) value : null;
+    }
+    
     private void processRecordsAndUpdateUI() {
         // Sort records by date (newest first)
+        AttendanceTimeParser parser = AttendanceTimes.parser();
         Collections.sort(allRecords, new Comparator<AttendanceRecord>() {
-            private final DateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.getDefault());
-            
             @Override
             public int compare(AttendanceRecord o1, AttendanceRecord o2) {
-                try {
-                    Date date1 = dateFormat.parse(o1.date + " " + o1.time);
-                    Date date2 = dateFormat.parse(o2.date + " " + o2.time);
-                    
-                    if (date1 != null && date2 != null) {
-                        return date2.compareTo(date1); // Descending order
-                    }
-                } catch (ParseException e) {
-                    Log.e(TAG, "Error parsing date", e);
-                }
-                return 0;
+                // Descending order; records that cannot be parsed go last
+                return Long.compare(parser.parseDateTime(o2.date, o2.time),
+                        parser.parseDateTime(o1.date, o1.time));
             }
         });
         
@@ -450,51 +508,24 @@ public class AttendanceHistoryActivity extends AppCompatActivity {
     }
     
     private void updateStatistics() {
-        int monthCount = 0;
-        int weekCount = 0;
-        int dayCount = 0;
+        // One pass over the records, counting them by day
+        AttendanceTimeParser parser = AttendanceTimes.parser();
+        AttendanceAggregator aggregator = new AttendanceAggregator(parser);
+        for (AttendanceRecord record : allRecords) {
+            aggregator.add(record.locationName, null, null, record.type,
+                    parser.parseDateTime(record.date, record.time));
+        }
         
-        // Get current date
+        // Today, the last 7 days including today, and this month
+        long now = System.currentTimeMillis();
+        long today = parser.epochDay(now);
         Calendar calendar = Calendar.getInstance();
-        Date today = calendar.getTime();
-        
-        // Get 7 days ago
-        calendar.add(Calendar.DAY_OF_YEAR, -7);
-        Date sevenDaysAgo = calendar.getTime();
-        
-        // Get first day of month
-        calendar = Calendar.getInstance();
         calendar.set(Calendar.DAY_OF_MONTH, 1);
-        Date firstDayOfMonth = calendar.getTime();
+        long firstDayOfMonth = parser.epochDay(calendar.getTimeInMillis());
         
-        // Date format for comparing
-        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
-        String todayStr = dateFormat.format(today);
-        
-        try {
-            for (AttendanceRecord record : allRecords) {
-                Date recordDate = dateFormat.parse(record.date);
-                
-                if (recordDate != null) {
-                    // Check if record is from today
-                    if (dateFormat.format(recordDate).equals(todayStr)) {
-                        dayCount++;
-                    }
-                    
-                    // Check if record is from this week (last 7 days)
-                    if (recordDate.after(sevenDaysAgo) || recordDate.equals(sevenDaysAgo)) {
-                        weekCount++;
-                    }
-                    
-                    // Check if record is from this month
-                    if (recordDate.after(firstDayOfMonth) || recordDate.equals(firstDayOfMonth)) {
-                        monthCount++;
-                    }
-                }
-            }
-        } catch (ParseException e) {
-            Log.e(TAG, "Error parsing date for statistics", e);
-        }
+        int dayCount = aggregator.getDayCount(today);
+        int weekCount = aggregator.countFromDay(today - 6);
+        int monthCount = aggregator.countFromDay(firstDayOfMonth);
         
         // Update UI
         thisMonthCount.setText(String.valueOf(monthCount));
@@ -17,26 +17,39 @@ import android.widget.Toast;
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.cardview.widget.CardView;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.google.firebase.firestore.Query;
 
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
 
+import com.example.governmentapp.utils.AttendanceAggregator;
+import com.example.governmentapp.utils.AttendanceMirror;
+import com.example.governmentapp.utils.AttendanceQueries;
+import com.example.governmentapp.utils.AttendanceStats;
+import com.example.governmentapp.utils.AttendanceTimes;
+import com.example.governmentapp.utils.AttendanceWriter;
+import com.example.governmentapp.utils.CsvReportExporter;
 import com.example.governmentapp.utils.EmailReportUtil;
+import com.example.governmentapp.utils.FirestorePager;
+import com.example.governmentapp.utils.ReportExporter;
+import com.example.governmentapp.utils.UserDirectory;
 
 public class DailyReportsActivity extends AppCompatActivity {
     
@@ -55,7 +68,15 @@ public class DailyReportsActivity extends AppCompatActivity {
     private CardView detailTableCard;
     private TextView noDataText;
     private Button emailReportButton;
-    private List<Map<String, Object>> currentReports = new ArrayList<>();
+    // Running email export, cancelled with the screen
+    private ReportExporter reportExport;
+    // Local copy of the attendance records; the screen reads it once it is ready
+    private AttendanceMirror mirror;
+    private int loadGeneration = 0;
+    // Pages the detail table; the generation discards pagers set up for an earlier date
+    private FirestorePager<AttendanceRecord> detailPager;
+    private int detailGeneration = 0;
+    // User names by email, loaded once
     
     private DailySummaryAdapter summaryAdapter;
     private DailyDetailAdapter detailAdapter;
@@ -67,6 +88,7 @@ public class DailyReportsActivity extends AppCompatActivity {
         
         // Initialize Firestore
         db = FirebaseFirestore.getInstance();
+        mirror = AttendanceMirror.getInstance(this);
         
         // Initialize UI components
         titleText = findViewById(R.id.titleText);
@@ -109,27 +131,68 @@ public class DailyReportsActivity extends AppCompatActivity {
                 dailyReportsList.setVisibility(View.VISIBLE);
                 detailTableCard.setVisibility(View.GONE);
             } else {
-                // Show detailed view
+                // Show detailed view, paging in the records on first use
                 dailyReportsList.setVisibility(View.GONE);
                 detailTableCard.setVisibility(View.VISIBLE);
+                if (detailPager == null) {
+                    loadDetail();
+                }
             }
         });
         
         // Set up email report button
-        emailReportButton.setOnClickListener(v -> {
-            if (!currentReports.isEmpty()) {
-                SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
-                String reportDate = sdf.format(selectedDate.getTime());
-                EmailReportUtil.generateAndSendReport(this, currentReports, "Daily_" + reportDate);
-            } else {
-                Toast.makeText(this, "No data available to generate report", Toast.LENGTH_SHORT).show();
-            }
-        });
+        emailReportButton.setOnClickListener(v -> sendEmailReport());
         
         // Load today's attendance data
         loadDailyAttendanceReports();
     }
     
+    /**
+     * Stream the records of the selected day into a CSV or PDF report in the background and send it
+     */
+    private void sendEmailReport() {
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
+        String reportType = "Daily_" + sdf.format(selectedDate.getTime());
+        Date day = selectedDate.getTime();
+        long selectedDay = selectedDate.getTimeInMillis();
+        EmailReportUtil.chooseFormat(this, reportType, CsvReportExporter.Compression.NONE, exporter -> {
+            if (mirror.isReady()) {
+                long epochDay = AttendanceWriter.epochDay(day);
+                reportExport = EmailReportUtil.exportAndSendReport(this, exporter, mirror,
+                        AttendanceMirror.Selection.days(epochDay, epochDay), reportType);
+                return;
+            }
+            fetchUsers(users -> reportExport = EmailReportUtil.exportAndSendReport(this, exporter,
+                    AttendanceQueries.rangeQueries(db, day, day, null, null, Query.Direction.ASCENDING),
+                    document -> toReportRecord(document, users, selectedDay), reportType));
+        });
+    }
+    
+    // Record as stored, with the name filled in from the directory for legacy records
+    private Map<String, Object> toReportRecord(DocumentSnapshot document, UserDirectory users,
+                                               long selectedDay) {
+        Map<String, Object> data = document.getData();
+        if (data == null || !isOnSelectedDay(data.get("timestamp"), selectedDay)) {
+            return null;
+        }
+        Object userName = data.get("userName");
+        if (userName == null || userName.toString().isEmpty()) {
+            String directoryName = users.getName((String) data.get("userEmail"));
+            if (directoryName != null) {
+                data.put("userName", directoryName);
+            }
+        }
+        return data;
+    }
+    
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (reportExport != null) {
+            reportExport.cancel();
+        }
+    }
+    
     private void showDatePickerDialog() {
         DatePickerDialog datePickerDialog = new DatePickerDialog(
                 this,
@@ -154,199 +217,307 @@ public class DailyReportsActivity extends AppCompatActivity {
     }
     
     private void loadDailyAttendanceReports() {
-        // Show loading message
-        Toast.makeText(this, "Loading reports...", Toast.LENGTH_SHORT).show();
-        
         // Hide views
         dailyReportsList.setVisibility(View.GONE);
         detailTableCard.setVisibility(View.GONE);
         noDataText.setVisibility(View.GONE);
         
-        // Create start and end of day timestamps
-        Calendar startOfDay = (Calendar) selectedDate.clone();
-        startOfDay.set(Calendar.HOUR_OF_DAY, 0);
-        startOfDay.set(Calendar.MINUTE, 0);
-        startOfDay.set(Calendar.SECOND, 0);
+        if (detailPager != null) {
+            detailPager.cancel();
+            detailPager = null;
+        }
         
-        Calendar endOfDay = (Calendar) selectedDate.clone();
-        endOfDay.set(Calendar.HOUR_OF_DAY, 23);
-        endOfDay.set(Calendar.MINUTE, 59);
-        endOfDay.set(Calendar.SECOND, 59);
+        int generation = ++loadGeneration;
+        if (summaryRadioButton.isChecked()) {
+            if (mirror.isReady()) {
+                loadSummaryFromMirror();
+            } else {
+                loadDailySummary();
+            }
+        } else {
+            loadDetail();
+        }
         
-        Date startDate = startOfDay.getTime();
-        Date endDate = endOfDay.getTime();
+        // Bring the local copy up to date; show the day again if records came in
+        mirror.sync().addOnSuccessListener(changed -> {
+            if (changed > 0 && generation == loadGeneration && !isFinishing()) {
+                loadDailyAttendanceReports();
+            }
+        });
+    }
+    
+    /**
+     * Summary counted by the local mirror with one grouped query
+     */
+    private void loadSummaryFromMirror() {
+        long epochDay = AttendanceWriter.epochDay(selectedDate.getTime());
+        int generation = loadGeneration;
+        mirror.loadLocationCounts(epochDay, epochDay)
+            .addOnSuccessListener(counts -> {
+                if (generation != loadGeneration) return;
+                if (counts == null) {
+                    loadDailySummary();
+                    return;
+                }
+                if (counts.isEmpty()) {
+                    summaryAdapter.setSummaryData(new ArrayList<>());
+                    noDataText.setVisibility(View.VISIBLE);
+                    return;
+                }
+                
+                int total = 0;
+                for (int count : counts.values()) {
+                    total += count;
+                }
+                List<Map<String, Object>> summaryData = new ArrayList<>();
+                summaryData.add(createSummaryItem("Total Check-ins", total));
+                for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+                    summaryData.add(createSummaryItem(entry.getKey(), entry.getValue()));
+                }
+                summaryAdapter.setSummaryData(summaryData);
+                
+                dailyReportsList.setVisibility(View.VISIBLE);
+                detailTableCard.setVisibility(View.GONE);
+                noDataText.setVisibility(View.GONE);
+            })
+            .addOnFailureListener(e -> {
+                Log.e(TAG, "Error reading local attendance, loading from Firestore", e);
+                loadDailySummary();
+            });
+    }
+    
+    /**
+     * Detail table from the local mirror if it is ready, otherwise paged from Firestore
+     */
+    private void loadDetail() {
+        if (!mirror.isReady()) {
+            startDetailPager();
+            return;
+        }
+        dailyReportsList.setVisibility(View.GONE);
+        detailTableCard.setVisibility(View.VISIBLE);
+        noDataText.setVisibility(View.GONE);
         
-        Log.d(TAG, "Loading attendance records between " + startDate + " and " + endDate);
+        long selectedDay = selectedDate.getTimeInMillis();
+        long epochDay = AttendanceWriter.epochDay(selectedDate.getTime());
+        int generation = ++detailGeneration;
+        UserDirectory users = UserDirectory.getInstance(this);
+        mirror.loadRecords(AttendanceMirror.Selection.days(epochDay, epochDay))
+            .addOnSuccessListener(records -> {
+                if (generation != detailGeneration) return;
+                if (records == null) {
+                    startDetailPager();
+                    return;
+                }
+                List<AttendanceRecord> rows = new ArrayList<>(records.size());
+                for (Map<String, Object> record : records) {
+                    AttendanceRecord row = toDetailRecord((String) record.get(AttendanceMirror.FIELD_ID),
+                            record, users, selectedDay);
+                    if (row != null) {
+                        rows.add(row);
+                    }
+                }
+                detailAdapter.submitList(rows);
+                noDataText.setVisibility(rows.isEmpty() ? View.VISIBLE : View.GONE);
+            })
+            .addOnFailureListener(e -> {
+                Log.e(TAG, "Error reading local attendance, loading from Firestore", e);
+                startDetailPager();
+            });
+    }
+    
+    /**
+     * Summary from the pre-aggregated counters; days recorded before the counters existed
+     * fall back to scanning the records
+     */
+    private void loadDailySummary() {
+        Toast.makeText(this, "Loading reports...", Toast.LENGTH_SHORT).show();
+        String date = new SimpleDateFormat("yyyy-MM-dd", Locale.US).format(selectedDate.getTime());
+        AttendanceStats.loadDay(db, date)
+            .addOnSuccessListener(summary -> {
+                if (summary.isEmpty()) {
+                    Log.d(TAG, "No counters for " + date + ", scanning records");
+                    loadDailyRecords();
+                    return;
+                }
+                
+                List<Map<String, Object>> summaryData = new ArrayList<>();
+                summaryData.add(createSummaryItem("Total Check-ins", (int) summary.getTotalRecords()));
+                for (AttendanceStats.LocationSummary location : summary.locations.values()) {
+                    String name = location.locationName != null ? location.locationName : "Office Location";
+                    summaryData.add(createSummaryItem(name, (int) location.records));
+                }
+                summaryAdapter.setSummaryData(summaryData);
+                
+                dailyReportsList.setVisibility(View.VISIBLE);
+                detailTableCard.setVisibility(View.GONE);
+                noDataText.setVisibility(View.GONE);
+                Log.d(TAG, "Loaded summary for " + date + " from " + summary.locations.size() + " locations");
+            })
+            .addOnFailureListener(e -> {
+                Log.e(TAG, "Error loading daily counters, scanning records", e);
+                loadDailyRecords();
+            });
+    }
+    
+    /**
+     * Summary from all records of the selected day, for days without counters
+     */
+    private void loadDailyRecords() {
+        Log.d(TAG, "Loading attendance records for " + AttendanceQueries.startOfDay(selectedDate.getTime()));
         
-        // First fetch users to get names
-        fetchUsers(users -> {
-            // Query all attendance records for the selected day
-            db.collection("attendance")
-                .get()
-                .addOnCompleteListener(task -> {
-                    if (task.isSuccessful()) {
-                        List<Map<String, Object>> dailyReports = new ArrayList<>();
-                        Map<String, Integer> officeCounts = new HashMap<>();
-                        
-                        if (task.getResult().isEmpty()) {
-                            Toast.makeText(this, "No attendance records found", Toast.LENGTH_SHORT).show();
+        // Query the attendance records of the selected day
+        AttendanceQueries.loadDay(db, selectedDate.getTime(), null)
+            .addOnCompleteListener(task -> {
+                if (task.isSuccessful()) {
+                    AttendanceAggregator aggregator = new AttendanceAggregator();
+                    long selectedDay = selectedDate.getTimeInMillis();
+                    
+                    for (DocumentSnapshot document : task.getResult()) {
+                        Map<String, Object> data = document.getData();
+                        if (data == null || !isOnSelectedDay(data.get("timestamp"), selectedDay)) {
+                            continue;
+                        }
+                        // Count by office location
+                        aggregator.add(getLocationName(data), (String) data.get("userEmail"),
+                                (String) data.get("userName"), (String) data.get("type"),
+                                AttendanceTimes.toMillis(data));
+                    }
+                    
+                    if (aggregator.getTotal() == 0) {
+                        Toast.makeText(this, "No attendance records found for selected date", 
+                                Toast.LENGTH_SHORT).show();
+                        if (summaryRadioButton.isChecked()) {
                             noDataText.setVisibility(View.VISIBLE);
-                            return;
                         }
+                    } else {
+                        Log.d(TAG, "Found " + aggregator.getTotal() + " attendance records for "
+                                + new SimpleDateFormat("yyyy-MM-dd", Locale.US).format(selectedDate.getTime()));
                         
-                        SimpleDateFormat sdf = new SimpleDateFormat("MMM dd, yyyy", Locale.getDefault());
-                        String selectedDateStr = sdf.format(selectedDate.getTime());
-                        
-                        List<AttendanceRecord> detailedRecords = new ArrayList<>();
+                        // Create summary data for display
+                        List<Map<String, Object>> summaryData = new ArrayList<>();
+                        summaryData.add(createSummaryItem("Total Check-ins", aggregator.getTotal()));
                         
-                        for (QueryDocumentSnapshot document : task.getResult()) {
-                            Map<String, Object> data = document.getData();
-                            Log.d(TAG, "Checking record: " + data.toString());
-                            
-                            // Check if the record belongs to the selected date
-                            Object timestampObj = data.get("timestamp");
-                            boolean isInRange = false;
-                            String formattedTime = "";
-                            
-                            if (timestampObj instanceof String) {
-                                String timestampStr = (String) timestampObj;
-                                if (timestampStr.contains(selectedDateStr)) {
-                                    isInRange = true;
-                                    // Extract time if possible
-                                    try {
-                                        SimpleDateFormat inputFormat = 
-                                                new SimpleDateFormat("MMM dd, yyyy 'at' hh:mm:ssa", Locale.US);
-                                        
-                                        // Remove timezone part if exists
-                                        if (timestampStr.contains("UTC")) {
-                                            timestampStr = timestampStr.substring(0, timestampStr.indexOf("UTC")).trim();
-                                        }
-                                        
-                                        Date recordDate = inputFormat.parse(timestampStr);
-                                        if (recordDate != null) {
-                                            formattedTime = new SimpleDateFormat("HH:mm:ss", Locale.getDefault())
-                                                    .format(recordDate);
-                                        }
-                                    } catch (ParseException e) {
-                                        formattedTime = "Unknown";
-                                        Log.e(TAG, "Error parsing date: " + timestampStr);
-                                    }
-                                }
-                            } else if (timestampObj instanceof Timestamp) {
-                                Timestamp timestamp = (Timestamp) timestampObj;
-                                Date recordDate = timestamp.toDate();
-                                if (recordDate.after(startDate) && recordDate.before(endDate)) {
-                                    isInRange = true;
-                                    formattedTime = new SimpleDateFormat("HH:mm:ss", Locale.getDefault())
-                                            .format(recordDate);
-                                }
-                            }
-                            
-                            if (isInRange) {
-                                dailyReports.add(data);
-                                
-                                // Count by office location
-                                String location = getLocationName(data);
-                                if (location != null) {
-                                    officeCounts.put(location, officeCounts.getOrDefault(location, 0) + 1);
-                                }
-                                
-                                // Add to detailed records
-                                String userEmail = (String) data.get("userEmail");
-                                String type = data.get("type") != null ? data.get("type").toString() : "Attendance";
-                                
-                                // Get user name from map
-                                String userName = users.getOrDefault(userEmail, "");
-                                
-                                // Create detailed record
-                                AttendanceRecord record = new AttendanceRecord(
-                                        document.getId(),
-                                        formattedTime,
-                                        userEmail != null ? userEmail : "Unknown User",
-                                        userName,
-                                        type,
-                                        location
-                                );
-                                
-                                detailedRecords.add(record);
-                            }
+                        // Add office-specific summaries
+                        for (Map.Entry<String, Integer> entry : aggregator.getLocationCounts().entrySet()) {
+                            summaryData.add(createSummaryItem(entry.getKey(), entry.getValue()));
                         }
                         
-                        if (dailyReports.isEmpty()) {
-                            Toast.makeText(this, "No attendance records found for selected date", 
-                                    Toast.LENGTH_SHORT).show();
-                            noDataText.setVisibility(View.VISIBLE);
-                        } else {
-                            Log.d(TAG, "Found " + dailyReports.size() + " attendance records for " + selectedDateStr);
-                            
-                            // Create summary data for display
-                            List<Map<String, Object>> summaryData = new ArrayList<>();
-                            summaryData.add(createSummaryItem("Total Check-ins", dailyReports.size()));
-                            
-                            // Add office-specific summaries
-                            for (Map.Entry<String, Integer> entry : officeCounts.entrySet()) {
-                                summaryData.add(createSummaryItem(entry.getKey(), entry.getValue()));
-                            }
-                            
-                            // Set summary adapter data
-                            summaryAdapter.setSummaryData(summaryData);
-                            
-                            // Sort detailed records by time
-                            Collections.sort(detailedRecords, (o1, o2) -> o1.time.compareTo(o2.time));
-                            
-                            // Set detail adapter data
-                            detailAdapter.setAttendanceRecords(detailedRecords);
-                            
-                            // Show appropriate view based on selection
-                            if (summaryRadioButton.isChecked()) {
-                                dailyReportsList.setVisibility(View.VISIBLE);
-                                detailTableCard.setVisibility(View.GONE);
-                            } else {
-                                dailyReportsList.setVisibility(View.GONE);
-                                detailTableCard.setVisibility(View.VISIBLE);
-                            }
-                            
+                        // Set summary adapter data
+                        summaryAdapter.setSummaryData(summaryData);
+                        if (summaryRadioButton.isChecked()) {
+                            dailyReportsList.setVisibility(View.VISIBLE);
                             noDataText.setVisibility(View.GONE);
-                            
-                            // Store the reports for email functionality
-                            currentReports = dailyReports;
                         }
-                    } else {
-                        Toast.makeText(this, "Error loading attendance records", Toast.LENGTH_SHORT).show();
-                        Log.e(TAG, "Error getting attendance records", task.getException());
-                        noDataText.setVisibility(View.VISIBLE);
                     }
-                });
-        });
+                } else {
+                    Toast.makeText(this, "Error loading attendance records", Toast.LENGTH_SHORT).show();
+                    Log.e(TAG, "Error getting attendance records", task.getException());
+                    noDataText.setVisibility(View.VISIBLE);
+                }
+            });
     }
     
-    // Helper method to fetch users and return a map of email to name
-    private void fetchUsers(OnUsersLoadedListener listener) {
-        Map<String, String> userEmailToNameMap = new HashMap<>();
+    /**
+     * Page the records of the selected day into the detail table as it scrolls
+     */
+    private void startDetailPager() {
+        if (detailPager != null) {
+            detailPager.cancel();
+            detailPager = null;
+        }
+        detailAdapter.submitList(null);
+        dailyReportsList.setVisibility(View.GONE);
+        detailTableCard.setVisibility(View.VISIBLE);
+        noDataText.setVisibility(View.GONE);
         
-        db.collection("users")
-            .get()
-            .addOnCompleteListener(task -> {
-                if (task.isSuccessful()) {
-                    for (QueryDocumentSnapshot document : task.getResult()) {
-                        String userEmail = document.getString("email");
-                        String userName = document.getString("name");
-                        
-                        if (userEmail != null && userName != null) {
-                            userEmailToNameMap.put(userEmail, userName);
-                        }
-                    }
-                    listener.onUsersLoaded(userEmailToNameMap);
-                } else {
-                    Log.e(TAG, "Error getting users", task.getException());
-                    listener.onUsersLoaded(userEmailToNameMap); // Return empty map
-                }
+        int generation = ++detailGeneration;
+        Date day = selectedDate.getTime();
+        long selectedDay = selectedDate.getTimeInMillis();
+        // Names come from the records; legacy records without one are resolved by email
+        fetchUsers(users -> AttendanceQueries.rangeQueries(db, day, day, null, null, Query.Direction.ASCENDING)
+            .addOnSuccessListener(queries -> {
+                if (generation != detailGeneration) return;
+                detailPager = new FirestorePager<>(queries,
+                        document -> toDetailRecord(document.getId(), document.getData(), users, selectedDay),
+                        new FirestorePager.Listener<AttendanceRecord>() {
+                            @Override
+                            public void onRowsLoaded(List<AttendanceRecord> rows, boolean complete) {
+                                detailAdapter.submitList(rows);
+                                noDataText.setVisibility(complete && rows.isEmpty() ? View.VISIBLE : View.GONE);
+                            }
+                            
+                            @Override
+                            public void onError(Exception e) {
+                                Toast.makeText(DailyReportsActivity.this, "Error loading attendance records",
+                                        Toast.LENGTH_SHORT).show();
+                            }
+                        });
+                detailPager.attachTo(detailedReportsList);
+            })
+            .addOnFailureListener(e -> {
+                Log.e(TAG, "Error preparing attendance queries", e);
+                Toast.makeText(this, "Error loading attendance records", Toast.LENGTH_SHORT).show();
+            }));
+    }
+    
+    private AttendanceRecord toDetailRecord(String id, Map<String, Object> data, UserDirectory users,
+                                            long selectedDay) {
+        if (data == null || !isOnSelectedDay(data.get("timestamp"), selectedDay)) {
+            return null;
+        }
+        String userEmail = (String) data.get("userEmail");
+        String userName = (String) data.get("userName");
+        if (userName == null || userName.isEmpty()) {
+            String directoryName = users.getName(userEmail);
+            userName = directoryName != null ? directoryName : "";
+        }
+        String type = data.get("type") != null ? data.get("type").toString() : "Attendance";
+        return new AttendanceRecord(
+                id,
+                formatRecordTime(data.get("timestamp")),
+                userEmail != null ? userEmail : "Unknown User",
+                userName,
+                type,
+                getLocationName(data)
+        );
+    }
+    
+    // The query bounds Timestamp records to the day; legacy string timestamps are parsed and checked
+    private boolean isOnSelectedDay(Object timestampObj, long selectedDay) {
+        if (timestampObj instanceof String) {
+            return AttendanceTimes.parser().isSameDay(selectedDay, AttendanceTimes.toMillis(timestampObj));
+        }
+        return timestampObj instanceof Timestamp;
+    }
+    
+    // Time of day of a Timestamp or legacy string timestamp, as HH:mm:ss
+    private String formatRecordTime(Object timestampObj) {
+        if (!(timestampObj instanceof Timestamp) && !(timestampObj instanceof String)) {
+            return "";
+        }
+        String time = AttendanceTimes.formatTime(AttendanceTimes.toMillis(timestampObj));
+        if (time == null) {
+            Log.e(TAG, "Error parsing date: " + timestampObj);
+            return "Unknown";
+        }
+        return time;
+    }
+    
+    // Names for records without one come from the shared user directory, which only
+    // downloads the users changed since it was last synced
+    private void fetchUsers(OnUsersLoadedListener listener) {
+        UserDirectory.getInstance(this).refresh()
+            .addOnSuccessListener(listener::onUsersLoaded)
+            .addOnFailureListener(e -> {
+                Log.e(TAG, "Error loading user directory", e);
+                listener.onUsersLoaded(UserDirectory.getInstance(this));
             });
     }
     
     // Interface for user data callback
     private interface OnUsersLoadedListener {
-        void onUsersLoaded(Map<String, String> userEmailToNameMap);
+        void onUsersLoaded(UserDirectory users);
     }
     
     // Helper to extract location name from various possible fields
@@ -394,6 +565,12 @@ public class DailyReportsActivity extends AppCompatActivity {
             this.type = type;
             this.locationName = locationName;
         }
+        
+        boolean hasSameContents(AttendanceRecord other) {
+            return Objects.equals(time, other.time) && Objects.equals(userEmail, other.userEmail)
+                    && Objects.equals(userName, other.userName) && Objects.equals(type, other.type)
+                    && Objects.equals(locationName, other.locationName);
+        }
     }
     
     // Adapter for summary view
@@ -454,12 +631,20 @@ public class DailyReportsActivity extends AppCompatActivity {
     }
     
     // Adapter for detailed view
-    private class DailyDetailAdapter extends RecyclerView.Adapter<DailyDetailAdapter.ViewHolder> {
-        private List<AttendanceRecord> attendanceRecords = new ArrayList<>();
+    private class DailyDetailAdapter extends ListAdapter<AttendanceRecord, DailyDetailAdapter.ViewHolder> {
         
-        public void setAttendanceRecords(List<AttendanceRecord> attendanceRecords) {
-            this.attendanceRecords = attendanceRecords;
-            notifyDataSetChanged();
+        DailyDetailAdapter() {
+            super(new DiffUtil.ItemCallback<AttendanceRecord>() {
+                @Override
+                public boolean areItemsTheSame(@NonNull AttendanceRecord oldItem, @NonNull AttendanceRecord newItem) {
+                    return oldItem.id.equals(newItem.id);
+                }
+                
+                @Override
+                public boolean areContentsTheSame(@NonNull AttendanceRecord oldItem, @NonNull AttendanceRecord newItem) {
+                    return oldItem.hasSameContents(newItem);
+                }
+            });
         }
         
         @NonNull
@@ -472,7 +657,7 @@ public class DailyReportsActivity extends AppCompatActivity {
         
         @Override
         public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-            AttendanceRecord record = attendanceRecords.get(position);
+            AttendanceRecord record = getItem(position);
             
             // Format time for display
             try {
@@ -516,11 +701,6 @@ public class DailyReportsActivity extends AppCompatActivity {
             }
         }
         
-        @Override
-        public int getItemCount() {
-            return attendanceRecords.size();
-        }
-        
         class ViewHolder extends RecyclerView.ViewHolder {
             TextView timeText;
             TextView userEmailText;
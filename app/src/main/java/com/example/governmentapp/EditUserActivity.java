@@ -19,12 +19,14 @@ import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.Toolbar;
 
+import com.example.governmentapp.utils.UserDirectory;
 import com.google.android.material.chip.Chip;
 import com.google.android.material.chip.ChipGroup;
 import com.google.android.material.textfield.TextInputEditText;
 import com.google.android.material.textfield.TextInputLayout;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.QueryDocumentSnapshot;
 
@@ -463,11 +465,14 @@ public class EditUserActivity extends AppCompatActivity {
         userData.put("locations", selectedLocations);
         userData.put("locationIds", selectedLocationIds);
         userData.put("taluka", selectedTaluka);
+        // Lets user lists pick up the change without reading every user again
+        userData.put(UserDirectory.FIELD_UPDATED_AT, FieldValue.serverTimestamp());
 
         // Update user data in Firestore
         db.collection("users").document(userId)
                 .update(userData)
                 .addOnSuccessListener(aVoid -> {
+                    UserDirectory.getInstance(this).put(userId, userData);
                     Toast.makeText(this, "User updated successfully", Toast.LENGTH_SHORT).show();
                     finish();
                 })
@@ -5,12 +5,12 @@ import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
-import android.graphics.Color;
 import android.graphics.Rect;
-import android.graphics.drawable.BitmapDrawable;
 import android.media.ExifInterface;
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.util.Log;
+import android.util.Size;
 import android.view.View;
 import android.widget.Button;
 import android.widget.Toast;
@@ -23,52 +23,64 @@ import androidx.camera.core.ImageCapture;
 import androidx.camera.core.ImageCaptureException;
 import androidx.camera.core.ImageProxy;
 import androidx.camera.core.Preview;
+import androidx.camera.core.resolutionselector.ResolutionSelector;
+import androidx.camera.core.resolutionselector.ResolutionStrategy;
 import androidx.camera.lifecycle.ProcessCameraProvider;
 import androidx.camera.view.PreviewView;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 
+import com.example.governmentapp.scoring.ComparisonResult;
+import com.example.governmentapp.scoring.FaceFeatures;
+import com.example.governmentapp.scoring.FaceScorer;
+import com.example.governmentapp.utils.AnalysisGovernor;
+import com.example.governmentapp.utils.AttendanceWriter;
+import com.example.governmentapp.utils.BestFrameSelector;
+import com.example.governmentapp.utils.BitmapPool;
+import com.example.governmentapp.utils.CapturedFrame;
+import com.example.governmentapp.utils.DevicePerformancePolicy;
+import com.example.governmentapp.utils.FaceDetectorProfiles;
+import com.example.governmentapp.utils.FaceImageDecoder;
+import com.example.governmentapp.utils.FaceTemplate;
+import com.example.governmentapp.utils.FaceTemplateCache;
+import com.example.governmentapp.utils.FrameQualityScorer;
+import com.example.governmentapp.utils.LuminanceEstimator;
+import com.example.governmentapp.utils.StateDebouncer;
+import com.example.governmentapp.utils.TaskTimeouts;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
 import com.google.android.material.progressindicator.LinearProgressIndicator;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.QuerySnapshot;
 import com.google.firebase.storage.FirebaseStorage;
 import com.google.firebase.storage.StorageReference;
 import com.google.mlkit.vision.common.InputImage;
 import com.google.mlkit.vision.face.Face;
-import com.google.mlkit.vision.face.FaceDetection;
 import com.google.mlkit.vision.face.FaceDetector;
-import com.google.mlkit.vision.face.FaceDetectorOptions;
-import com.google.mlkit.vision.face.FaceLandmark;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.HashMap;
+import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.Locale;
-import java.util.Map;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeoutException;
 
 public class FaceDetectionActivity extends AppCompatActivity {
     private static final String TAG = "FaceDetectionActivity";
     private static final int REQUEST_CODE_PERMISSIONS = 10;
     private static final String[] REQUIRED_PERMISSIONS = new String[]{Manifest.permission.CAMERA};
     
-    // Face detection thresholds
-    private static final float FACE_MATCH_THRESHOLD_STRICT = 0.92f;
-    private static final float FACE_MATCH_THRESHOLD_NORMAL = 0.82f;
-    private static final float FACE_MATCH_THRESHOLD_RELAXED = 0.78f;
-    private static final float FACE_MATCH_THRESHOLD = FACE_MATCH_THRESHOLD_NORMAL;
-
     // Face detection parameters
     private static final float MAX_HEAD_ANGLE = 35.0f;
     private static final float MIN_EYE_OPEN_PROBABILITY = 0.35f;
@@ -78,15 +90,35 @@ public class FaceDetectionActivity extends AppCompatActivity {
     private static final float MIN_FACE_PROPORTION = 0.15f; // Minimum face size relative to image
     private static final float MAX_FACE_PROPORTION = 0.85f; // Maximum face size relative to image
 
-    // Lighting condition thresholds
-    private static final float GOOD_LIGHTING_THRESHOLD = 180.0f;  // Average pixel value for good lighting
-    private static final float POOR_LIGHTING_THRESHOLD = 100.0f;  // Average pixel value for poor lighting
+    // Auto-capture parameters
+    private static final int AUTO_CAPTURE_BUFFER_SIZE = 3;
+    private static final float AUTO_CAPTURE_QUALITY_BAR = 0.70f;
+    private static final int AUTO_CAPTURE_MIN_FRAMES = 3;
+
+    // Verification pipeline timeouts
+    private static final long USER_LOOKUP_TIMEOUT_MS = 5000;
+    private static final long REFERENCE_METADATA_TIMEOUT_MS = 5000;
+    private static final long REFERENCE_DOWNLOAD_TIMEOUT_MS = 10000;
+    private static final long DETECTION_TIMEOUT_MS = 5000;
+    private static final long VERIFICATION_BUDGET_MS = 15000;
+
+    // Live analysis pacing. Analysis size and frame rate come from DevicePerformancePolicy;
+    // at full rate the fast preview detector gets 640x480 frames, which resolve faces of ~15%
+    // of the frame comfortably while larger buffers just cost conversion and detection time.
+    private static final long FACE_PRESENCE_DEBOUNCE_MS = 300;
+    private static final long ANALYSIS_STATS_INTERVAL_MS = 5000;
+
+    // Decoded bitmaps kept for reuse between check-ins: the capture and the reference
+    private static final long MAX_BITMAP_POOL_BYTES = 2 * FaceImageDecoder.MAX_DECODED_BYTES;
 
     private PreviewView previewView;
     private Button captureButton;
     private LinearProgressIndicator progressIndicator;
 
-    private FaceDetector faceDetector;
+    private FaceDetector previewDetector;
+    private volatile FaceDetector faceDetector;
+    private FaceDetector referenceDetector;
+    private FaceDetectorProfiles detectorProfiles;
     private ImageCapture imageCapture;
     private ProcessCameraProvider cameraProvider;
     private FirebaseStorage storage;
@@ -94,10 +126,35 @@ public class FaceDetectionActivity extends AppCompatActivity {
     private FirebaseAuth mAuth;
     private String attendanceType;
 
+    private FaceTemplateCache templateCache;
+    private final FaceScorer faceScorer = new FaceScorer(MAX_HEAD_ANGLE, MIN_EYE_OPEN_PROBABILITY);
+    private final LuminanceEstimator luminanceEstimator = new LuminanceEstimator();
+    private final AnalysisGovernor analysisGovernor =
+            new AnalysisGovernor(DevicePerformancePolicy.Level.NORMAL.maxAnalysisFps);
+    private DevicePerformancePolicy performancePolicy;
+    private Size boundAnalysisSize;
+    // Level whose analysis size arrived during a capture, applied once the capture is done
+    private DevicePerformancePolicy.Level pendingPerformanceLevel;
+    private final StateDebouncer facePresence = new StateDebouncer(FACE_PRESENCE_DEBOUNCE_MS, false);
+    private volatile Boolean postedCaptureEnabled = null;
+    private long lastAnalysisStatsLog = 0;
+
+    // Auto-capture keeps the best few preview frames and verifies the best one
+    private final FrameQualityScorer frameScorer = new FrameQualityScorer(
+            MIN_FACE_SIZE_PIXELS, MIN_FACE_PROPORTION, MAX_FACE_PROPORTION, MAX_HEAD_ANGLE, MIN_EYE_OPEN_PROBABILITY);
+    private final BestFrameSelector<CapturedFrame> bestFrames = new BestFrameSelector<>(
+            AUTO_CAPTURE_BUFFER_SIZE, AUTO_CAPTURE_QUALITY_BAR, AUTO_CAPTURE_MIN_FRAMES);
+    private boolean autoCaptureEnabled = true;
+    private volatile boolean autoCaptureArmed = true;
+    private Integer autoCaptureTrackingId = null;
+
     private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final BitmapPool bitmapPool = new BitmapPool(MAX_BITMAP_POOL_BYTES);
     private float lastSimilarityScore = 0.0f;
     private File lastCapturedPhotoFile = null;
-    private String lastUserId = null;
+    private volatile CapturedFrame lastCapturedFrame = null;
+    private volatile String lastUserId = null;
+    private volatile String lastUserName = null;
     private volatile boolean isProcessingImage = false;
 
     @Override
@@ -109,6 +166,10 @@ public class FaceDetectionActivity extends AppCompatActivity {
         initializeViews();
         initializeFirebase();
         initializeFaceDetector();
+
+        // Step the camera pipeline down when the device is hot or in battery saver
+        performancePolicy = new DevicePerformancePolicy(this, this::applyPerformanceLevel);
+        performancePolicy.start();
         
         // Request camera permissions if not already granted
         if (allPermissionsGranted()) {
@@ -128,6 +189,8 @@ public class FaceDetectionActivity extends AppCompatActivity {
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        performancePolicy.stop();
+
         // Shutdown executor service
         executor.shutdownNow();
         
@@ -135,6 +198,9 @@ public class FaceDetectionActivity extends AppCompatActivity {
         if (cameraProvider != null) {
             cameraProvider.unbindAll();
         }
+
+        // Free pooled decode buffers
+        bitmapPool.clear();
         
         // Clean up temporary files
         if (lastCapturedPhotoFile != null && lastCapturedPhotoFile.exists()) {
@@ -147,30 +213,33 @@ public class FaceDetectionActivity extends AppCompatActivity {
         captureButton = findViewById(R.id.captureButton);
         progressIndicator = findViewById(R.id.progressIndicator);
         
-        // Get attendance type from intent
-        attendanceType = getIntent().getStringExtra("type");
+        // Get attendance type from intent ("check in" or "check out" from AttendanceActivity)
+        attendanceType = getIntent().getStringExtra("attendance_type");
         if (attendanceType == null) {
-            attendanceType = "CHECK_IN"; // Default value
+            attendanceType = "check in"; // Default value
         }
+        autoCaptureEnabled = getIntent().getBooleanExtra("auto_capture", true);
     }
 
     private void initializeFirebase() {
         storage = FirebaseStorage.getInstance();
         db = FirebaseFirestore.getInstance();
         mAuth = FirebaseAuth.getInstance();
+        templateCache = FaceTemplateCache.getInstance(this);
     }
 
     private void initializeFaceDetector() {
         try {
-            FaceDetectorOptions options = new FaceDetectorOptions.Builder()
-                    .setPerformanceMode(FaceDetectorOptions.PERFORMANCE_MODE_ACCURATE)
-                    .setClassificationMode(FaceDetectorOptions.CLASSIFICATION_MODE_ALL)
-                    .setLandmarkMode(FaceDetectorOptions.LANDMARK_MODE_ALL)
-                    .setMinFaceSize(MIN_FACE_PROPORTION)
-                    .build();
-            
-            faceDetector = FaceDetection.getClient(options);
-            Log.d(TAG, "Face detector initialized with min face size: " + MIN_FACE_PROPORTION);
+            // Preview frames only need a fast tracking detector; the accurate one is
+            // reserved for the single frame that is verified
+            detectorProfiles = GovernmentApp.getInstance() != null
+                    ? GovernmentApp.getInstance().getFaceDetectorProfiles()
+                    : new FaceDetectorProfiles();
+            previewDetector = detectorProfiles.getPreviewDetector();
+            faceDetector = detectorProfiles.getVerificationDetector();
+            // References are cached, so they are always extracted with the accurate detector
+            referenceDetector = detectorProfiles.getVerificationDetector();
+            Log.d(TAG, "Face detectors initialized with min face size: " + MIN_FACE_PROPORTION);
         } catch (Exception e) {
             Log.e(TAG, "Error initializing face detector: " + e.getMessage(), e);
             Toast.makeText(this, "Error initializing face detection", Toast.LENGTH_LONG).show();
@@ -180,9 +249,13 @@ public class FaceDetectionActivity extends AppCompatActivity {
 
     private synchronized void setProcessingState(boolean isProcessing) {
         isProcessingImage = isProcessing;
+        postedCaptureEnabled = null;
         runOnUiThread(() -> {
             captureButton.setEnabled(!isProcessing);
             progressIndicator.setVisibility(isProcessing ? View.VISIBLE : View.GONE);
+            if (!isProcessing) {
+                applyPendingPerformanceLevel();
+            }
         });
     }
 
@@ -192,62 +265,85 @@ public class FaceDetectionActivity extends AppCompatActivity {
         cameraProviderFuture.addListener(() -> {
             try {
                 cameraProvider = cameraProviderFuture.get();
-
-                // Set up the preview use case
-                Preview preview = new Preview.Builder().build();
-                preview.setSurfaceProvider(previewView.getSurfaceProvider());
-
-                // Set up the image capture use case
-                imageCapture = new ImageCapture.Builder()
-                        .setCaptureMode(ImageCapture.CAPTURE_MODE_MINIMIZE_LATENCY)
-                        .build();
-
-                // Set up image analysis for face detection
-                ImageAnalysis imageAnalysis = new ImageAnalysis.Builder()
-                        .setBackpressureStrategy(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST)
-                        .build();
-
-                imageAnalysis.setAnalyzer(executor, new FaceAnalyzer());
-
-                // Select front camera
-                CameraSelector cameraSelector = new CameraSelector.Builder()
-                        .requireLensFacing(CameraSelector.LENS_FACING_FRONT)
-                        .build();
-
-                // Unbind any bound use cases before rebinding
-                cameraProvider.unbindAll();
-
-                // Bind use cases to camera
-                cameraProvider.bindToLifecycle(this, cameraSelector, preview, imageCapture, imageAnalysis);
-
+                bindCameraUseCases();
             } catch (ExecutionException | InterruptedException e) {
                 Log.e(TAG, "Error starting camera: ", e);
             }
         }, ContextCompat.getMainExecutor(this));
     }
 
-    private void captureImage() {
-        if (imageCapture == null) return;
+    private void bindCameraUseCases() {
+        // Set up the preview use case
+        Preview preview = new Preview.Builder().build();
+        preview.setSurfaceProvider(previewView.getSurfaceProvider());
+
+        // Set up the image capture use case
+        imageCapture = new ImageCapture.Builder()
+                .setCaptureMode(ImageCapture.CAPTURE_MODE_MINIMIZE_LATENCY)
+                .build();
+
+        // Set up image analysis for face detection at the size the current performance level allows
+        Size analysisSize = performancePolicy.getLevel().getAnalysisSize();
+        ResolutionSelector analysisResolution = new ResolutionSelector.Builder()
+                .setResolutionStrategy(new ResolutionStrategy(analysisSize,
+                        ResolutionStrategy.FALLBACK_RULE_CLOSEST_HIGHER_THEN_LOWER))
+                .build();
+        ImageAnalysis imageAnalysis = new ImageAnalysis.Builder()
+                .setResolutionSelector(analysisResolution)
+                .setBackpressureStrategy(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST)
+                .build();
+
+        imageAnalysis.setAnalyzer(executor, new FaceAnalyzer());
+
+        // Select front camera
+        CameraSelector cameraSelector = new CameraSelector.Builder()
+                .requireLensFacing(CameraSelector.LENS_FACING_FRONT)
+                .build();
+
+        // Unbind any bound use cases before rebinding
+        cameraProvider.unbindAll();
+
+        // Bind use cases to camera
+        cameraProvider.bindToLifecycle(this, cameraSelector, preview, imageCapture, imageAnalysis);
+        boundAnalysisSize = analysisSize;
+    }
 
-        setProcessingState(true);
+    private void applyPerformanceLevel(DevicePerformancePolicy.Level level) {
+        analysisGovernor.setMaxFps(level.maxAnalysisFps);
+        faceDetector = level.lowPowerDetector
+                ? detectorProfiles.getLowPowerVerificationDetector()
+                : detectorProfiles.getVerificationDetector();
+
+        // A new analysis size needs the use cases rebound; wait for a capture in progress to finish
+        pendingPerformanceLevel = null;
+        if (cameraProvider != null && !level.getAnalysisSize().equals(boundAnalysisSize)) {
+            if (isProcessingImage) {
+                pendingPerformanceLevel = level;
+            } else {
+                bindCameraUseCases();
+            }
+        }
+    }
 
-        // Create temporary file for the image
-        File photoFile = new File(getFilesDir(), "face_verification_" + System.currentTimeMillis() + ".jpg");
-        // Clean up previous temp file if it exists
-        if (lastCapturedPhotoFile != null && lastCapturedPhotoFile.exists()) {
-            lastCapturedPhotoFile.delete();
+    private void applyPendingPerformanceLevel() {
+        DevicePerformancePolicy.Level level = pendingPerformanceLevel;
+        if (level != null && !isProcessingImage) {
+            applyPerformanceLevel(level);
         }
-        lastCapturedPhotoFile = photoFile;
+    }
+
+    private void captureImage() {
+        if (imageCapture == null) return;
 
-        ImageCapture.OutputFileOptions outputOptions = new ImageCapture.OutputFileOptions.Builder(photoFile).build();
+        setProcessingState(true);
 
+        // Capture into memory; the frame goes straight to ML Kit without a disk round trip
         imageCapture.takePicture(
-                outputOptions,
                 executor,
-                new ImageCapture.OnImageSavedCallback() {
+                new ImageCapture.OnImageCapturedCallback() {
                     @Override
-                    public void onImageSaved(@NonNull ImageCapture.OutputFileResults outputFileResults) {
-                        verifyFace(photoFile);
+                    public void onCaptureSuccess(@NonNull ImageProxy image) {
+                        processCapturedImage(image);
                     }
 
                     @Override
@@ -262,7 +358,93 @@ public class FaceDetectionActivity extends AppCompatActivity {
         );
     }
 
-    private void verifyFace(File photoFile) {
+    private void processCapturedImage(ImageProxy imageProxy) {
+        try {
+            int rotation = imageProxy.getImageInfo().getRotationDegrees();
+
+            // Keep the already encoded JPEG in memory in case it has to become the new reference
+            ByteBuffer buffer = imageProxy.getPlanes()[0].getBuffer();
+            byte[] jpegBytes = new byte[buffer.remaining()];
+            buffer.get(jpegBytes);
+            buffer.rewind();
+            lastCapturedFrame = CapturedFrame.fromJpeg(jpegBytes);
+
+            InputImage capturedImage;
+            Bitmap capturedBitmap = null;
+            if (imageProxy.getImage() != null) {
+                capturedImage = InputImage.fromMediaImage(imageProxy.getImage(), rotation);
+            } else {
+                // Some devices deliver the capture without a backing media Image
+                capturedBitmap = FaceImageDecoder.decode(jpegBytes, bitmapPool);
+                if (capturedBitmap == null) {
+                    imageProxy.close();
+                    Log.e(TAG, "Failed to decode captured image");
+                    showResult(false, "Failed to process face images");
+                    return;
+                }
+                capturedImage = InputImage.fromBitmap(capturedBitmap, rotation);
+            }
+
+            // ML Kit reports face coordinates in the upright frame
+            int sourceWidth = capturedBitmap != null ? capturedBitmap.getWidth() : imageProxy.getWidth();
+            int sourceHeight = capturedBitmap != null ? capturedBitmap.getHeight() : imageProxy.getHeight();
+            boolean swapDimensions = rotation == 90 || rotation == 270;
+            int imageWidth = swapDimensions ? sourceHeight : sourceWidth;
+            int imageHeight = swapDimensions ? sourceWidth : sourceHeight;
+            Log.d(TAG, "Captured image dimensions: " + imageWidth + "x" + imageHeight + " (rotation: " + rotation + ")");
+
+            // Detection of the capture starts right away and overlaps with the reference fetch
+            Task<FaceTemplate> capturedTask = detectCapturedFace(capturedImage, imageWidth, imageHeight);
+            Bitmap decodedCapture = capturedBitmap;
+            capturedTask.addOnCompleteListener(executor, task -> {
+                imageProxy.close();
+                bitmapPool.release(decodedCapture);
+            });
+            verifyFace(capturedTask);
+        } catch (Exception e) {
+            imageProxy.close();
+            Log.e(TAG, "Error processing captured image: ", e);
+            showResult(false, "Error processing face images: " + e.getMessage());
+        }
+    }
+
+    private Task<FaceTemplate> detectCapturedFace(InputImage capturedImage, int imageWidth, int imageHeight) {
+        return faceDetector.process(capturedImage)
+            .continueWith(executor, task -> {
+                if (!task.isSuccessful()) {
+                    Log.e(TAG, "Face detection failed on captured image: ", task.getException());
+                    throw new VerificationException("Face detection failed");
+                }
+
+                List<Face> capturedFaces = task.getResult();
+                if (capturedFaces.isEmpty()) {
+                    throw new VerificationException("No face detected in captured image");
+                }
+                
+                if (capturedFaces.size() > 1) {
+                    throw new VerificationException("Multiple faces detected. Please ensure only your face is visible");
+                }
+                
+                FaceTemplate capturedTemplate = FaceTemplate.fromFace(capturedFaces.get(0), imageWidth, imageHeight);
+                
+                // Validate captured face size
+                if (!isFaceSizeValid(capturedTemplate)) {
+                    throw new VerificationException("Please adjust your distance from the camera");
+                }
+                
+                if (!checkHeadPose(capturedTemplate)) {
+                    throw new VerificationException("Please look directly at the camera with your head straight");
+                }
+                return capturedTemplate;
+            });
+    }
+
+    /**
+     * Verify a capture whose detection is already running. The user lookup and the reference
+     * fetch run concurrently with it, so the critical path is the slower of the two rather
+     * than their sum. Every stage has its own timeout and all share one latency budget.
+     */
+    private void verifyFace(Task<FaceTemplate> capturedDetection) {
         FirebaseUser user = mAuth.getCurrentUser();
         if (user == null) {
             showResult(false, "User not logged in");
@@ -275,177 +457,246 @@ public class FaceDetectionActivity extends AppCompatActivity {
             showResult(false, "Invalid user ID");
             return;
         }
-        
+
+        TaskTimeouts.Budget budget = new TaskTimeouts.Budget(VERIFICATION_BUDGET_MS);
+        Task<FaceTemplate> capturedTask = budget.limit(capturedDetection, DETECTION_TIMEOUT_MS, "Captured face detection");
+        Task<ReferenceFace> referenceTask = fetchReferenceTemplate(email, budget);
+
+        Tasks.whenAllComplete(capturedTask, referenceTask)
+            .addOnCompleteListener(executor, all -> {
+                Log.d(TAG, "Verification inputs ready after " + budget.elapsedMs() + " ms");
+
+                // Account problems come first, then problems with the capture itself; offering
+                // to save the capture as a reference only makes sense if the capture is usable
+                Exception referenceError = referenceTask.getException();
+                boolean referenceMissing = referenceError instanceof VerificationException
+                        && ((VerificationException) referenceError).offerSaveReference;
+                if (referenceError != null && !referenceMissing) {
+                    handleVerificationFailure(referenceError);
+                } else if (!capturedTask.isSuccessful()) {
+                    handleVerificationFailure(capturedTask.getException());
+                } else if (referenceError != null) {
+                    handleVerificationFailure(referenceError);
+                } else {
+                    ReferenceFace reference = referenceTask.getResult();
+                    compareFaces(reference.template, capturedTask.getResult(), reference.sevarthId);
+                }
+            });
+    }
+
+    private Task<ReferenceFace> fetchReferenceTemplate(String email, TaskTimeouts.Budget budget) {
+        // Offline first: a reference already processed on this device is used straight away,
+        // and checked against Storage in the background
+        return Tasks.call(executor, () -> {
+            String sevarthId = templateCache.getUserId(email);
+            FaceTemplate cachedTemplate = templateCache.getLatest(sevarthId);
+            if (cachedTemplate == null) return null;
+            lastUserName = templateCache.getUserName(email);
+            return new ReferenceFace(sevarthId, cachedTemplate);
+        }).continueWithTask(executor, cacheTask -> {
+            ReferenceFace cached = cacheTask.getResult();
+            if (cached == null) {
+                return fetchReferenceTemplateOnline(email, budget);
+            }
+            Log.d(TAG, "Verifying offline against cached reference for sevarthId: " + cached.sevarthId);
+            lastUserId = cached.sevarthId;
+            revalidateCachedReference(cached.sevarthId);
+            return Tasks.forResult(cached);
+        });
+    }
+
+    // Drop the cached template if the reference image has been replaced since it was processed,
+    // so the next check-in fetches the new one. Failures (e.g. offline) keep the cache as is.
+    private void revalidateCachedReference(String sevarthId) {
+        storage.getReference().child("faces/" + sevarthId + ".jpg").getMetadata()
+            .addOnSuccessListener(executor, metadata -> {
+                if (templateCache.get(sevarthId, metadata.getGeneration()) == null) {
+                    Log.d(TAG, "Cached reference for " + sevarthId + " is outdated, it will be refreshed next time");
+                }
+            })
+            .addOnFailureListener(executor, e ->
+                Log.d(TAG, "Could not revalidate cached reference: " + e.getMessage()));
+    }
+
+    private Task<ReferenceFace> fetchReferenceTemplateOnline(String email, TaskTimeouts.Budget budget) {
         Log.d(TAG, "Getting sevarthId for user with email: " + email);
-        
+
         // Query Firestore to get the user's sevarthId
-        FirebaseFirestore.getInstance().collection("users")
+        Task<QuerySnapshot> lookup = db.collection("users")
             .whereEqualTo("email", email)
-            .get()
-            .addOnSuccessListener(querySnapshot -> {
-                if (!querySnapshot.isEmpty()) {
-                    try {
-                        DocumentSnapshot document = querySnapshot.getDocuments().get(0);
-                        String sevarthId = document.getString("sevarthId");
-                        
-                        if (sevarthId == null || sevarthId.isEmpty()) {
-                            Log.e(TAG, "SevarthId not found for user: " + email);
-                            showResult(false, "User ID error. Please contact administrator.");
-                            return;
+            .get();
+
+        return budget.limit(lookup, USER_LOOKUP_TIMEOUT_MS, "User lookup")
+            .continueWithTask(executor, lookupTask -> {
+                if (!lookupTask.isSuccessful()) {
+                    Exception e = lookupTask.getException();
+                    if (e instanceof TimeoutException) throw e;
+                    Log.e(TAG, "Error finding user document: " + e.getMessage(), e);
+                    throw new VerificationException("Error accessing user data: " + e.getMessage());
+                }
+
+                QuerySnapshot querySnapshot = lookupTask.getResult();
+                if (querySnapshot.isEmpty()) {
+                    Log.e(TAG, "User document not found for email: " + email);
+                    throw new VerificationException("User profile not found. Please contact administrator.");
+                }
+
+                DocumentSnapshot document = querySnapshot.getDocuments().get(0);
+                String sevarthId = document.getString("sevarthId");
+                if (sevarthId == null || sevarthId.isEmpty()) {
+                    Log.e(TAG, "SevarthId not found for user: " + email);
+                    throw new VerificationException("User ID error. Please contact administrator.");
+                }
+
+                // Store sevarthId for retry, and remember the user for offline verification
+                lastUserId = sevarthId;
+                lastUserName = document.getString("name");
+                templateCache.putUser(email, sevarthId, lastUserName);
+                Log.d(TAG, "Verifying face for sevarthId: " + sevarthId);
+                runOnUiThread(() -> progressIndicator.setProgress(25, true));
+
+                // Reference to the stored face image in Firebase Storage
+                StorageReference faceRef = storage.getReference().child("faces/" + sevarthId + ".jpg");
+                Log.d(TAG, "Looking for reference image at: faces/" + sevarthId + ".jpg");
+
+                // Fetch only the metadata first; the generation tells us whether the
+                // cached reference template is still current
+                return budget.limit(faceRef.getMetadata(), REFERENCE_METADATA_TIMEOUT_MS, "Reference metadata")
+                    .continueWithTask(executor, metadataTask -> {
+                        if (!metadataTask.isSuccessful()) {
+                            throw referenceUnavailable(metadataTask.getException());
+                        }
+
+                        String generation = metadataTask.getResult().getGeneration();
+                        FaceTemplate cachedTemplate = templateCache.get(sevarthId, generation);
+                        if (cachedTemplate != null) {
+                            Log.d(TAG, "Using cached reference template (generation: " + generation + ")");
+                            return Tasks.forResult(new ReferenceFace(sevarthId, cachedTemplate));
+                        }
+                        return downloadReferenceTemplate(faceRef, sevarthId, generation, budget);
+                    });
+            });
+    }
+
+    private Task<ReferenceFace> downloadReferenceTemplate(StorageReference faceRef, String sevarthId,
+                                                         String generation, TaskTimeouts.Budget budget) {
+        return budget.limit(faceRef.getBytes(Long.MAX_VALUE), REFERENCE_DOWNLOAD_TIMEOUT_MS, "Reference download")
+            .continueWithTask(executor, downloadTask -> {
+                if (!downloadTask.isSuccessful()) {
+                    throw referenceUnavailable(downloadTask.getException());
+                }
+
+                byte[] bytes = downloadTask.getResult();
+                Log.d(TAG, "Successfully downloaded reference image of size: " + bytes.length + " bytes");
+                runOnUiThread(() -> progressIndicator.setProgress(50, true));
+
+                // Decode the reference at detector resolution into a pooled bitmap
+                Bitmap referenceFace = FaceImageDecoder.decode(bytes, bitmapPool);
+                if (referenceFace == null) {
+                    Log.e(TAG, "Failed to decode bitmaps");
+                    throw new VerificationException("Failed to process face images");
+                }
+                Log.d(TAG, "Reference image dimensions: " + referenceFace.getWidth() + "x" + referenceFace.getHeight());
+
+                int rotation = getExifRotation(bytes);
+                boolean swapDimensions = rotation == 90 || rotation == 270;
+                int imageWidth = swapDimensions ? referenceFace.getHeight() : referenceFace.getWidth();
+                int imageHeight = swapDimensions ? referenceFace.getWidth() : referenceFace.getHeight();
+                InputImage referenceImage = InputImage.fromBitmap(referenceFace, rotation);
+
+                return budget.limit(referenceDetector.process(referenceImage), DETECTION_TIMEOUT_MS, "Reference face detection")
+                    .continueWith(executor, detectTask -> {
+                        // Detection is done with the pixels either way
+                        bitmapPool.release(referenceFace);
+
+                        if (!detectTask.isSuccessful()) {
+                            Exception e = detectTask.getException();
+                            if (e instanceof TimeoutException) throw e;
+                            Log.e(TAG, "Face detection failed on reference image: ", e);
+                            throw new VerificationException("Face detection failed");
+                        }
+
+                        List<Face> referencefaces = detectTask.getResult();
+                        if (referencefaces.isEmpty()) {
+                            throw new VerificationException("No face detected in reference image");
                         }
                         
-                        // Store sevarthId for retry
-                        lastUserId = sevarthId; 
-                        
-                        Log.d(TAG, "Verifying face for sevarthId: " + sevarthId);
-                        
-                        // Use sevarthId as storage identifier
-                        String storageId = sevarthId;
+                        if (referencefaces.size() > 1) {
+                            Log.w(TAG, "Multiple faces found in reference image");
+                        }
                         
-                        // Reference to the stored face image in Firebase Storage
-                        StorageReference faceRef = storage.getReference().child("faces/" + storageId + ".jpg");
+                        FaceTemplate refTemplate = FaceTemplate.fromFace(referencefaces.get(0), imageWidth, imageHeight);
                         
-                        Log.d(TAG, "Looking for reference image at: faces/" + storageId + ".jpg");
-
-                        // Download the stored face image to compare with timeout handling
-                        try {
-                            // Show progress while downloading
-                            progressIndicator.setProgress(25, true);
-                            
-                            faceRef.getBytes(Long.MAX_VALUE)
-                                .addOnSuccessListener(bytes -> {
-                                    Log.d(TAG, "Successfully downloaded reference image of size: " + bytes.length + " bytes");
-                                    try {
-                                        progressIndicator.setProgress(50, true);
-                                        
-                                        // Create bitmap of the reference face from Firebase Storage
-                                        Bitmap referenceImageBitmap = BitmapFactory.decodeByteArray(bytes, 0, bytes.length);
-                                        // Create bitmap of the captured face
-                                        Bitmap capturedImageBitmap = BitmapFactory.decodeFile(photoFile.getPath());
-                                        
-                                        if (referenceImageBitmap == null || capturedImageBitmap == null) {
-                                            Log.e(TAG, "Failed to decode bitmaps");
-                                            showResult(false, "Failed to process face images");
-                                            return;
-                                        }
-                                        
-                                        Log.d(TAG, "Reference image dimensions: " + referenceImageBitmap.getWidth() + "x" + referenceImageBitmap.getHeight());
-                                        Log.d(TAG, "Captured image dimensions: " + capturedImageBitmap.getWidth() + "x" + capturedImageBitmap.getHeight());
-                                        
-                                        // Compare the two face images
-                                        compareFaces(referenceImageBitmap, capturedImageBitmap, sevarthId);
-                                        
-                                    } catch (Exception e) {
-                                        Log.e(TAG, "Error processing images for comparison: " + e.getMessage(), e);
-                                        showResult(false, "Error processing face images: " + e.getMessage());
-                                    }
-                                })
-                                .addOnFailureListener(e -> {
-                                    Log.e(TAG, "Error downloading stored face image: " + e.getMessage(), e);
-                                    showResult(false, "Failed to retrieve stored face image. Would you like to save your current image as reference?", true);
-                                });
-                        } catch (Exception e) {
-                            Log.e(TAG, "Exception in verifyFace: " + e.getMessage(), e);
-                            showResult(false, "Error during face verification: " + e.getMessage());
+                        // Validate reference face size
+                        if (!isFaceSizeValid(refTemplate)) {
+                            throw new VerificationException("Reference face image quality is not sufficient");
                         }
-                    } catch (Exception e) {
-                        Log.e(TAG, "Error processing user document: " + e.getMessage(), e);
-                        showResult(false, "Error processing user data. Please try again.");
-                    }
-                } else {
-                    Log.e(TAG, "User document not found for email: " + email);
-                    showResult(false, "User profile not found. Please contact administrator.");
-                }
-            })
-            .addOnFailureListener(e -> {
-                Log.e(TAG, "Error finding user document: " + e.getMessage(), e);
-                showResult(false, "Error accessing user data: " + e.getMessage());
+
+                        // Remember the processed reference so later check-ins skip the download and detection
+                        templateCache.put(sevarthId, generation, refTemplate);
+                        return new ReferenceFace(sevarthId, refTemplate);
+                    });
             });
     }
-    
-    private void compareFaces(Bitmap referenceFace, Bitmap capturedFace, String userId) {
-        try {
-            // Calculate adaptive threshold based on lighting conditions
-            float adaptiveThreshold = getAdaptiveThreshold(capturedFace);
-            Log.d(TAG, "Using adaptive threshold: " + adaptiveThreshold + " for face comparison");
-
-            InputImage referenceImage = InputImage.fromBitmap(referenceFace, 0);
-            InputImage capturedImage = InputImage.fromBitmap(capturedFace, 0);
-            
-            faceDetector.process(referenceImage)
-                .addOnSuccessListener(referencefaces -> {
-                    if (referencefaces.isEmpty()) {
-                        showResult(false, "No face detected in reference image");
-                        return;
-                    }
-                    
-                    if (referencefaces.size() > 1) {
-                        Log.w(TAG, "Multiple faces found in reference image");
-                    }
-                    
-                    Face refFace = referencefaces.get(0);
-                    
-                    // Validate reference face size
-                    if (!isFaceSizeValid(refFace, referenceFace)) {
-                        showResult(false, "Reference face image quality is not sufficient");
-                        return;
-                    }
-                    
-                    faceDetector.process(capturedImage)
-                        .addOnSuccessListener(capturedFaces -> {
-                            if (capturedFaces.isEmpty()) {
-                                showResult(false, "No face detected in captured image");
-                                return;
-                            }
-                            
-                            if (capturedFaces.size() > 1) {
-                                showResult(false, "Multiple faces detected. Please ensure only your face is visible");
-                                return;
-                            }
-                            
-                            Face capturedFace1 = capturedFaces.get(0);
-                            
-                            // Validate captured face size
-                            if (!isFaceSizeValid(capturedFace1, capturedFace)) {
-                                showResult(false, "Please adjust your distance from the camera");
-                                return;
-                            }
-                            
-                            // Continue with existing face comparison logic
-                            if (checkHeadPose(capturedFace1)) {
-                                boolean faceVerified = simulateFaceComparison(refFace, capturedFace1);
-                                if (faceVerified) {
-                                    recordAttendance(userId);
-                                } else {
-                                    showResult(false, "Face verification failed. Please try again");
-                                }
-                            }
-                        })
-                        .addOnFailureListener(e -> {
-                            Log.e(TAG, "Face detection failed on captured image: ", e);
-                            showResult(false, "Face detection failed");
-                        });
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Face detection failed on reference image: ", e);
-                    showResult(false, "Face detection failed");
-                });
-                
-        } catch (Exception e) {
-            Log.e(TAG, "Error during face comparison: ", e);
-            showResult(false, "Error comparing faces");
+
+    private Exception referenceUnavailable(Exception cause) {
+        if (cause instanceof TimeoutException) {
+            return cause;
+        }
+        Log.e(TAG, "Error retrieving stored face image: " + (cause != null ? cause.getMessage() : ""), cause);
+        return new VerificationException(
+                "Failed to retrieve stored face image. Would you like to save your current image as reference?", true);
+    }
+
+    private void handleVerificationFailure(Exception e) {
+        if (e instanceof VerificationException) {
+            showResult(false, e.getMessage(), ((VerificationException) e).offerSaveReference);
+        } else if (e instanceof TimeoutException) {
+            Log.w(TAG, "Verification stage timed out: " + e.getMessage());
+            showResult(false, "Verification is taking too long. Please check your network connection and try again.");
+        } else {
+            Log.e(TAG, "Exception in verifyFace: " + (e != null ? e.getMessage() : ""), e);
+            showResult(false, "Error during face verification: " + (e != null ? e.getMessage() : ""));
+        }
+    }
+
+    // References saved from camera captures keep the sensor orientation in EXIF
+    private int getExifRotation(byte[] jpegBytes) {
+        try (InputStream in = new ByteArrayInputStream(jpegBytes)) {
+            ExifInterface exif = new ExifInterface(in);
+            switch (exif.getAttributeInt(ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_NORMAL)) {
+                case ExifInterface.ORIENTATION_ROTATE_90:
+                    return 90;
+                case ExifInterface.ORIENTATION_ROTATE_180:
+                    return 180;
+                case ExifInterface.ORIENTATION_ROTATE_270:
+                    return 270;
+                default:
+                    return 0;
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Could not read reference image orientation: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    private void compareFaces(FaceTemplate refTemplate, FaceTemplate capturedTemplate, String userId) {
+        boolean faceVerified = simulateFaceComparison(refTemplate, capturedTemplate);
+        if (faceVerified) {
+            recordAttendance(userId);
+        } else {
+            showResult(false, "Face verification failed. Please try again");
         }
     }
     
-    private boolean isFaceSizeValid(Face face, Bitmap image) {
-        if (face == null || image == null) return false;
+    private boolean isFaceSizeValid(FaceTemplate face) {
+        if (face == null) return false;
 
         // Get face and image dimensions
-        Rect faceBounds = face.getBoundingBox();
-        int faceWidth = faceBounds.width();
-        int faceHeight = faceBounds.height();
-        int imageWidth = image.getWidth();
-        int imageHeight = image.getHeight();
+        int faceWidth = (int) face.boxWidth;
+        int faceHeight = (int) face.boxHeight;
+        int imageWidth = face.imageWidth;
+        int imageHeight = face.imageHeight;
 
         // Check absolute size
         if (faceWidth < MIN_FACE_SIZE_PIXELS || faceHeight < MIN_FACE_SIZE_PIXELS) {
@@ -478,420 +729,195 @@ public class FaceDetectionActivity extends AppCompatActivity {
         return true;
     }
 
-    private boolean checkHeadPose(Face face) {
-        float headAngleX = Math.abs(face.getHeadEulerAngleX());
-        float headAngleY = Math.abs(face.getHeadEulerAngleY());
-        float headAngleZ = Math.abs(face.getHeadEulerAngleZ());
+    private boolean checkHeadPose(FaceTemplate face) {
+        float headAngleX = Math.abs(face.headEulerAngleX);
+        float headAngleY = Math.abs(face.headEulerAngleY);
+        float headAngleZ = Math.abs(face.headEulerAngleZ);
         
         if (headAngleX > MAX_HEAD_ANGLE || headAngleY > MAX_HEAD_ANGLE) {
-            showResult(false, "Please look directly at the camera with your head straight");
             Log.d(TAG, "Head angle too extreme - X: " + headAngleX + ", Y: " + headAngleY + ", Z: " + headAngleZ);
             return false;
         }
         return true;
     }
 
-    // Update the basic implementation of face comparison for better recognition
-    private boolean simulateFaceComparison(Face referenceFace, Face capturedFace) {
+    // Score the captured face against the reference with the shared scoring core
+    private boolean simulateFaceComparison(FaceTemplate referenceFace, FaceTemplate capturedFace) {
         Log.d(TAG, "Comparing face characteristics with improved algorithm...");
         
-        // Get the adaptive threshold based on current lighting conditions
-        float currentThreshold = FACE_MATCH_THRESHOLD_NORMAL; // Default threshold
-        android.graphics.drawable.Drawable background = previewView.getBackground();
-        if (background instanceof BitmapDrawable) {
-            Bitmap backgroundBitmap = ((BitmapDrawable) background).getBitmap();
-            if (backgroundBitmap != null) {
-                currentThreshold = getAdaptiveThreshold(backgroundBitmap);
-            }
-        }
+        // Get the adaptive threshold based on the lighting measured on the live preview
+        float currentThreshold = getAdaptiveThreshold();
         Log.d(TAG, "Using adaptive threshold: " + currentThreshold + " for face comparison");
-        
-        // Advanced face comparison with weighted features and multiple checks
-        float similarityScore = 0.0f;
-        float totalWeight = 0.0f;
-        
-        // Store individual scores for debugging
-        float ratioSimilarity = 0.0f;
-        float leftEyeSimilarity = 0.0f;
-        float rightEyeSimilarity = 0.0f;
-        float smileSimilarity = 0.0f;
-        float angleSimX = 0.0f;
-        float angleSimY = 0.0f;
-        float angleSimZ = 0.0f;
-        
-        // ------ INITIAL QUALITY CHECKS ------
-        // 1. Check if captured face quality is sufficient
-        float refWidth = referenceFace.getBoundingBox().width();
-        float refHeight = referenceFace.getBoundingBox().height();
-        float captWidth = capturedFace.getBoundingBox().width();
-        float captHeight = capturedFace.getBoundingBox().height();
-        
-        // DEBUG: Log actual face measurements
-        Log.d(TAG, "DEBUG: Reference face dimensions: " + refWidth + "x" + refHeight);
-        Log.d(TAG, "DEBUG: Captured face dimensions: " + captWidth + "x" + captHeight);
-        
-        // Reject if face is too small
-        /*
-        if (captWidth < MIN_FACE_SIZE || captHeight < MIN_FACE_SIZE) {
-            Log.d(TAG, "Face too small for accurate verification: " + captWidth + "x" + captHeight);
-            return false;
-        }
-        */
-        
-        // 2. Check if eyes are sufficiently open for reliable recognition
-        if (capturedFace.getRightEyeOpenProbability() != null && 
-            capturedFace.getLeftEyeOpenProbability() != null) {
-            float leftEyeOpen = capturedFace.getLeftEyeOpenProbability();
-            float rightEyeOpen = capturedFace.getRightEyeOpenProbability();
-            
-            if (leftEyeOpen < MIN_EYE_OPEN_PROBABILITY && rightEyeOpen < MIN_EYE_OPEN_PROBABILITY) {
+
+        Log.d(TAG, "DEBUG: Reference face dimensions: " + referenceFace.boxWidth + "x" + referenceFace.boxHeight);
+        Log.d(TAG, "DEBUG: Captured face dimensions: " + capturedFace.boxWidth + "x" + capturedFace.boxHeight);
+        Log.d(TAG, "DEBUG: Reference head angles - X: " + referenceFace.headEulerAngleX + 
+              ", Y: " + referenceFace.headEulerAngleY + 
+              ", Z: " + referenceFace.headEulerAngleZ);
+        Log.d(TAG, "DEBUG: Captured head angles - X: " + capturedFace.headEulerAngleX + 
+              ", Y: " + capturedFace.headEulerAngleY + 
+              ", Z: " + capturedFace.headEulerAngleZ);
+
+        float[] reference = referenceFace.toFeatures(new float[FaceFeatures.SIZE]);
+        float[] captured = capturedFace.toFeatures(new float[FaceFeatures.SIZE]);
+        ComparisonResult result = new ComparisonResult();
+        boolean verified = faceScorer.compare(reference, captured, currentThreshold, result);
+
+        switch (result.outcome) {
+            case EYES_CLOSED:
                 Log.d(TAG, "Eyes not open enough for reliable verification. Left: " + 
-                      leftEyeOpen + ", Right: " + rightEyeOpen);
+                      capturedFace.leftEyeOpenProbability + ", Right: " + capturedFace.rightEyeOpenProbability);
                 return false;
-            }
-        }
-        
-        // 3. Check if head angle is within acceptable range
-        float headAngleX = Math.abs(capturedFace.getHeadEulerAngleX()); // Up/down
-        float headAngleY = Math.abs(capturedFace.getHeadEulerAngleY()); // Left/right
-        float headAngleZ = Math.abs(capturedFace.getHeadEulerAngleZ()); // Tilt
-        
-        if (headAngleX > MAX_HEAD_ANGLE || headAngleY > MAX_HEAD_ANGLE) {
-            Log.d(TAG, "Head angle too extreme - X: " + headAngleX + ", Y: " + headAngleY + ", Z: " + headAngleZ);
-            return false;
-        }
-        
-        // ------ FACE PROPORTIONS CHECK ------
-        // 4. Check fundamental face proportions match
-        boolean proportionsMatch = checkFacialProportionsMatch(referenceFace, capturedFace);
-        if (!proportionsMatch) {
-            Log.d(TAG, "Face proportions do not match - rejecting");
-            return false;
-        }
-        
-        // ------ FACIAL STRUCTURE COMPARISON (heavy weight) ------
-        // 5. Compare ratio of width/height (face shape is a strong identifier)
-        float refRatio = refWidth / refHeight;
-        float captRatio = captWidth / captHeight;
-        float ratioDiff = Math.abs(refRatio - captRatio);
-        ratioSimilarity = Math.max(0, 1.0f - (ratioDiff * 4.5f)); // Moderately strict penalty
-        
-        float ratioWeight = 6.0f; // High weight as face shape is important for identity
-        similarityScore += ratioSimilarity * ratioWeight;
-        totalWeight += ratioWeight;
-        Log.d(TAG, "Face ratio similarity: " + ratioSimilarity + " (weight: " + ratioWeight + ")");
-        
-        // ------ FACIAL FEATURES COMPARISON (medium weight) ------
-        // 6. Compare eye openness - somewhat stable feature
-        float eyeWeight = 2.5f; // Moderate weight 
-        if (referenceFace.getLeftEyeOpenProbability() != null && 
-            capturedFace.getLeftEyeOpenProbability() != null) {
-            float eyeDiff = Math.abs(referenceFace.getLeftEyeOpenProbability() - 
-                                     capturedFace.getLeftEyeOpenProbability());
-            leftEyeSimilarity = (1.0f - eyeDiff);
-            similarityScore += leftEyeSimilarity * eyeWeight;
-            totalWeight += eyeWeight;
-            Log.d(TAG, "Left eye similarity: " + leftEyeSimilarity + " (weight: " + eyeWeight + ")");
-        }
-        
-        if (referenceFace.getRightEyeOpenProbability() != null && 
-            capturedFace.getRightEyeOpenProbability() != null) {
-            float eyeDiff = Math.abs(referenceFace.getRightEyeOpenProbability() - 
-                                     capturedFace.getRightEyeOpenProbability());
-            rightEyeSimilarity = (1.0f - eyeDiff);
-            similarityScore += rightEyeSimilarity * eyeWeight;
-            totalWeight += eyeWeight;
-            Log.d(TAG, "Right eye similarity: " + rightEyeSimilarity + " (weight: " + eyeWeight + ")");
-        }
-        
-        // 7. Compare smile state - less important as it changes easily
-        float smileWeight = 0.5f; 
-        if (referenceFace.getSmilingProbability() != null && 
-            capturedFace.getSmilingProbability() != null) {
-            float smileDiff = Math.abs(referenceFace.getSmilingProbability() - 
-                                        capturedFace.getSmilingProbability());
-            smileSimilarity = (1.0f - smileDiff);
-            similarityScore += smileSimilarity * smileWeight;
-            totalWeight += smileWeight;
-            Log.d(TAG, "Smile similarity: " + smileSimilarity + " (weight: " + smileWeight + ")");
+            case HEAD_ANGLE_TOO_EXTREME:
+                Log.d(TAG, "Head angle too extreme - X: " + capturedFace.headEulerAngleX + 
+                      ", Y: " + capturedFace.headEulerAngleY + ", Z: " + capturedFace.headEulerAngleZ);
+                return false;
+            case PROPORTIONS_MISMATCH:
+                Log.d(TAG, "Face proportions do not match - rejecting (ratio diff: " + result.ratioDifference + 
+                      ", eye spacing diff: " + result.eyeSpacingDifference + 
+                      ", eye spacing match: " + result.eyeSpacingMatch + 
+                      ", expression match: " + result.expressionMatch + ")");
+                return false;
+            default:
+                break;
         }
-        
-        // ------ HEAD POSITION COMPARISON (very high weight) ------
-        // 8. Compare head rotation angles - stable structural feature
-        float headAngleWeight = 5.5f; // Reduced weight (from 6.5f) to be more permissive with angles
-        
-        float angleDiffX = Math.abs(referenceFace.getHeadEulerAngleX() - capturedFace.getHeadEulerAngleX());
-        float angleDiffY = Math.abs(referenceFace.getHeadEulerAngleY() - capturedFace.getHeadEulerAngleY());
-        float angleDiffZ = Math.abs(referenceFace.getHeadEulerAngleZ() - capturedFace.getHeadEulerAngleZ());
-        
-        // Log head angles for debugging
-        Log.d(TAG, "DEBUG: Reference head angles - X: " + referenceFace.getHeadEulerAngleX() + 
-              ", Y: " + referenceFace.getHeadEulerAngleY() + 
-              ", Z: " + referenceFace.getHeadEulerAngleZ());
-        Log.d(TAG, "DEBUG: Captured head angles - X: " + capturedFace.getHeadEulerAngleX() + 
-              ", Y: " + capturedFace.getHeadEulerAngleY() + 
-              ", Z: " + capturedFace.getHeadEulerAngleZ());
-        
-        // Balanced penalty for angle differences
-        angleSimX = Math.max(0, 1.0f - (angleDiffX / 20.0f)); // More permissive (increased from 16.0f)
-        angleSimY = Math.max(0, 1.0f - (angleDiffY / 20.0f)); // More permissive (increased from 16.0f)
-        angleSimZ = Math.max(0, 1.0f - (angleDiffZ / 16.0f)); // More permissive (increased from 13.0f)
-        
-        // Add individual angle similarities with slightly reduced weight
-        similarityScore += angleSimX * headAngleWeight;
-        similarityScore += angleSimY * headAngleWeight;
-        similarityScore += angleSimZ * headAngleWeight;
-        totalWeight += headAngleWeight * 3;
-        
-        Log.d(TAG, "Head angle similarity - X: " + angleSimX + ", Y: " + angleSimY + 
-              ", Z: " + angleSimZ + " (weight each: " + headAngleWeight + ")");
-        
-        // ------ FINAL SCORE CALCULATION ------
-        // Calculate final similarity score with weighted features
-        float finalScore = (totalWeight > 0) ? similarityScore / totalWeight : 0;
-        Log.d(TAG, "Final weighted similarity score: " + finalScore + 
-              " (threshold: " + currentThreshold + ")");
-        
+
         // Generate detailed summary for debugging
+        float[] scores = result.featureScores;
         Log.d(TAG, "VERIFICATION SUMMARY:");
         Log.d(TAG, "------------ Feature Scores ------------");
-        Log.d(TAG, "Face ratio similarity: " + ratioSimilarity + " (weight: " + ratioWeight + ")");
-        Log.d(TAG, "Left eye similarity: " + leftEyeSimilarity + " (weight: " + eyeWeight + ")");
-        Log.d(TAG, "Right eye similarity: " + rightEyeSimilarity + " (weight: " + eyeWeight + ")");
-        Log.d(TAG, "Smile similarity: " + smileSimilarity + " (weight: " + smileWeight + ")");
-        Log.d(TAG, "Head angle X similarity: " + angleSimX + " (weight: " + headAngleWeight + ")");
-        Log.d(TAG, "Head angle Y similarity: " + angleSimY + " (weight: " + headAngleWeight + ")");
-        Log.d(TAG, "Head angle Z similarity: " + angleSimZ + " (weight: " + headAngleWeight + ")");
-        Log.d(TAG, "Final similarity score: " + finalScore);
+        for (int i = 0; i < ComparisonResult.FEATURE_COUNT; i++) {
+            Log.d(TAG, ComparisonResult.getFeatureName(i) + " similarity: " + scores[i]);
+        }
+        Log.d(TAG, "Final similarity score: " + result.score);
         Log.d(TAG, "Required threshold: " + currentThreshold);
         Log.d(TAG, "------------------------------------");
-        
-        // Apply threshold check with detailed failure reason
-        if (finalScore < currentThreshold) {
-            // Identify which feature is causing the biggest problem
-            float[] scores = {ratioSimilarity, leftEyeSimilarity, rightEyeSimilarity, 
-                             smileSimilarity, angleSimX, angleSimY, angleSimZ};
-            String[] featureNames = {"Face proportions", "Left eye", "Right eye", 
-                                    "Smile", "Head tilt up/down", "Head rotation left/right", "Head tilt sideways"};
-            
-            float minScore = 1.0f;
-            String worstFeature = "Unknown";
-            
-            for (int i = 0; i < scores.length; i++) {
-                if (scores[i] > 0 && scores[i] < minScore) {
-                    minScore = scores[i];
-                    worstFeature = featureNames[i];
-                }
-            }
-            
-            Log.d(TAG, "Score below threshold - verification failed with score: " + finalScore);
-            Log.d(TAG, "Weakest feature: " + worstFeature + " with score: " + minScore);
+
+        if (result.outcome == ComparisonResult.Outcome.BELOW_THRESHOLD) {
+            int weakest = result.getWeakestFeature();
+            Log.d(TAG, "Score below threshold - verification failed with score: " + result.score);
+            Log.d(TAG, "Weakest feature: " + ComparisonResult.getFeatureName(weakest) + 
+                  " with score: " + (weakest >= 0 ? scores[weakest] : 1.0f));
             return false;
         }
-        
-        // Additional check for score near threshold - balanced approach
-        if (finalScore < currentThreshold + 0.05f) {
-            // Focus on the most stable features with balanced threshold
-            float criticalFeatureAvg = (angleSimX + angleSimY + angleSimZ + ratioSimilarity) / 4.0f;
-            if (criticalFeatureAvg < 0.76f) { // Slightly more permissive (was 0.78)
-                Log.d(TAG, "Critical features don't match well enough. Rejecting with critical avg: " + 
-                      criticalFeatureAvg);
-                return false;
-            }
+
+        if (result.outcome == ComparisonResult.Outcome.CRITICAL_FEATURES_MISMATCH) {
+            Log.d(TAG, "Critical features don't match well enough. Rejecting with critical avg: " + 
+                  result.criticalFeatureAverage);
+            return false;
         }
-        
+
         // Store the last calculated score for logging purposes
-        lastSimilarityScore = finalScore;
+        lastSimilarityScore = result.score;
         
-        Log.d(TAG, "Face verification PASSED with final score: " + finalScore + 
+        Log.d(TAG, "Face verification PASSED with final score: " + result.score + 
               " (threshold: " + currentThreshold + ")");
-        return true;
-    }
-
-    // Update the facial proportions matching method to be balanced
-    private boolean checkFacialProportionsMatch(Face referenceFace, Face capturedFace) {
-        // This method checks fundamental structural aspects of the face
-        // that should be consistent regardless of expression
-        
-        float refWidth = referenceFace.getBoundingBox().width();
-        float refHeight = referenceFace.getBoundingBox().height();
-        float captWidth = capturedFace.getBoundingBox().width();
-        float captHeight = capturedFace.getBoundingBox().height();
-        
-        // 1. Calculate and compare face aspect ratio (width/height)
-        float refRatio = refWidth / refHeight;
-        float captRatio = captWidth / captHeight;
-        float ratioDifference = Math.abs(refRatio - captRatio);
-        
-        // 2. Compare head rotation angles - should be similar for structural comparison
-        float angleXDiff = Math.abs(referenceFace.getHeadEulerAngleX() - capturedFace.getHeadEulerAngleX());
-        float angleYDiff = Math.abs(referenceFace.getHeadEulerAngleY() - capturedFace.getHeadEulerAngleY());
-        float angleZDiff = Math.abs(referenceFace.getHeadEulerAngleZ() - capturedFace.getHeadEulerAngleZ());
-        
-        // 3. Check eye spacing - distance between eyes relative to face width
-        // This is one of the most stable facial proportions
-        Float refLeftEyeX = null;
-        Float refRightEyeX = null;
-        Float captLeftEyeX = null;
-        Float captRightEyeX = null;
-        
-        FaceLandmark refLeftEye = referenceFace.getLandmark(FaceLandmark.LEFT_EYE);
-        FaceLandmark refRightEye = referenceFace.getLandmark(FaceLandmark.RIGHT_EYE);
-        FaceLandmark captLeftEye = capturedFace.getLandmark(FaceLandmark.LEFT_EYE);
-        FaceLandmark captRightEye = capturedFace.getLandmark(FaceLandmark.RIGHT_EYE);
-        
-        boolean eyeSpacingMatch = true;
-        if (refLeftEye != null && refRightEye != null && captLeftEye != null && captRightEye != null) {
-            refLeftEyeX = refLeftEye.getPosition().x;
-            refRightEyeX = refRightEye.getPosition().x;
-            captLeftEyeX = captLeftEye.getPosition().x;
-            captRightEyeX = captRightEye.getPosition().x;
-            
-            // Calculate eye spacing relative to face width
-            float refEyeSpacing = Math.abs(refLeftEyeX - refRightEyeX) / refWidth;
-            float captEyeSpacing = Math.abs(captLeftEyeX - captRightEyeX) / captWidth;
-            
-            // Compare relative eye spacing with more tolerance
-            float eyeSpacingDiff = Math.abs(refEyeSpacing - captEyeSpacing);
-            eyeSpacingMatch = eyeSpacingDiff < 0.12; // Increased tolerance from 0.09 to 0.12
-            
-            Log.d(TAG, "Eye spacing check: " + eyeSpacingMatch + 
-                  " (ref: " + refEyeSpacing + ", capt: " + captEyeSpacing + 
-                  ", diff: " + eyeSpacingDiff + ")");
-        }
-        
-        // 4. Check facial expressions with more tolerance
-        boolean expressionMatch = true;
-        if (referenceFace.getSmilingProbability() != null && 
-            capturedFace.getSmilingProbability() != null) {
-            float smileDiff = Math.abs(referenceFace.getSmilingProbability() - 
-                                      capturedFace.getSmilingProbability());
-            if (smileDiff > 0.85) { // More permissive threshold (increased from 0.75)
-                Log.d(TAG, "Expression differs drastically: " + smileDiff);
-                expressionMatch = false;
-            }
-        }
-        
-        // More permissive thresholds for proportions check
-        boolean proportionsMatch = (ratioDifference < 0.15) && // More permissive (increased from 0.12)
-                                   (angleXDiff < 32) && (angleYDiff < 32) && // More permissive (increased from 25)
-                                   eyeSpacingMatch && expressionMatch;
-        
-        Log.d(TAG, "Proportions match check: " + proportionsMatch + 
-              " (ratio diff: " + ratioDifference + 
-              ", angle diffs - X: " + angleXDiff + 
-              ", Y: " + angleYDiff + 
-              ", Z: " + angleZDiff + 
-              ", eye spacing match: " + eyeSpacingMatch +
-              ", expression match: " + expressionMatch + ")");
-        
-        return proportionsMatch;
+        return verified;
     }
 
     private void recordAttendance(String userId) {
         Log.d(TAG, "Attempting to record attendance for user: " + userId + " with type: " + attendanceType);
         Log.d(TAG, "Face verification passed with similarity score: " + lastSimilarityScore);
-        
-        // Get current date and time
-        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
-        SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm:ss", Locale.getDefault());
-        String date = dateFormat.format(new Date());
-        String time = timeFormat.format(new Date());
 
-        // Get location name from intent if available
+        FirebaseUser user = mAuth.getCurrentUser();
+        if (user == null) {
+            showResult(false, "User not logged in");
+            return;
+        }
+
+        // Get location from intent if available
         String locationName = getIntent().getStringExtra("location_name");
         if (locationName == null) {
             locationName = "Unknown Location";
         }
 
-        // Create attendance record
-        Map<String, Object> attendance = new HashMap<>();
-        attendance.put("userId", userId); // This must match what AttendanceHistoryActivity looks for
-        attendance.put("date", date);
-        attendance.put("time", time);
-        attendance.put("type", attendanceType);
-        attendance.put("verified", true);
-        attendance.put("similarityScore", lastSimilarityScore);
-        attendance.put("locationName", locationName); // Add location name to match history query
-        
-        Log.d(TAG, "Attendance record created: " + attendance.toString());
-
-        // Check if Firestore is initialized
-        if (db == null) {
-            Log.e(TAG, "Firestore database is null. Reinitializing...");
-            db = FirebaseFirestore.getInstance();
-            if (db == null) {
-                showResult(false, "Failed to initialize Firestore database");
-                return;
-            }
-        }
-
-        // Try to use a different collection name to avoid potential permission issues
-        String collectionName = "user_attendance";
-
-        // Add attendance record to Firestore
-        db.collection(collectionName)
-                .add(attendance)
-                .addOnSuccessListener(documentReference -> {
-                    Log.d(TAG, "Attendance recorded with ID: " + documentReference.getId());
-                    showResult(true, "Attendance recorded successfully");
+        // Create the canonical attendance record
+        AttendanceWriter.Record record = new AttendanceWriter.Record();
+        record.userId = user.getUid();
+        record.userEmail = user.getEmail();
+        record.userName = lastUserName != null ? lastUserName : user.getDisplayName();
+        record.sevarthId = userId;
+        record.locationId = getIntent().getStringExtra("location_id");
+        record.locationName = locationName;
+        record.type = AttendanceWriter.normalizeType(attendanceType);
+        record.verified = true;
+        record.similarityScore = lastSimilarityScore;
+
+        // Journal the record on the device and confirm right away; AttendanceSyncWorker uploads
+        // it once there is a connection
+        AttendanceWriter.write(this, record)
+                .addOnSuccessListener(documentId -> {
+                    Log.d(TAG, "Attendance queued with ID: " + documentId);
+                    showResult(true, "Attendance recorded. Pending sync");
                 })
                 .addOnFailureListener(e -> {
-                    Log.e(TAG, "Error recording attendance: " + e.getMessage(), e);
-                    
-                    // Try with a different collection as fallback
-                    if (collectionName.equals("user_attendance")) {
-                        Log.d(TAG, "Trying fallback collection 'app_data'");
-                        db.collection("app_data")
-                            .add(attendance)
-                            .addOnSuccessListener(documentReference -> {
-                                Log.d(TAG, "Attendance recorded with fallback collection ID: " + documentReference.getId());
-                                showResult(true, "Attendance recorded successfully with fallback");
-                            })
-                            .addOnFailureListener(e2 -> {
-                                Log.e(TAG, "Error with fallback collection: " + e2.getMessage(), e2);
-                                showResult(false, "Failed to record attendance: " + e.getMessage() + 
-                                    ". Please check Firestore rules and network connection.");
-                            });
-                    } else {
-                        showResult(false, "Failed to record attendance: " + e.getMessage() + 
-                            ". Please check Firestore rules and network connection.");
-                    }
+                    Log.e(TAG, "Error queuing attendance: " + e.getMessage(), e);
+                    showResult(false, "Failed to record attendance: " + e.getMessage());
                 });
     }
 
     // Method to save the current image as reference
     private void saveCurrentImageAsReference() {
-        if (lastCapturedPhotoFile == null || lastUserId == null) {
+        CapturedFrame frame = lastCapturedFrame;
+        if (frame == null || lastUserId == null) {
             Toast.makeText(this, "No image available to save", Toast.LENGTH_SHORT).show();
             return;
         }
         
         // Show progress
-        progressIndicator.setVisibility(View.VISIBLE);
+        setProcessingState(true);
         
         // Use sevarthId directly (already stored in lastUserId from verifyFace)
         String storageId = lastUserId;
-        
+
+        // Only now does the capture need to exist as a file; write it off the main thread
+        executor.execute(() -> {
+            File photoFile = new File(getFilesDir(), "face_verification_" + System.currentTimeMillis() + ".jpg");
+            try {
+                frame.writeJpeg(photoFile);
+            } catch (IOException e) {
+                Log.e(TAG, "Error writing reference image: " + e.getMessage(), e);
+                photoFile.delete();
+                setProcessingState(false);
+                runOnUiThread(() -> {
+                    Toast.makeText(FaceDetectionActivity.this, "Error saving reference image: " + e.getMessage(), Toast.LENGTH_LONG).show();
+                });
+                return;
+            }
+
+            // Clean up previous temp file if it exists
+            if (lastCapturedPhotoFile != null && lastCapturedPhotoFile.exists()) {
+                lastCapturedPhotoFile.delete();
+            }
+            lastCapturedPhotoFile = photoFile;
+
+            runOnUiThread(() -> uploadReferenceImage(photoFile, storageId));
+        });
+    }
+
+    private void uploadReferenceImage(File photoFile, String storageId) {
         // Reference to the stored face image in Firebase Storage
         StorageReference faceRef = storage.getReference().child("faces/" + storageId + ".jpg");
         
         try {
             // Upload the file
-            faceRef.putFile(android.net.Uri.fromFile(lastCapturedPhotoFile))
+            faceRef.putFile(android.net.Uri.fromFile(photoFile))
                 .addOnSuccessListener(taskSnapshot -> {
                     progressIndicator.setVisibility(View.GONE);
                     Toast.makeText(FaceDetectionActivity.this, "Reference image saved successfully", Toast.LENGTH_LONG).show();
+
+                    // The old template no longer matches the stored reference
+                    executor.execute(() -> templateCache.invalidate(storageId));
                     
                     // Since we just saved this as the reference, verification succeeds automatically
-                    recordAttendance(lastUserId);
+                    recordAttendance(storageId);
                 })
                 .addOnFailureListener(e -> {
-                    progressIndicator.setVisibility(View.GONE);
+                    setProcessingState(false);
                     Toast.makeText(FaceDetectionActivity.this, "Failed to save reference image: " + e.getMessage(), Toast.LENGTH_LONG).show();
                 });
         } catch (Exception e) {
-            progressIndicator.setVisibility(View.GONE);
+            setProcessingState(false);
             Toast.makeText(this, "Error saving reference image: " + e.getMessage(), Toast.LENGTH_LONG).show();
         }
     }
@@ -905,6 +931,11 @@ public class FaceDetectionActivity extends AppCompatActivity {
         runOnUiThread(() -> {
             progressIndicator.setVisibility(View.GONE);
             captureButton.setEnabled(true);
+            postedCaptureEnabled = null;
+            if (!success) {
+                isProcessingImage = false;
+                applyPendingPerformanceLevel();
+            }
 
             if (!success && offerSaveReference) {
                 // Show dialog offering to save this as a reference image
@@ -918,6 +949,7 @@ public class FaceDetectionActivity extends AppCompatActivity {
                 builder.setNegativeButton("Cancel", (dialog, which) -> {
                     dialog.dismiss();
                 });
+                builder.setOnDismissListener(dialog -> resumeAutoCapture());
                 builder.show();
             } else if (!success) {
                 // Show a more detailed dialog with guidance instead of just a toast
@@ -935,6 +967,7 @@ public class FaceDetectionActivity extends AppCompatActivity {
                 
                 builder.setMessage(enhancedMessage.toString());
                 builder.setPositiveButton("Try Again", (dialog, which) -> dialog.dismiss());
+                builder.setOnDismissListener(dialog -> resumeAutoCapture());
                 builder.show();
                 
                 // Log for debugging purposes
@@ -949,6 +982,7 @@ public class FaceDetectionActivity extends AppCompatActivity {
                 Intent resultIntent = new Intent();
                 resultIntent.putExtra("success", true);
                 resultIntent.putExtra("type", attendanceType);
+                resultIntent.putExtra("pending_sync", true);
                 setResult(RESULT_OK, resultIntent);
                 finish();
             }
@@ -978,68 +1012,209 @@ public class FaceDetectionActivity extends AppCompatActivity {
         }
     }
 
+    private static class ReferenceFace {
+        final String sevarthId;
+        final FaceTemplate template;
+
+        ReferenceFace(String sevarthId, FaceTemplate template) {
+            this.sevarthId = sevarthId;
+            this.template = template;
+        }
+    }
+
+    // Verification failure carrying the message shown to the user
+    private static class VerificationException extends Exception {
+        final boolean offerSaveReference;
+
+        VerificationException(String message) {
+            this(message, false);
+        }
+
+        VerificationException(String message, boolean offerSaveReference) {
+            super(message);
+            this.offerSaveReference = offerSaveReference;
+        }
+    }
+
     private class FaceAnalyzer implements ImageAnalysis.Analyzer {
         @Override
         public void analyze(@NonNull ImageProxy imageProxy) {
-            InputImage image = InputImage.fromMediaImage(
-                    imageProxy.getImage(),
-                    imageProxy.getImageInfo().getRotationDegrees()
-            );
-
-            faceDetector.process(image)
-                    .addOnSuccessListener(faces -> {
-                        // Highlight detected faces or provide UI feedback
-                        // Enable capture button only when a face is detected
-                        captureButton.setEnabled(!faces.isEmpty());
+            // Drop the frame while a detection is running or the detector needs a breather
+            long frameStart = System.nanoTime();
+            if (!analysisGovernor.tryBeginFrame(frameStart)) {
+                imageProxy.close();
+                return;
+            }
+
+            // Track exposure from the Y plane so the decision threshold can read it instantly
+            ImageProxy.PlaneProxy yPlane = imageProxy.getPlanes()[0];
+            luminanceEstimator.update(yPlane.getBuffer(), yPlane.getRowStride(), yPlane.getPixelStride(),
+                    imageProxy.getWidth(), imageProxy.getHeight());
+
+            if (imageProxy.getImage() == null) {
+                imageProxy.close();
+                analysisGovernor.onFrameProcessed(frameStart, System.nanoTime());
+                return;
+            }
+
+            int rotation = imageProxy.getImageInfo().getRotationDegrees();
+            InputImage image = InputImage.fromMediaImage(imageProxy.getImage(), rotation);
+
+            // Listeners run on the analysis executor so the frame is still open while it is scored
+            previewDetector.process(image)
+                    .addOnSuccessListener(executor, faces -> {
+                        // Enable capture button only when a face is detected, and only touch
+                        // the UI when the debounced state actually changes
+                        facePresence.update(!faces.isEmpty(), SystemClock.elapsedRealtime());
+                        updateCaptureButton(facePresence.getState() && !isProcessingImage);
+
+                        if (autoCaptureEnabled && autoCaptureArmed && !isProcessingImage) {
+                            considerForAutoCapture(faces, imageProxy, rotation);
+                        }
                     })
-                    .addOnFailureListener(e -> Log.e(TAG, "Face detection failed: ", e))
-                    .addOnCompleteListener(task -> imageProxy.close());
+                    .addOnFailureListener(executor, e -> Log.e(TAG, "Face detection failed: ", e))
+                    .addOnCompleteListener(executor, task -> {
+                        imageProxy.close();
+                        analysisGovernor.onFrameProcessed(frameStart, System.nanoTime());
+                        logAnalysisStats();
+                    });
         }
     }
 
-    private float calculateLightingCondition(Bitmap image) {
-        if (image == null) return 0;
-
-        // Convert bitmap to grayscale and calculate average brightness
-        int width = image.getWidth();
-        int height = image.getHeight();
-        int pixelCount = width * height;
-        float totalBrightness = 0;
-
-        for (int x = 0; x < width; x++) {
-            for (int y = 0; y < height; y++) {
-                int pixel = image.getPixel(x, y);
-                // Convert RGB to grayscale using standard coefficients
-                float brightness = (Color.red(pixel) * 0.299f + 
-                                  Color.green(pixel) * 0.587f + 
-                                  Color.blue(pixel) * 0.114f);
-                totalBrightness += brightness;
-            }
+    private void updateCaptureButton(boolean enabled) {
+        Boolean posted = postedCaptureEnabled;
+        if (posted != null && posted == enabled) return;
+        postedCaptureEnabled = enabled;
+        runOnUiThread(() -> captureButton.setEnabled(enabled));
+    }
+
+    private void logAnalysisStats() {
+        long now = SystemClock.elapsedRealtime();
+        if (now - lastAnalysisStatsLog < ANALYSIS_STATS_INTERVAL_MS) return;
+        lastAnalysisStatsLog = now;
+        Log.d(TAG, String.format(Locale.US,
+                "Analysis stats: fps=%.1f detectorLatencyMs=%.1f intervalMs=%.1f skippedFrames=%d",
+                analysisGovernor.getEffectiveFps(), analysisGovernor.getAverageLatencyMs(),
+                analysisGovernor.getTargetIntervalMs(), analysisGovernor.getSkippedFrames()));
+    }
+
+    /**
+     * Current live analysis rate, for on-device tuning
+     */
+    public float getAnalysisFps() {
+        return analysisGovernor.getEffectiveFps();
+    }
+
+    /**
+     * Smoothed preview detector latency, for on-device tuning
+     */
+    public float getDetectorLatencyMs() {
+        return analysisGovernor.getAverageLatencyMs();
+    }
+
+    // Score a preview frame and submit the best recent one once enough good frames were seen
+    private void considerForAutoCapture(List<Face> faces, ImageProxy imageProxy, int rotation) {
+        // Frames with no face or several faces would fail verification anyway
+        if (faces.size() != 1) return;
+
+        Face face = faces.get(0);
+        boolean swapDimensions = rotation == 90 || rotation == 270;
+        int imageWidth = swapDimensions ? imageProxy.getHeight() : imageProxy.getWidth();
+        int imageHeight = swapDimensions ? imageProxy.getWidth() : imageProxy.getHeight();
+
+        Rect box = face.getBoundingBox();
+        Rect bufferBox = toBufferRect(box, rotation, imageProxy.getWidth(), imageProxy.getHeight());
+        ImageProxy.PlaneProxy yPlane = imageProxy.getPlanes()[0];
+        float sharpness = FrameQualityScorer.sharpness(yPlane.getBuffer(), yPlane.getRowStride(),
+                yPlane.getPixelStride(), bufferBox.left, bufferBox.top, bufferBox.right, bufferBox.bottom);
+
+        // The preview detector does not classify eyes, so they are judged on the final frame
+        float score = frameScorer.score(box.width(), box.height(), imageWidth, imageHeight,
+                face.getHeadEulerAngleX(), face.getHeadEulerAngleY(),
+                face.getLeftEyeOpenProbability() != null ? face.getLeftEyeOpenProbability() : Float.NaN,
+                face.getRightEyeOpenProbability() != null ? face.getRightEyeOpenProbability() : Float.NaN,
+                sharpness);
+
+        // A different tracked face means a different person stepped in front of the camera
+        Integer trackingId = face.getTrackingId();
+        if (trackingId != null && !trackingId.equals(autoCaptureTrackingId)) {
+            bestFrames.clear();
+            autoCaptureTrackingId = trackingId;
         }
 
-        float averageBrightness = totalBrightness / pixelCount;
-        Log.d(TAG, "Average image brightness: " + averageBrightness);
-        return averageBrightness;
+        // Only frames that make it into the buffer are copied out of the ImageProxy
+        if (bestFrames.wouldAccept(score)) {
+            bestFrames.offer(score, CapturedFrame.fromYuvImageProxy(imageProxy));
+        }
+
+        if (bestFrames.isReady()) {
+            CapturedFrame best = bestFrames.getBest();
+            Log.d(TAG, "Auto-capture submitting best frame with quality score: " + bestFrames.getBestScore());
+            bestFrames.clear();
+            autoCaptureArmed = false;
+            submitAutoCapture(best);
+        }
     }
 
-    private float getAdaptiveThreshold(Bitmap image) {
-        float lightingCondition = calculateLightingCondition(image);
-        
-        if (lightingCondition >= GOOD_LIGHTING_THRESHOLD) {
-            Log.d(TAG, "Good lighting detected, using strict threshold");
-            return FACE_MATCH_THRESHOLD_STRICT;
-        } else if (lightingCondition <= POOR_LIGHTING_THRESHOLD) {
-            Log.d(TAG, "Poor lighting detected, using relaxed threshold");
-            return FACE_MATCH_THRESHOLD_RELAXED;
-        } else {
-            // Linear interpolation between thresholds based on lighting
-            float lightingRange = GOOD_LIGHTING_THRESHOLD - POOR_LIGHTING_THRESHOLD;
-            float thresholdRange = FACE_MATCH_THRESHOLD_STRICT - FACE_MATCH_THRESHOLD_RELAXED;
-            float lightingFactor = (lightingCondition - POOR_LIGHTING_THRESHOLD) / lightingRange;
-            float adaptiveThreshold = FACE_MATCH_THRESHOLD_RELAXED + (thresholdRange * lightingFactor);
-            
-            Log.d(TAG, "Moderate lighting detected, using adaptive threshold: " + adaptiveThreshold);
-            return adaptiveThreshold;
+    // Run the accurate detector on the chosen preview frame only
+    private void submitAutoCapture(CapturedFrame frame) {
+        setProcessingState(true);
+        lastCapturedFrame = frame;
+
+        try {
+            verifyFace(detectCapturedFace(frame.toInputImage(), frame.getUprightWidth(), frame.getUprightHeight()));
+        } catch (Exception e) {
+            Log.e(TAG, "Error processing auto-captured frame: ", e);
+            showResult(false, "Error processing face images: " + e.getMessage());
+        }
+    }
+
+    // Map a rectangle from upright (ML Kit) coordinates back to the sensor buffer
+    private static Rect toBufferRect(Rect upright, int rotation, int bufferWidth, int bufferHeight) {
+        Rect rect;
+        switch (rotation) {
+            case 90:
+                rect = new Rect(upright.top, bufferHeight - upright.right, upright.bottom, bufferHeight - upright.left);
+                break;
+            case 180:
+                rect = new Rect(bufferWidth - upright.right, bufferHeight - upright.bottom,
+                        bufferWidth - upright.left, bufferHeight - upright.top);
+                break;
+            case 270:
+                rect = new Rect(bufferWidth - upright.bottom, upright.left, bufferWidth - upright.top, upright.right);
+                break;
+            default:
+                rect = new Rect(upright);
+                break;
+        }
+        if (!rect.intersect(0, 0, bufferWidth, bufferHeight)) {
+            rect.setEmpty();
         }
+        return rect;
+    }
+
+    private void resumeAutoCapture() {
+        if (!autoCaptureEnabled) return;
+        executor.execute(() -> {
+            bestFrames.clear();
+            autoCaptureArmed = true;
+        });
+    }
+
+    private float getAdaptiveThreshold() {
+        if (!luminanceEstimator.hasData()) {
+            Log.d(TAG, "No preview frames analyzed yet, using normal threshold");
+            return FaceScorer.THRESHOLD_NORMAL;
+        }
+
+        float lightingCondition = luminanceEstimator.getMeanLuminance();
+        Log.d(TAG, "Preview luminance - mean: " + lightingCondition +
+              ", p10: " + luminanceEstimator.getDarkPercentile() +
+              ", p50: " + luminanceEstimator.getMedianLuminance() +
+              ", p90: " + luminanceEstimator.getBrightPercentile());
+
+        float adaptiveThreshold = FaceScorer.adaptiveThreshold(lightingCondition);
+        Log.d(TAG, "Lighting-adjusted threshold: " + adaptiveThreshold);
+        return adaptiveThreshold;
     }
 } 
\ No newline at end of file
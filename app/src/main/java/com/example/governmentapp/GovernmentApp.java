@@ -5,7 +5,10 @@ import android.util.Log;
 
 import androidx.annotation.NonNull;
 
+import com.example.governmentapp.utils.AttendanceQueue;
+import com.example.governmentapp.utils.AttendanceSyncWorker;
 import com.example.governmentapp.utils.BiometricUtil;
+import com.example.governmentapp.utils.FaceDetectorProfiles;
 import com.example.governmentapp.utils.SecurityUtil;
 import com.google.android.gms.tasks.OnFailureListener;
 import com.google.android.gms.tasks.OnSuccessListener;
@@ -14,9 +17,7 @@ import com.google.firebase.FirebaseOptions;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.storage.FirebaseStorage;
-import com.google.mlkit.vision.face.FaceDetection;
 import com.google.mlkit.vision.face.FaceDetector;
-import com.google.mlkit.vision.face.FaceDetectorOptions;
 
 public class GovernmentApp extends Application {
     private static final String TAG = "GovernmentApp";
@@ -24,8 +25,8 @@ public class GovernmentApp extends Application {
     // Singleton instance
     private static GovernmentApp instance;
     
-    // ML Kit Face Detector
-    private FaceDetector faceDetector;
+    // ML Kit Face Detectors (preview and verification profiles)
+    private FaceDetectorProfiles faceDetectorProfiles;
     
     @Override
     public void onCreate() {
@@ -42,6 +43,11 @@ public class GovernmentApp extends Application {
             
             // Initialize ML Kit Face Detector
             initializeFaceDetector();
+
+            // Resume uploading attendance saved while offline
+            if (AttendanceQueue.getInstance(this).getPendingCount() > 0) {
+                AttendanceSyncWorker.schedule(this);
+            }
             
         } catch (Exception e) {
             Log.e(TAG, "Error during app initialization: " + e.getMessage(), e);
@@ -75,13 +81,9 @@ public class GovernmentApp extends Application {
     
     private void initializeFaceDetector() {
         try {
-            FaceDetectorOptions options = new FaceDetectorOptions.Builder()
-                    .setPerformanceMode(FaceDetectorOptions.PERFORMANCE_MODE_ACCURATE)
-                    .setClassificationMode(FaceDetectorOptions.CLASSIFICATION_MODE_ALL)
-                    .setLandmarkMode(FaceDetectorOptions.LANDMARK_MODE_ALL)
-                    .build();
-            
-            faceDetector = FaceDetection.getClient(options);
+            faceDetectorProfiles = new FaceDetectorProfiles();
+            // Build the verification detector up front so the first check-in does not pay for it
+            faceDetectorProfiles.getVerificationDetector();
             Log.d(TAG, "ML Kit Face Detector initialized");
         } catch (Exception e) {
             Log.e(TAG, "Error initializing ML Kit Face Detector: " + e.getMessage(), e);
@@ -93,6 +95,13 @@ public class GovernmentApp extends Application {
     }
     
     public FaceDetector getFaceDetector() {
-        return faceDetector;
+        return getFaceDetectorProfiles().getVerificationDetector();
+    }
+
+    public synchronized FaceDetectorProfiles getFaceDetectorProfiles() {
+        if (faceDetectorProfiles == null) {
+            faceDetectorProfiles = new FaceDetectorProfiles();
+        }
+        return faceDetectorProfiles;
     }
 } 
\ No newline at end of file
@@ -20,12 +20,15 @@ import android.widget.Toast;
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.cardview.widget.CardView;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.google.firebase.firestore.Query;
 
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
@@ -35,17 +38,31 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.Set;
+import java.util.Objects;
 
+import com.example.governmentapp.utils.AttendanceAggregator;
+import com.example.governmentapp.utils.AttendanceMirror;
+import com.example.governmentapp.utils.AttendanceQueries;
+import com.example.governmentapp.utils.AttendanceStats;
+import com.example.governmentapp.utils.AttendanceTimes;
+import com.example.governmentapp.utils.AttendanceWriter;
+import com.example.governmentapp.utils.CsvReportExporter;
+import com.example.governmentapp.utils.DocumentRow;
 import com.example.governmentapp.utils.EmailReportUtil;
+import com.example.governmentapp.utils.FirestorePager;
+import com.example.governmentapp.utils.OfficeDirectory;
+import com.example.governmentapp.utils.ReportExporter;
+import com.example.governmentapp.utils.UserDirectory;
 
 public class LocationReportsActivity extends AppCompatActivity {
     
     private static final String TAG = "LocationReportsActivity";
+    // Check-ins after 10:00 are listed as late in a location's summary
+    private static final int LATE_AFTER_MINUTES = 10 * 60;
+    private static final int LATECOMERS_SHOWN = 5;
     private FirebaseFirestore db;
     private RecyclerView locationReportsList;
     private RecyclerView detailedReportsList;
@@ -55,6 +72,7 @@ public class LocationReportsActivity extends AppCompatActivity {
     private Button selectDateButton;
     private TextView dateRangeText;
     private Button generateReportButton;
+    private Button emailReportButton;
     private TextView noDataText;
     private RadioGroup viewTypeRadioGroup;
     private RadioButton summaryRadioButton;
@@ -63,12 +81,36 @@ public class LocationReportsActivity extends AppCompatActivity {
     
     private List<String> locationNames;
     private Map<String, String> locationIdsMap;
+    private ArrayAdapter<String> locationAdapter;
+    // Offices come from the shared live directory rather than a query per visit
+    private final OfficeDirectory.Listener officesListener = new OfficeDirectory.Listener() {
+        @Override
+        public void onOfficesChanged() {
+            showLocations();
+        }
+        
+        @Override
+        public void onError(Exception e) {
+            Toast.makeText(LocationReportsActivity.this, "Error loading locations", Toast.LENGTH_SHORT).show();
+            Log.e(TAG, "Error getting locations", e);
+        }
+    };
     private Calendar selectedDate;
     private String selectedLocation = "All Locations";
     
     private LocationReportsAdapter summaryAdapter;
     private LocationDetailAdapter detailAdapter;
     private List<Map<String, Object>> currentReports = new ArrayList<>();
+    // Whether a report was requested
+    private boolean generatedReport = false;
+    // Pages the detail table; the generation discards pagers set up for an earlier report
+    private FirestorePager<AttendanceRecord> detailPager;
+    private int detailGeneration = 0;
+    private ReportExporter reportExport;
+    // Local copy of the attendance records; the screen reads it once it is ready
+    private AttendanceMirror mirror;
+    private int reportGeneration = 0;
+    // User names by email, loaded once
     
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -77,6 +119,7 @@ public class LocationReportsActivity extends AppCompatActivity {
         
         // Initialize Firestore
         db = FirebaseFirestore.getInstance();
+        mirror = AttendanceMirror.getInstance(this);
         
         // Initialize UI components
         titleText = findViewById(R.id.titleText);
@@ -87,6 +130,7 @@ public class LocationReportsActivity extends AppCompatActivity {
         selectDateButton = findViewById(R.id.selectDateButton);
         dateRangeText = findViewById(R.id.dateRangeText);
         generateReportButton = findViewById(R.id.generateReportButton);
+        emailReportButton = findViewById(R.id.emailReportButton);
         noDataText = findViewById(R.id.noDataText);
         viewTypeRadioGroup = findViewById(R.id.viewTypeRadioGroup);
         summaryRadioButton = findViewById(R.id.summaryRadioButton);
@@ -126,15 +170,21 @@ public class LocationReportsActivity extends AppCompatActivity {
                 locationReportsList.setVisibility(View.VISIBLE);
                 detailTableCard.setVisibility(View.GONE);
             } else {
-                // Show detailed view
+                // Show detailed view, paging in the records on first use
                 locationReportsList.setVisibility(View.GONE);
                 detailTableCard.setVisibility(View.VISIBLE);
+                if (detailPager == null && generatedReport) {
+                    loadDetail();
+                }
             }
         });
         
         // Set up generate report button
         generateReportButton.setOnClickListener(v -> generateReport());
         
+        // Set up email report button
+        emailReportButton.setOnClickListener(v -> sendEmailReport());
+        
         // Load locations for spinner
         loadLocations();
         
@@ -153,6 +203,58 @@ public class LocationReportsActivity extends AppCompatActivity {
         });
     }
     
+    /**
+     * Stream the records of the selected day and office into a CSV or PDF report in the
+     * background and send it
+     */
+    private void sendEmailReport() {
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
+        String locationId = "All Locations".equals(selectedLocation) ? null : locationIdsMap.get(selectedLocation);
+        String locationName = locationId != null ? selectedLocation : null;
+        String reportType = "Location_" + (locationName != null ? locationName.replaceAll("[^A-Za-z0-9]+", "_") : "All")
+                + "_" + sdf.format(selectedDate.getTime());
+        Date day = selectedDate.getTime();
+        long selectedDay = selectedDate.getTimeInMillis();
+        EmailReportUtil.chooseFormat(this, reportType, CsvReportExporter.Compression.NONE, exporter -> {
+            if (mirror.isReady()) {
+                long epochDay = AttendanceWriter.epochDay(day);
+                reportExport = EmailReportUtil.exportAndSendReport(this, exporter, mirror,
+                        AttendanceMirror.Selection.days(epochDay, epochDay).location(locationId), reportType);
+                return;
+            }
+            fetchUsers(users -> reportExport = EmailReportUtil.exportAndSendReport(this, exporter,
+                    AttendanceQueries.rangeQueries(db, day, day, "locationId", locationId, Query.Direction.ASCENDING),
+                    document -> toReportRecord(document, users, selectedDay, locationName), reportType));
+        });
+    }
+    
+    // Record as stored, with the name and office filled in for legacy records
+    private Map<String, Object> toReportRecord(DocumentSnapshot document, UserDirectory users,
+                                               long selectedDay, String locationName) {
+        Map<String, Object> data = document.getData();
+        if (data == null || !isRecordInDateRange(data, selectedDay)) {
+            return null;
+        }
+        Object userName = data.get("userName");
+        if (userName == null || userName.toString().trim().isEmpty()) {
+            String directoryName = users.getName((String) data.get("userEmail"));
+            if (directoryName != null) {
+                data.put("userName", directoryName);
+            }
+        }
+        data.put("locationName", locationName != null ? locationName : getLocationName(data));
+        return data;
+    }
+    
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        OfficeDirectory.getInstance().removeListener(officesListener);
+        if (reportExport != null) {
+            reportExport.cancel();
+        }
+    }
+    
     private void showDatePickerDialog() {
         DatePickerDialog datePickerDialog = new DatePickerDialog(
                 this,
@@ -176,11 +278,152 @@ public class LocationReportsActivity extends AppCompatActivity {
     }
     
     private void generateReport() {
+        generatedReport = true;
         // Hide all views initially
         locationReportsList.setVisibility(View.GONE);
         detailTableCard.setVisibility(View.GONE);
         noDataText.setVisibility(View.GONE);
         
+        if (detailPager != null) {
+            detailPager.cancel();
+            detailPager = null;
+        }
+        int generation = ++reportGeneration;
+        if (summaryRadioButton.isChecked()) {
+            if (mirror.isReady()) {
+                loadSummaryFromMirror();
+            } else {
+                loadSummaryFromCounters();
+            }
+        } else {
+            loadDetail();
+        }
+        
+        // Bring the local copy up to date; show the report again if records came in
+        mirror.sync().addOnSuccessListener(changed -> {
+            if (changed > 0 && generation == reportGeneration && !isFinishing()) {
+                generateReport();
+            }
+        });
+    }
+    
+    /**
+     * Summary from the local mirror: counts by office with one grouped query, or the selected
+     * office's records folded into the summary rollups
+     */
+    private void loadSummaryFromMirror() {
+        long epochDay = AttendanceWriter.epochDay(selectedDate.getTime());
+        int generation = reportGeneration;
+        String locationId = "All Locations".equals(selectedLocation) ? null : locationIdsMap.get(selectedLocation);
+        
+        if (locationId == null) {
+            mirror.loadLocationCounts(epochDay, epochDay)
+                .addOnSuccessListener(counts -> {
+                    if (generation != reportGeneration) return;
+                    if (counts == null) {
+                        loadSummaryFromCounters();
+                        return;
+                    }
+                    if (counts.isEmpty()) {
+                        noDataText.setVisibility(View.VISIBLE);
+                        return;
+                    }
+                    int total = 0;
+                    for (int count : counts.values()) {
+                        total += count;
+                    }
+                    List<Map<String, Object>> summaryData = new ArrayList<>();
+                    summaryData.add(createSummaryItem("Total Check-ins", total));
+                    for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+                        summaryData.add(createSummaryItem(entry.getKey(), entry.getValue()));
+                    }
+                    summaryAdapter.setSummaryData(summaryData);
+                    currentReports = summaryData;
+                    locationReportsList.setVisibility(View.VISIBLE);
+                    detailTableCard.setVisibility(View.GONE);
+                    noDataText.setVisibility(View.GONE);
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Error reading local attendance, loading from Firestore", e);
+                    loadSummaryFromCounters();
+                });
+            return;
+        }
+        
+        mirror.loadRecords(AttendanceMirror.Selection.days(epochDay, epochDay).location(locationId))
+            .addOnSuccessListener(records -> {
+                if (generation != reportGeneration) return;
+                if (records == null) {
+                    loadSummaryFromCounters();
+                    return;
+                }
+                AttendanceAggregator aggregator = new AttendanceAggregator();
+                for (Map<String, Object> record : records) {
+                    aggregator.add(selectedLocation, (String) record.get("userEmail"),
+                            (String) record.get("userName"), (String) record.get("type"),
+                            AttendanceTimes.toMillis(record));
+                }
+                if (aggregator.getTotal() == 0) {
+                    locationReportsList.setVisibility(View.GONE);
+                    detailTableCard.setVisibility(View.GONE);
+                    noDataText.setVisibility(View.VISIBLE);
+                } else {
+                    prepareSummaryView(aggregator);
+                    noDataText.setVisibility(View.GONE);
+                }
+            })
+            .addOnFailureListener(e -> {
+                Log.e(TAG, "Error reading local attendance, loading from Firestore", e);
+                loadSummaryFromCounters();
+            });
+    }
+    
+    /**
+     * Detail table from the local mirror if it is ready, otherwise paged from Firestore
+     */
+    private void loadDetail() {
+        if (!mirror.isReady()) {
+            startDetailPager();
+            return;
+        }
+        locationReportsList.setVisibility(View.GONE);
+        detailTableCard.setVisibility(View.VISIBLE);
+        noDataText.setVisibility(View.GONE);
+        
+        long selectedDay = selectedDate.getTimeInMillis();
+        long epochDay = AttendanceWriter.epochDay(selectedDate.getTime());
+        String locationId = "All Locations".equals(selectedLocation) ? null : locationIdsMap.get(selectedLocation);
+        String locationName = locationId != null ? selectedLocation : null;
+        int generation = ++detailGeneration;
+        UserDirectory users = UserDirectory.getInstance(this);
+        mirror.loadRecords(AttendanceMirror.Selection.days(epochDay, epochDay).location(locationId))
+            .addOnSuccessListener(records -> {
+                if (generation != detailGeneration) return;
+                if (records == null) {
+                    startDetailPager();
+                    return;
+                }
+                List<AttendanceRecord> rows = new ArrayList<>(records.size());
+                for (Map<String, Object> record : records) {
+                    AttendanceRecord row = toDetailRecord((String) record.get(AttendanceMirror.FIELD_ID),
+                            record, users, selectedDay, locationName);
+                    if (row != null) {
+                        rows.add(row);
+                    }
+                }
+                detailAdapter.submitList(rows);
+                noDataText.setVisibility(rows.isEmpty() ? View.VISIBLE : View.GONE);
+            })
+            .addOnFailureListener(e -> {
+                Log.e(TAG, "Error reading local attendance, loading from Firestore", e);
+                startDetailPager();
+            });
+    }
+    
+    /**
+     * Summary by reading all records of the day, for days without counters
+     */
+    private void loadSummaryByScan() {
         if ("All Locations".equals(selectedLocation)) {
             loadAllLocationsReport();
         } else {
@@ -189,210 +432,172 @@ public class LocationReportsActivity extends AppCompatActivity {
         }
     }
     
-    private void loadLocations() {
-        // Add "All Locations" as first option
-        locationNames.add("All Locations");
-        
-        // Load locations from Firestore
-        db.collection("locations")
-            .get()
-            .addOnCompleteListener(task -> {
-                if (task.isSuccessful()) {
-                    for (QueryDocumentSnapshot document : task.getResult()) {
-                        String locationName = document.getString("officeName");
-                        if (locationName != null && !locationName.isEmpty()) {
-                            locationNames.add(locationName);
-                            locationIdsMap.put(locationName, document.getId());
-                        }
-                    }
-                    
-                    // Sort all locations except "All Locations" which should stay first
-                    if (locationNames.size() > 1) {
-                        List<String> sortedLocations = locationNames.subList(1, locationNames.size());
-                        Collections.sort(sortedLocations);
+    /**
+     * Summary from the pre-aggregated counters; days recorded before the counters existed
+     * fall back to scanning the records
+     */
+    private void loadSummaryFromCounters() {
+        Toast.makeText(this, "Loading reports...", Toast.LENGTH_SHORT).show();
+        String date = new SimpleDateFormat("yyyy-MM-dd", Locale.US).format(selectedDate.getTime());
+        String locationId = "All Locations".equals(selectedLocation) ? null : locationIdsMap.get(selectedLocation);
+        
+        AttendanceStats.loadDay(db, date)
+            .addOnSuccessListener(summary -> {
+                if (summary.isEmpty()) {
+                    Log.d(TAG, "No counters for " + date + ", scanning records");
+                    loadSummaryByScan();
+                    return;
+                }
+                
+                List<Map<String, Object>> summaryData = new ArrayList<>();
+                if (locationId == null) {
+                    summaryData.add(createSummaryItem("Total Check-ins", (int) summary.getTotalRecords()));
+                    for (AttendanceStats.LocationSummary location : summary.locations.values()) {
+                        String name = location.locationName != null ? location.locationName : "Office Location";
+                        summaryData.add(createSummaryItem(name, (int) location.records));
                     }
-                    
-                    // Setup spinner adapter
-                    ArrayAdapter<String> adapter = new ArrayAdapter<>(
-                            this, android.R.layout.simple_spinner_item, locationNames);
-                    adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
-                    locationSpinner.setAdapter(adapter);
                 } else {
-                    Toast.makeText(this, "Error loading locations", Toast.LENGTH_SHORT).show();
-                    Log.e(TAG, "Error getting locations", task.getException());
+                    AttendanceStats.LocationSummary location = summary.locations.get(locationId);
+                    if (location == null || location.records == 0) {
+                        locationReportsList.setVisibility(View.GONE);
+                        noDataText.setVisibility(View.VISIBLE);
+                        return;
+                    }
+                    summaryData.add(createSummaryItem("Total Check-ins", (int) location.records));
+                    int uniqueUsers = 0;
+                    for (Long count : location.userCounts.values()) {
+                        if (count > 0) uniqueUsers++;
+                    }
+                    summaryData.add(createSummaryItem("Unique Users", uniqueUsers));
+                    for (Map.Entry<String, Long> user : location.userCounts.entrySet()) {
+                        if (user.getValue() <= 0) continue;
+                        String userName = location.userNames.get(user.getKey());
+                        summaryData.add(createSummaryItem("User: " + (userName != null ? userName : user.getKey()),
+                                user.getValue().intValue()));
+                    }
                 }
+                
+                summaryAdapter.setSummaryData(summaryData);
+                currentReports = summaryData;
+                locationReportsList.setVisibility(View.VISIBLE);
+                detailTableCard.setVisibility(View.GONE);
+                noDataText.setVisibility(View.GONE);
+            })
+            .addOnFailureListener(e -> {
+                Log.e(TAG, "Error loading daily counters, scanning records", e);
+                loadSummaryByScan();
             });
     }
     
+    private void loadLocations() {
+        locationNames.add("All Locations");
+        locationAdapter = new ArrayAdapter<>(this, android.R.layout.simple_spinner_item, locationNames);
+        locationAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        locationSpinner.setAdapter(locationAdapter);
+        
+        // Called at once if the offices are already loaded, then again whenever they change
+        OfficeDirectory.getInstance().addListener(officesListener);
+    }
+    
+    private void showLocations() {
+        // "All Locations" stays first; the directory lists the offices sorted by name
+        locationNames.subList(1, locationNames.size()).clear();
+        locationIdsMap.clear();
+        for (DocumentRow office : OfficeDirectory.getInstance().getOffices()) {
+            String locationName = office.getString("officeName");
+            if (!locationName.isEmpty()) {
+                locationNames.add(locationName);
+                locationIdsMap.put(locationName, office.id);
+            }
+        }
+        locationAdapter.notifyDataSetChanged();
+        
+        // Keep the selection where the office is still there
+        int position = locationNames.indexOf(selectedLocation);
+        locationSpinner.setSelection(Math.max(position, 0));
+    }
+    
     private void loadAllLocationsReport() {
         // Show loading message
         Toast.makeText(this, "Loading reports...", Toast.LENGTH_SHORT).show();
         
-        // Create start and end of day timestamps for filtering by date
-        Calendar startOfDay = (Calendar) selectedDate.clone();
-        startOfDay.set(Calendar.HOUR_OF_DAY, 0);
-        startOfDay.set(Calendar.MINUTE, 0);
-        startOfDay.set(Calendar.SECOND, 0);
-        
-        Calendar endOfDay = (Calendar) selectedDate.clone();
-        endOfDay.set(Calendar.HOUR_OF_DAY, 23);
-        endOfDay.set(Calendar.MINUTE, 59);
-        endOfDay.set(Calendar.SECOND, 59);
-        
-        Date startDate = startOfDay.getTime();
-        Date endDate = endOfDay.getTime();
-        
-        // First fetch users to get names
-        fetchUsers(users -> {
-            // Query attendance records for selected location and date range
-            db.collection("attendance")
-                .get()
-                .addOnCompleteListener(task -> {
-                    if (task.isSuccessful()) {
-                        if (task.getResult().isEmpty()) {
-                            Toast.makeText(this, "No attendance records found", 
-                                    Toast.LENGTH_SHORT).show();
-                            noDataText.setVisibility(View.VISIBLE);
-                            return;
-                        }
-                        
-                        // Count attendance by location
-                        Map<String, Integer> locationCounts = new HashMap<>();
-                        int totalRecords = 0;
-                        
-                        SimpleDateFormat sdf = new SimpleDateFormat("MMM dd, yyyy", Locale.getDefault());
-                        String selectedDateStr = sdf.format(selectedDate.getTime());
-                        
-                        List<AttendanceRecord> detailedRecords = new ArrayList<>();
-                        
-                        for (QueryDocumentSnapshot document : task.getResult()) {
-                            Map<String, Object> data = document.getData();
-                            
-                            // Check if record matches the selected date
-                            boolean isInRange = isRecordInDateRange(data, startDate, endDate, selectedDateStr);
-                            String formattedTime = "";
-                            
-                            if (isInRange) {
-                                String location = getLocationName(data);
-                                
-                                if (location != null && !location.isEmpty()) {
-                                    locationCounts.put(location, locationCounts.getOrDefault(location, 0) + 1);
-                                    totalRecords++;
-                                    
-                                    // Extract time for detailed view
-                                    formattedTime = extractTimeFromRecord(data);
-                                    
-                                    // Add to detailed records
-                                    String userEmail = (String) data.get("userEmail");
-                                    String type = data.get("type") != null ? data.get("type").toString() : "Check-in";
-                                    
-                                    // Get user name from map, ensure we have a valid name
-                                    String userName = users.get(userEmail);
-                                    if (userName == null || userName.trim().isEmpty()) {
-                                        // If no name found in users map, try to get it from the attendance record
-                                        userName = (String) data.get("userName");
-                                    }
-                                    
-                                    // Create detailed record
-                                    AttendanceRecord record = new AttendanceRecord(
-                                            document.getId(),
-                                            formattedTime,
-                                            userEmail != null ? userEmail : "Unknown User",
-                                            userName != null && !userName.trim().isEmpty() ? userName : "Unknown User",
-                                            type,
-                                            location
-                                    );
-                                    
-                                    detailedRecords.add(record);
-                                }
-                            }
-                        }
-                        
-                        if (totalRecords == 0) {
-                            Toast.makeText(this, "No attendance records found for selected date", 
-                                    Toast.LENGTH_SHORT).show();
-                            noDataText.setVisibility(View.VISIBLE);
-                            return;
-                        }
-                        
-                        // Create summary data for display
-                        List<Map<String, Object>> summaryData = new ArrayList<>();
-                        summaryData.add(createSummaryItem("Total Check-ins", totalRecords));
-                        
-                        // Add location-specific summaries
-                        for (Map.Entry<String, Integer> entry : locationCounts.entrySet()) {
-                            summaryData.add(createSummaryItem(entry.getKey(), entry.getValue()));
-                        }
-                        
-                        // Set adapter for location reports
-                        summaryAdapter.setSummaryData(summaryData);
-                        
-                        // Sort detailed records by time
-                        Collections.sort(detailedRecords, (o1, o2) -> o1.time.compareTo(o2.time));
-                        
-                        // Set detail adapter data
-                        detailAdapter.setAttendanceRecords(detailedRecords);
+        // Query the attendance records of the selected day
+        AttendanceQueries.loadDay(db, selectedDate.getTime(), null)
+            .addOnCompleteListener(task -> {
+                if (task.isSuccessful()) {
+                    // Count attendance by location
+                    AttendanceAggregator aggregator = new AttendanceAggregator();
+                    
+                    long selectedDay = selectedDate.getTimeInMillis();
+                    
+                    for (DocumentSnapshot document : task.getResult()) {
+                        Map<String, Object> data = document.getData();
                         
-                        // Show appropriate view based on selection
-                        if (summaryRadioButton.isChecked()) {
-                            locationReportsList.setVisibility(View.VISIBLE);
-                            detailTableCard.setVisibility(View.GONE);
-                        } else {
-                            locationReportsList.setVisibility(View.GONE);
-                            detailTableCard.setVisibility(View.VISIBLE);
+                        // Check if record matches the selected date
+                        if (data != null && isRecordInDateRange(data, selectedDay)) {
+                            aggregator.add(getLocationName(data), (String) data.get("userEmail"),
+                                    (String) data.get("userName"), (String) data.get("type"),
+                                    AttendanceTimes.toMillis(data));
                         }
-                        
-                        noDataText.setVisibility(View.GONE);
-                        
-                        // Store the reports for email functionality
-                        currentReports = summaryData;
-                        
-                        Log.d(TAG, "Loaded summary for all locations: " + summaryData.size() + " items");
-                    } else {
-                        Toast.makeText(this, "Error loading attendance records", Toast.LENGTH_SHORT).show();
-                        Log.e(TAG, "Error getting attendance records", task.getException());
+                    }
+                    
+                    if (aggregator.getTotal() == 0) {
+                        Toast.makeText(this, "No attendance records found for selected date", 
+                                Toast.LENGTH_SHORT).show();
                         noDataText.setVisibility(View.VISIBLE);
+                        return;
                     }
-                });
-        });
+                    
+                    // Create summary data for display
+                    List<Map<String, Object>> summaryData = new ArrayList<>();
+                    summaryData.add(createSummaryItem("Total Check-ins", aggregator.getTotal()));
+                    
+                    // Add location-specific summaries
+                    for (Map.Entry<String, Integer> entry : aggregator.getLocationCounts().entrySet()) {
+                        summaryData.add(createSummaryItem(entry.getKey(), entry.getValue()));
+                    }
+                    
+                    // Set adapter for location reports
+                    summaryAdapter.setSummaryData(summaryData);
+                    if (summaryRadioButton.isChecked()) {
+                        locationReportsList.setVisibility(View.VISIBLE);
+                    }
+                    noDataText.setVisibility(View.GONE);
+                    
+                    // Store the reports for email functionality
+                    currentReports = summaryData;
+                    
+                    Log.d(TAG, "Loaded summary for all locations: " + summaryData.size() + " items");
+                } else {
+                    Toast.makeText(this, "Error loading attendance records", Toast.LENGTH_SHORT).show();
+                    Log.e(TAG, "Error getting attendance records", task.getException());
+                    noDataText.setVisibility(View.VISIBLE);
+                }
+            });
     }
     
     private void loadLocationAttendanceReports(String locationId, String locationName) {
         // Show loading message
         Toast.makeText(this, "Loading reports...", Toast.LENGTH_SHORT).show();
         
-        // Create start and end of day timestamps
-        Calendar startOfDay = (Calendar) selectedDate.clone();
-        startOfDay.set(Calendar.HOUR_OF_DAY, 0);
-        startOfDay.set(Calendar.MINUTE, 0);
-        startOfDay.set(Calendar.SECOND, 0);
-        
-        Calendar endOfDay = (Calendar) selectedDate.clone();
-        endOfDay.set(Calendar.HOUR_OF_DAY, 23);
-        endOfDay.set(Calendar.MINUTE, 59);
-        endOfDay.set(Calendar.SECOND, 59);
-        
-        Date startDate = startOfDay.getTime();
-        Date endDate = endOfDay.getTime();
-        
         // Fetch user data first
-        fetchUsers(userEmailToNameMap -> {
-            // Query attendance records
-            db.collection("attendance")
-                .whereEqualTo("locationId", locationId)
-                .get()
+        fetchUsers(users -> {
+            // Query the selected office's attendance records of the selected day
+            AttendanceQueries.loadDay(db, selectedDate.getTime(), locationId)
                 .addOnCompleteListener(task -> {
                     if (task.isSuccessful()) {
                         List<Map<String, Object>> detailedReports = new ArrayList<>();
-                        List<AttendanceRecord> records = new ArrayList<>();
+                        AttendanceAggregator aggregator = new AttendanceAggregator();
+                        long selectedDay = selectedDate.getTimeInMillis();
                         
-                        for (QueryDocumentSnapshot document : task.getResult()) {
+                        for (DocumentSnapshot document : task.getResult()) {
                             Map<String, Object> data = document.getData();
                             
                             // Check if record is within selected date range
-                            if (isRecordInDateRange(data, startDate, endDate, null)) {
+                            if (isRecordInDateRange(data, selectedDay)) {
                                 String userEmail = (String) data.get("userEmail");
-                                String userName = userEmailToNameMap.getOrDefault(userEmail, userEmail);
+                                String userName = users.getName(userEmail);
+                                if (userName == null) userName = userEmail;
                                 
                                 // Get location information
                                 String recordLocationName = locationName;
@@ -433,16 +638,10 @@ public class LocationReportsActivity extends AppCompatActivity {
                                 
                                 detailedReports.add(detailedRecord);
                                 
-                                // Create attendance record for display
-                                String time = extractTimeFromRecord(data);
-                                records.add(new AttendanceRecord(
-                                        document.getId(),
-                                    time,
-                                    userEmail,
-                                        userName,
-                                    (String) data.getOrDefault("type", "Check-in"),
-                                    recordLocationName
-                                ));
+                                // Fold into the summary
+                                aggregator.add(recordLocationName, userEmail, userName,
+                                        (String) data.getOrDefault("type", "Check-in"),
+                                        AttendanceTimes.toMillis(data));
                             }
                         }
                         
@@ -450,23 +649,15 @@ public class LocationReportsActivity extends AppCompatActivity {
                         currentReports = detailedReports;
                         
                         runOnUiThread(() -> {
-                            if (records.isEmpty()) {
+                            if (aggregator.getTotal() == 0) {
                                 // Show no data message
                                 locationReportsList.setVisibility(View.GONE);
                                 detailTableCard.setVisibility(View.GONE);
                                 noDataText.setVisibility(View.VISIBLE);
                             } else {
-                                // Show appropriate view based on radio selection
-                        if (summaryRadioButton.isChecked()) {
-                                    // Prepare and show summary view
-                                    prepareSummaryView(records);
-                        } else {
-                                    // Show detailed view
-                                    detailAdapter.setAttendanceRecords(records);
-                            locationReportsList.setVisibility(View.GONE);
-                            detailTableCard.setVisibility(View.VISIBLE);
-                        }
-                        noDataText.setVisibility(View.GONE);
+                                // Prepare and show summary view
+                                prepareSummaryView(aggregator);
+                                noDataText.setVisibility(View.GONE);
                             }
                         });
                     } else {
@@ -481,39 +672,82 @@ public class LocationReportsActivity extends AppCompatActivity {
         });
     }
     
+    /**
+     * Page the records of the selected day and office into the detail table as it scrolls
+     */
+    private void startDetailPager() {
+        if (detailPager != null) {
+            detailPager.cancel();
+            detailPager = null;
+        }
+        detailAdapter.submitList(null);
+        locationReportsList.setVisibility(View.GONE);
+        detailTableCard.setVisibility(View.VISIBLE);
+        noDataText.setVisibility(View.GONE);
+        
+        int generation = ++detailGeneration;
+        Date day = selectedDate.getTime();
+        long selectedDay = selectedDate.getTimeInMillis();
+        String locationId = "All Locations".equals(selectedLocation) ? null : locationIdsMap.get(selectedLocation);
+        String locationName = locationId != null ? selectedLocation : null;
+        // Names come from the records; legacy records without one are resolved by email
+        fetchUsers(users -> AttendanceQueries.rangeQueries(db, day, day, "locationId", locationId, Query.Direction.ASCENDING)
+            .addOnSuccessListener(queries -> {
+                if (generation != detailGeneration) return;
+                detailPager = new FirestorePager<>(queries,
+                        document -> toDetailRecord(document.getId(), document.getData(), users, selectedDay, locationName),
+                        new FirestorePager.Listener<AttendanceRecord>() {
+                            @Override
+                            public void onRowsLoaded(List<AttendanceRecord> rows, boolean complete) {
+                                detailAdapter.submitList(rows);
+                                noDataText.setVisibility(complete && rows.isEmpty() ? View.VISIBLE : View.GONE);
+                            }
+                            
+                            @Override
+                            public void onError(Exception e) {
+                                Toast.makeText(LocationReportsActivity.this, "Error loading reports: " + e.getMessage(),
+                                        Toast.LENGTH_SHORT).show();
+                            }
+                        });
+                detailPager.attachTo(detailedReportsList);
+            })
+            .addOnFailureListener(e -> {
+                Log.e(TAG, "Error preparing attendance queries", e);
+                Toast.makeText(this, "Error loading attendance records", Toast.LENGTH_SHORT).show();
+            }));
+    }
+    
+    private AttendanceRecord toDetailRecord(String id, Map<String, Object> data, UserDirectory users,
+                                            long selectedDay, String locationName) {
+        if (data == null || !isRecordInDateRange(data, selectedDay)) {
+            return null;
+        }
+        String userEmail = (String) data.get("userEmail");
+        String userName = (String) data.get("userName");
+        if (userName == null || userName.trim().isEmpty()) {
+            userName = users.getName(userEmail);
+        }
+        String type = data.get("type") != null ? data.get("type").toString() : "Check-in";
+        return new AttendanceRecord(
+                id,
+                extractTimeFromRecord(data),
+                userEmail != null ? userEmail : "Unknown User",
+                userName != null && !userName.trim().isEmpty() ? userName : "Unknown User",
+                type,
+                locationName != null ? locationName : getLocationName(data)
+        );
+    }
+    
     // Extract formatted time from record
     private String extractTimeFromRecord(Map<String, Object> data) {
-        String formattedTime = "Unknown";
         Object timestampObj = data.get("timestamp");
-        
-        if (timestampObj instanceof String) {
-            String timestampStr = (String) timestampObj;
-            // Extract time if possible
-            try {
-                SimpleDateFormat inputFormat = 
-                        new SimpleDateFormat("MMM dd, yyyy 'at' hh:mm:ssa", Locale.US);
-                
-                // Remove timezone part if exists
-                if (timestampStr.contains("UTC")) {
-                    timestampStr = timestampStr.substring(0, timestampStr.indexOf("UTC")).trim();
-                }
-                
-                Date recordDate = inputFormat.parse(timestampStr);
-                if (recordDate != null) {
-                    formattedTime = new SimpleDateFormat("HH:mm:ss", Locale.getDefault())
-                            .format(recordDate);
-                }
-            } catch (ParseException e) {
-                formattedTime = "Unknown";
-                Log.e(TAG, "Error parsing date: " + timestampStr);
+        String formattedTime = AttendanceTimes.formatTime(AttendanceTimes.toMillis(timestampObj));
+        if (formattedTime == null) {
+            if (timestampObj instanceof String) {
+                Log.e(TAG, "Error parsing date: " + timestampObj);
             }
-        } else if (timestampObj instanceof Timestamp) {
-            Timestamp timestamp = (Timestamp) timestampObj;
-            Date recordDate = timestamp.toDate();
-            formattedTime = new SimpleDateFormat("HH:mm:ss", Locale.getDefault())
-                    .format(recordDate);
+            return "Unknown";
         }
-        
         return formattedTime;
     }
     
@@ -538,20 +772,15 @@ public class LocationReportsActivity extends AppCompatActivity {
         return locationName;
     }
     
-    // Helper to check if a record is within the selected date range
-    private boolean isRecordInDateRange(Map<String, Object> data, Date startDate, Date endDate, String selectedDateStr) {
+    // Helper to check if a record is within the selected date range; the query already bounds
+    // Timestamp records to the day, legacy string timestamps are parsed and checked
+    private boolean isRecordInDateRange(Map<String, Object> data, long selectedDay) {
         Object timestampObj = data.get("timestamp");
         
         if (timestampObj instanceof String) {
-            String timestampStr = (String) timestampObj;
-            return timestampStr.contains(selectedDateStr);
-        } else if (timestampObj instanceof Timestamp) {
-            Timestamp timestamp = (Timestamp) timestampObj;
-            Date recordDate = timestamp.toDate();
-            return recordDate.after(startDate) && recordDate.before(endDate);
+            return AttendanceTimes.parser().isSameDay(selectedDay, AttendanceTimes.toMillis(timestampObj));
         }
-        
-        return false;
+        return timestampObj instanceof Timestamp;
     }
     
     private Map<String, Object> createSummaryItem(String title, int count) {
@@ -578,6 +807,12 @@ public class LocationReportsActivity extends AppCompatActivity {
             this.type = type;
             this.locationName = locationName;
         }
+        
+        boolean hasSameContents(AttendanceRecord other) {
+            return Objects.equals(time, other.time) && Objects.equals(userEmail, other.userEmail)
+                    && Objects.equals(userName, other.userName) && Objects.equals(type, other.type)
+                    && Objects.equals(locationName, other.locationName);
+        }
     }
     
     // Adapter for summary view
@@ -642,12 +877,20 @@ public class LocationReportsActivity extends AppCompatActivity {
     }
     
     // Adapter for detailed view
-    private class LocationDetailAdapter extends RecyclerView.Adapter<LocationDetailAdapter.ViewHolder> {
-        private List<AttendanceRecord> attendanceRecords = new ArrayList<>();
+    private class LocationDetailAdapter extends ListAdapter<AttendanceRecord, LocationDetailAdapter.ViewHolder> {
         
-        public void setAttendanceRecords(List<AttendanceRecord> attendanceRecords) {
-            this.attendanceRecords = attendanceRecords;
-            notifyDataSetChanged();
+        LocationDetailAdapter() {
+            super(new DiffUtil.ItemCallback<AttendanceRecord>() {
+                @Override
+                public boolean areItemsTheSame(@NonNull AttendanceRecord oldItem, @NonNull AttendanceRecord newItem) {
+                    return oldItem.id.equals(newItem.id);
+                }
+                
+                @Override
+                public boolean areContentsTheSame(@NonNull AttendanceRecord oldItem, @NonNull AttendanceRecord newItem) {
+                    return oldItem.hasSameContents(newItem);
+                }
+            });
         }
         
         @NonNull
@@ -660,7 +903,7 @@ public class LocationReportsActivity extends AppCompatActivity {
         
         @Override
         public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-            AttendanceRecord record = attendanceRecords.get(position);
+            AttendanceRecord record = getItem(position);
             
             // Format time for display
             try {
@@ -700,11 +943,6 @@ public class LocationReportsActivity extends AppCompatActivity {
             }
         }
         
-        @Override
-        public int getItemCount() {
-            return attendanceRecords.size();
-        }
-        
         class ViewHolder extends RecyclerView.ViewHolder {
             TextView timeText;
             TextView userEmailText;
@@ -721,72 +959,47 @@ public class LocationReportsActivity extends AppCompatActivity {
         }
     }
     
-    // Helper method to fetch users and return a map of email to name
+    // Names for records without one come from the shared user directory, which only
+    // downloads the users changed since it was last synced
     private void fetchUsers(OnUsersLoadedListener listener) {
-        Map<String, String> userEmailToNameMap = new HashMap<>();
-        
-        db.collection("users")
-            .get()
-            .addOnCompleteListener(task -> {
-                if (task.isSuccessful()) {
-                    for (QueryDocumentSnapshot document : task.getResult()) {
-                        String userEmail = document.getString("email");
-                        String userName = document.getString("name");
-                        
-                        // Only add users with both email and name
-                        if (userEmail != null && !userEmail.trim().isEmpty() && 
-                            userName != null && !userName.trim().isEmpty()) {
-                            userEmailToNameMap.put(userEmail, userName);
-                            Log.d(TAG, "Loaded user: " + userName + " (" + userEmail + ")");
-                        } else {
-                            Log.w(TAG, "Skipped user with incomplete data: " + document.getId());
-                        }
-                    }
-                    Log.d(TAG, "Loaded " + userEmailToNameMap.size() + " users");
-                    listener.onUsersLoaded(userEmailToNameMap);
-                } else {
-                    Log.e(TAG, "Error getting users", task.getException());
-                    listener.onUsersLoaded(userEmailToNameMap); // Return empty map
-                }
+        UserDirectory.getInstance(this).refresh()
+            .addOnSuccessListener(listener::onUsersLoaded)
+            .addOnFailureListener(e -> {
+                Log.e(TAG, "Error loading user directory", e);
+                listener.onUsersLoaded(UserDirectory.getInstance(this));
             });
     }
     
     // Interface for user data callback
     private interface OnUsersLoadedListener {
-        void onUsersLoaded(Map<String, String> userEmailToNameMap);
+        void onUsersLoaded(UserDirectory users);
     }
     
-    private void prepareSummaryView(List<AttendanceRecord> records) {
+    private void prepareSummaryView(AttendanceAggregator aggregator) {
         // Create summary data
         List<Map<String, Object>> summaryData = new ArrayList<>();
         
         // Count total check-ins
-        summaryData.add(createSummaryItem("Total Check-ins", records.size()));
+        summaryData.add(createSummaryItem("Total Check-ins", aggregator.getTotal()));
         
         // Count unique users
-        Set<String> uniqueUsers = new HashSet<>();
-        Map<String, Integer> userCounts = new HashMap<>();
+        summaryData.add(createSummaryItem("Unique Users", aggregator.getUniqueUsers()));
+        summaryData.add(createSummaryItem("Check-outs", aggregator.getCheckOuts()));
         
-        for (AttendanceRecord record : records) {
-            uniqueUsers.add(record.userEmail);
-            userCounts.put(record.userEmail, userCounts.getOrDefault(record.userEmail, 0) + 1);
+        // Add per-user summaries
+        for (Map.Entry<String, Integer> entry : aggregator.getUserCounts().entrySet()) {
+            String userName = aggregator.getUserName(entry.getKey());
+            summaryData.add(createSummaryItem("User: " + (userName != null ? userName : entry.getKey()),
+                    entry.getValue()));
         }
         
-        summaryData.add(createSummaryItem("Unique Users", uniqueUsers.size()));
-        
-        // Add per-user summaries
-        for (Map.Entry<String, Integer> entry : userCounts.entrySet()) {
-            Map<String, Object> item = new HashMap<>();
-            String userEmail = entry.getKey();
-            String userName = records.stream()
-                    .filter(r -> r.userEmail.equals(userEmail))
-                    .map(r -> r.userName)
-                    .findFirst()
-                    .orElse(userEmail);
-            
-            item.put("title", "User: " + userName);
-            item.put("count", entry.getValue());
-            summaryData.add(item);
+        // Latest arrivals, with the minutes they were late
+        for (AttendanceAggregator.UserDay day : aggregator.getLatecomers(LATECOMERS_SHOWN, LATE_AFTER_MINUTES)) {
+            String userName = day.userName != null ? day.userName : day.user;
+            int minutesLate = (int) ((day.firstIn - AttendanceTimes.parser().startOfDay(day.firstIn)) / 60_000L)
+                    - LATE_AFTER_MINUTES;
+            summaryData.add(createSummaryItem("Late (min): " + userName + " at "
+                    + AttendanceTimes.formatTime(day.firstIn), minutesLate));
         }
         
         // Update the UI
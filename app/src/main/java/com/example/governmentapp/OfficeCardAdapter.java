@@ -0,0 +1,74 @@
+package com.example.governmentapp;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.governmentapp.utils.DocumentRow;
+import com.example.governmentapp.utils.DocumentRowAdapter;
+
+/**
+ * Office cards for the admin dashboard's offices tab
+ */
+public class OfficeCardAdapter extends DocumentRowAdapter<OfficeCardAdapter.ViewHolder> {
+
+    // View type; the layout ID keeps it distinct from user cards in a shared pool
+    public static final int VIEW_TYPE = R.layout.item_office_card;
+
+    @Override
+    public int getItemViewType(int position) {
+        return VIEW_TYPE;
+    }
+
+    @NonNull
+    @Override
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext())
+                .inflate(R.layout.item_office_card, parent, false);
+        return new ViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        DocumentRow office = getItem(position);
+        String officeName = office.getString("officeName");
+        String taluka = office.getString("taluka");
+        Object latitude = office.fields.get("latitude");
+        Object longitude = office.fields.get("longitude");
+
+        // Handle radius which could be Integer, Long or Double
+        Object radiusObj = office.fields.get("radius");
+        String radiusStr = "100m"; // Default
+        if (radiusObj instanceof Number) {
+            radiusStr = ((Number) radiusObj).intValue() + "m";
+        }
+
+        holder.nameText.setText(officeName != null ? officeName : "Office");
+        holder.talukaText.setText("Taluka: " + (taluka != null ? taluka : "Not set"));
+        holder.coordinatesText.setText("Location: " + (latitude instanceof Number && longitude instanceof Number ?
+                latitude + ", " + longitude : "Not set"));
+        holder.radiusText.setText("Radius: " + radiusStr);
+    }
+
+    class ViewHolder extends RecyclerView.ViewHolder {
+        TextView nameText;
+        TextView talukaText;
+        TextView coordinatesText;
+        TextView radiusText;
+
+        ViewHolder(View itemView) {
+            super(itemView);
+            // The office card reuses the user card's view IDs
+            nameText = itemView.findViewById(R.id.userNameText);
+            talukaText = itemView.findViewById(R.id.sevarthIdText);
+            coordinatesText = itemView.findViewById(R.id.emailText);
+            radiusText = itemView.findViewById(R.id.locationText);
+            setActionButtons(this, itemView.findViewById(R.id.editButton),
+                    itemView.findViewById(R.id.deleteButton));
+        }
+    }
+}
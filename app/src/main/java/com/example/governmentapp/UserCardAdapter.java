@@ -0,0 +1,88 @@
+package com.example.governmentapp;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.governmentapp.utils.DocumentRow;
+import com.example.governmentapp.utils.DocumentRowAdapter;
+
+import java.util.List;
+
+/**
+ * User cards for the admin dashboard's users tab
+ */
+public class UserCardAdapter extends DocumentRowAdapter<UserCardAdapter.ViewHolder> {
+
+    // View type; the layout ID keeps it distinct from office cards in a shared pool
+    public static final int VIEW_TYPE = R.layout.item_user_card;
+
+    @Override
+    public int getItemViewType(int position) {
+        return VIEW_TYPE;
+    }
+
+    @NonNull
+    @Override
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext())
+                .inflate(R.layout.item_user_card, parent, false);
+        return new ViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        DocumentRow user = getItem(position);
+        String name = user.getString("name");
+        String sevarthId = user.getString("sevarthId");
+        String email = user.getString("email");
+
+        // Handle both old and new location format
+        String locationDisplay = "Not assigned";
+
+        // Check for multiple locations format first
+        Object locationsObj = user.fields.get("locations");
+        if (locationsObj instanceof List && !((List<?>) locationsObj).isEmpty()) {
+            List<?> locations = (List<?>) locationsObj;
+            if (locations.size() == 1) {
+                // Single location
+                locationDisplay = locations.get(0).toString();
+            } else {
+                // Multiple locations
+                locationDisplay = locations.get(0).toString() + " + " + (locations.size() - 1) + " more";
+            }
+        } else {
+            // Check for legacy single location format
+            String singleLocation = user.getString("location");
+            if (singleLocation != null && !singleLocation.isEmpty()) {
+                locationDisplay = singleLocation;
+            }
+        }
+
+        holder.nameText.setText(name != null ? name : "User");
+        holder.sevarthIdText.setText("Sevarth ID: " + (sevarthId != null ? sevarthId : "Not set"));
+        holder.emailText.setText("Email: " + (email != null ? email : "Not set"));
+        holder.locationText.setText("Location: " + locationDisplay);
+    }
+
+    class ViewHolder extends RecyclerView.ViewHolder {
+        TextView nameText;
+        TextView sevarthIdText;
+        TextView emailText;
+        TextView locationText;
+
+        ViewHolder(View itemView) {
+            super(itemView);
+            nameText = itemView.findViewById(R.id.userNameText);
+            sevarthIdText = itemView.findViewById(R.id.sevarthIdText);
+            emailText = itemView.findViewById(R.id.emailText);
+            locationText = itemView.findViewById(R.id.locationText);
+            setActionButtons(this, itemView.findViewById(R.id.editButton),
+                    itemView.findViewById(R.id.deleteButton));
+        }
+    }
+}
@@ -3,54 +3,66 @@ package com.example.governmentapp;
 import android.app.DatePickerDialog;
 import android.graphics.Color;
 import android.os.Bundle;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.AdapterView;
 import android.widget.ArrayAdapter;
 import android.widget.Button;
+import android.widget.Filter;
 import android.widget.ImageView;
-import android.widget.Spinner;
 import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.cardview.widget.CardView;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
-import com.google.firebase.Timestamp;
+import com.google.android.material.textfield.MaterialAutoCompleteTextView;
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.Query;
-import com.google.firebase.firestore.QueryDocumentSnapshot;
 
-import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
 
+import com.example.governmentapp.utils.AttendanceMirror;
+import com.example.governmentapp.utils.AttendanceQueries;
+import com.example.governmentapp.utils.AttendanceTimes;
+import com.example.governmentapp.utils.CsvReportExporter;
 import com.example.governmentapp.utils.EmailReportUtil;
+import com.example.governmentapp.utils.FirestorePager;
+import com.example.governmentapp.utils.ReportExporter;
+import com.example.governmentapp.utils.UserDirectory;
 
 public class UserReportsActivity extends AppCompatActivity {
     
     private static final String TAG = "UserReportsActivity";
+    // Email reports spanning more days than this are sent zipped
+    private static final int ZIP_AFTER_DAYS = 31;
+    private static final String ALL_USERS = "All Users";
+    // Suggestions shown under the user picker
+    private static final int PICKER_LIMIT = 50;
     private FirebaseFirestore db;
     private RecyclerView userReportsList;
     private TextView titleText;
     private TextView startDateText;
     private TextView endDateText;
     private ImageView backButton;
-    private Spinner userSpinner;
+    private MaterialAutoCompleteTextView userPicker;
     private Button startDateButton;
     private Button endDateButton;
     private Button generateReportButton;
@@ -59,16 +71,25 @@ public class UserReportsActivity extends AppCompatActivity {
     private View reportResultsSection;
     private TextView noDataText;
     
-    private List<UserModel> userList;
     private UserReportAdapter adapter;
     
     private Calendar startDate;
     private Calendar endDate;
     private SimpleDateFormat dateFormat;
     private SimpleDateFormat displayDateFormat;
-    private String selectedUserEmail;
+    private SimpleDateFormat timeFormat;
+    // Empty for all users; null while the picker's text is not a user picked from its list
+    private String selectedUserEmail = "";
+    private UserModel selectedUser;
+    private UserDirectory userDirectory;
     
-    private List<Map<String, Object>> currentReports = new ArrayList<>();
+    // Pages the report table; the generation discards pagers set up for an earlier report
+    private FirestorePager<Map<String, Object>> reportPager;
+    private ReportExporter reportExport;
+    // Local copy of the attendance records; the screen reads it once it is ready
+    private AttendanceMirror mirror;
+    private boolean reportGenerated = false;
+    private int reportGeneration = 0;
     
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -77,10 +98,12 @@ public class UserReportsActivity extends AppCompatActivity {
         
         // Initialize Firestore
         db = FirebaseFirestore.getInstance();
+        mirror = AttendanceMirror.getInstance(this);
         
         // Initialize date formats
         dateFormat = new SimpleDateFormat("dd MMM yyyy", Locale.getDefault());
         displayDateFormat = new SimpleDateFormat("dd MMM yyyy", Locale.getDefault());
+        timeFormat = new SimpleDateFormat("hh:mm a", Locale.getDefault());
         
         // Initialize dates to current month range
         startDate = Calendar.getInstance();
@@ -90,7 +113,7 @@ public class UserReportsActivity extends AppCompatActivity {
         // Initialize UI components
         titleText = findViewById(R.id.titleText);
         backButton = findViewById(R.id.backButton);
-        userSpinner = findViewById(R.id.userSpinner);
+        userPicker = findViewById(R.id.userPicker);
         startDateButton = findViewById(R.id.startDateButton);
         endDateButton = findViewById(R.id.endDateButton);
         startDateText = findViewById(R.id.startDateText);
@@ -126,51 +149,76 @@ public class UserReportsActivity extends AppCompatActivity {
         
         // Set up email report button
         emailReportButton.setOnClickListener(v -> {
-            if (!currentReports.isEmpty()) {
-                // Create a list of properly formatted records for the email report
-                List<Map<String, Object>> emailReports = new ArrayList<>();
-                
-                for (Map<String, Object> record : currentReports) {
-                    Map<String, Object> emailRecord = new HashMap<>();
-                    
-                    // Copy all existing fields
-                    emailRecord.putAll(record);
-                    
-                    // Ensure timestamp is included
-                    if (!record.containsKey("timestamp") && record.containsKey("date") && record.containsKey("time")) {
-                        String dateStr = record.get("date").toString();
-                        String timeStr = record.get("time").toString();
-                        emailRecord.put("timestamp", dateStr + " at " + timeStr);
-                    }
-                    
-                    // Ensure user information is included
-                    if (selectedUserEmail != null && !selectedUserEmail.isEmpty()) {
-                        emailRecord.put("userEmail", selectedUserEmail);
-                        // Try to get user name from spinner
-                        if (userSpinner != null && userSpinner.getSelectedItem() != null) {
-                            UserModel selectedUser = (UserModel) userSpinner.getSelectedItem();
-                            if (selectedUser != null && selectedUser.getName() != null) {
-                                emailRecord.put("userName", selectedUser.getName());
-                            }
-                        }
-                    }
-                    
-                    emailReports.add(emailRecord);
-                }
-                
-                String userName = selectedUserEmail != null ? selectedUserEmail.split("@")[0] : "All";
-                SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
-                String startDateStr = sdf.format(startDate.getTime());
-                String endDateStr = sdf.format(endDate.getTime());
-                EmailReportUtil.generateAndSendReport(this, emailReports, 
-                    "User_" + userName + "_" + startDateStr + "_to_" + endDateStr);
-            } else {
+            if (!reportGenerated) {
                 Toast.makeText(this, "No data available to generate report", Toast.LENGTH_SHORT).show();
+                return;
             }
+            sendEmailReport();
         });
         
-        // Load users for dropdown
-        loadUsers();
+        // Set up the user picker
+        userDirectory = UserDirectory.getInstance(this);
+        setupUserPicker();
+    }
+    
+    /**
+     * Stream every record of the report into a CSV or PDF file in the background and send it; the
+     * table only holds the pages scrolled to so far, so the export reads the range itself
+     */
+    private void sendEmailReport() {
+        if (selectedUserEmail == null) {
+            Toast.makeText(this, "Select a user from the list", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        String userEmail = selectedUserEmail != null && !selectedUserEmail.isEmpty() ? selectedUserEmail : null;
+        String selectedName = userEmail != null && selectedUser != null ? selectedUser.getName() : null;
+        String userName = userEmail != null ? userEmail.split("@")[0] : "All";
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
+        String startDateStr = sdf.format(startDate.getTime());
+        String endDateStr = sdf.format(endDate.getTime());
+        
+        // Long ranges are zipped as CSV to keep the attachment small
+        long days = (endDate.getTimeInMillis() - startDate.getTimeInMillis()) / (24L * 60 * 60 * 1000);
+        CsvReportExporter.Compression compression = days > ZIP_AFTER_DAYS
+                ? CsvReportExporter.Compression.ZIP : CsvReportExporter.Compression.NONE;
+        
+        String reportName = selectedName;
+        String reportType = "User_" + userName + "_" + startDateStr + "_to_" + endDateStr;
+        Date firstDay = startDate.getTime();
+        Date lastDay = endDate.getTime();
+        EmailReportUtil.chooseFormat(this, reportType, compression, exporter -> {
+            if (mirror.isReady()) {
+                reportExport = EmailReportUtil.exportAndSendReport(this, exporter, mirror,
+                        AttendanceMirror.Selection.days(firstDay, lastDay).userEmail(userEmail).newestFirst(),
+                        reportType);
+                return;
+            }
+            reportExport = EmailReportUtil.exportAndSendReport(this, exporter,
+                    AttendanceQueries.rangeQueries(db, firstDay, lastDay,
+                            "userEmail", userEmail, Query.Direction.DESCENDING),
+                    document -> {
+                        Map<String, Object> data = document.getData();
+                        if (data != null && userEmail != null) {
+                            data.put("userEmail", userEmail);
+                            if (reportName != null) {
+                                data.put("userName", reportName);
+                            }
+                        }
+                        return data;
+                    },
+                    reportType);
+        });
+    }
+    
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (reportPager != null) {
+            reportPager.cancel();
+        }
+        if (reportExport != null) {
+            reportExport.cancel();
+        }
     }
     
     private void showDatePickerDialog(boolean isStartDate) {
@@ -206,99 +254,133 @@ public class UserReportsActivity extends AppCompatActivity {
         endDateText.setText(endDateStr);
     }
     
-    private void loadUsers() {
-        userList = new ArrayList<>();
-        
-        // Add "All Users" option
-        UserModel allUsers = new UserModel();
-        allUsers.setName("All Users");
-        allUsers.setEmail("");
-        userList.add(allUsers);
-        
-        // Get all users
-        db.collection("users")
-            .get()
-            .addOnCompleteListener(task -> {
-                if (task.isSuccessful()) {
-                    for (QueryDocumentSnapshot document : task.getResult()) {
-                        String userId = document.getId();
-                        String userName = document.getString("name");
-                        String userEmail = document.getString("email");
-                        
-                        if (userName != null && userEmail != null) {
+    private void setupUserPicker() {
+        UserPickerAdapter pickerAdapter = new UserPickerAdapter();
+        userPicker.setAdapter(pickerAdapter);
+        userPicker.setText(ALL_USERS, false);
+        // Offer "All Users" when the picker is tapped before anything is typed
+        pickerAdapter.getFilter().filter("");
+        userPicker.setOnClickListener(v -> userPicker.showDropDown());
+        userPicker.setOnItemClickListener((parent, view, position, id) -> {
+            selectedUser = pickerAdapter.getItem(position);
+            selectedUserEmail = selectedUser != null ? selectedUser.getEmail() : "";
+        });
+        userPicker.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+            
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+            
+            @Override
+            public void afterTextChanged(Editable s) {
+                // Typing over a pick undoes it until another is picked
+                String text = s.toString();
+                if (text.isEmpty() || text.equals(ALL_USERS)) {
+                    selectedUser = null;
+                    selectedUserEmail = "";
+                } else if (selectedUser == null || !text.equals(selectedUser.getName())) {
+                    selectedUser = null;
+                    selectedUserEmail = null;
+                }
+            }
+        });
+        
+        // Bring the shared directory up to date; it only downloads users changed since its last sync
+        userDirectory.refresh().addOnCompleteListener(this, task -> {
+            if (!task.isSuccessful()) {
+                Toast.makeText(UserReportsActivity.this, "Error loading users: " +
+                        task.getException().getMessage(), Toast.LENGTH_SHORT).show();
+            } else if (userPicker.isPopupShowing()) {
+                // Match what was typed against the users that came in
+                pickerAdapter.getFilter().filter(userPicker.getText());
+            }
+        });
+    }
+    
+    /**
+     * Suggestions for the user picker: "All Users", then the users matching what was typed.
+     * Matches come from the user directory's search index on the filter's background thread,
+     * so every keystroke is answered from memory.
+     */
+    private class UserPickerAdapter extends ArrayAdapter<UserModel> {
+        private final Filter filter = new Filter() {
+            @Override
+            protected FilterResults performFiltering(CharSequence constraint) {
+                List<UserModel> matches = new ArrayList<>();
+                UserModel allUsers = new UserModel();
+                allUsers.setName(ALL_USERS);
+                allUsers.setEmail("");
+                matches.add(allUsers);
+                String query = constraint != null ? constraint.toString().trim() : "";
+                if (!query.isEmpty() && !query.equals(ALL_USERS)) {
+                    for (UserDirectory.User directoryUser : userDirectory.search(query, PICKER_LIMIT)) {
+                        if (directoryUser.name != null && directoryUser.email != null) {
                             UserModel user = new UserModel();
-                            user.setId(userId);
-                            user.setName(userName);
-                            user.setEmail(userEmail);
-                            userList.add(user);
+                            user.setId(directoryUser.id);
+                            user.setName(directoryUser.name);
+                            user.setEmail(directoryUser.email);
+                            matches.add(user);
                         }
                     }
-                    
-                    // Set up spinner adapter
-                    ArrayAdapter<UserModel> adapter = new ArrayAdapter<UserModel>(
-                            this, android.R.layout.simple_spinner_item, userList) {
-                        @Override
-                        public View getDropDownView(int position, View convertView, ViewGroup parent) {
-                            View view = super.getDropDownView(position, convertView, parent);
-                            TextView text = (TextView) view;
-                            text.setText(userList.get(position).getName());
-                            return view;
-                        }
-                        
-                        @Override
-                        public View getView(int position, View convertView, ViewGroup parent) {
-                            View view = super.getView(position, convertView, parent);
-                            TextView text = (TextView) view;
-                            text.setText(userList.get(position).getName());
-                            return view;
-                        }
-                    };
-                    
-                    adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
-                    userSpinner.setAdapter(adapter);
-                    
-                    // Set spinner selection listener
-                    userSpinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
-                        @Override
-                        public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
-                            selectedUserEmail = userList.get(position).getEmail();
-                        }
-                        
-                        @Override
-                        public void onNothingSelected(AdapterView<?> parent) {
-                            selectedUserEmail = "";
-                        }
-                    });
-                } else {
-                    Toast.makeText(UserReportsActivity.this, "Error loading users: " + 
-                            task.getException().getMessage(), Toast.LENGTH_SHORT).show();
                 }
-            });
+                FilterResults results = new FilterResults();
+                results.values = matches;
+                results.count = matches.size();
+                return results;
+            }
+            
+            @Override
+            @SuppressWarnings("unchecked")
+            protected void publishResults(CharSequence constraint, FilterResults results) {
+                clear();
+                if (results.values != null) {
+                    addAll((List<UserModel>) results.values);
+                }
+                notifyDataSetChanged();
+            }
+            
+            @Override
+            public CharSequence convertResultToString(Object resultValue) {
+                return ((UserModel) resultValue).getName();
+            }
+        };
+        
+        UserPickerAdapter() {
+            super(UserReportsActivity.this, android.R.layout.simple_list_item_1, new ArrayList<>());
+        }
+        
+        @NonNull
+        @Override
+        public View getView(int position, View convertView, @NonNull ViewGroup parent) {
+            TextView text = (TextView) super.getView(position, convertView, parent);
+            UserModel user = getItem(position);
+            // Users can share a name; the email tells them apart
+            if (user != null && !user.getEmail().isEmpty()) {
+                text.setText(user.getName() + "\n" + user.getEmail());
+            }
+            return text;
+        }
+        
+        @NonNull
+        @Override
+        public Filter getFilter() {
+            return filter;
+        }
     }
     
     private void generateReport() {
-        // Set start of day for start date
-        Calendar startOfDay = (Calendar) startDate.clone();
-        startOfDay.set(Calendar.HOUR_OF_DAY, 0);
-        startOfDay.set(Calendar.MINUTE, 0);
-        startOfDay.set(Calendar.SECOND, 0);
-        startOfDay.set(Calendar.MILLISECOND, 0);
-        
-        // Set end of day for end date
-        Calendar endOfDay = (Calendar) endDate.clone();
-        endOfDay.set(Calendar.HOUR_OF_DAY, 23);
-        endOfDay.set(Calendar.MINUTE, 59);
-        endOfDay.set(Calendar.SECOND, 59);
-        endOfDay.set(Calendar.MILLISECOND, 999);
-        
-        Date startDateTime = startOfDay.getTime();
-        Date endDateTime = endOfDay.getTime();
+        if (selectedUserEmail == null) {
+            Toast.makeText(this, "Select a user from the list", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        Date startDateTime = startDate.getTime();
+        Date endDateTime = endDate.getTime();
         
         SimpleDateFormat sdf = new SimpleDateFormat("MMM dd, yyyy", Locale.getDefault());
-        String startDateStr = sdf.format(startDateTime);
-        String endDateStr = sdf.format(endDateTime);
-        
-        Log.d(TAG, "Generating report for date range: " + startDateStr + " to " + endDateStr);
+        Log.d(TAG, "Generating report for date range: " + sdf.format(startDateTime) + " to " + sdf.format(endDateTime));
         
         // Show loading toast
         Toast.makeText(this, "Generating report...", Toast.LENGTH_SHORT).show();
@@ -306,170 +388,167 @@ public class UserReportsActivity extends AppCompatActivity {
         // Hide previous results
         reportResultsSection.setVisibility(View.GONE);
         noDataText.setVisibility(View.GONE);
+        if (reportPager != null) {
+            reportPager.cancel();
+            reportPager = null;
+        }
+        adapter.submitList(null);
         
-        // Query to get attendance records
-        Query query = db.collection("attendance");
+        reportGenerated = true;
+        int generation = ++reportGeneration;
+        String userEmail = selectedUserEmail != null && !selectedUserEmail.isEmpty() ? selectedUserEmail : null;
         
-        // Add filter for specific user if selected
-        if (selectedUserEmail != null && !selectedUserEmail.isEmpty()) {
-            query = query.whereEqualTo("userEmail", selectedUserEmail);
+        if (mirror.isReady()) {
+            loadReportFromMirror(generation, startDateTime, endDateTime, userEmail);
+        } else {
+            startReportPager(generation, startDateTime, endDateTime, userEmail);
         }
         
-        // Execute query
-        query.get().addOnCompleteListener(task -> {
-            if (task.isSuccessful()) {
-                List<Map<String, Object>> reports = new ArrayList<>();
-                for (DocumentSnapshot document : task.getResult().getDocuments()) {
-                    Map<String, Object> data = document.getData();
-                    if (data != null) {
-                        String recordDateStr = null;
-                        Date recordDate = null;
-                        
-                        // Try to get timestamp from document
-                        Object timestampObj = data.get("timestamp");
-                        if (timestampObj instanceof Timestamp) {
-                            Timestamp timestamp = (Timestamp) timestampObj;
-                            recordDate = timestamp.toDate();
-                            recordDateStr = new SimpleDateFormat("MMM dd, yyyy", Locale.getDefault()).format(recordDate);
-                        } else if (timestampObj instanceof String) {
-                            recordDateStr = (String) timestampObj;
-                            // Try to extract date from string timestamp
-                            try {
-                                if (recordDateStr.contains("at")) {
-                                    String datePart = recordDateStr.split("at")[0].trim();
-                                    recordDate = new SimpleDateFormat("MMM dd, yyyy", Locale.US).parse(datePart);
-                                }
-                            } catch (ParseException e) {
-                                Log.e(TAG, "Error parsing date: " + recordDateStr, e);
-                            }
-                        }
-                        
-                        // Check if record is within date range
-                        boolean isInRange = false;
-                        if (recordDate != null) {
-                            isInRange = !recordDate.before(startDateTime) && !recordDate.after(endDateTime);
-                        } else if (recordDateStr != null) {
-                            // If we couldn't parse the date, try to check by string comparison
-                            try {
-                                Date parsedRecordDate = new SimpleDateFormat("MMM dd, yyyy", Locale.US).parse(recordDateStr);
-                                if (parsedRecordDate != null) {
-                                    isInRange = !parsedRecordDate.before(startDateTime) && !parsedRecordDate.after(endDateTime);
-                                }
-                            } catch (ParseException e) {
-                                // If date can't be parsed, check if it's between start and end date strings
-                                SimpleDateFormat sdfMonth = new SimpleDateFormat("MMM", Locale.US);
-                                String startMonth = startDateStr.split(" ")[0];
-                                String endMonth = endDateStr.split(" ")[0];
-                                String recordMonth = recordDateStr.split(" ")[0];
-                                
-                                // Very basic string comparison by month
-                                if (recordMonth.equals(startMonth) || recordMonth.equals(endMonth)) {
-                                    isInRange = true;
-                                }
-                            }
-                        }
-                        
-                        if (isInRange) {
-                            String dateStr = "Unknown";
-                            String timeStr = "Unknown";
-                            String typeStr = (String) data.get("type");
-                            String locationStr = "Unknown Location";
-                            
-                            // Extract date and time
-                            if (recordDate != null) {
-                                dateStr = new SimpleDateFormat("dd MMM yyyy", Locale.getDefault()).format(recordDate);
-                                timeStr = new SimpleDateFormat("hh:mm a", Locale.getDefault()).format(recordDate);
-                            } else if (recordDateStr != null) {
-                                dateStr = recordDateStr;
-                                if (recordDateStr.contains("at")) {
-                                    String[] parts = recordDateStr.split("at");
-                                    if (parts.length > 1) {
-                                        dateStr = parts[0].trim();
-                                        timeStr = parts[1].trim();
-                                    }
+        // Bring the local copy up to date; show the report again if records came in
+        mirror.sync().addOnSuccessListener(changed -> {
+            if (changed > 0 && generation == reportGeneration && !isFinishing()) {
+                generateReport();
+            }
+        });
+    }
+    
+    /**
+     * The whole report from the local mirror, newest first, without Firestore reads
+     */
+    private void loadReportFromMirror(int generation, Date startDateTime, Date endDateTime, String userEmail) {
+        mirror.loadRecords(AttendanceMirror.Selection.days(startDateTime, endDateTime)
+                .userEmail(userEmail).newestFirst())
+            .addOnSuccessListener(records -> {
+                if (generation != reportGeneration) return;
+                if (records == null) {
+                    startReportPager(generation, startDateTime, endDateTime, userEmail);
+                    return;
+                }
+                List<Map<String, Object>> rows = new ArrayList<>(records.size());
+                for (Map<String, Object> record : records) {
+                    rows.add(toReportRow((String) record.get(AttendanceMirror.FIELD_ID), record));
+                }
+                adapter.submitList(rows);
+                showResults(!rows.isEmpty());
+            })
+            .addOnFailureListener(e -> {
+                Log.e(TAG, "Error reading local attendance, loading from Firestore", e);
+                startReportPager(generation, startDateTime, endDateTime, userEmail);
+            });
+    }
+    
+    private void showResults(boolean hasRows) {
+        if (hasRows) {
+            noDataText.setVisibility(View.GONE);
+            reportResultsSection.setVisibility(View.VISIBLE);
+        } else {
+            // No records found
+            noDataText.setVisibility(View.VISIBLE);
+            reportResultsSection.setVisibility(View.GONE);
+            Toast.makeText(this, "No attendance records found for selected criteria", Toast.LENGTH_SHORT).show();
+        }
+    }
+    
+    /**
+     * Page the report from Firestore, newest first, as the table scrolls
+     */
+    private void startReportPager(int generation, Date startDateTime, Date endDateTime, String userEmail) {
+        AttendanceQueries.rangeQueries(db, startDateTime, endDateTime, "userEmail", userEmail, Query.Direction.DESCENDING)
+            .addOnSuccessListener(queries -> {
+                if (generation != reportGeneration) return;
+                reportPager = new FirestorePager<>(queries,
+                        document -> toReportRow(document.getId(), document.getData()),
+                        new FirestorePager.Listener<Map<String, Object>>() {
+                            @Override
+                            public void onRowsLoaded(List<Map<String, Object>> rows, boolean complete) {
+                                adapter.submitList(rows);
+                                if (complete || !rows.isEmpty()) {
+                                    showResults(!rows.isEmpty());
                                 }
                             }
                             
-                            // Get location name - improved location extraction logic
-                            if (data.containsKey("locationName")) {
-                                locationStr = (String) data.get("locationName");
-                            } else if (data.containsKey("location")) {
-                                Object locationObj = data.get("location");
-                                if (locationObj instanceof String) {
-                                    locationStr = (String) locationObj;
-                                } else if (locationObj instanceof Map) {
-                                    @SuppressWarnings("unchecked")
-                                    Map<String, Object> locationMap = (Map<String, Object>) locationObj;
-                                    if (locationMap.containsKey("name")) {
-                                        locationStr = (String) locationMap.get("name");
-                                    } else if (locationMap.containsKey("locationName")) {
-                                        locationStr = (String) locationMap.get("locationName");
-                                    }
-                                }
-                            } else if (data.containsKey("officeName")) {
-                                locationStr = (String) data.get("officeName");
+                            @Override
+                            public void onError(Exception e) {
+                                Toast.makeText(UserReportsActivity.this, "Error generating report: " + 
+                                        e.getMessage(), Toast.LENGTH_SHORT).show();
+                                noDataText.setVisibility(View.VISIBLE);
                             }
-                            
-                            // Create record with all necessary fields
-                            Map<String, Object> record = new HashMap<>();
-                            record.put("timestamp", data.get("timestamp")); // Original timestamp
-                            record.put("date", dateStr);
-                            record.put("time", timeStr);
-                            record.put("userEmail", selectedUserEmail);
-                            record.put("userName", selectedUserEmail != null ? selectedUserEmail.split("@")[0] : "All");
-                            record.put("type", typeStr != null ? typeStr : "Check in");
-                            record.put("location", locationStr);
-                            record.put("status", "Completed");
-                            
-                            reports.add(record);
-                        }
-                    }
+                        });
+                reportPager.attachTo(userReportsList);
+            })
+            .addOnFailureListener(e -> {
+                Log.e(TAG, "Error preparing attendance queries", e);
+                Toast.makeText(this, "Error generating report: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+                noDataText.setVisibility(View.VISIBLE);
+            });
+    }
+    
+    // Display row for an attendance record; the queries already bound it to the date range
+    private Map<String, Object> toReportRow(String id, Map<String, Object> data) {
+        if (data == null) {
+            return null;
+        }
+        
+        String dateStr = "Unknown";
+        String timeStr = "Unknown";
+        String typeStr = (String) data.get("type");
+        String locationStr = "Unknown Location";
+        
+        // Extract date and time
+        Object timestampObj = data.get("timestamp");
+        long recordTime = AttendanceTimes.toMillis(timestampObj);
+        if (recordTime != AttendanceTimes.UNKNOWN) {
+            Date recordDate = new Date(recordTime);
+            dateStr = dateFormat.format(recordDate);
+            timeStr = timeFormat.format(recordDate);
+        } else if (timestampObj instanceof String) {
+            // Not a layout the parser knows; show it as stored
+            String recordDateStr = (String) timestampObj;
+            dateStr = recordDateStr;
+            if (recordDateStr.contains("at")) {
+                String[] parts = recordDateStr.split("at");
+                if (parts.length > 1) {
+                    dateStr = parts[0].trim();
+                    timeStr = parts[1].trim();
                 }
-                
-                // Store the reports for email functionality
-                currentReports = reports;
-                
-                if (reports.isEmpty()) {
-                    // No records found
-                    noDataText.setVisibility(View.VISIBLE);
-                    reportResultsSection.setVisibility(View.GONE);
-                    Toast.makeText(this, "No attendance records found for selected criteria", Toast.LENGTH_SHORT).show();
-                } else {
-                    // Sort records by date and time
-                    Collections.sort(reports, new Comparator<Map<String, Object>>() {
-                        private final SimpleDateFormat dateTimeFormat = 
-                                new SimpleDateFormat("dd MMM yyyy hh:mm a", Locale.getDefault());
-                        
-                        @Override
-                        public int compare(Map<String, Object> o1, Map<String, Object> o2) {
-                            try {
-                                Date date1 = dateTimeFormat.parse((String) o1.get("date") + " " + (String) o1.get("time"));
-                                Date date2 = dateTimeFormat.parse((String) o2.get("date") + " " + (String) o2.get("time"));
-                                
-                                if (date1 != null && date2 != null) {
-                                    // Reverse order (newest first)
-                                    return date2.compareTo(date1);
-                                }
-                            } catch (ParseException e) {
-                                Log.e(TAG, "Error sorting dates", e);
-                            }
-                            
-                            // Fallback to string comparison if parsing fails
-                            return ((String) o2.get("date") + (String) o2.get("time")).compareTo((String) o1.get("date") + (String) o1.get("time"));
-                        }
-                    });
-                    
-                    // Display records
-                    adapter.setAttendanceRecords(reports);
-                    noDataText.setVisibility(View.GONE);
-                    reportResultsSection.setVisibility(View.VISIBLE);
+            }
+        }
+        
+        // Get location name - improved location extraction logic
+        if (data.containsKey("locationName")) {
+            locationStr = (String) data.get("locationName");
+        } else if (data.containsKey("location")) {
+            Object locationObj = data.get("location");
+            if (locationObj instanceof String) {
+                locationStr = (String) locationObj;
+            } else if (locationObj instanceof Map) {
+                @SuppressWarnings("unchecked")
+                Map<String, Object> locationMap = (Map<String, Object>) locationObj;
+                if (locationMap.containsKey("name")) {
+                    locationStr = (String) locationMap.get("name");
+                } else if (locationMap.containsKey("locationName")) {
+                    locationStr = (String) locationMap.get("locationName");
                 }
-            } else {
-                Toast.makeText(UserReportsActivity.this, "Error generating report: " + 
-                        task.getException().getMessage(), Toast.LENGTH_SHORT).show();
-                noDataText.setVisibility(View.VISIBLE);
             }
-        });
+        } else if (data.containsKey("officeName")) {
+            locationStr = (String) data.get("officeName");
+        }
+        
+        String userEmail = selectedUserEmail != null && !selectedUserEmail.isEmpty()
+                ? selectedUserEmail : (String) data.get("userEmail");
+        
+        // Create record with all necessary fields
+        Map<String, Object> record = new HashMap<>();
+        record.put("id", id);
+        record.put("timestamp", timestampObj); // Original timestamp
+        record.put("date", dateStr);
+        record.put("time", timeStr);
+        record.put("userEmail", userEmail);
+        record.put("userName", userEmail != null ? userEmail.split("@")[0] : "All");
+        record.put("type", typeStr != null ? typeStr : "Check in");
+        record.put("location", locationStr);
+        record.put("status", "Completed");
+        return record;
     }
     
     private static class UserModel {
@@ -523,12 +602,20 @@ public class UserReportsActivity extends AppCompatActivity {
         }
     }
     
-    private class UserReportAdapter extends RecyclerView.Adapter<UserReportAdapter.ViewHolder> {
-        private List<Map<String, Object>> attendanceRecords = new ArrayList<>();
+    private class UserReportAdapter extends ListAdapter<Map<String, Object>, UserReportAdapter.ViewHolder> {
         
-        public void setAttendanceRecords(List<Map<String, Object>> attendanceRecords) {
-            this.attendanceRecords = attendanceRecords;
-            notifyDataSetChanged();
+        UserReportAdapter() {
+            super(new DiffUtil.ItemCallback<Map<String, Object>>() {
+                @Override
+                public boolean areItemsTheSame(@NonNull Map<String, Object> oldItem, @NonNull Map<String, Object> newItem) {
+                    return Objects.equals(oldItem.get("id"), newItem.get("id"));
+                }
+                
+                @Override
+                public boolean areContentsTheSame(@NonNull Map<String, Object> oldItem, @NonNull Map<String, Object> newItem) {
+                    return oldItem.equals(newItem);
+                }
+            });
         }
         
         @NonNull
@@ -541,7 +628,7 @@ public class UserReportsActivity extends AppCompatActivity {
         
         @Override
         public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-            Map<String, Object> record = attendanceRecords.get(position);
+            Map<String, Object> record = getItem(position);
             
             holder.dateText.setText((String) record.get("date"));
             holder.timeText.setText((String) record.get("time"));
@@ -563,11 +650,6 @@ public class UserReportsActivity extends AppCompatActivity {
             }
         }
         
-        @Override
-        public int getItemCount() {
-            return attendanceRecords.size();
-        }
-        
         class ViewHolder extends RecyclerView.ViewHolder {
             TextView dateText;
             TextView timeText;
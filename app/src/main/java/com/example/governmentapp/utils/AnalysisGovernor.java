@@ -0,0 +1,97 @@
+package com.example.governmentapp.utils;
+
+/**
+ * Paces live face analysis. A frame is only analyzed when no detection is in flight and
+ * the minimum interval since the previous analyzed frame has passed. The interval follows
+ * the measured detector latency, so a slow device analyzes fewer frames instead of queueing
+ * work and heating up. Thread-safe; times are in nanoseconds from {@link System#nanoTime()}.
+ */
+public class AnalysisGovernor {
+    // Keep the detector busy at most this fraction of the time
+    private static final float MAX_DETECTOR_DUTY_CYCLE = 0.5f;
+
+    // Weight of the newest sample in the latency average
+    private static final float LATENCY_SMOOTHING = 0.2f;
+
+    private static final long NANOS_PER_MS = 1_000_000L;
+    private static final long FPS_WINDOW_NANOS = 1_000L * NANOS_PER_MS;
+
+    private float maxFps;
+    private boolean inFlight = false;
+    private long lastFrameStartNanos = 0;
+    private float averageLatencyMs = 0f;
+
+    // Effective FPS measured over a rolling one-second window
+    private long windowStartNanos = 0;
+    private int windowFrames = 0;
+    private float effectiveFps = 0f;
+    private long skippedFrames = 0;
+
+    public AnalysisGovernor(float maxFps) {
+        this.maxFps = maxFps;
+    }
+
+    /**
+     * Decide whether to analyze the frame that just arrived. When this returns true the caller
+     * must call {@link #onFrameProcessed} once detection finishes.
+     */
+    public synchronized boolean tryBeginFrame(long nowNanos) {
+        if (inFlight || nowNanos - lastFrameStartNanos < getTargetIntervalNanos()) {
+            skippedFrames++;
+            return false;
+        }
+        inFlight = true;
+        lastFrameStartNanos = nowNanos;
+        return true;
+    }
+
+    public synchronized void onFrameProcessed(long startNanos, long endNanos) {
+        inFlight = false;
+
+        float latencyMs = (float) (endNanos - startNanos) / NANOS_PER_MS;
+        averageLatencyMs = averageLatencyMs == 0f
+                ? latencyMs
+                : averageLatencyMs + LATENCY_SMOOTHING * (latencyMs - averageLatencyMs);
+
+        if (windowStartNanos == 0) {
+            windowStartNanos = endNanos;
+        }
+        windowFrames++;
+        long windowNanos = endNanos - windowStartNanos;
+        if (windowNanos >= FPS_WINDOW_NANOS) {
+            effectiveFps = windowFrames * 1_000_000_000f / windowNanos;
+            windowStartNanos = endNanos;
+            windowFrames = 0;
+        }
+    }
+
+    private long getTargetIntervalNanos() {
+        float fpsIntervalMs = maxFps > 0 ? 1000f / maxFps : 0f;
+        float latencyIntervalMs = averageLatencyMs / MAX_DETECTOR_DUTY_CYCLE;
+        return (long) (Math.max(fpsIntervalMs, latencyIntervalMs) * NANOS_PER_MS);
+    }
+
+    public synchronized void setMaxFps(float maxFps) {
+        this.maxFps = maxFps;
+    }
+
+    public synchronized float getMaxFps() {
+        return maxFps;
+    }
+
+    public synchronized float getTargetIntervalMs() {
+        return (float) getTargetIntervalNanos() / NANOS_PER_MS;
+    }
+
+    public synchronized float getEffectiveFps() {
+        return effectiveFps;
+    }
+
+    public synchronized float getAverageLatencyMs() {
+        return averageLatencyMs;
+    }
+
+    public synchronized long getSkippedFrames() {
+        return skippedFrames;
+    }
+}
@@ -0,0 +1,393 @@
+package com.example.governmentapp.utils;
+
+import com.example.governmentapp.time.AttendanceTimeParser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Folds attendance events into every rollup the report screens show, in one pass:
+ * counts by location, user, type, hour of day and day, and each user's first check-in and
+ * last check-out per day, from which the latest arrivals are picked with a bounded heap.
+ * <p>
+ * Location, user and type strings are interned once to small integer IDs; from then on an
+ * event only touches int and long arrays, so adding one allocates nothing unless it brings
+ * a new key or user-day. Not thread-safe; fold on one thread, then read the results.
+ */
+public class AttendanceAggregator {
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    private final AttendanceTimeParser parser;
+
+    // Interned keys; the index is the ID
+    private final Map<String, Integer> locationIds = new HashMap<>();
+    private final List<String> locations = new ArrayList<>();
+    private final Map<String, Integer> userIds = new HashMap<>();
+    private final List<String> users = new ArrayList<>();
+    private final List<String> userNames = new ArrayList<>();
+    private final Map<String, Integer> typeIds = new HashMap<>();
+    private final List<String> types = new ArrayList<>();
+
+    private int[] locationCounts = new int[16];
+    private int[] userCounts = new int[64];
+    private int[] typeCounts = new int[4];
+    private final int[] hourCounts = new int[24];
+    private int total;
+    private int checkOuts;
+    private int undated;
+
+    // Per day: epoch day -> count
+    private final LongIntMap dayCounts = new LongIntMap();
+
+    // Per user per day: (user ID, epoch day) -> slot in the arrays below
+    private final LongIntMap userDaySlots = new LongIntMap();
+    private int[] slotUser = new int[64];
+    private long[] slotDay = new long[64];
+    private long[] slotFirstIn = new long[64];
+    private long[] slotLastOut = new long[64];
+    private int slotCount;
+
+    /**
+     * A user's attendance on one day. Times are epoch millis, or
+     * {@link AttendanceTimeParser#INVALID} if there was no check-in or no check-out.
+     */
+    public static class UserDay {
+        public final String user;
+        public final String userName;
+        public final long epochDay;
+        public final long firstIn;
+        public final long lastOut;
+
+        UserDay(String user, String userName, long epochDay, long firstIn, long lastOut) {
+            this.user = user;
+            this.userName = userName;
+            this.epochDay = epochDay;
+            this.firstIn = firstIn;
+            this.lastOut = lastOut;
+        }
+    }
+
+    public AttendanceAggregator() {
+        this(AttendanceTimes.parser());
+    }
+
+    public AttendanceAggregator(AttendanceTimeParser parser) {
+        this.parser = parser;
+    }
+
+    /**
+     * Fold one event
+     * @param location Location name or ID; null is counted under "Unknown Location"
+     * @param user User key, e.g. email or UID; null events count towards totals only
+     * @param userName Display name, kept from the first event of the user that has one
+     * @param type Record type; anything containing "out" is a check-out
+     * @param time Epoch millis, or {@link AttendanceTimeParser#INVALID} if unknown
+     */
+    public void add(String location, String user, String userName, String type, long time) {
+        total++;
+
+        int locationId = intern(location != null ? location : "Unknown Location", locationIds, locations);
+        locationCounts = ensureCapacity(locationCounts, locationId);
+        locationCounts[locationId]++;
+
+        String typeKey = type != null ? type : "";
+        int typeId = intern(typeKey, typeIds, types);
+        typeCounts = ensureCapacity(typeCounts, typeId);
+        typeCounts[typeId]++;
+        boolean checkOut = typeKey.toLowerCase(Locale.US).contains("out");
+        if (checkOut) checkOuts++;
+
+        int userId = -1;
+        if (user != null) {
+            int known = users.size();
+            userId = intern(user, userIds, users);
+            if (userId == known) {
+                userNames.add(null);
+            }
+            if (userNames.get(userId) == null && userName != null && !userName.trim().isEmpty()) {
+                userNames.set(userId, userName);
+            }
+            userCounts = ensureCapacity(userCounts, userId);
+            userCounts[userId]++;
+        }
+
+        if (time == AttendanceTimeParser.INVALID) {
+            undated++;
+            return;
+        }
+        long epochDay = parser.epochDay(time);
+        hourCounts[parser.hourOfDay(time)]++;
+        dayCounts.increment(epochDay);
+
+        if (userId < 0) return;
+        long key = ((long) userId << 32) | (epochDay & 0xffffffffL);
+        int slot = userDaySlots.get(key);
+        if (slot < 0) {
+            slot = newSlot(userId, epochDay);
+            userDaySlots.put(key, slot);
+        }
+        if (checkOut) {
+            if (slotLastOut[slot] == AttendanceTimeParser.INVALID || time > slotLastOut[slot]) {
+                slotLastOut[slot] = time;
+            }
+        } else if (slotFirstIn[slot] == AttendanceTimeParser.INVALID || time < slotFirstIn[slot]) {
+            slotFirstIn[slot] = time;
+        }
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public int getCheckIns() {
+        return total - checkOuts;
+    }
+
+    public int getCheckOuts() {
+        return checkOuts;
+    }
+
+    /**
+     * Events whose time was unknown; they are in every count except hour, day and user-day
+     */
+    public int getUndated() {
+        return undated;
+    }
+
+    public int getUniqueUsers() {
+        return users.size();
+    }
+
+    /**
+     * Counts by location, in the order locations were first seen
+     */
+    public Map<String, Integer> getLocationCounts() {
+        return toMap(locations, locationCounts);
+    }
+
+    /**
+     * Counts by user key, in the order users were first seen
+     */
+    public Map<String, Integer> getUserCounts() {
+        return toMap(users, userCounts);
+    }
+
+    public Map<String, Integer> getTypeCounts() {
+        return toMap(types, typeCounts);
+    }
+
+    /**
+     * @return Display name of a user, or null if no event had one
+     */
+    public String getUserName(String user) {
+        Integer id = userIds.get(user);
+        return id != null ? userNames.get(id) : null;
+    }
+
+    /**
+     * Counts by local hour of day, indexed 0-23
+     */
+    public int[] getHourCounts() {
+        return hourCounts.clone();
+    }
+
+    public int getDayCount(long epochDay) {
+        int count = dayCounts.get(epochDay);
+        return count < 0 ? 0 : count;
+    }
+
+    /**
+     * Events on or after the given day
+     */
+    public int countFromDay(long firstEpochDay) {
+        int count = 0;
+        for (int i = 0; i < dayCounts.keys.length; i++) {
+            if (dayCounts.values[i] != 0 && dayCounts.keys[i] >= firstEpochDay) {
+                count += dayCounts.values[i] - 1;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * First check-in and last check-out of every user on every day, in the order first seen
+     */
+    public List<UserDay> getUserDays() {
+        List<UserDay> days = new ArrayList<>(slotCount);
+        for (int slot = 0; slot < slotCount; slot++) {
+            days.add(toUserDay(slot));
+        }
+        return days;
+    }
+
+    /**
+     * The user-days with the latest first check-in after a cut-off, latest first.
+     * Picked with a heap of {@code limit} entries, so the cost is O(user-days x log limit).
+     * @param limit Maximum number of entries
+     * @param lateAfterMinutes Local minutes after midnight; check-ins at or before it are on time
+     */
+    public List<UserDay> getLatecomers(int limit, int lateAfterMinutes) {
+        if (limit <= 0) return Collections.emptyList();
+        // Min-heap of (minutes late << 32 | slot); the root is the least late of those kept
+        long[] heap = new long[limit];
+        int size = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            long firstIn = slotFirstIn[slot];
+            if (firstIn == AttendanceTimeParser.INVALID) continue;
+            long minute = (firstIn - parser.startOfDay(firstIn)) / 60_000L;
+            if (minute <= lateAfterMinutes || minute >= MINUTES_PER_DAY) continue;
+            long entry = ((minute - lateAfterMinutes) << 32) | slot;
+            if (size < limit) {
+                heap[size] = entry;
+                siftUp(heap, size++);
+            } else if (entry > heap[0]) {
+                heap[0] = entry;
+                siftDown(heap, 0, size);
+            }
+        }
+        long[] sorted = Arrays.copyOf(heap, size);
+        Arrays.sort(sorted);
+        List<UserDay> latecomers = new ArrayList<>(size);
+        for (int i = size - 1; i >= 0; i--) {
+            latecomers.add(toUserDay((int) (sorted[i] & 0xffffffffL)));
+        }
+        return latecomers;
+    }
+
+    private UserDay toUserDay(int slot) {
+        int userId = slotUser[slot];
+        return new UserDay(users.get(userId), userNames.get(userId), slotDay[slot],
+                slotFirstIn[slot], slotLastOut[slot]);
+    }
+
+    private int newSlot(int userId, long epochDay) {
+        if (slotCount == slotUser.length) {
+            int capacity = slotCount * 2;
+            slotUser = Arrays.copyOf(slotUser, capacity);
+            slotDay = Arrays.copyOf(slotDay, capacity);
+            slotFirstIn = Arrays.copyOf(slotFirstIn, capacity);
+            slotLastOut = Arrays.copyOf(slotLastOut, capacity);
+        }
+        int slot = slotCount++;
+        slotUser[slot] = userId;
+        slotDay[slot] = epochDay;
+        slotFirstIn[slot] = AttendanceTimeParser.INVALID;
+        slotLastOut[slot] = AttendanceTimeParser.INVALID;
+        return slot;
+    }
+
+    private static int intern(String key, Map<String, Integer> ids, List<String> keys) {
+        Integer id = ids.get(key);
+        if (id != null) return id;
+        int newId = keys.size();
+        ids.put(key, newId);
+        keys.add(key);
+        return newId;
+    }
+
+    private static int[] ensureCapacity(int[] counts, int index) {
+        return index < counts.length ? counts : Arrays.copyOf(counts, Math.max(index + 1, counts.length * 2));
+    }
+
+    private static Map<String, Integer> toMap(List<String> keys, int[] counts) {
+        Map<String, Integer> map = new LinkedHashMap<>();
+        for (int i = 0; i < keys.size(); i++) {
+            map.put(keys.get(i), counts[i]);
+        }
+        return map;
+    }
+
+    private static void siftUp(long[] heap, int i) {
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (heap[parent] <= heap[i]) return;
+            swap(heap, parent, i);
+            i = parent;
+        }
+    }
+
+    private static void siftDown(long[] heap, int i, int size) {
+        while (true) {
+            int smallest = i;
+            int left = 2 * i + 1;
+            int right = left + 1;
+            if (left < size && heap[left] < heap[smallest]) smallest = left;
+            if (right < size && heap[right] < heap[smallest]) smallest = right;
+            if (smallest == i) return;
+            swap(heap, smallest, i);
+            i = smallest;
+        }
+    }
+
+    private static void swap(long[] heap, int a, int b) {
+        long t = heap[a];
+        heap[a] = heap[b];
+        heap[b] = t;
+    }
+
+    /**
+     * Open-addressing long -> non-negative int map. Values are stored plus one so that
+     * zero marks an empty slot.
+     */
+    private static final class LongIntMap {
+        long[] keys = new long[64];
+        int[] values = new int[64];
+        private int size;
+
+        /**
+         * @return The value, or -1 if absent
+         */
+        int get(long key) {
+            int mask = keys.length - 1;
+            for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+                if (values[i] == 0) return -1;
+                if (keys[i] == key) return values[i] - 1;
+            }
+        }
+
+        void put(long key, int value) {
+            int mask = keys.length - 1;
+            int i = hash(key) & mask;
+            while (values[i] != 0 && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            if (values[i] == 0) {
+                size++;
+            }
+            keys[i] = key;
+            values[i] = value + 1;
+            if (size * 2 > keys.length) {
+                grow();
+            }
+        }
+
+        void increment(long key) {
+            int current = get(key);
+            put(key, current < 0 ? 1 : current + 1);
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new int[oldValues.length * 2];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldValues[i] != 0) {
+                    put(oldKeys[i], oldValues[i] - 1);
+                }
+            }
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
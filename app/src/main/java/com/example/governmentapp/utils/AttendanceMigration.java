@@ -0,0 +1,419 @@
+package com.example.governmentapp.utils;
+
+import android.util.Log;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.Transaction;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Rewrites legacy attendance documents from {@code attendance}, {@code user_attendance} and
+ * {@code app_data} into canonical {@link AttendanceWriter} records.
+ * <p>
+ * Each collection is paged in document ID order with {@code startAfter} cursors. A page is
+ * committed in one transaction together with the checkpoint, so an interrupted run resumes
+ * from the last committed page and never applies a page twice.
+ * <p>
+ * Legacy records that map to the same canonical document are reconciled the way the app's
+ * own writes are ({@link AttendanceWriter#supersedes}): the earliest check-in and the latest
+ * check-out of the day win, whichever collection or page they come from, and a canonical
+ * record the app already wrote is only replaced by an earlier check-in or later check-out.
+ * The check-in that used to be written to both {@code attendance} and {@code user_attendance}
+ * has the same time in both, so it ends up as one document carrying the fields of both.
+ * Every record created or replaced moves the {@link AttendanceStats} counters in the same
+ * transaction. Legacy documents are kept, marked with {@value #FIELD_MIGRATED_TO}, so a run
+ * can be checked against its sources before they are cleaned up. Those from
+ * {@code attendance} are moved to {@value #LEGACY_COLLECTION} under the same ID, since the
+ * canonical records share that collection and its queries would count each event twice.
+ * <p>
+ * Blocking; run it off the main thread (see {@link AttendanceMigrationWorker}).
+ */
+public class AttendanceMigration {
+    private static final String TAG = "AttendanceMigration";
+
+    public static final String CHECKPOINT_COLLECTION = "migrations";
+    public static final String CHECKPOINT_DOCUMENT = "attendance_canonical";
+    public static final String STATUS_RUNNING = "running";
+    public static final String STATUS_COMPLETE = "complete";
+    // Set on each legacy document to the ID of the canonical record it went into
+    public static final String FIELD_MIGRATED_TO = "migratedTo";
+    // Where legacy documents of the canonical collection are moved once migrated
+    public static final String LEGACY_COLLECTION = "attendance_legacy";
+
+    private static final String[] SOURCE_COLLECTIONS = {"attendance", "user_attendance", "app_data"};
+
+    // Each document can cost a set, two counter shards and moving its source (a set and a
+    // delete), plus the checkpoint: stays under 500 writes per transaction
+    private static final int PAGE_SIZE = 90;
+    private static final long REQUEST_TIMEOUT_SECONDS = 60;
+
+    public interface ProgressListener {
+        void onProgress(Progress progress);
+    }
+
+    public static class Progress {
+        public String collection;
+        public long migrated;
+        public long skipped;
+        public long unresolved;
+        public float docsPerSecond;
+        public boolean complete;
+    }
+
+    // Canonical record built from one or more legacy documents of a page
+    private static class Candidate {
+        final String canonicalId;
+        Map<String, Object> fields;
+        final List<DocumentSnapshot> sources = new ArrayList<>();
+
+        Candidate(String canonicalId, Map<String, Object> fields) {
+            this.canonicalId = canonicalId;
+            this.fields = fields;
+        }
+    }
+
+    // Set once a completed checkpoint is seen; a finished migration never reopens
+    private static volatile boolean knownComplete = false;
+
+    private final FirebaseFirestore db;
+    private volatile boolean cancelled = false;
+
+    // Users by document ID (UID), sevarthId and email
+    private final Map<String, DocumentSnapshot> usersByUid = new HashMap<>();
+    private final Map<String, DocumentSnapshot> usersBySevarthId = new HashMap<>();
+    private final Map<String, DocumentSnapshot> usersByEmail = new HashMap<>();
+
+    public AttendanceMigration(FirebaseFirestore db) {
+        this.db = db;
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Whether every legacy record has been migrated, so readers can rely on canonical records only.
+     * Resolves to false if the checkpoint cannot be read.
+     */
+    public static Task<Boolean> isComplete(FirebaseFirestore db) {
+        if (knownComplete) {
+            return Tasks.forResult(true);
+        }
+        return db.collection(CHECKPOINT_COLLECTION).document(CHECKPOINT_DOCUMENT)
+                .get()
+                .continueWith(task -> {
+                    if (!task.isSuccessful()) {
+                        Log.e(TAG, "Error reading migration status", task.getException());
+                        return false;
+                    }
+                    knownComplete = STATUS_COMPLETE.equals(task.getResult().getString("status"));
+                    return knownComplete;
+                });
+    }
+
+    /**
+     * Run or resume the migration
+     * @return Final progress; {@code complete} is false if the run was cancelled
+     */
+    public Progress run(ProgressListener listener)
+            throws ExecutionException, InterruptedException, TimeoutException {
+        DocumentReference checkpointRef = db.collection(CHECKPOINT_COLLECTION).document(CHECKPOINT_DOCUMENT);
+        DocumentSnapshot checkpoint = await(checkpointRef.get());
+
+        Progress progress = new Progress();
+        int sourceIndex = 0;
+        String lastDocumentId = null;
+        if (checkpoint.exists()) {
+            if (STATUS_COMPLETE.equals(checkpoint.getString("status"))) {
+                Log.d(TAG, "Migration already complete");
+                progress.complete = true;
+                return progress;
+            }
+            Long savedIndex = checkpoint.getLong("sourceIndex");
+            sourceIndex = savedIndex != null ? savedIndex.intValue() : 0;
+            lastDocumentId = checkpoint.getString("lastDocumentId");
+            progress.migrated = valueOrZero(checkpoint.getLong("migrated"));
+            progress.skipped = valueOrZero(checkpoint.getLong("skipped"));
+            progress.unresolved = valueOrZero(checkpoint.getLong("unresolved"));
+            Log.d(TAG, "Resuming at " + SOURCE_COLLECTIONS[sourceIndex] + " after " + lastDocumentId);
+        }
+
+        loadUsers();
+
+        long startTime = System.currentTimeMillis();
+        long processedThisRun = 0;
+
+        for (; sourceIndex < SOURCE_COLLECTIONS.length; sourceIndex++) {
+            String collection = SOURCE_COLLECTIONS[sourceIndex];
+            progress.collection = collection;
+
+            while (!cancelled) {
+                Query page = db.collection(collection).orderBy(FieldPath.documentId()).limit(PAGE_SIZE);
+                if (lastDocumentId != null) {
+                    page = page.startAfter(lastDocumentId);
+                }
+                List<DocumentSnapshot> documents = await(page.get()).getDocuments();
+                if (documents.isEmpty()) break;
+
+                Map<String, Candidate> candidates = new LinkedHashMap<>();
+                for (DocumentSnapshot document : documents) {
+                    migrateDocument(document, candidates, progress);
+                }
+                lastDocumentId = documents.get(documents.size() - 1).getId();
+                processedThisRun += documents.size();
+                progress.docsPerSecond = processedThisRun * 1000f
+                        / Math.max(1, System.currentTimeMillis() - startTime);
+
+                Map<String, Object> checkpointUpdate = checkpointFields(sourceIndex, lastDocumentId, progress, STATUS_RUNNING);
+                int kept = await(db.runTransaction(transaction -> {
+                    int keptInPage = commitPage(transaction, candidates.values());
+                    transaction.set(checkpointRef, checkpointUpdate);
+                    return keptInPage;
+                }));
+                if (kept > 0) {
+                    Log.d(TAG, kept + " canonical records already held an earlier check-in or later check-out");
+                }
+
+                Log.d(TAG, String.format(Locale.US, "%s: migrated=%d skipped=%d unresolved=%d %.1f docs/s",
+                        collection, progress.migrated, progress.skipped, progress.unresolved, progress.docsPerSecond));
+                listener.onProgress(progress);
+
+                if (documents.size() < PAGE_SIZE) break;
+            }
+            if (cancelled) {
+                Log.d(TAG, "Migration cancelled, progress is checkpointed");
+                return progress;
+            }
+            lastDocumentId = null;
+        }
+
+        await(checkpointRef.set(checkpointFields(SOURCE_COLLECTIONS.length, null, progress, STATUS_COMPLETE)));
+        progress.complete = true;
+        knownComplete = true;
+        listener.onProgress(progress);
+        Log.d(TAG, "Migration complete in " + (System.currentTimeMillis() - startTime) + " ms");
+        return progress;
+    }
+
+    private void migrateDocument(DocumentSnapshot document, Map<String, Candidate> candidates, Progress progress) {
+        // Already canonical (written by AttendanceWriter or an earlier page of this run), or
+        // copied by an earlier run
+        if (document.contains(AttendanceWriter.FIELD_EPOCH_DAY) || document.contains(FIELD_MIGRATED_TO)) {
+            progress.skipped++;
+            return;
+        }
+
+        DocumentSnapshot user = resolveUser(document);
+        Date time = resolveTime(document);
+        String type = document.getString("type");
+        if (user == null || time == null || type == null) {
+            progress.unresolved++;
+            return;
+        }
+
+        AttendanceWriter.Record record = new AttendanceWriter.Record();
+        record.userId = user.getId();
+        record.userEmail = firstNonNull(document.getString("userEmail"), user.getString("email"));
+        record.userName = user.getString("name");
+        record.sevarthId = user.getString("sevarthId");
+        record.locationId = document.getString("locationId");
+        record.locationName = document.getString("locationName");
+        record.type = type;
+        record.time = time;
+
+        Map<String, Object> fields = AttendanceWriter.toFields(record);
+        fields.put(AttendanceWriter.FIELD_SERVER_TIMESTAMP, FieldValue.serverTimestamp());
+        // Only carry over what this source actually has, so merging two sources of the same
+        // check-in does not blank out the other's fields
+        if (document.contains("verified")) {
+            fields.put(AttendanceWriter.FIELD_VERIFIED, document.getBoolean("verified"));
+        } else {
+            fields.remove(AttendanceWriter.FIELD_VERIFIED);
+        }
+        if (document.contains("similarityScore")) {
+            fields.put(AttendanceWriter.FIELD_SIMILARITY_SCORE, document.getDouble("similarityScore"));
+        } else {
+            fields.remove(AttendanceWriter.FIELD_SIMILARITY_SCORE);
+        }
+        Iterator<Map.Entry<String, Object>> entries = fields.entrySet().iterator();
+        while (entries.hasNext()) {
+            if (entries.next().getValue() == null) entries.remove();
+        }
+
+        String canonicalId = AttendanceWriter.documentId(record.userId, record.time, record.type);
+        Candidate candidate = candidates.get(canonicalId);
+        if (candidate == null) {
+            candidate = new Candidate(canonicalId, fields);
+            candidates.put(canonicalId, candidate);
+        } else {
+            Map<String, Object> winner = reconcile(candidate.fields, fields);
+            if (winner != null) candidate.fields = winner;
+        }
+        candidate.sources.add(document);
+        progress.migrated++;
+    }
+
+    /**
+     * Write a page's records against the canonical documents already stored, and mark or move
+     * their sources. Runs inside the page's transaction, possibly more than once.
+     * @return Number of candidates the stored record won over
+     */
+    private int commitPage(Transaction transaction, Collection<Candidate> candidates)
+            throws FirebaseFirestoreException {
+        // A transaction must do all its reads before any write
+        List<DocumentSnapshot> stored = new ArrayList<>();
+        for (Candidate candidate : candidates) {
+            stored.add(transaction.get(db.collection(AttendanceWriter.COLLECTION).document(candidate.canonicalId)));
+        }
+
+        int kept = 0;
+        int i = 0;
+        for (Candidate candidate : candidates) {
+            DocumentSnapshot existing = stored.get(i++);
+            Map<String, Object> previous = existing.exists() ? existing.getData() : null;
+            Map<String, Object> fields = reconcile(previous, candidate.fields);
+            if (fields != null) {
+                AttendanceStats.apply(db, transaction, previous, fields);
+                transaction.set(existing.getReference(), fields);
+            } else {
+                kept++;
+            }
+            for (DocumentSnapshot source : candidate.sources) {
+                DocumentReference reference = source.getReference();
+                if (!reference.getParent().getId().equals(AttendanceWriter.COLLECTION)) {
+                    transaction.update(reference, FIELD_MIGRATED_TO, candidate.canonicalId);
+                    continue;
+                }
+                Map<String, Object> legacy = new HashMap<>(source.getData());
+                legacy.put(FIELD_MIGRATED_TO, candidate.canonicalId);
+                transaction.set(db.collection(LEGACY_COLLECTION).document(source.getId()), legacy);
+                // A legacy document stored under the canonical ID was just replaced
+                if (!reference.equals(existing.getReference())) {
+                    transaction.delete(reference);
+                }
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * Fields to store for a record, given the ones already there
+     * @param existing Stored fields, or null
+     * @return The incoming fields if they win, with any fields only the stored record has when
+     * both are the same event; null if the stored record wins
+     */
+    private static Map<String, Object> reconcile(Map<String, Object> existing, Map<String, Object> incoming) {
+        if (!AttendanceWriter.supersedes(AttendanceWriter.COLLECTION, existing, incoming)) {
+            return null;
+        }
+        Map<String, Object> fields = new HashMap<>(incoming);
+        if (existing != null && AttendanceTimes.toMillis(existing) == AttendanceTimes.toMillis(incoming)) {
+            for (Map.Entry<String, Object> field : existing.entrySet()) {
+                if (!fields.containsKey(field.getKey())) fields.put(field.getKey(), field.getValue());
+            }
+        }
+        return fields;
+    }
+
+    private void loadUsers() throws ExecutionException, InterruptedException, TimeoutException {
+        String lastId = null;
+        while (true) {
+            Query page = db.collection("users").orderBy(FieldPath.documentId()).limit(PAGE_SIZE);
+            if (lastId != null) {
+                page = page.startAfter(lastId);
+            }
+            QuerySnapshot snapshot = await(page.get());
+            for (DocumentSnapshot user : snapshot.getDocuments()) {
+                usersByUid.put(user.getId(), user);
+                String sevarthId = user.getString("sevarthId");
+                if (sevarthId != null) usersBySevarthId.put(sevarthId, user);
+                String email = user.getString("email");
+                if (email != null) usersByEmail.put(email.toLowerCase(Locale.US), user);
+            }
+            if (snapshot.size() < PAGE_SIZE) break;
+            lastId = snapshot.getDocuments().get(snapshot.size() - 1).getId();
+        }
+        Log.d(TAG, "Loaded " + usersByUid.size() + " users");
+    }
+
+    // Legacy records identify the user by UID, sevarthId or email under several field names
+    private DocumentSnapshot resolveUser(DocumentSnapshot document) {
+        String[] idFields = {"userId", "uid", "userUid"};
+        for (String field : idFields) {
+            String value = document.getString(field);
+            if (value == null) continue;
+            if (usersByUid.containsKey(value)) return usersByUid.get(value);
+            if (usersBySevarthId.containsKey(value)) return usersBySevarthId.get(value);
+            if (usersByEmail.containsKey(value.toLowerCase(Locale.US))) {
+                return usersByEmail.get(value.toLowerCase(Locale.US));
+            }
+        }
+        String[] emailFields = {"userEmail", "email"};
+        for (String field : emailFields) {
+            String value = document.getString(field);
+            if (value != null && usersByEmail.containsKey(value.toLowerCase(Locale.US))) {
+                return usersByEmail.get(value.toLowerCase(Locale.US));
+            }
+        }
+        return null;
+    }
+
+    // Event time from a Timestamp, a legacy timestamp string, or the date/time string pair
+    private static Date resolveTime(DocumentSnapshot document) {
+        long millis = AttendanceTimes.toMillis(document.getData());
+        if (millis == AttendanceTimes.UNKNOWN) {
+            Log.w(TAG, "Unparseable time in " + document.getId() + ": " + document.get("timestamp")
+                    + " / " + document.get("date") + " " + document.get("time"));
+            return null;
+        }
+        return new Date(millis);
+    }
+
+    private static Map<String, Object> checkpointFields(int sourceIndex, String lastDocumentId,
+                                                        Progress progress, String status) {
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("sourceIndex", sourceIndex);
+        fields.put("lastDocumentId", lastDocumentId);
+        fields.put("migrated", progress.migrated);
+        fields.put("skipped", progress.skipped);
+        fields.put("unresolved", progress.unresolved);
+        fields.put("docsPerSecond", progress.docsPerSecond);
+        fields.put("status", status);
+        fields.put("updatedAt", FieldValue.serverTimestamp());
+        return fields;
+    }
+
+    private static <T> T await(Task<T> task)
+            throws ExecutionException, InterruptedException, TimeoutException {
+        return Tasks.await(task, REQUEST_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private static long valueOrZero(Long value) {
+        return value != null ? value : 0;
+    }
+
+    private static String firstNonNull(String first, String second) {
+        return first != null ? first : second;
+    }
+}
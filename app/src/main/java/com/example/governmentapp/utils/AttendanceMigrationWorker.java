@@ -0,0 +1,95 @@
+package com.example.governmentapp.utils;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.Data;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs {@link AttendanceMigration} in the background. Progress is published as work data
+ * so the admin dashboard can show it; a stopped or failed run resumes from the checkpoint.
+ */
+public class AttendanceMigrationWorker extends Worker {
+    private static final String TAG = "AttendanceMigrationWorker";
+    public static final String WORK_NAME = "attendance_migration";
+
+    // Progress keys
+    public static final String KEY_COLLECTION = "collection";
+    public static final String KEY_MIGRATED = "migrated";
+    public static final String KEY_SKIPPED = "skipped";
+    public static final String KEY_UNRESOLVED = "unresolved";
+    public static final String KEY_DOCS_PER_SECOND = "docsPerSecond";
+
+    private static final long INITIAL_BACKOFF_SECONDS = 30;
+
+    private AttendanceMigration migration;
+
+    public AttendanceMigrationWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    /**
+     * Start the migration, or leave a run that is already in progress alone
+     */
+    public static void start(Context context) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .build();
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(AttendanceMigrationWorker.class)
+                .setConstraints(constraints)
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, INITIAL_BACKOFF_SECONDS, TimeUnit.SECONDS)
+                .build();
+
+        WorkManager.getInstance(context)
+                .enqueueUniqueWork(WORK_NAME, ExistingWorkPolicy.KEEP, request);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        migration = new AttendanceMigration(FirebaseFirestore.getInstance());
+        try {
+            AttendanceMigration.Progress progress = migration.run(p -> setProgressAsync(toData(p)));
+            return progress.complete ? Result.success(toData(progress)) : Result.retry();
+        } catch (ExecutionException e) {
+            Log.e(TAG, "Migration page failed, will resume: " + e.getMessage(), e);
+            return Result.retry();
+        } catch (InterruptedException | TimeoutException e) {
+            Log.e(TAG, "Migration did not complete, will resume: " + e.getMessage());
+            return Result.retry();
+        }
+    }
+
+    @Override
+    public void onStopped() {
+        super.onStopped();
+        if (migration != null) {
+            migration.cancel();
+        }
+    }
+
+    private static Data toData(AttendanceMigration.Progress progress) {
+        return new Data.Builder()
+                .putString(KEY_COLLECTION, progress.collection)
+                .putLong(KEY_MIGRATED, progress.migrated)
+                .putLong(KEY_SKIPPED, progress.skipped)
+                .putLong(KEY_UNRESOLVED, progress.unresolved)
+                .putFloat(KEY_DOCS_PER_SECOND, progress.docsPerSecond)
+                .build();
+    }
+}
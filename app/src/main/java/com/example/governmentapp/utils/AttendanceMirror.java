@@ -0,0 +1,522 @@
+package com.example.governmentapp.utils;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteDoneException;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Local SQLite copy of the canonical attendance records, with the users and office locations
+ * they refer to, so report screens can answer from the device in milliseconds and without
+ * Firestore reads.
+ * <p>
+ * {@link #sync()} pages through the records whose {@code serverTimestamp} is after the newest
+ * one already held (all of them the first time) and upserts each page in one transaction
+ * together with the new watermark, so an interrupted sync resumes where it stopped. Records
+ * only enter the mirror once {@link AttendanceMigration} is complete, as legacy documents
+ * have no {@code serverTimestamp}; until then {@link #isReady()} is false and screens query
+ * Firestore as before. Reads return null while the mirror is not ready.
+ * <p>
+ * Canonical records are never deleted, so the mirror only adds and updates rows. Records are
+ * indexed by (epochDay, locationId), (userId, epochDay), (userEmail, epochDay) and type.
+ * All database access happens on one background thread.
+ */
+public class AttendanceMirror {
+    private static final String TAG = "AttendanceMirror";
+    private static final String DATABASE_NAME = "attendance_mirror.db";
+    private static final int DATABASE_VERSION = 1;
+
+    // Key of the record ID in rows returned by the mirror
+    public static final String FIELD_ID = "id";
+
+    private static final int PAGE_SIZE = 500;
+    private static final long REQUEST_TIMEOUT_SECONDS = 60;
+    // A sync this soon after the last one returns straight away
+    private static final long MIN_SYNC_INTERVAL_MS = 30_000L;
+    private static final long LOCATION_SYNC_INTERVAL_MS = 24 * 60 * 60 * 1000L;
+    // Re-read the last minute before the watermark; a write committed just before another can
+    // become visible just after it
+    private static final long WATERMARK_OVERLAP_MS = 60_000L;
+
+    private static final String KEY_WATERMARK = "watermark";
+    // Set once a sync has read through to the end, so a first sync cut short is not mistaken for a copy
+    private static final String KEY_SYNCED_AT = "syncedAt";
+    private static final String KEY_LOCATIONS_SYNCED_AT = "locationsSyncedAt";
+
+    private static final String RECORD_COLUMNS =
+            "a.id, a.user_id, a.user_email, "
+            + "COALESCE(NULLIF(a.user_name, ''), (SELECT name FROM users WHERE email = a.user_email LIMIT 1)), "
+            + "a.sevarth_id, a.location_id, COALESCE(NULLIF(a.location_name, ''), l.name), "
+            + "a.type, a.time, a.epoch_day, a.hour, a.verified";
+
+    private static AttendanceMirror instance;
+
+    private final Context context;
+    private final FirebaseFirestore db;
+    private final Executor executor = Executors.newSingleThreadExecutor();
+    private final Helper helper;
+
+    private volatile boolean ready = false;
+    private volatile long lastSyncAt = 0;
+    private Task<Integer> syncing;
+
+    /**
+     * Which records to read: a range of local days, optionally one office or one user, in
+     * time order
+     */
+    public static class Selection {
+        final long firstDay;
+        final long lastDay;
+        String locationId;
+        String userId;
+        String userEmail;
+        boolean newestFirst;
+
+        private Selection(long firstDay, long lastDay) {
+            this.firstDay = firstDay;
+            this.lastDay = lastDay;
+        }
+
+        /**
+         * Days as counted by {@link AttendanceWriter#epochDay}, inclusive
+         */
+        public static Selection days(long firstDay, long lastDay) {
+            return new Selection(firstDay, lastDay);
+        }
+
+        public static Selection days(Date firstDay, Date lastDay) {
+            return new Selection(AttendanceWriter.epochDay(firstDay), AttendanceWriter.epochDay(lastDay));
+        }
+
+        public static Selection allDays() {
+            return new Selection(Long.MIN_VALUE, Long.MAX_VALUE);
+        }
+
+        public Selection location(String locationId) {
+            this.locationId = locationId;
+            return this;
+        }
+
+        public Selection userId(String userId) {
+            this.userId = userId;
+            return this;
+        }
+
+        /**
+         * Emails are matched ignoring case
+         */
+        public Selection userEmail(String userEmail) {
+            this.userEmail = userEmail;
+            return this;
+        }
+
+        public Selection newestFirst() {
+            this.newestFirst = true;
+            return this;
+        }
+    }
+
+    public interface RecordVisitor {
+        void visit(Map<String, Object> record) throws IOException;
+    }
+
+    private AttendanceMirror(Context context) {
+        this.context = context.getApplicationContext();
+        this.db = FirebaseFirestore.getInstance();
+        this.helper = new Helper(this.context);
+        // Open the database in the background, so isReady() is known by the time it is asked
+        executor.execute(this::checkReady);
+    }
+
+    public static synchronized AttendanceMirror getInstance(Context context) {
+        if (instance == null) {
+            instance = new AttendanceMirror(context);
+        }
+        return instance;
+    }
+
+    /**
+     * Whether the mirror holds every canonical record as of its last sync
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Bring the mirror up to date. Calls made while a sync is running share it. Call from the
+     * main thread.
+     * @return Task with the number of records added or changed
+     */
+    public synchronized Task<Integer> sync() {
+        if (syncing != null && !syncing.isComplete()) {
+            return syncing;
+        }
+        if (System.currentTimeMillis() - lastSyncAt < MIN_SYNC_INTERVAL_MS) {
+            return Tasks.forResult(0);
+        }
+        syncing = AttendanceMigration.isComplete(db)
+                .continueWithTask(migrated -> {
+                    if (!Boolean.TRUE.equals(migrated.getResult())) {
+                        return Tasks.forResult((UserDirectory) null);
+                    }
+                    return UserDirectory.getInstance(context).refresh();
+                })
+                .continueWith(executor, task -> {
+                    UserDirectory users = task.getResult();
+                    if (users == null) {
+                        Log.d(TAG, "Attendance migration not complete, not mirroring yet");
+                        return 0;
+                    }
+                    int changed = syncRecords(users);
+                    lastSyncAt = System.currentTimeMillis();
+                    return changed;
+                });
+        syncing.addOnFailureListener(e -> Log.e(TAG, "Error syncing attendance mirror", e));
+        return syncing;
+    }
+
+    /**
+     * Records in the selection, with the keys of {@link AttendanceWriter} and {@link #FIELD_ID};
+     * the timestamp is a Firestore Timestamp, as in a document
+     * @return Task with the records, or with null if the mirror is not ready
+     */
+    public Task<List<Map<String, Object>>> loadRecords(Selection selection) {
+        return Tasks.call(executor, () -> {
+            if (!checkReady()) return null;
+            List<Map<String, Object>> records = new ArrayList<>();
+            forEachRecord(selection, records::add);
+            return records;
+        });
+    }
+
+    /**
+     * Record counts by office name over a range of days, largest first
+     * @return Task with the counts, or with null if the mirror is not ready
+     */
+    public Task<Map<String, Integer>> loadLocationCounts(long firstDay, long lastDay) {
+        return Tasks.call(executor, () -> {
+            if (!checkReady()) return null;
+            Map<String, Integer> counts = new LinkedHashMap<>();
+            long startTime = System.currentTimeMillis();
+            try (Cursor cursor = helper.getReadableDatabase().rawQuery(
+                    "SELECT COALESCE(NULLIF(MAX(a.location_name), ''), MAX(l.name), 'Unknown Location') AS name, "
+                    + "COUNT(*) AS records FROM attendance a LEFT JOIN locations l ON l.id = a.location_id "
+                    + "WHERE a.epoch_day BETWEEN ? AND ? GROUP BY a.location_id ORDER BY records DESC",
+                    new String[]{String.valueOf(firstDay), String.valueOf(lastDay)})) {
+                while (cursor.moveToNext()) {
+                    String name = cursor.getString(0);
+                    Integer previous = counts.get(name);
+                    counts.put(name, cursor.getInt(1) + (previous != null ? previous : 0));
+                }
+            }
+            Log.d(TAG, "Location counts in " + (System.currentTimeMillis() - startTime) + " ms");
+            return counts;
+        });
+    }
+
+    /**
+     * Visit every record in the selection without holding them all in memory. Blocking; call
+     * off the main thread, and only once {@link #isReady()}.
+     * @return Number of records visited
+     */
+    public int forEachRecord(Selection selection, RecordVisitor visitor) throws IOException {
+        StringBuilder sql = new StringBuilder("SELECT ").append(RECORD_COLUMNS)
+                .append(" FROM attendance a LEFT JOIN locations l ON l.id = a.location_id WHERE 1");
+        List<String> args = new ArrayList<>();
+        if (selection.firstDay != Long.MIN_VALUE || selection.lastDay != Long.MAX_VALUE) {
+            sql.append(" AND a.epoch_day BETWEEN ? AND ?");
+            args.add(String.valueOf(selection.firstDay));
+            args.add(String.valueOf(selection.lastDay));
+        }
+        if (selection.locationId != null) {
+            sql.append(" AND a.location_id = ?");
+            args.add(selection.locationId);
+        }
+        if (selection.userId != null) {
+            sql.append(" AND a.user_id = ?");
+            args.add(selection.userId);
+        }
+        if (selection.userEmail != null) {
+            sql.append(" AND a.user_email = ?");
+            args.add(selection.userEmail);
+        }
+        sql.append(" ORDER BY a.time").append(selection.newestFirst ? " DESC" : " ASC");
+
+        long startTime = System.currentTimeMillis();
+        int count = 0;
+        try (Cursor cursor = helper.getReadableDatabase().rawQuery(sql.toString(), args.toArray(new String[0]))) {
+            while (cursor.moveToNext()) {
+                visitor.visit(toRecord(cursor));
+                count++;
+            }
+        }
+        Log.d(TAG, "Read " + count + " records in " + (System.currentTimeMillis() - startTime) + " ms");
+        return count;
+    }
+
+    private static Map<String, Object> toRecord(Cursor cursor) {
+        Map<String, Object> record = new HashMap<>();
+        record.put(FIELD_ID, cursor.getString(0));
+        putString(record, AttendanceWriter.FIELD_USER_ID, cursor, 1);
+        putString(record, AttendanceWriter.FIELD_USER_EMAIL, cursor, 2);
+        putString(record, AttendanceWriter.FIELD_USER_NAME, cursor, 3);
+        putString(record, AttendanceWriter.FIELD_SEVARTH_ID, cursor, 4);
+        putString(record, AttendanceWriter.FIELD_LOCATION_ID, cursor, 5);
+        putString(record, AttendanceWriter.FIELD_LOCATION_NAME, cursor, 6);
+        putString(record, AttendanceWriter.FIELD_TYPE, cursor, 7);
+        if (!cursor.isNull(8)) {
+            long time = cursor.getLong(8);
+            record.put(AttendanceWriter.FIELD_TIMESTAMP, new Timestamp(new Date(time)));
+        }
+        if (!cursor.isNull(9)) {
+            record.put(AttendanceWriter.FIELD_EPOCH_DAY, cursor.getLong(9));
+        }
+        if (!cursor.isNull(10)) {
+            record.put(AttendanceWriter.FIELD_HOUR, cursor.getLong(10));
+        }
+        record.put(AttendanceWriter.FIELD_VERIFIED, cursor.getInt(11) != 0);
+        return record;
+    }
+
+    // Fields the record never had stay absent rather than null
+    private static void putString(Map<String, Object> record, String field, Cursor cursor, int column) {
+        if (!cursor.isNull(column)) {
+            record.put(field, cursor.getString(column));
+        }
+    }
+
+    // Runs on the executor
+    private boolean checkReady() {
+        if (!ready) {
+            ready = getState(helper.getReadableDatabase(), KEY_SYNCED_AT, 0) > 0;
+        }
+        return ready;
+    }
+
+    // Runs on the executor
+    private int syncRecords(UserDirectory users)
+            throws ExecutionException, InterruptedException, TimeoutException {
+        SQLiteDatabase database = helper.getWritableDatabase();
+        long startTime = System.currentTimeMillis();
+        syncUsers(database, users);
+        if (System.currentTimeMillis() - getState(database, KEY_LOCATIONS_SYNCED_AT, 0) > LOCATION_SYNC_INTERVAL_MS) {
+            syncLocations(database);
+        }
+
+        long watermark = getState(database, KEY_WATERMARK, -1);
+        Query query = db.collection(AttendanceWriter.COLLECTION);
+        if (watermark >= 0) {
+            query = query.whereGreaterThan(AttendanceWriter.FIELD_SERVER_TIMESTAMP,
+                    new Timestamp(new Date(Math.max(0, watermark - WATERMARK_OVERLAP_MS))));
+        }
+        query = query.orderBy(AttendanceWriter.FIELD_SERVER_TIMESTAMP);
+
+        SQLiteStatement existing = database.compileStatement("SELECT server_time FROM attendance WHERE id = ?");
+        SQLiteStatement upsert = database.compileStatement("INSERT OR REPLACE INTO attendance "
+                + "(id, user_id, user_email, user_name, sevarth_id, location_id, location_name, type, "
+                + "time, epoch_day, hour, server_time, verified) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+        int read = 0;
+        int changed = 0;
+        DocumentSnapshot cursor = null;
+        while (true) {
+            Query page = query.limit(PAGE_SIZE);
+            if (cursor != null) {
+                page = page.startAfter(cursor);
+            }
+            List<DocumentSnapshot> documents = await(page.get()).getDocuments();
+
+            database.beginTransaction();
+            try {
+                for (DocumentSnapshot document : documents) {
+                    Timestamp serverTimestamp = document.getTimestamp(AttendanceWriter.FIELD_SERVER_TIMESTAMP);
+                    long serverTime = serverTimestamp != null ? serverTimestamp.toDate().getTime() : 0;
+                    if (serverTime <= watermark && serverTime == storedServerTime(existing, document.getId())) {
+                        continue;
+                    }
+                    bindRecord(upsert, document, serverTime);
+                    upsert.executeInsert();
+                    changed++;
+                    watermark = Math.max(watermark, serverTime);
+                }
+                setState(database, KEY_WATERMARK, Math.max(watermark, 0));
+                database.setTransactionSuccessful();
+            } finally {
+                database.endTransaction();
+            }
+            read += documents.size();
+            if (documents.size() < PAGE_SIZE) break;
+            cursor = documents.get(documents.size() - 1);
+        }
+        existing.close();
+        upsert.close();
+        setState(database, KEY_SYNCED_AT, System.currentTimeMillis());
+        ready = true;
+        Log.d(TAG, "Synced " + changed + " changed of " + read + " records in "
+                + (System.currentTimeMillis() - startTime) + " ms");
+        return changed;
+    }
+
+    private static long storedServerTime(SQLiteStatement existing, String id) {
+        existing.bindString(1, id);
+        try {
+            return existing.simpleQueryForLong();
+        } catch (SQLiteDoneException e) {
+            return -1;
+        }
+    }
+
+    private static void bindRecord(SQLiteStatement upsert, DocumentSnapshot document, long serverTime) {
+        Map<String, Object> data = document.getData();
+        long time = AttendanceTimes.toMillis(data);
+        Long epochDay = document.getLong(AttendanceWriter.FIELD_EPOCH_DAY);
+        Long hour = document.getLong(AttendanceWriter.FIELD_HOUR);
+        if (time != AttendanceTimes.UNKNOWN) {
+            if (epochDay == null) epochDay = AttendanceWriter.epochDay(new Date(time));
+            if (hour == null) hour = (long) AttendanceTimes.parser().hourOfDay(time);
+        }
+
+        upsert.clearBindings();
+        upsert.bindString(1, document.getId());
+        bindString(upsert, 2, data, AttendanceWriter.FIELD_USER_ID);
+        bindString(upsert, 3, data, AttendanceWriter.FIELD_USER_EMAIL);
+        bindString(upsert, 4, data, AttendanceWriter.FIELD_USER_NAME);
+        bindString(upsert, 5, data, AttendanceWriter.FIELD_SEVARTH_ID);
+        bindString(upsert, 6, data, AttendanceWriter.FIELD_LOCATION_ID);
+        bindString(upsert, 7, data, AttendanceWriter.FIELD_LOCATION_NAME);
+        bindString(upsert, 8, data, AttendanceWriter.FIELD_TYPE);
+        if (time != AttendanceTimes.UNKNOWN) upsert.bindLong(9, time);
+        if (epochDay != null) upsert.bindLong(10, epochDay);
+        if (hour != null) upsert.bindLong(11, hour);
+        upsert.bindLong(12, serverTime);
+        upsert.bindLong(13, Boolean.TRUE.equals(document.getBoolean(AttendanceWriter.FIELD_VERIFIED)) ? 1 : 0);
+    }
+
+    private static void bindString(SQLiteStatement statement, int index, Map<String, Object> data, String field) {
+        Object value = data != null ? data.get(field) : null;
+        if (value != null) {
+            statement.bindString(index, value.toString());
+        }
+    }
+
+    // The user directory keeps itself in sync; copy it for name lookups in SQL
+    private static void syncUsers(SQLiteDatabase database, UserDirectory users) {
+        database.beginTransaction();
+        try {
+            database.delete("users", null, null);
+            ContentValues values = new ContentValues();
+            for (UserDirectory.User user : users.getUsers()) {
+                values.clear();
+                values.put("id", user.id);
+                values.put("name", user.name);
+                values.put("email", user.email);
+                values.put("sevarth_id", user.sevarthId);
+                database.insert("users", null, values);
+            }
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
+    }
+
+    private void syncLocations(SQLiteDatabase database)
+            throws ExecutionException, InterruptedException, TimeoutException {
+        List<DocumentSnapshot> documents = await(db.collection("locations").get()).getDocuments();
+        database.beginTransaction();
+        try {
+            database.delete("locations", null, null);
+            ContentValues values = new ContentValues();
+            for (DocumentSnapshot document : documents) {
+                values.clear();
+                values.put("id", document.getId());
+                values.put("name", document.getString("officeName"));
+                database.insert("locations", null, values);
+            }
+            setState(database, KEY_LOCATIONS_SYNCED_AT, System.currentTimeMillis());
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
+    }
+
+    private static long getState(SQLiteDatabase database, String key, long defaultValue) {
+        try (Cursor cursor = database.rawQuery("SELECT value FROM sync_state WHERE key = ?", new String[]{key})) {
+            return cursor.moveToFirst() ? cursor.getLong(0) : defaultValue;
+        }
+    }
+
+    private static void setState(SQLiteDatabase database, String key, long value) {
+        ContentValues values = new ContentValues();
+        values.put("key", key);
+        values.put("value", value);
+        database.insertWithOnConflict("sync_state", null, values, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    private static <T> T await(Task<T> task)
+            throws ExecutionException, InterruptedException, TimeoutException {
+        return Tasks.await(task, REQUEST_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private static class Helper extends SQLiteOpenHelper {
+        Helper(Context context) {
+            super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        }
+
+        @Override
+        public void onConfigure(SQLiteDatabase db) {
+            // Lets report reads run while a sync is writing
+            db.enableWriteAheadLogging();
+        }
+
+        @Override
+        public void onCreate(SQLiteDatabase db) {
+            db.execSQL("CREATE TABLE attendance ("
+                    + "id TEXT PRIMARY KEY, user_id TEXT, user_email TEXT COLLATE NOCASE, user_name TEXT, "
+                    + "sevarth_id TEXT, location_id TEXT, location_name TEXT, type TEXT, "
+                    + "time INTEGER, epoch_day INTEGER, hour INTEGER, server_time INTEGER NOT NULL, "
+                    + "verified INTEGER NOT NULL DEFAULT 0)");
+            db.execSQL("CREATE INDEX attendance_day_location ON attendance (epoch_day, location_id)");
+            db.execSQL("CREATE INDEX attendance_user_day ON attendance (user_id, epoch_day)");
+            db.execSQL("CREATE INDEX attendance_email_day ON attendance (user_email, epoch_day)");
+            db.execSQL("CREATE INDEX attendance_type ON attendance (type)");
+
+            db.execSQL("CREATE TABLE users (id TEXT PRIMARY KEY, name TEXT, email TEXT COLLATE NOCASE, sevarth_id TEXT)");
+            db.execSQL("CREATE INDEX users_email ON users (email)");
+            db.execSQL("CREATE TABLE locations (id TEXT PRIMARY KEY, name TEXT)");
+            db.execSQL("CREATE TABLE sync_state (key TEXT PRIMARY KEY, value INTEGER)");
+        }
+
+        @Override
+        public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+            // Everything here can be read again from Firestore
+            db.execSQL("DROP TABLE IF EXISTS attendance");
+            db.execSQL("DROP TABLE IF EXISTS users");
+            db.execSQL("DROP TABLE IF EXISTS locations");
+            db.execSQL("DROP TABLE IF EXISTS sync_state");
+            onCreate(db);
+        }
+    }
+}
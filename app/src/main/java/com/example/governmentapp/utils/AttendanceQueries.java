@@ -0,0 +1,127 @@
+package com.example.governmentapp.utils;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Indexed reads of attendance records by day.
+ * <p>
+ * Records are selected on the server with a range on the {@code timestamp} Timestamp field,
+ * plus an equality filter such as {@code locationId} (see firestore.indexes.json).
+ * Until {@link AttendanceMigration} has finished, prefix range queries pick up legacy records
+ * whose timestamp is a string like "May 13, 2025 at 10:18:10PM UTC+5:30": Firestore orders
+ * strings separately from Timestamps, so a prefix range on the date part selects a day.
+ */
+public class AttendanceQueries {
+
+    // Legacy string timestamps were written in English
+    private static final String LEGACY_DATE_PREFIX_FORMAT = "MMM dd, yyyy";
+
+    /**
+     * Attendance records of one local calendar day
+     * @param day Any time on the day
+     * @param locationId Office to filter by, or null for all offices
+     * @return Task with the records, Timestamp records first
+     */
+    public static Task<List<DocumentSnapshot>> loadDay(FirebaseFirestore db, Date day, String locationId) {
+        return rangeQueries(db, day, day, AttendanceWriter.FIELD_LOCATION_ID, locationId, Query.Direction.ASCENDING)
+            .continueWithTask(task -> {
+                List<Task<QuerySnapshot>> queries = new ArrayList<>();
+                for (Query query : task.getResult()) {
+                    queries.add(query.get());
+                }
+                return Tasks.<QuerySnapshot>whenAllSuccess(queries);
+            })
+            .continueWith(task -> {
+                Map<String, DocumentSnapshot> documents = new LinkedHashMap<>();
+                for (QuerySnapshot result : task.getResult()) {
+                    for (DocumentSnapshot document : result.getDocuments()) {
+                        documents.put(document.getId(), document);
+                    }
+                }
+                return new ArrayList<>(documents.values());
+            });
+    }
+
+    /**
+     * Queries selecting the attendance records of a range of local calendar days, ordered by
+     * timestamp, for reading in order (e.g. with {@link FirestorePager}). The first query covers
+     * Timestamp records; until the migration is complete it is followed by one prefix query per
+     * day for legacy string timestamps, in the same day order.
+     * @param firstDay Any time on the first day
+     * @param lastDay Any time on the last day, inclusive
+     * @param field Field to filter on by equality, e.g. locationId; null for no filter
+     * @param value Value of {@code field}; null for no filter
+     */
+    public static Task<List<Query>> rangeQueries(FirebaseFirestore db, Date firstDay, Date lastDay,
+                                                 String field, Object value, Query.Direction direction) {
+        Date start = startOfDay(firstDay);
+        Calendar end = Calendar.getInstance();
+        end.setTime(startOfDay(lastDay));
+        end.add(Calendar.DAY_OF_MONTH, 1);
+        Date endExclusive = end.getTime();
+
+        return AttendanceMigration.isComplete(db).continueWith(migrated -> {
+            List<Query> queries = new ArrayList<>();
+            queries.add(baseQuery(db, field, value)
+                    .whereGreaterThanOrEqualTo(AttendanceWriter.FIELD_TIMESTAMP, start)
+                    .whereLessThan(AttendanceWriter.FIELD_TIMESTAMP, endExclusive)
+                    .orderBy(AttendanceWriter.FIELD_TIMESTAMP, direction));
+
+            if (!Boolean.TRUE.equals(migrated.getResult())) {
+                SimpleDateFormat prefixFormat = new SimpleDateFormat(LEGACY_DATE_PREFIX_FORMAT, Locale.US);
+                List<Query> legacyQueries = new ArrayList<>();
+                Calendar day = Calendar.getInstance();
+                day.setTime(start);
+                while (day.getTime().before(endExclusive)) {
+                    String prefix = prefixFormat.format(day.getTime());
+                    legacyQueries.add(baseQuery(db, field, value)
+                            .whereGreaterThanOrEqualTo(AttendanceWriter.FIELD_TIMESTAMP, prefix)
+                            .whereLessThan(AttendanceWriter.FIELD_TIMESTAMP, prefix + "\uf8ff")
+                            .orderBy(AttendanceWriter.FIELD_TIMESTAMP, direction));
+                    day.add(Calendar.DAY_OF_MONTH, 1);
+                }
+                if (direction == Query.Direction.DESCENDING) {
+                    Collections.reverse(legacyQueries);
+                }
+                queries.addAll(legacyQueries);
+            }
+            return queries;
+        });
+    }
+
+    /**
+     * Midnight at the start of the local calendar day of the given time
+     */
+    public static Date startOfDay(Date time) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTime(time);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        return calendar.getTime();
+    }
+
+    private static Query baseQuery(FirebaseFirestore db, String field, Object value) {
+        Query query = db.collection(AttendanceWriter.COLLECTION);
+        if (field != null && value != null) {
+            query = query.whereEqualTo(field, value);
+        }
+        return query;
+    }
+}
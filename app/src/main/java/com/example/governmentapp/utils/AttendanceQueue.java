@@ -0,0 +1,324 @@
+package com.example.governmentapp.utils;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.security.crypto.EncryptedFile;
+import androidx.security.crypto.MasterKey;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.FieldValue;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Durable on-device journal of attendance writes waiting to reach Firestore.
+ * Each pending write is one encrypted file keyed by its document ID, so a write
+ * survives process death and is uploaded with the same ID however often it is retried.
+ * A second write under the same ID replaces the queued one only if
+ * {@link AttendanceWriter#supersedes} says it should; the new entry is written aside and
+ * renamed over the old one, so a failed write leaves the queued one in place.
+ * {@link AttendanceSyncWorker} drains the journal.
+ */
+public class AttendanceQueue {
+    private static final String TAG = "AttendanceQueue";
+    private static final String JOURNAL_DIR = "attendance_journal";
+    private static final String FILE_SUFFIX = ".json";
+    private static final String UNREADABLE_SUFFIX = ".unreadable";
+    // Entries are written here first, under their final name, then renamed into the journal
+    private static final String STAGING_DIR = "staging";
+
+    /**
+     * Field value replaced by {@code FieldValue.serverTimestamp()} when the write is uploaded
+     */
+    public static final Object SERVER_TIMESTAMP = new Object();
+
+    // Field type tags, since JSON has no date or sentinel types
+    private static final String TYPE_DATE = "date";
+    private static final String TYPE_SERVER_TIMESTAMP = "serverTimestamp";
+
+    private static AttendanceQueue instance;
+
+    /**
+     * Reads and writes entry files: encrypted on the device, plain in tests
+     */
+    interface Storage {
+        InputStream openInput(File file) throws GeneralSecurityException, IOException;
+
+        OutputStream openOutput(File file) throws GeneralSecurityException, IOException;
+    }
+
+    private final Context context;
+    private final File journalDir;
+    private final Storage storage;
+    // All journal access happens on this thread
+    private final Executor executor = Executors.newSingleThreadExecutor();
+    private MasterKey masterKey;
+
+    /**
+     * A write waiting in the journal
+     */
+    public static class PendingWrite {
+        public final String documentId;
+        public final String collection;
+        public final long queuedAt;
+        public final Map<String, Object> fields;
+
+        PendingWrite(String documentId, String collection, long queuedAt, Map<String, Object> fields) {
+            this.documentId = documentId;
+            this.collection = collection;
+            this.queuedAt = queuedAt;
+            this.fields = fields;
+        }
+    }
+
+    private AttendanceQueue(Context context) {
+        this.context = context.getApplicationContext();
+        this.journalDir = new File(this.context.getFilesDir(), JOURNAL_DIR);
+        this.storage = new Storage() {
+            @Override
+            public InputStream openInput(File file) throws GeneralSecurityException, IOException {
+                return getEncryptedFile(file).openFileInput();
+            }
+
+            @Override
+            public OutputStream openOutput(File file) throws GeneralSecurityException, IOException {
+                return getEncryptedFile(file).openFileOutput();
+            }
+        };
+    }
+
+    // A journal that schedules no uploads, for tests
+    AttendanceQueue(File journalDir, Storage storage) {
+        this.context = null;
+        this.journalDir = journalDir;
+        this.storage = storage;
+    }
+
+    public static synchronized AttendanceQueue getInstance(Context context) {
+        if (instance == null) {
+            instance = new AttendanceQueue(context);
+        }
+        return instance;
+    }
+
+    /**
+     * Persist a write and schedule the upload. The task completes once the write is on disk.
+     * @param collection Target Firestore collection
+     * @param fields Document fields (String, Number, Boolean, Date or {@link #SERVER_TIMESTAMP} values)
+     * @return Task with the document ID the write will be stored under
+     */
+    public Task<String> enqueue(String collection, Map<String, Object> fields) {
+        return enqueue(UUID.randomUUID().toString(), collection, fields);
+    }
+
+    /**
+     * Persist a write under a caller-chosen document ID; a later write with the same ID replaces
+     * the queued one unless {@link AttendanceWriter#supersedes} keeps the earlier
+     */
+    public Task<String> enqueue(String documentId, String collection, Map<String, Object> fields) {
+        return Tasks.call(executor, () -> {
+            if (!replaceEntry(new PendingWrite(documentId, collection, System.currentTimeMillis(), fields))) {
+                Log.d(TAG, "Kept the earlier queued " + collection + "/" + documentId);
+                return documentId;
+            }
+            Log.d(TAG, "Queued " + collection + "/" + documentId);
+            AttendanceSyncWorker.schedule(context);
+            return documentId;
+        });
+    }
+
+    /**
+     * Oldest pending writes first. Call off the main thread.
+     * @param limit Maximum number of writes to return
+     */
+    public synchronized List<PendingWrite> peek(int limit) {
+        File[] files = journalDir.listFiles((dir, name) -> name.endsWith(FILE_SUFFIX));
+        List<PendingWrite> writes = new ArrayList<>();
+        if (files == null) return writes;
+
+        Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (File file : files) {
+            if (writes.size() >= limit) break;
+            PendingWrite write = readEntry(file);
+            if (write != null) {
+                writes.add(write);
+            }
+        }
+        return writes;
+    }
+
+    /**
+     * Drop writes that reached Firestore. Call off the main thread.
+     */
+    public synchronized void remove(List<PendingWrite> writes) {
+        for (PendingWrite write : writes) {
+            File file = getFile(write.documentId);
+            if (!file.exists()) continue;
+            // A write queued under the same ID during the upload replaced this one; it is
+            // uploaded by the next run
+            PendingWrite current = readEntry(file);
+            if (current == null || current.queuedAt != write.queuedAt) continue;
+            if (!file.delete()) {
+                Log.w(TAG, "Could not delete journal entry " + write.documentId);
+            }
+        }
+    }
+
+    /**
+     * Number of writes not yet uploaded. Reads only the directory listing.
+     */
+    public int getPendingCount() {
+        String[] names = journalDir.list((dir, name) -> name.endsWith(FILE_SUFFIX));
+        return names != null ? names.length : 0;
+    }
+
+    // Write the entry unless one already queued under its ID should be kept instead
+    synchronized boolean replaceEntry(PendingWrite write) throws IOException, GeneralSecurityException, JSONException {
+        File file = getFile(write.documentId);
+        PendingWrite queued = file.exists() ? readEntry(file) : null;
+        if (queued != null && !AttendanceWriter.supersedes(write.collection, queued.fields, write.fields)) {
+            return false;
+        }
+        if (queued != null && write.queuedAt <= queued.queuedAt) {
+            // remove() tells a replacement from the uploaded entry by queuedAt, even within a millisecond
+            write = new PendingWrite(write.documentId, write.collection, queued.queuedAt + 1, write.fields);
+        }
+        writeEntry(write);
+        return true;
+    }
+
+    private synchronized void writeEntry(PendingWrite write) throws IOException, GeneralSecurityException, JSONException {
+        if (!journalDir.exists() && !journalDir.mkdirs()) {
+            throw new IOException("Could not create " + journalDir);
+        }
+
+        JSONObject fields = new JSONObject();
+        for (Map.Entry<String, Object> field : write.fields.entrySet()) {
+            Object value = field.getValue();
+            if (value instanceof Date) {
+                JSONObject typed = new JSONObject();
+                typed.put("type", TYPE_DATE);
+                typed.put("value", ((Date) value).getTime());
+                fields.put(field.getKey(), typed);
+            } else if (value == SERVER_TIMESTAMP) {
+                JSONObject typed = new JSONObject();
+                typed.put("type", TYPE_SERVER_TIMESTAMP);
+                fields.put(field.getKey(), typed);
+            } else {
+                fields.put(field.getKey(), value);
+            }
+        }
+
+        JSONObject entry = new JSONObject();
+        entry.put("documentId", write.documentId);
+        entry.put("collection", write.collection);
+        entry.put("queuedAt", write.queuedAt);
+        entry.put("fields", fields);
+
+        // EncryptedFile binds the content to the file name and refuses to overwrite a file, so
+        // the entry is staged under its final name and renamed over the queued one
+        File file = getFile(write.documentId);
+        File stagingDir = new File(journalDir, STAGING_DIR);
+        if (!stagingDir.exists() && !stagingDir.mkdirs()) {
+            throw new IOException("Could not create " + stagingDir);
+        }
+        File staged = new File(stagingDir, file.getName());
+        if (staged.exists() && !staged.delete()) {
+            throw new IOException("Could not clear " + staged);
+        }
+        try (OutputStream out = storage.openOutput(staged)) {
+            out.write(entry.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        if (!staged.renameTo(file)) {
+            staged.delete();
+            throw new IOException("Could not move " + staged + " into the journal");
+        }
+    }
+
+    private PendingWrite readEntry(File file) {
+        try (InputStream in = storage.openInput(file)) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            byte[] chunk = new byte[1024];
+            int read;
+            while ((read = in.read(chunk)) != -1) {
+                buffer.write(chunk, 0, read);
+            }
+
+            JSONObject entry = new JSONObject(new String(buffer.toByteArray(), StandardCharsets.UTF_8));
+            JSONObject json = entry.getJSONObject("fields");
+            Map<String, Object> fields = new HashMap<>();
+            Iterator<String> keys = json.keys();
+            while (keys.hasNext()) {
+                String key = keys.next();
+                Object value = json.get(key);
+                String type = value instanceof JSONObject ? ((JSONObject) value).optString("type") : null;
+                if (TYPE_DATE.equals(type)) {
+                    fields.put(key, new Date(((JSONObject) value).getLong("value")));
+                } else if (TYPE_SERVER_TIMESTAMP.equals(type)) {
+                    fields.put(key, FieldValue.serverTimestamp());
+                } else if (value != JSONObject.NULL) {
+                    fields.put(key, value);
+                }
+            }
+            return new PendingWrite(entry.getString("documentId"), entry.getString("collection"),
+                    entry.getLong("queuedAt"), fields);
+        } catch (GeneralSecurityException | IOException | JSONException e) {
+            // Unreadable entry (e.g. keystore reset); set it aside so it neither blocks
+            // the queue nor counts as pending
+            Log.e(TAG, "Error reading journal entry " + file.getName() + ": " + e.getMessage(), e);
+            file.renameTo(new File(journalDir, file.getName() + UNREADABLE_SUFFIX));
+            return null;
+        }
+    }
+
+    private EncryptedFile getEncryptedFile(File file) throws GeneralSecurityException, IOException {
+        if (masterKey == null) {
+            masterKey = new MasterKey.Builder(context)
+                    .setKeyScheme(MasterKey.KeyScheme.AES256_GCM)
+                    .build();
+        }
+        return new EncryptedFile.Builder(
+                context,
+                file,
+                masterKey,
+                EncryptedFile.FileEncryptionScheme.AES256_GCM_HKDF_4KB
+        ).build();
+    }
+
+    // Hash the document ID so user identifiers never appear in a file name
+    private File getFile(String documentId) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(documentId.getBytes(StandardCharsets.UTF_8));
+            StringBuilder name = new StringBuilder();
+            for (byte b : hash) {
+                name.append(String.format("%02x", b));
+            }
+            return new File(journalDir, name + FILE_SUFFIX);
+        } catch (Exception e) {
+            return new File(journalDir, Integer.toHexString(documentId.hashCode()) + FILE_SUFFIX);
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.example.governmentapp.utils;
+
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.Transaction;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Pre-aggregated daily attendance counters, maintained at write time so report summaries
+ * read a few small documents instead of the whole attendance collection.
+ * <p>
+ * Counters live in {@code stats_daily/{yyyy-MM-dd}/location_shards/{locationId}_{shard}}.
+ * Each location's counters are split over {@value #SHARD_COUNT} shards picked at random,
+ * so the morning check-in rush at one office does not contend on a single document;
+ * readers sum the shards. Each shard holds record, check-in and check-out counts, an hourly
+ * histogram ({@code hours.<0-23>}) and per-user counts ({@code users.<uid>}).
+ * <p>
+ * Updates are applied by {@link AttendanceSyncWorker} in the same transaction as the
+ * attendance write, against the previous version of the document, so an overwrite of the
+ * day's record moves its count instead of adding a second one.
+ */
+public class AttendanceStats {
+    public static final String COLLECTION = "stats_daily";
+    public static final String SHARDS = "location_shards";
+    static final int SHARD_COUNT = 10;
+
+    private static final String UNKNOWN_LOCATION = "unknown";
+    private static final Random random = new Random();
+
+    /**
+     * Counters of one location on one day
+     */
+    public static class LocationSummary {
+        public String locationId;
+        public String locationName;
+        public long records;
+        public long checkIns;
+        public long checkOuts;
+        public final long[] hours = new long[24];
+        public final Map<String, Long> userCounts = new HashMap<>();
+        public final Map<String, String> userNames = new HashMap<>();
+    }
+
+    /**
+     * Counters of all locations on one day, keyed by location ID
+     */
+    public static class DailySummary {
+        public final Map<String, LocationSummary> locations = new LinkedHashMap<>();
+
+        public boolean isEmpty() {
+            return locations.isEmpty();
+        }
+
+        public long getTotalRecords() {
+            long total = 0;
+            for (LocationSummary location : locations.values()) {
+                total += location.records;
+            }
+            return total;
+        }
+    }
+
+    /**
+     * Load the counters of a day
+     * @param date Day as {@code yyyy-MM-dd}, the format of the canonical {@code date} field
+     */
+    public static Task<DailySummary> loadDay(FirebaseFirestore db, String date) {
+        return db.collection(COLLECTION).document(date).collection(SHARDS)
+                .get()
+                .continueWith(task -> {
+                    DailySummary summary = new DailySummary();
+                    for (DocumentSnapshot shard : task.getResult().getDocuments()) {
+                        addShard(summary, shard);
+                    }
+                    return summary;
+                });
+    }
+
+    /**
+     * Whether writes to this collection are counted
+     */
+    static boolean isTracked(String collection) {
+        return AttendanceWriter.COLLECTION.equals(collection);
+    }
+
+    /**
+     * Move the counters from the previous version of an attendance document to the new one.
+     * Must be called inside the transaction that writes {@code current}.
+     * @param previous Previous document data, or null if the document is new
+     * @param current Fields being written
+     */
+    static void apply(FirebaseFirestore db, Transaction transaction,
+                      Map<String, Object> previous, Map<String, Object> current) {
+        // Records written before the canonical format have no day bucket to move
+        boolean hadBucket = previous != null && previous.get(AttendanceWriter.FIELD_DATE) != null
+                && previous.containsKey(AttendanceWriter.FIELD_EPOCH_DAY);
+        if (hadBucket && bucketKey(previous).equals(bucketKey(current))) {
+            return;
+        }
+        if (hadBucket) {
+            increment(db, transaction, previous, -1);
+        }
+        increment(db, transaction, current, 1);
+    }
+
+    private static void increment(FirebaseFirestore db, Transaction transaction,
+                                  Map<String, Object> record, long delta) {
+        String date = (String) record.get(AttendanceWriter.FIELD_DATE);
+        if (date == null) return;
+        String locationId = locationId(record);
+        String userId = (String) record.get(AttendanceWriter.FIELD_USER_ID);
+
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("locationId", locationId);
+        fields.put("date", date);
+        fields.put("records", FieldValue.increment(delta));
+        fields.put(AttendanceWriter.isCheckOut(record) ? "checkOuts" : "checkIns", FieldValue.increment(delta));
+
+        Object hour = record.get(AttendanceWriter.FIELD_HOUR);
+        if (hour instanceof Number) {
+            Map<String, Object> hours = new HashMap<>();
+            hours.put(String.valueOf(((Number) hour).intValue()), FieldValue.increment(delta));
+            fields.put("hours", hours);
+        }
+        if (userId != null) {
+            Map<String, Object> users = new HashMap<>();
+            users.put(userId, FieldValue.increment(delta));
+            fields.put("users", users);
+        }
+        // Names are only ever added, so a decrement never needs them
+        if (delta > 0) {
+            Object locationName = record.get(AttendanceWriter.FIELD_LOCATION_NAME);
+            if (locationName != null) fields.put("locationName", locationName);
+            Object userName = record.get(AttendanceWriter.FIELD_USER_NAME);
+            if (userId != null && userName != null) {
+                Map<String, Object> userNames = new HashMap<>();
+                userNames.put(userId, userName);
+                fields.put("userNames", userNames);
+            }
+        }
+
+        DocumentReference shard = db.collection(COLLECTION).document(date).collection(SHARDS)
+                .document(locationId + "_" + random.nextInt(SHARD_COUNT));
+        transaction.set(shard, fields, SetOptions.merge());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void addShard(DailySummary summary, DocumentSnapshot shard) {
+        String locationId = shard.getString("locationId");
+        if (locationId == null) return;
+
+        LocationSummary location = summary.locations.get(locationId);
+        if (location == null) {
+            location = new LocationSummary();
+            location.locationId = locationId;
+            summary.locations.put(locationId, location);
+        }
+        if (location.locationName == null) {
+            location.locationName = shard.getString("locationName");
+        }
+        location.records += longValue(shard.get("records"));
+        location.checkIns += longValue(shard.get("checkIns"));
+        location.checkOuts += longValue(shard.get("checkOuts"));
+
+        Object hours = shard.get("hours");
+        if (hours instanceof Map) {
+            for (Map.Entry<String, Object> hour : ((Map<String, Object>) hours).entrySet()) {
+                try {
+                    int index = Integer.parseInt(hour.getKey());
+                    if (index >= 0 && index < 24) {
+                        location.hours[index] += longValue(hour.getValue());
+                    }
+                } catch (NumberFormatException ignored) {
+                }
+            }
+        }
+        Object users = shard.get("users");
+        if (users instanceof Map) {
+            for (Map.Entry<String, Object> user : ((Map<String, Object>) users).entrySet()) {
+                Long count = location.userCounts.get(user.getKey());
+                location.userCounts.put(user.getKey(), (count != null ? count : 0) + longValue(user.getValue()));
+            }
+        }
+        Object userNames = shard.get("userNames");
+        if (userNames instanceof Map) {
+            for (Map.Entry<String, Object> name : ((Map<String, Object>) userNames).entrySet()) {
+                if (name.getValue() instanceof String) {
+                    location.userNames.put(name.getKey(), (String) name.getValue());
+                }
+            }
+        }
+    }
+
+    // Everything a record is counted under; equal keys mean no counter changes
+    private static String bucketKey(Map<String, Object> record) {
+        Object hour = record.get(AttendanceWriter.FIELD_HOUR);
+        return record.get(AttendanceWriter.FIELD_DATE) + "|" + locationId(record) + "|"
+                + AttendanceWriter.isCheckOut(record) + "|" + (hour instanceof Number ? ((Number) hour).intValue() : "") + "|"
+                + record.get(AttendanceWriter.FIELD_USER_ID);
+    }
+
+    private static String locationId(Map<String, Object> record) {
+        Object locationId = record.get(AttendanceWriter.FIELD_LOCATION_ID);
+        return locationId instanceof String && !((String) locationId).isEmpty()
+                ? (String) locationId : UNKNOWN_LOCATION;
+    }
+
+    private static long longValue(Object value) {
+        return value instanceof Number ? ((Number) value).longValue() : 0;
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.governmentapp.utils;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkInfo;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Uploads the {@link AttendanceQueue} journal to Firestore in batches once the device is online.
+ * Every write uses the document ID it was queued with, so a batch that is retried after a
+ * lost acknowledgement overwrites the same documents instead of duplicating them. A write
+ * that {@link AttendanceWriter#supersedes} says should not replace the stored record (a later
+ * check-in, an earlier check-out) is dropped.
+ * Each batch is a transaction that also moves the {@link AttendanceStats} counters, which
+ * keeps them exact under retries and overwrites.
+ * Failed batches are retried by WorkManager with exponential backoff.
+ */
+public class AttendanceSyncWorker extends Worker {
+    private static final String TAG = "AttendanceSyncWorker";
+    public static final String WORK_NAME = "attendance_sync";
+
+    // Up to three writes per entry (record plus two counter shards) stays under Firestore's
+    // 500 writes per transaction; the transaction reads each record first, so keep it small
+    // enough for a slow 2G link
+    private static final int BATCH_SIZE = 50;
+    private static final long COMMIT_TIMEOUT_SECONDS = 60;
+    private static final long INITIAL_BACKOFF_SECONDS = 30;
+
+    // Scheduling decisions are made one at a time, after the write that asked for them is on disk
+    private static final Executor SCHEDULER = Executors.newSingleThreadExecutor();
+
+    public AttendanceSyncWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    /**
+     * Schedule a drain of the journal for when the network is available. Call after the write
+     * is in the journal.
+     */
+    public static void schedule(Context context) {
+        Context appContext = context.getApplicationContext();
+        SCHEDULER.execute(() -> enqueueDrain(appContext));
+    }
+
+    private static void enqueueDrain(Context context) {
+        WorkManager workManager = WorkManager.getInstance(context);
+        boolean running = false;
+        try {
+            for (WorkInfo info : workManager.getWorkInfosForUniqueWork(WORK_NAME).get()) {
+                WorkInfo.State state = info.getState();
+                if (state == WorkInfo.State.ENQUEUED || state == WorkInfo.State.BLOCKED) {
+                    // A drain that has not started yet reads everything journaled before it
+                    return;
+                }
+                running |= state == WorkInfo.State.RUNNING;
+            }
+        } catch (ExecutionException e) {
+            Log.w(TAG, "Could not read the sync state: " + e.getMessage());
+            running = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = true;
+        }
+
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .build();
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(AttendanceSyncWorker.class)
+                .setConstraints(constraints)
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, INITIAL_BACKOFF_SECONDS, TimeUnit.SECONDS)
+                .build();
+
+        // A running drain may have read the journal for the last time already, so one follow-up
+        // run is appended after it; writes queued while that one waits go out with it. With
+        // nothing running, start a drain
+        workManager.enqueueUniqueWork(WORK_NAME,
+                running ? ExistingWorkPolicy.APPEND_OR_REPLACE : ExistingWorkPolicy.KEEP, request);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        AttendanceQueue queue = AttendanceQueue.getInstance(getApplicationContext());
+        FirebaseFirestore db = FirebaseFirestore.getInstance();
+        int uploaded = 0;
+        long startTime = System.currentTimeMillis();
+
+        while (!isStopped()) {
+            List<AttendanceQueue.PendingWrite> batch = queue.peek(BATCH_SIZE);
+            if (batch.isEmpty()) break;
+
+            try {
+                commit(db, batch);
+            } catch (ExecutionException e) {
+                Log.e(TAG, "Batch failed, will retry: " + e.getMessage(), e);
+                return Result.retry();
+            } catch (InterruptedException | TimeoutException e) {
+                Log.e(TAG, "Batch did not complete, will retry: " + e.getMessage());
+                return Result.retry();
+            }
+
+            queue.remove(batch);
+            uploaded += batch.size();
+            Log.d(TAG, "Uploaded batch of " + batch.size() + " attendance writes");
+        }
+
+        Log.d(TAG, "Attendance sync finished: " + uploaded + " writes in "
+                + (System.currentTimeMillis() - startTime) + " ms, " + queue.getPendingCount() + " pending");
+        return Result.success();
+    }
+
+    private void commit(FirebaseFirestore db, List<AttendanceQueue.PendingWrite> writes)
+            throws ExecutionException, InterruptedException, TimeoutException {
+        Tasks.await(db.runTransaction(transaction -> {
+            // A transaction must do all its reads before any write
+            List<DocumentSnapshot> previous = new ArrayList<>();
+            for (AttendanceQueue.PendingWrite write : writes) {
+                previous.add(AttendanceStats.isTracked(write.collection)
+                        ? transaction.get(db.collection(write.collection).document(write.documentId))
+                        : null);
+            }
+            for (int i = 0; i < writes.size(); i++) {
+                AttendanceQueue.PendingWrite write = writes.get(i);
+                Map<String, Object> stored = previous.get(i) != null ? previous.get(i).getData() : null;
+                if (!AttendanceWriter.supersedes(write.collection, stored, write.fields)) {
+                    Log.d(TAG, "Kept the stored " + write.collection + "/" + write.documentId);
+                    continue;
+                }
+                if (previous.get(i) != null) {
+                    AttendanceStats.apply(db, transaction, stored, write.fields);
+                }
+                transaction.set(db.collection(write.collection).document(write.documentId), write.fields);
+            }
+            return null;
+        }), COMMIT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.governmentapp.utils;
+
+import com.example.governmentapp.time.AttendanceTimeParser;
+import com.google.firebase.Timestamp;
+
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * Event time of an attendance record in any of the formats it has been stored in: a Firestore
+ * Timestamp, a legacy timestamp string, or separate {@code date} and {@code time} strings.
+ * Strings are read with the shared {@link AttendanceTimeParser} for the device's time zone.
+ */
+public class AttendanceTimes {
+    public static final long UNKNOWN = AttendanceTimeParser.INVALID;
+
+    public static AttendanceTimeParser parser() {
+        return AttendanceTimeParser.systemDefault();
+    }
+
+    /**
+     * @param timestamp Value of a {@code timestamp} field
+     * @return Epoch milliseconds, or {@link #UNKNOWN}
+     */
+    public static long toMillis(Object timestamp) {
+        if (timestamp instanceof Timestamp) {
+            Timestamp value = (Timestamp) timestamp;
+            return value.getSeconds() * 1000 + value.getNanoseconds() / 1_000_000;
+        }
+        if (timestamp instanceof Date) {
+            return ((Date) timestamp).getTime();
+        }
+        if (timestamp instanceof String) {
+            return parser().parse((String) timestamp);
+        }
+        return UNKNOWN;
+    }
+
+    /**
+     * Event time of a record, from its {@code timestamp} field or else its {@code date}/{@code time} fields
+     * @return Epoch milliseconds, or {@link #UNKNOWN}
+     */
+    public static long toMillis(Map<String, Object> data) {
+        if (data == null) return UNKNOWN;
+        long millis = toMillis(data.get(AttendanceWriter.FIELD_TIMESTAMP));
+        if (millis == UNKNOWN && data.get(AttendanceWriter.FIELD_DATE) instanceof String) {
+            Object time = data.get(AttendanceWriter.FIELD_TIME);
+            millis = parser().parseDateTime((String) data.get(AttendanceWriter.FIELD_DATE),
+                    time instanceof String ? (String) time : null);
+        }
+        return millis;
+    }
+
+    /**
+     * @return Local time as {@code HH:mm:ss}, or null if unknown
+     */
+    public static String formatTime(long millis) {
+        return millis != UNKNOWN ? parser().formatTime(millis) : null;
+    }
+
+    /**
+     * @return Local date as {@code yyyy-MM-dd}, or null if unknown
+     */
+    public static String formatDate(long millis) {
+        return millis != UNKNOWN ? parser().formatDate(millis) : null;
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.governmentapp.utils;
+
+import android.content.Context;
+
+import com.google.android.gms.tasks.Task;
+
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single writer for attendance records. Every check-in or check-out becomes one document
+ * in the canonical {@value #COLLECTION} collection with:
+ * <ul>
+ *   <li>a deterministic ID built from user, date and type, so retries and repeated
+ *       submissions land on the same document instead of adding duplicates; of repeated
+ *       submissions the day's first check-in and last check-out are kept
+ *       (see {@link #supersedes})</li>
+ *   <li>the event time as a Timestamp, the upload time as a server Timestamp, and
+ *       indexable {@code epochDay}/{@code hour} buckets in device local time</li>
+ *   <li>the user and location names copied in, so reports need no joins</li>
+ * </ul>
+ * Writes go through {@link AttendanceQueue} and are uploaded with {@code WriteBatch.set}.
+ */
+public class AttendanceWriter {
+    public static final String COLLECTION = "attendance";
+
+    // Field names of the canonical record
+    public static final String FIELD_USER_ID = "userId";
+    public static final String FIELD_USER_EMAIL = "userEmail";
+    public static final String FIELD_USER_NAME = "userName";
+    public static final String FIELD_SEVARTH_ID = "sevarthId";
+    public static final String FIELD_LOCATION_ID = "locationId";
+    public static final String FIELD_LOCATION_NAME = "locationName";
+    public static final String FIELD_TYPE = "type";
+    public static final String FIELD_TIMESTAMP = "timestamp";
+    public static final String FIELD_SERVER_TIMESTAMP = "serverTimestamp";
+    public static final String FIELD_EPOCH_DAY = "epochDay";
+    public static final String FIELD_HOUR = "hour";
+    public static final String FIELD_DATE = "date";
+    public static final String FIELD_TIME = "time";
+    public static final String FIELD_VERIFIED = "verified";
+    public static final String FIELD_SIMILARITY_SCORE = "similarityScore";
+
+    // Stored values of the type field
+    public static final String TYPE_CHECK_IN = "CHECK_IN";
+    public static final String TYPE_CHECK_OUT = "CHECK_OUT";
+
+    /**
+     * An attendance event to record
+     */
+    public static class Record {
+        public String userId;
+        public String userEmail;
+        public String userName;
+        public String sevarthId;
+        public String locationId;
+        public String locationName;
+        public String type;
+        public Date time = new Date();
+        public boolean verified;
+        public float similarityScore;
+    }
+
+    /**
+     * Queue a record for upload
+     * @return Task with the document ID, completing once the record is stored on the device
+     */
+    public static Task<String> write(Context context, Record record) {
+        return AttendanceQueue.getInstance(context)
+                .enqueue(documentId(record.userId, record.time, record.type), COLLECTION, toFields(record));
+    }
+
+    /**
+     * Deterministic document ID: {@code <userId>_<yyyy-MM-dd>_<check_in|check_out>}, e.g.
+     * {@code abc123_2024-05-13_check_in}
+     */
+    public static String documentId(String userId, Date time, String type) {
+        String date = new SimpleDateFormat("yyyy-MM-dd", Locale.US).format(time);
+        return userId + "_" + date + "_" + normalizeType(type).toLowerCase(Locale.US);
+    }
+
+    /**
+     * {@link #TYPE_CHECK_IN} or {@link #TYPE_CHECK_OUT} for a type as screens and legacy records
+     * name it ("check out", "Check-out", "CHECK_OUT"); anything that is not a check-out is a
+     * check-in, as in the reports
+     */
+    public static String normalizeType(String type) {
+        return type != null && type.toLowerCase(Locale.US).contains("out") ? TYPE_CHECK_OUT : TYPE_CHECK_IN;
+    }
+
+    /**
+     * Whether a write should replace the record already stored or queued under its ID. The
+     * earliest check-in and the latest check-out of the day win, so checking in twice keeps the
+     * real arrival time. Writes to other collections always replace.
+     * @param existing Stored or queued fields, or null if there are none
+     * @param incoming Fields being written
+     */
+    public static boolean supersedes(String collection, Map<String, Object> existing, Map<String, Object> incoming) {
+        if (!COLLECTION.equals(collection) || existing == null) return true;
+        long existingTime = AttendanceTimes.toMillis(existing);
+        long incomingTime = AttendanceTimes.toMillis(incoming);
+        if (existingTime == AttendanceTimes.UNKNOWN) return true;
+        if (incomingTime == AttendanceTimes.UNKNOWN) return false;
+        // Equal times are a retry of the same write
+        return isCheckOut(incoming) ? incomingTime >= existingTime : incomingTime <= existingTime;
+    }
+
+    static boolean isCheckOut(Map<String, Object> record) {
+        Object type = record.get(FIELD_TYPE);
+        return type != null && TYPE_CHECK_OUT.equals(normalizeType(type.toString()));
+    }
+
+    /**
+     * Days since 1970-01-01 of the local calendar date of the given time
+     */
+    public static long epochDay(Date time) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTime(time);
+        long localMillis = time.getTime() + calendar.get(Calendar.ZONE_OFFSET) + calendar.get(Calendar.DST_OFFSET);
+        return Math.floorDiv(localMillis, TimeUnit.DAYS.toMillis(1));
+    }
+
+    static Map<String, Object> toFields(Record record) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTime(record.time);
+
+        Map<String, Object> fields = new HashMap<>();
+        fields.put(FIELD_USER_ID, record.userId);
+        fields.put(FIELD_USER_EMAIL, record.userEmail);
+        fields.put(FIELD_USER_NAME, record.userName);
+        fields.put(FIELD_SEVARTH_ID, record.sevarthId);
+        fields.put(FIELD_LOCATION_ID, record.locationId);
+        fields.put(FIELD_LOCATION_NAME, record.locationName);
+        fields.put(FIELD_TYPE, normalizeType(record.type));
+        fields.put(FIELD_TIMESTAMP, record.time);
+        fields.put(FIELD_SERVER_TIMESTAMP, AttendanceQueue.SERVER_TIMESTAMP);
+        fields.put(FIELD_EPOCH_DAY, epochDay(record.time));
+        fields.put(FIELD_HOUR, calendar.get(Calendar.HOUR_OF_DAY));
+        // Kept for screens that still read the display strings
+        fields.put(FIELD_DATE, new SimpleDateFormat("yyyy-MM-dd", Locale.US).format(record.time));
+        fields.put(FIELD_TIME, new SimpleDateFormat("HH:mm:ss", Locale.US).format(record.time));
+        fields.put(FIELD_VERIFIED, record.verified);
+        fields.put(FIELD_SIMILARITY_SCORE, record.similarityScore);
+        return fields;
+    }
+}
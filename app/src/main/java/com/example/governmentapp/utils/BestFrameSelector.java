@@ -0,0 +1,74 @@
+package com.example.governmentapp.utils;
+
+/**
+ * Small bounded buffer that keeps the top-k scored frames seen so far.
+ * Callers check {@link #wouldAccept} before copying a frame, so frames that
+ * cannot make it into the buffer cost nothing.
+ * Not thread-safe; use from the analysis thread only.
+ */
+public class BestFrameSelector<T> {
+    private final Object[] frames;
+    private final float[] scores;
+    private final float qualityBar;
+    private final int minQualifyingFrames;
+    private int size = 0;
+    private int qualifyingFrames = 0;
+
+    /**
+     * @param capacity Number of frames to keep
+     * @param qualityBar Minimum score for a frame to count towards submission
+     * @param minQualifyingFrames Frames above the bar to see before picking the best one
+     */
+    public BestFrameSelector(int capacity, float qualityBar, int minQualifyingFrames) {
+        this.frames = new Object[capacity];
+        this.scores = new float[capacity];
+        this.qualityBar = qualityBar;
+        this.minQualifyingFrames = minQualifyingFrames;
+    }
+
+    public boolean wouldAccept(float score) {
+        return score > 0 && (size < frames.length || score > scores[size - 1]);
+    }
+
+    public void offer(float score, T frame) {
+        if (!wouldAccept(score)) return;
+
+        if (score >= qualityBar) {
+            qualifyingFrames++;
+        }
+
+        // Insertion into the sorted arrays, dropping the worst when full
+        int position = size < frames.length ? size++ : size - 1;
+        while (position > 0 && scores[position - 1] < score) {
+            scores[position] = scores[position - 1];
+            frames[position] = frames[position - 1];
+            position--;
+        }
+        scores[position] = score;
+        frames[position] = frame;
+    }
+
+    /**
+     * Whether enough good frames have been seen to submit the best one
+     */
+    public boolean isReady() {
+        return size > 0 && scores[0] >= qualityBar && qualifyingFrames >= minQualifyingFrames;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T getBest() {
+        return size > 0 ? (T) frames[0] : null;
+    }
+
+    public float getBestScore() {
+        return size > 0 ? scores[0] : 0f;
+    }
+
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            frames[i] = null;
+        }
+        size = 0;
+        qualifyingFrames = 0;
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.governmentapp.utils;
+
+import android.graphics.Bitmap;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bounded pool of mutable bitmaps reused as {@code inBitmap} decode targets,
+ * so repeated check-ins do not allocate a new multi-megabyte bitmap each time.
+ * Bitmaps must be handed back with {@link #release} once verification is done with them.
+ */
+public class BitmapPool {
+    private static final String TAG = "BitmapPool";
+
+    private final long maxPoolBytes;
+    private final List<Bitmap> pool = new ArrayList<>();
+    private long pooledBytes = 0;
+
+    public BitmapPool(long maxPoolBytes) {
+        this.maxPoolBytes = maxPoolBytes;
+    }
+
+    /**
+     * Take a pooled bitmap with room for at least the given number of bytes
+     * @return A reusable bitmap, or null if none is large enough
+     */
+    public synchronized Bitmap acquire(long minBytes, Bitmap.Config config) {
+        Bitmap best = null;
+        for (Bitmap candidate : pool) {
+            if (candidate.getConfig() == config && candidate.getAllocationByteCount() >= minBytes
+                    && (best == null || candidate.getAllocationByteCount() < best.getAllocationByteCount())) {
+                best = candidate;
+            }
+        }
+        if (best != null) {
+            pool.remove(best);
+            pooledBytes -= best.getAllocationByteCount();
+        }
+        return best;
+    }
+
+    /**
+     * Return a bitmap to the pool, or recycle it if it cannot be reused or the pool is full
+     */
+    public synchronized void release(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled()) return;
+
+        if (!bitmap.isMutable() || bitmap.getAllocationByteCount() > maxPoolBytes) {
+            bitmap.recycle();
+            return;
+        }
+
+        pool.add(bitmap);
+        pooledBytes += bitmap.getAllocationByteCount();
+
+        // Evict the oldest entries until the pool fits its budget again
+        while (pooledBytes > maxPoolBytes && !pool.isEmpty()) {
+            Bitmap evicted = pool.remove(0);
+            pooledBytes -= evicted.getAllocationByteCount();
+            evicted.recycle();
+        }
+    }
+
+    public synchronized void clear() {
+        for (Bitmap bitmap : pool) {
+            bitmap.recycle();
+        }
+        pool.clear();
+        pooledBytes = 0;
+        Log.d(TAG, "Bitmap pool cleared");
+    }
+}
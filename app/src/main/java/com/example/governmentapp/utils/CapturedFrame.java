@@ -0,0 +1,142 @@
+package com.example.governmentapp.utils;
+
+import android.graphics.ImageFormat;
+import android.graphics.Rect;
+import android.graphics.YuvImage;
+import android.media.ExifInterface;
+
+import androidx.camera.core.ImageProxy;
+
+import com.google.mlkit.vision.common.InputImage;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * A frame kept in memory after verification so it can later be saved as a new reference.
+ * Holds either the encoded JPEG of a still capture or a copy of a YUV analysis frame;
+ * the latter is only JPEG-encoded when it is actually written out.
+ */
+public class CapturedFrame {
+    private static final int JPEG_QUALITY = 95;
+
+    private final byte[] jpeg;
+    private final byte[] nv21;
+    private final int width;
+    private final int height;
+    private final int rotationDegrees;
+
+    private CapturedFrame(byte[] jpeg, byte[] nv21, int width, int height, int rotationDegrees) {
+        this.jpeg = jpeg;
+        this.nv21 = nv21;
+        this.width = width;
+        this.height = height;
+        this.rotationDegrees = rotationDegrees;
+    }
+
+    public static CapturedFrame fromJpeg(byte[] jpeg) {
+        return new CapturedFrame(jpeg, null, 0, 0, 0);
+    }
+
+    /**
+     * Copy a YUV_420_888 analysis frame into NV21 so it outlives the ImageProxy
+     */
+    public static CapturedFrame fromYuvImageProxy(ImageProxy imageProxy) {
+        int width = imageProxy.getWidth();
+        int height = imageProxy.getHeight();
+        ImageProxy.PlaneProxy[] planes = imageProxy.getPlanes();
+        byte[] nv21 = new byte[width * height * 3 / 2];
+
+        // Luminance, row by row to drop any row padding
+        ByteBuffer yBuffer = planes[0].getBuffer();
+        int yRowStride = planes[0].getRowStride();
+        int yPixelStride = planes[0].getPixelStride();
+        int offset = 0;
+        for (int row = 0; row < height; row++) {
+            int rowStart = row * yRowStride;
+            if (yPixelStride == 1) {
+                yBuffer.position(rowStart);
+                yBuffer.get(nv21, offset, width);
+                offset += width;
+            } else {
+                for (int col = 0; col < width; col++) {
+                    nv21[offset++] = yBuffer.get(rowStart + col * yPixelStride);
+                }
+            }
+        }
+        yBuffer.rewind();
+
+        // Interleaved V/U at quarter resolution
+        ByteBuffer uBuffer = planes[1].getBuffer();
+        ByteBuffer vBuffer = planes[2].getBuffer();
+        int uvRowStride = planes[1].getRowStride();
+        int uvPixelStride = planes[1].getPixelStride();
+        for (int row = 0; row < height / 2; row++) {
+            for (int col = 0; col < width / 2; col++) {
+                int index = row * uvRowStride + col * uvPixelStride;
+                nv21[offset++] = vBuffer.get(index);
+                nv21[offset++] = uBuffer.get(index);
+            }
+        }
+
+        return new CapturedFrame(null, nv21, width, height,
+                imageProxy.getImageInfo().getRotationDegrees());
+    }
+
+    /**
+     * Wrap an analysis frame for another detection pass, e.g. with the accurate detector
+     */
+    public InputImage toInputImage() {
+        if (nv21 == null) {
+            throw new IllegalStateException("Only analysis frames can be re-detected");
+        }
+        return InputImage.fromByteArray(nv21, width, height, rotationDegrees, InputImage.IMAGE_FORMAT_NV21);
+    }
+
+    // Dimensions as seen by ML Kit after rotation
+    public int getUprightWidth() {
+        return rotationDegrees == 90 || rotationDegrees == 270 ? height : width;
+    }
+
+    public int getUprightHeight() {
+        return rotationDegrees == 90 || rotationDegrees == 270 ? width : height;
+    }
+
+    /**
+     * Write the frame as a JPEG file, recording the rotation in EXIF for YUV frames
+     */
+    public void writeJpeg(File file) throws IOException {
+        try (OutputStream out = new FileOutputStream(file)) {
+            if (jpeg != null) {
+                out.write(jpeg);
+                return;
+            }
+            YuvImage yuvImage = new YuvImage(nv21, ImageFormat.NV21, width, height, null);
+            if (!yuvImage.compressToJpeg(new Rect(0, 0, width, height), JPEG_QUALITY, out)) {
+                throw new IOException("JPEG encoding failed");
+            }
+        }
+
+        if (jpeg == null && rotationDegrees != 0) {
+            ExifInterface exif = new ExifInterface(file.getAbsolutePath());
+            exif.setAttribute(ExifInterface.TAG_ORIENTATION, String.valueOf(toExifOrientation(rotationDegrees)));
+            exif.saveAttributes();
+        }
+    }
+
+    private static int toExifOrientation(int rotationDegrees) {
+        switch (rotationDegrees) {
+            case 90:
+                return ExifInterface.ORIENTATION_ROTATE_90;
+            case 180:
+                return ExifInterface.ORIENTATION_ROTATE_180;
+            case 270:
+                return ExifInterface.ORIENTATION_ROTATE_270;
+            default:
+                return ExifInterface.ORIENTATION_NORMAL;
+        }
+    }
+}
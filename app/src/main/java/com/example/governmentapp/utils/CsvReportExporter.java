@@ -0,0 +1,133 @@
+package com.example.governmentapp.utils;
+
+import android.content.Context;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Streams attendance records into a CSV report through a buffered UTF-8 writer, optionally
+ * gzipped or zipped. Fields are quoted only when they need it.
+ */
+public class CsvReportExporter extends ReportExporter {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    public enum Compression {
+        NONE(".csv", "text/csv"),
+        GZIP(".csv.gz", "application/gzip"),
+        ZIP(".zip", "application/zip");
+
+        public final String extension;
+        public final String mimeType;
+
+        Compression(String extension, String mimeType) {
+            this.extension = extension;
+            this.mimeType = mimeType;
+        }
+    }
+
+    private final Compression compression;
+    private Writer out;
+
+    /**
+     * @param reportType Prefix of the file name, e.g. {@code Daily_2025-05-01}
+     */
+    public CsvReportExporter(Context context, String reportType, Compression compression) {
+        super(context, reportType, compression.extension);
+        this.compression = compression;
+    }
+
+    public Compression getCompression() {
+        return compression;
+    }
+
+    @Override
+    public String getMimeType() {
+        return compression.mimeType;
+    }
+
+    @Override
+    protected void begin(File file) throws IOException {
+        OutputStream stream = new FileOutputStream(file);
+        try {
+            switch (compression) {
+                case GZIP:
+                    stream = new GZIPOutputStream(stream, BUFFER_SIZE);
+                    break;
+                case ZIP:
+                    ZipOutputStream zip = new ZipOutputStream(stream);
+                    zip.putNextEntry(new ZipEntry(baseName + ".csv"));
+                    stream = zip;
+                    break;
+                default:
+                    break;
+            }
+        } catch (IOException e) {
+            stream.close();
+            throw e;
+        }
+        out = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8), BUFFER_SIZE);
+
+        // Byte order mark, so spreadsheet apps read the file as UTF-8
+        out.write('\uFEFF');
+        for (int i = 0; i < COLUMNS.length; i++) {
+            if (i > 0) out.write(',');
+            out.write(COLUMNS[i]);
+        }
+        out.write('\n');
+    }
+
+    @Override
+    protected void writeRow(String[] columns) throws IOException {
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) out.write(',');
+            writeField(out, columns[i]);
+        }
+        out.write('\n');
+    }
+
+    @Override
+    protected void end(boolean complete) throws IOException {
+        if (out != null) {
+            Writer writer = out;
+            out = null;
+            writer.close();
+        }
+    }
+
+    /**
+     * Write a field, quoted only if it holds a comma, quote or line break, with quotes doubled
+     */
+    static void writeField(Writer out, String field) throws IOException {
+        int length = field.length();
+        int i = 0;
+        while (i < length) {
+            char c = field.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') break;
+            i++;
+        }
+        if (i == length) {
+            out.write(field);
+            return;
+        }
+        out.write('"');
+        out.write(field, 0, i);
+        for (; i < length; i++) {
+            char c = field.charAt(i);
+            if (c == '"') {
+                out.write('"');
+            }
+            out.write(c);
+        }
+        out.write('"');
+    }
+}
@@ -0,0 +1,216 @@
+package com.example.governmentapp.utils;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.PowerManager;
+import android.os.SystemClock;
+import android.util.Log;
+import android.util.Size;
+
+import androidx.annotation.RequiresApi;
+
+/**
+ * Chooses how hard the camera pipeline may work from the device's thermal status and
+ * battery saver state. Worse conditions step the level down immediately; better conditions
+ * step it back up one level at a time, and only after they have held for a while, so the
+ * pipeline does not flap around a thermal boundary.
+ * Listeners are called on the main thread.
+ */
+public class DevicePerformancePolicy {
+    private static final String TAG = "DevicePerformancePolicy";
+
+    // How long improved conditions must hold before stepping up one level
+    private static final long STEP_UP_HOLD_MS = 30000;
+
+    public enum Level {
+        // Full rate, accurate verification
+        NORMAL(15f, 640, 480, false),
+        // Fewer analyzed frames, same quality
+        REDUCED(8f, 640, 480, false),
+        // Smaller analysis frames and the FAST verification detector
+        MINIMAL(4f, 480, 360, true);
+
+        public final float maxAnalysisFps;
+        public final int analysisWidth;
+        public final int analysisHeight;
+        public final boolean lowPowerDetector;
+
+        Level(float maxAnalysisFps, int analysisWidth, int analysisHeight, boolean lowPowerDetector) {
+            this.maxAnalysisFps = maxAnalysisFps;
+            this.analysisWidth = analysisWidth;
+            this.analysisHeight = analysisHeight;
+            this.lowPowerDetector = lowPowerDetector;
+        }
+
+        public Size getAnalysisSize() {
+            return new Size(analysisWidth, analysisHeight);
+        }
+    }
+
+    /**
+     * Steps the level towards the one conditions call for; times are passed in, in
+     * milliseconds on any monotonic clock
+     */
+    static class Stepper {
+        private Level level = Level.NORMAL;
+        // When conditions started calling for a higher level than the current one, or -1
+        private long betterSinceMs = -1;
+
+        Level getLevel() {
+            return level;
+        }
+
+        /**
+         * @param target Level the current conditions call for
+         * @return The level to use from now
+         */
+        Level update(Level target, long nowMs) {
+            if (target.ordinal() >= level.ordinal()) {
+                // Same or worse: drop straight to the target, and any improvement is over
+                level = target;
+                betterSinceMs = -1;
+                return level;
+            }
+            if (betterSinceMs < 0) {
+                betterSinceMs = nowMs;
+            }
+            if (nowMs - betterSinceMs >= STEP_UP_HOLD_MS) {
+                level = Level.values()[level.ordinal() - 1];
+                // Each further step needs conditions to hold for another period
+                betterSinceMs = level == target ? -1 : nowMs;
+            }
+            return level;
+        }
+
+        /**
+         * @return Milliseconds until {@link #update} can step up, or -1 if no step is pending
+         */
+        long getStepUpDelayMs(long nowMs) {
+            return betterSinceMs < 0 ? -1 : Math.max(0, betterSinceMs + STEP_UP_HOLD_MS - nowMs);
+        }
+    }
+
+    public interface Listener {
+        void onLevelChanged(Level level);
+    }
+
+    private final Context context;
+    private final PowerManager powerManager;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Listener listener;
+
+    private final Stepper stepper = new Stepper();
+    private boolean started = false;
+    private Object thermalListener;
+
+    private final BroadcastReceiver powerSaveReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            evaluate("power_save_changed");
+        }
+    };
+
+    private final Runnable stepUpCheck = () -> evaluate("step_up_check");
+
+    public DevicePerformancePolicy(Context context, Listener listener) {
+        this.context = context.getApplicationContext();
+        this.powerManager = (PowerManager) this.context.getSystemService(Context.POWER_SERVICE);
+        this.listener = listener;
+    }
+
+    /**
+     * Start watching thermal and battery saver changes. The listener is called right away
+     * if the current conditions already call for a lower level.
+     */
+    public void start() {
+        if (started) return;
+        started = true;
+
+        context.registerReceiver(powerSaveReceiver, new IntentFilter(PowerManager.ACTION_POWER_SAVE_MODE_CHANGED));
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && powerManager != null) {
+            registerThermalListener();
+        }
+        evaluate("start");
+    }
+
+    public void stop() {
+        if (!started) return;
+        started = false;
+
+        handler.removeCallbacks(stepUpCheck);
+        try {
+            context.unregisterReceiver(powerSaveReceiver);
+        } catch (IllegalArgumentException e) {
+            Log.w(TAG, "Power save receiver was not registered");
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && thermalListener != null) {
+            powerManager.removeThermalStatusListener((PowerManager.OnThermalStatusChangedListener) thermalListener);
+            thermalListener = null;
+        }
+    }
+
+    public Level getLevel() {
+        return stepper.getLevel();
+    }
+
+    @RequiresApi(api = Build.VERSION_CODES.Q)
+    private void registerThermalListener() {
+        PowerManager.OnThermalStatusChangedListener thermal = status -> evaluate("thermal_changed");
+        powerManager.addThermalStatusListener(context.getMainExecutor(), thermal);
+        thermalListener = thermal;
+    }
+
+    private void evaluate(String trigger) {
+        if (!started) return;
+
+        int thermalStatus = getThermalStatus();
+        boolean powerSave = powerManager != null && powerManager.isPowerSaveMode();
+        Level target = targetLevel(thermalStatus, powerSave);
+
+        handler.removeCallbacks(stepUpCheck);
+        long now = SystemClock.elapsedRealtime();
+        Level level = stepper.getLevel();
+        Level next = stepper.update(target, now);
+        long stepUpDelayMs = stepper.getStepUpDelayMs(now);
+        if (stepUpDelayMs >= 0) {
+            // Still above the target: look again once better conditions have held long enough
+            handler.postDelayed(stepUpCheck, stepUpDelayMs);
+        }
+
+        if (next == level) return;
+
+        Log.i(TAG, "event=performance_level_changed"
+                + " from=" + level
+                + " to=" + next
+                + " trigger=" + trigger
+                + " thermalStatus=" + thermalStatus
+                + " powerSave=" + powerSave
+                + " maxAnalysisFps=" + next.maxAnalysisFps
+                + " analysisSize=" + next.analysisWidth + "x" + next.analysisHeight
+                + " detector=" + (next.lowPowerDetector ? "FAST" : "ACCURATE"));
+
+        listener.onLevelChanged(next);
+    }
+
+    private int getThermalStatus() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && powerManager != null) {
+            return powerManager.getCurrentThermalStatus();
+        }
+        return PowerManager.THERMAL_STATUS_NONE;
+    }
+
+    static Level targetLevel(int thermalStatus, boolean powerSave) {
+        if (thermalStatus >= PowerManager.THERMAL_STATUS_SEVERE) {
+            return Level.MINIMAL;
+        }
+        if (thermalStatus >= PowerManager.THERMAL_STATUS_MODERATE || powerSave) {
+            return Level.REDUCED;
+        }
+        return Level.NORMAL;
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.governmentapp.utils;
+
+import com.google.firebase.firestore.DocumentSnapshot;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A document's ID and fields, read once from its snapshot so list adapters can bind and diff
+ * rows without converting the snapshot again.
+ */
+public final class DocumentRow {
+    public final String id;
+    public final Map<String, Object> fields;
+
+    public DocumentRow(String id, Map<String, Object> fields) {
+        this.id = id;
+        this.fields = Collections.unmodifiableMap(fields);
+    }
+
+    public static DocumentRow of(DocumentSnapshot document) {
+        Map<String, Object> data = document.getData();
+        return new DocumentRow(document.getId(), data != null ? data : new HashMap<>());
+    }
+
+    public String getString(String field) {
+        Object value = fields.get(field);
+        return value instanceof String ? (String) value : null;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof DocumentRow)) return false;
+        DocumentRow other = (DocumentRow) o;
+        return id.equals(other.id) && fields.equals(other.fields);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * id.hashCode() + fields.hashCode();
+    }
+}
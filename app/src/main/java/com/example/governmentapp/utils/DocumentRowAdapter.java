@@ -0,0 +1,81 @@
+package com.example.governmentapp.utils;
+
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Base adapter for lists of {@link DocumentRow}s. New lists are diffed by
+ * {@code ListAdapter}'s {@code AsyncListDiffer} on a background thread, so only rows that
+ * were added, moved or changed are touched, and every document keeps the same stable item ID
+ * for the life of the adapter.
+ */
+public abstract class DocumentRowAdapter<VH extends RecyclerView.ViewHolder> extends ListAdapter<DocumentRow, VH> {
+
+    private static final DiffUtil.ItemCallback<DocumentRow> DIFF_CALLBACK = new DiffUtil.ItemCallback<DocumentRow>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull DocumentRow oldItem, @NonNull DocumentRow newItem) {
+            return oldItem.id.equals(newItem.id);
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull DocumentRow oldItem, @NonNull DocumentRow newItem) {
+            return oldItem.fields.equals(newItem.fields);
+        }
+    };
+
+    public interface OnRowActionListener {
+        void onEdit(DocumentRow row);
+
+        void onDelete(DocumentRow row);
+    }
+
+    // Document ID -> item ID; hashing the ID instead could give two documents the same one
+    private final Map<String, Long> itemIds = new HashMap<>();
+    private OnRowActionListener actionListener;
+
+    protected DocumentRowAdapter() {
+        super(DIFF_CALLBACK);
+        setHasStableIds(true);
+    }
+
+    public void setOnRowActionListener(OnRowActionListener listener) {
+        this.actionListener = listener;
+    }
+
+    /**
+     * Wire a card's edit and delete buttons once, when its holder is created; the row is
+     * looked up when clicked, as the holder is rebound to other rows while scrolling
+     */
+    protected void setActionButtons(RecyclerView.ViewHolder holder, View editButton, View deleteButton) {
+        editButton.setOnClickListener(v -> {
+            int position = holder.getAdapterPosition();
+            if (position != RecyclerView.NO_POSITION && actionListener != null) {
+                actionListener.onEdit(getItem(position));
+            }
+        });
+        deleteButton.setOnClickListener(v -> {
+            int position = holder.getAdapterPosition();
+            if (position != RecyclerView.NO_POSITION && actionListener != null) {
+                actionListener.onDelete(getItem(position));
+            }
+        });
+    }
+
+    @Override
+    public long getItemId(int position) {
+        String id = getItem(position).id;
+        Long itemId = itemIds.get(id);
+        if (itemId == null) {
+            itemId = (long) itemIds.size();
+            itemIds.put(id, itemId);
+        }
+        return itemId;
+    }
+}
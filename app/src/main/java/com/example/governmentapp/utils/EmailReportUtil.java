@@ -1,154 +1,163 @@
 package com.example.governmentapp.utils;
 
+import android.app.Activity;
 import android.content.Context;
 import android.content.Intent;
 import android.net.Uri;
-import android.os.Environment;
 import android.util.Log;
 import android.widget.Toast;
 
-import com.google.firebase.firestore.DocumentSnapshot;
-import com.google.firebase.firestore.QuerySnapshot;
-import com.google.firebase.Timestamp;
+import androidx.appcompat.app.AlertDialog;
+
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.firestore.Query;
 
 import java.io.File;
-import java.io.FileWriter;
-import java.io.IOException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
-import java.text.ParseException;
+import java.util.concurrent.CancellationException;
 
+/**
+ * Exports attendance records with a {@link ReportExporter} off the main thread, showing
+ * progress with a Cancel button, then offers the file to an email app.
+ */
 public class EmailReportUtil {
     private static final String TAG = "EmailReportUtil";
 
-    public static void generateAndSendReport(Context context, List<Map<String, Object>> records, String reportType) {
-        try {
-            // Create report file
-            String timestamp = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault()).format(new Date());
-            String fileName = reportType + "_report_" + timestamp + ".csv";
-            
-            File reportFile = new File(context.getExternalFilesDir(Environment.DIRECTORY_DOCUMENTS), fileName);
-            FileWriter writer = new FileWriter(reportFile);
-
-            // Write CSV header with all columns
-            writer.append("Date,Time,User Name,Email,Location,Type,Status\n");
-
-            // Write records
-            SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
-            SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm:ss", Locale.getDefault());
-            SimpleDateFormat parseFormat = new SimpleDateFormat("MMM dd, yyyy 'at' hh:mm:ss a", Locale.US);
-
-            for (Map<String, Object> record : records) {
-                String date = "";
-                String time = "";
-                String userName = "";
-                String userEmail = "";
-                String location = "";
-                String type = "";
-                String status = "";
-                
-                // Extract date and time from timestamp
-                Object timestampObj = record.get("timestamp");
-                if (timestampObj instanceof Timestamp) {
-                    Date recordDate = ((Timestamp) timestampObj).toDate();
-                    date = dateFormat.format(recordDate);
-                    time = timeFormat.format(recordDate);
-                } else if (timestampObj instanceof String) {
-                    String timestampStr = (String) timestampObj;
-                    try {
-                        if (timestampStr.contains("at")) {
-                            String[] parts = timestampStr.split("at");
-                            date = parts[0].trim();
-                            time = parts[1].trim();
-                            if (time.contains("UTC")) {
-                                time = time.substring(0, time.indexOf("UTC")).trim();
-                            }
-                            // Try to parse and reformat the date for consistency
-                            try {
-                                Date parsedDate = parseFormat.parse(timestampStr);
-                                if (parsedDate != null) {
-                                    date = dateFormat.format(parsedDate);
-                                    time = timeFormat.format(parsedDate);
-                                }
-                            } catch (ParseException e) {
-                                Log.w(TAG, "Could not parse date: " + timestampStr);
-                            }
-                        }
-                    } catch (Exception e) {
-                        Log.e(TAG, "Error parsing timestamp: " + timestampStr);
-                    }
-                }
+    public interface OnExporterChosenListener {
+        void onExporterChosen(ReportExporter exporter);
+    }
 
-                // Get user information
-                userName = record.get("userName") != null ? record.get("userName").toString() : "";
-                userEmail = record.get("userEmail") != null ? record.get("userEmail").toString() : "";
-                
-                // If we have email but no name, try to get name from email
-                if (userName.isEmpty() && !userEmail.isEmpty()) {
-                    userName = userEmail.split("@")[0]; // Use part before @ as name
-                }
+    /**
+     * Ask whether to send a CSV spreadsheet or a printable PDF register
+     * @param compression Compression of the CSV choice
+     */
+    public static void chooseFormat(Context context, String reportType,
+                                    CsvReportExporter.Compression compression,
+                                    OnExporterChosenListener listener) {
+        String[] formats = {"CSV spreadsheet", "PDF register (printable)"};
+        new AlertDialog.Builder(context)
+                .setTitle("Report Format")
+                .setItems(formats, (dialog, which) -> listener.onExporterChosen(which == 0
+                        ? new CsvReportExporter(context, reportType, compression)
+                        : new PdfReportExporter(context, reportType)))
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
 
-                // Get location information - try multiple possible field names
-                if (record.get("locationName") != null) {
-                    location = record.get("locationName").toString();
-                } else if (record.get("location") != null) {
-                    location = record.get("location").toString();
-                } else if (record.get("officeName") != null) {
-                    location = record.get("officeName").toString();
-                } else {
-                    location = "Unknown Location";
-                }
+    /**
+     * Write records that are already in memory and send them
+     */
+    public static ReportExporter generateAndSendReport(Context context, List<Map<String, Object>> records,
+                                                       String reportType) {
+        ReportExporter exporter = new CsvReportExporter(context, reportType, CsvReportExporter.Compression.NONE);
+        AlertDialog dialog = showProgress(context, exporter);
+        sendWhenDone(context, exporter, exporter.export(records), dialog, reportType);
+        return exporter;
+    }
 
-                // Get type and status
-                type = record.get("type") != null ? record.get("type").toString() : "Check-in";
-                status = record.get("status") != null ? record.get("status").toString() : "Completed";
+    /**
+     * Stream the records of the queries page by page into a report and send it
+     * @param mapper Record to write for a document, or null to leave it out; runs off the main thread
+     * @return The running export, e.g. to cancel it when the screen closes
+     */
+    public static ReportExporter exportAndSendReport(Context context, ReportExporter exporter,
+                                                     Task<List<Query>> queries,
+                                                     FirestorePager.RowMapper<Map<String, Object>> mapper,
+                                                     String reportType) {
+        AlertDialog dialog = showProgress(context, exporter);
+        sendWhenDone(context, exporter, exporter.export(queries, mapper), dialog, reportType);
+        return exporter;
+    }
 
-                // Escape special characters in CSV
-                userName = escapeCsvField(userName);
-                userEmail = escapeCsvField(userEmail);
-                location = escapeCsvField(location);
-                type = escapeCsvField(type);
-                status = escapeCsvField(status);
+    /**
+     * Stream the records of the selection from the local mirror into a report and send it
+     * @return The running export, e.g. to cancel it when the screen closes
+     */
+    public static ReportExporter exportAndSendReport(Context context, ReportExporter exporter,
+                                                     AttendanceMirror mirror,
+                                                     AttendanceMirror.Selection selection,
+                                                     String reportType) {
+        AlertDialog dialog = showProgress(context, exporter);
+        sendWhenDone(context, exporter, exporter.export(mirror, selection), dialog, reportType);
+        return exporter;
+    }
 
-                // Write the record
-                writer.append(String.format("%s,%s,%s,%s,%s,%s,%s\n",
-                    date, time, userName, userEmail, location, type, status));
+    private static AlertDialog showProgress(Context context, ReportExporter exporter) {
+        AlertDialog dialog = new AlertDialog.Builder(context)
+                .setTitle("Exporting Report")
+                .setMessage("Preparing report...")
+                .setCancelable(false)
+                .setNegativeButton("Cancel", (d, which) -> exporter.cancel())
+                .show();
+        exporter.setProgressListener(rows -> dialog.setMessage(rows + " records exported..."));
+        return dialog;
+    }
+
+    private static void sendWhenDone(Context context, ReportExporter exporter, Task<File> export,
+                                     AlertDialog dialog, String reportType) {
+        export.addOnCompleteListener(task -> {
+            if (dialog.isShowing()) {
+                dialog.dismiss();
+            }
+            if (context instanceof Activity && ((Activity) context).isFinishing()) {
+                return;
             }
+            if (!task.isSuccessful()) {
+                Exception e = task.getException();
+                if (exporter.isCancelled() || e instanceof CancellationException) {
+                    Toast.makeText(context, "Report export cancelled", Toast.LENGTH_SHORT).show();
+                } else {
+                    Log.e(TAG, "Error generating report", e);
+                    Toast.makeText(context, "Error generating report: " +
+                            (e != null ? e.getMessage() : "unknown error"), Toast.LENGTH_SHORT).show();
+                }
+                return;
+            }
+            List<File> reportFiles = exporter.getFiles();
+            if (exporter.getRowsWritten() == 0) {
+                for (File reportFile : reportFiles) {
+                    if (!reportFile.delete()) {
+                        Log.w(TAG, "Could not delete empty report " + reportFile);
+                    }
+                }
+                Toast.makeText(context, "No data available to generate report", Toast.LENGTH_SHORT).show();
+                return;
+            }
+            sendReport(context, reportFiles, exporter.getMimeType(), reportType);
+        });
+    }
 
-            writer.flush();
-            writer.close();
+    private static void sendReport(Context context, List<File> reportFiles, String mimeType, String reportType) {
+        try {
+            ArrayList<Uri> uris = new ArrayList<>();
+            for (File reportFile : reportFiles) {
+                uris.add(androidx.core.content.FileProvider.getUriForFile(context,
+                    context.getApplicationContext().getPackageName() + ".provider", reportFile));
+            }
 
             // Create email intent
-            Intent emailIntent = new Intent(Intent.ACTION_SEND);
-            emailIntent.setType("text/csv");
+            Intent emailIntent = new Intent(uris.size() == 1 ? Intent.ACTION_SEND : Intent.ACTION_SEND_MULTIPLE);
+            emailIntent.setType(mimeType);
             emailIntent.putExtra(Intent.EXTRA_SUBJECT, reportType + " Attendance Report");
-            emailIntent.putExtra(Intent.EXTRA_TEXT, "Please find attached the attendance report.");
-            
-            // Attach the file
-            Uri uri = androidx.core.content.FileProvider.getUriForFile(context, 
-                context.getApplicationContext().getPackageName() + ".provider", reportFile);
-            emailIntent.putExtra(Intent.EXTRA_STREAM, uri);
+
+            // Attach the file, or the parts of a report too long for one
+            if (uris.size() == 1) {
+                emailIntent.putExtra(Intent.EXTRA_TEXT, "Please find attached the attendance report.");
+                emailIntent.putExtra(Intent.EXTRA_STREAM, uris.get(0));
+            } else {
+                emailIntent.putExtra(Intent.EXTRA_TEXT, "Please find attached the attendance report, in "
+                        + uris.size() + " parts. Page numbers run on from one part to the next.");
+                emailIntent.putParcelableArrayListExtra(Intent.EXTRA_STREAM, uris);
+            }
             emailIntent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
 
             // Start email activity
             context.startActivity(Intent.createChooser(emailIntent, "Send Report"));
-
-        } catch (IOException e) {
-            Log.e(TAG, "Error generating report", e);
+        } catch (IllegalArgumentException e) {
+            Log.e(TAG, "Error sharing report", e);
             Toast.makeText(context, "Error generating report: " + e.getMessage(), Toast.LENGTH_SHORT).show();
         }
     }
-
-    // Helper method to escape special characters in CSV fields
-    private static String escapeCsvField(String field) {
-        if (field == null) return "";
-        if (field.contains(",") || field.contains("\"") || field.contains("\n")) {
-            field = field.replace("\"", "\"\""); // Escape quotes
-            field = "\"" + field + "\""; // Wrap in quotes
-        }
-        return field;
-    }
-} 
\ No newline at end of file
+}
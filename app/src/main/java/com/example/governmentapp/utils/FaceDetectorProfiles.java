@@ -0,0 +1,95 @@
+package com.example.governmentapp.utils;
+
+import android.util.Log;
+
+import com.google.mlkit.vision.face.FaceDetection;
+import com.google.mlkit.vision.face.FaceDetector;
+import com.google.mlkit.vision.face.FaceDetectorOptions;
+
+/**
+ * Holds the two face detector profiles used by the app:
+ * a cheap FAST-mode tracking detector for live preview frames, which only has to
+ * tell whether and where a face is, and the ACCURATE detector with landmarks and
+ * classification for the single frame that is actually verified.
+ * Detectors are created lazily and shared, so callers must not close them.
+ */
+public class FaceDetectorProfiles {
+    private static final String TAG = "FaceDetectorProfiles";
+
+    // Minimum face size relative to the image width
+    private static final float MIN_FACE_SIZE = 0.15f;
+
+    private FaceDetector previewDetector;
+    private FaceDetector verificationDetector;
+    private FaceDetector lowPowerVerificationDetector;
+
+    /**
+     * Detector for preview frames: FAST mode, tracking enabled, no landmarks or classification
+     */
+    public synchronized FaceDetector getPreviewDetector() {
+        if (previewDetector == null) {
+            FaceDetectorOptions options = new FaceDetectorOptions.Builder()
+                    .setPerformanceMode(FaceDetectorOptions.PERFORMANCE_MODE_FAST)
+                    .setLandmarkMode(FaceDetectorOptions.LANDMARK_MODE_NONE)
+                    .setClassificationMode(FaceDetectorOptions.CLASSIFICATION_MODE_NONE)
+                    .setContourMode(FaceDetectorOptions.CONTOUR_MODE_NONE)
+                    .enableTracking()
+                    .setMinFaceSize(MIN_FACE_SIZE)
+                    .build();
+            previewDetector = FaceDetection.getClient(options);
+            Log.d(TAG, "Preview face detector initialized");
+        }
+        return previewDetector;
+    }
+
+    /**
+     * Detector for the frame used in the verification decision: ACCURATE mode with all
+     * landmarks and classification
+     */
+    public synchronized FaceDetector getVerificationDetector() {
+        if (verificationDetector == null) {
+            FaceDetectorOptions options = new FaceDetectorOptions.Builder()
+                    .setPerformanceMode(FaceDetectorOptions.PERFORMANCE_MODE_ACCURATE)
+                    .setClassificationMode(FaceDetectorOptions.CLASSIFICATION_MODE_ALL)
+                    .setLandmarkMode(FaceDetectorOptions.LANDMARK_MODE_ALL)
+                    .setMinFaceSize(MIN_FACE_SIZE)
+                    .build();
+            verificationDetector = FaceDetection.getClient(options);
+            Log.d(TAG, "Verification face detector initialized with min face size: " + MIN_FACE_SIZE);
+        }
+        return verificationDetector;
+    }
+
+    /**
+     * Verification detector used while the device is throttled: FAST mode with the same
+     * landmarks and classification, so the verification checks still have their inputs
+     */
+    public synchronized FaceDetector getLowPowerVerificationDetector() {
+        if (lowPowerVerificationDetector == null) {
+            FaceDetectorOptions options = new FaceDetectorOptions.Builder()
+                    .setPerformanceMode(FaceDetectorOptions.PERFORMANCE_MODE_FAST)
+                    .setClassificationMode(FaceDetectorOptions.CLASSIFICATION_MODE_ALL)
+                    .setLandmarkMode(FaceDetectorOptions.LANDMARK_MODE_ALL)
+                    .setMinFaceSize(MIN_FACE_SIZE)
+                    .build();
+            lowPowerVerificationDetector = FaceDetection.getClient(options);
+            Log.d(TAG, "Low-power verification face detector initialized");
+        }
+        return lowPowerVerificationDetector;
+    }
+
+    public synchronized void close() {
+        if (previewDetector != null) {
+            previewDetector.close();
+            previewDetector = null;
+        }
+        if (verificationDetector != null) {
+            verificationDetector.close();
+            verificationDetector = null;
+        }
+        if (lowPowerVerificationDetector != null) {
+            lowPowerVerificationDetector.close();
+            lowPowerVerificationDetector = null;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.governmentapp.utils;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.Log;
+
+/**
+ * Decodes face images at the resolution the face detector works at instead of full
+ * sensor resolution. Bounds are read first, a power-of-two {@code inSampleSize} gets
+ * close to the target size, the decoder scales the rest of the way, and the pixels
+ * are decoded into a pooled bitmap when one is available.
+ */
+public class FaceImageDecoder {
+    private static final String TAG = "FaceImageDecoder";
+
+    // Longest edge handed to the detector: the size live analysis frames already have, so
+    // a face that passes the 120 px minimum in the preview passes it here too
+    public static final int TARGET_MAX_DIMENSION = 640;
+
+    // ML Kit converts anything but ARGB_8888 into a new ARGB_8888 bitmap first
+    private static final Bitmap.Config CONFIG = Bitmap.Config.ARGB_8888;
+    private static final int BYTES_PER_PIXEL = 4;
+
+    // Largest bitmap decode() returns, a square image at the target size
+    public static final long MAX_DECODED_BYTES =
+            (long) TARGET_MAX_DIMENSION * TARGET_MAX_DIMENSION * BYTES_PER_PIXEL;
+
+    /**
+     * Decode an encoded (JPEG/PNG) image for face detection
+     * @param data Encoded image bytes
+     * @param pool Pool to take the decode target from, may be null
+     * @return The decoded bitmap, or null if the data could not be decoded.
+     *         Hand it back to the pool when done.
+     */
+    public static Bitmap decode(byte[] data, BitmapPool pool) {
+        if (data == null || data.length == 0) return null;
+
+        // Read the bounds only
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(data, 0, data.length, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            Log.e(TAG, "Could not read image bounds");
+            return null;
+        }
+
+        int sourceWidth = options.outWidth;
+        int sourceHeight = options.outHeight;
+        int sampleSize = calculateInSampleSize(sourceWidth, sourceHeight, TARGET_MAX_DIMENSION);
+        int sampledWidth = ceilDiv(sourceWidth, sampleSize);
+        int sampledHeight = ceilDiv(sourceHeight, sampleSize);
+        int sampledLongest = Math.max(sampledWidth, sampledHeight);
+
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize;
+        options.inPreferredConfig = CONFIG;
+        options.inMutable = true;
+        int decodedWidth = sampledWidth;
+        int decodedHeight = sampledHeight;
+        if (sampledLongest > TARGET_MAX_DIMENSION) {
+            // Sampling stops at up to twice the target; scale down the rest while decoding
+            options.inScaled = true;
+            options.inDensity = sampledLongest;
+            options.inTargetDensity = TARGET_MAX_DIMENSION;
+            decodedWidth = scaledDimension(sampledWidth, sampledLongest);
+            decodedHeight = scaledDimension(sampledHeight, sampledLongest);
+        }
+
+        if (pool != null) {
+            long neededBytes = (long) decodedWidth * decodedHeight * BYTES_PER_PIXEL;
+            options.inBitmap = pool.acquire(neededBytes, CONFIG);
+        }
+
+        Bitmap bitmap;
+        try {
+            bitmap = BitmapFactory.decodeByteArray(data, 0, data.length, options);
+        } catch (IllegalArgumentException e) {
+            // The pooled bitmap could not be reused for this image, decode into a fresh one
+            Log.w(TAG, "Could not reuse pooled bitmap: " + e.getMessage());
+            if (pool != null) {
+                pool.release(options.inBitmap);
+            }
+            options.inBitmap = null;
+            bitmap = BitmapFactory.decodeByteArray(data, 0, data.length, options);
+        }
+
+        if (bitmap == null) {
+            if (pool != null) {
+                pool.release(options.inBitmap);
+            }
+            return null;
+        }
+
+        Log.d(TAG, "Decoded " + sourceWidth + "x" + sourceHeight + " image at " + bitmap.getWidth() + "x"
+                + bitmap.getHeight() + " (sample size " + sampleSize
+                + (options.inBitmap != null ? ", pooled" : "") + ")");
+        return bitmap;
+    }
+
+    /**
+     * Largest power of two that keeps the longest edge at or above the target
+     */
+    public static int calculateInSampleSize(int width, int height, int targetMaxDimension) {
+        int longest = Math.max(width, height);
+        int sampleSize = 1;
+        while (longest / (sampleSize * 2) >= targetMaxDimension) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    // The size BitmapFactory scales a dimension to, rounding to the nearest pixel
+    private static int scaledDimension(int dimension, int sampledLongest) {
+        return (int) (dimension * ((float) TARGET_MAX_DIMENSION / sampledLongest) + 0.5f);
+    }
+
+    private static int ceilDiv(int value, int divisor) {
+        return (value + divisor - 1) / divisor;
+    }
+}
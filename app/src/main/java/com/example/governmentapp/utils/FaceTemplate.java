@@ -0,0 +1,254 @@
+package com.example.governmentapp.utils;
+
+import android.graphics.PointF;
+import android.graphics.Rect;
+
+import com.example.governmentapp.scoring.FaceFeatures;
+import com.google.mlkit.vision.face.Face;
+import com.google.mlkit.vision.face.FaceContour;
+import com.google.mlkit.vision.face.FaceLandmark;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Processed representation of a detected face: bounding-box geometry, head pose,
+ * classification probabilities, landmarks and contours.
+ * Unlike an ML Kit {@link Face} it can be serialized, so a reference face only has
+ * to be detected once and can then be compared from the on-device cache.
+ */
+public class FaceTemplate {
+    private static final int FORMAT_VERSION = 1;
+
+    // Highest FaceLandmark type constant (RIGHT_EYE = 10, MOUTH_RIGHT = 11)
+    private static final int LANDMARK_SLOTS = 12;
+
+    public final int imageWidth;
+    public final int imageHeight;
+
+    public final float boxLeft;
+    public final float boxTop;
+    public final float boxWidth;
+    public final float boxHeight;
+
+    public final float headEulerAngleX;
+    public final float headEulerAngleY;
+    public final float headEulerAngleZ;
+
+    // Classification probabilities, NaN when the detector did not provide them
+    public final float leftEyeOpenProbability;
+    public final float rightEyeOpenProbability;
+    public final float smilingProbability;
+
+    // Landmark positions as x,y pairs indexed by FaceLandmark type, NaN when missing
+    private final float[] landmarks;
+
+    // Contour points as flattened x,y arrays, parallel to contourTypes
+    private final int[] contourTypes;
+    private final float[][] contourPoints;
+
+    private FaceTemplate(int imageWidth, int imageHeight,
+                         float boxLeft, float boxTop, float boxWidth, float boxHeight,
+                         float headEulerAngleX, float headEulerAngleY, float headEulerAngleZ,
+                         float leftEyeOpenProbability, float rightEyeOpenProbability, float smilingProbability,
+                         float[] landmarks, int[] contourTypes, float[][] contourPoints) {
+        this.imageWidth = imageWidth;
+        this.imageHeight = imageHeight;
+        this.boxLeft = boxLeft;
+        this.boxTop = boxTop;
+        this.boxWidth = boxWidth;
+        this.boxHeight = boxHeight;
+        this.headEulerAngleX = headEulerAngleX;
+        this.headEulerAngleY = headEulerAngleY;
+        this.headEulerAngleZ = headEulerAngleZ;
+        this.leftEyeOpenProbability = leftEyeOpenProbability;
+        this.rightEyeOpenProbability = rightEyeOpenProbability;
+        this.smilingProbability = smilingProbability;
+        this.landmarks = landmarks;
+        this.contourTypes = contourTypes;
+        this.contourPoints = contourPoints;
+    }
+
+    /**
+     * Extract a template from an ML Kit face
+     * @param face Detected face
+     * @param imageWidth Width of the image the face was detected in
+     * @param imageHeight Height of the image the face was detected in
+     */
+    public static FaceTemplate fromFace(Face face, int imageWidth, int imageHeight) {
+        Rect box = face.getBoundingBox();
+
+        float[] landmarks = new float[LANDMARK_SLOTS * 2];
+        Arrays.fill(landmarks, Float.NaN);
+        for (FaceLandmark landmark : face.getAllLandmarks()) {
+            int type = landmark.getLandmarkType();
+            if (type >= 0 && type < LANDMARK_SLOTS) {
+                landmarks[type * 2] = landmark.getPosition().x;
+                landmarks[type * 2 + 1] = landmark.getPosition().y;
+            }
+        }
+
+        List<FaceContour> contours = face.getAllContours();
+        int[] contourTypes = new int[contours.size()];
+        float[][] contourPoints = new float[contours.size()][];
+        for (int i = 0; i < contours.size(); i++) {
+            FaceContour contour = contours.get(i);
+            List<PointF> points = contour.getPoints();
+            float[] flat = new float[points.size() * 2];
+            for (int p = 0; p < points.size(); p++) {
+                flat[p * 2] = points.get(p).x;
+                flat[p * 2 + 1] = points.get(p).y;
+            }
+            contourTypes[i] = contour.getFaceContourType();
+            contourPoints[i] = flat;
+        }
+
+        return new FaceTemplate(imageWidth, imageHeight,
+                box.left, box.top, box.width(), box.height(),
+                face.getHeadEulerAngleX(), face.getHeadEulerAngleY(), face.getHeadEulerAngleZ(),
+                orNaN(face.getLeftEyeOpenProbability()),
+                orNaN(face.getRightEyeOpenProbability()),
+                orNaN(face.getSmilingProbability()),
+                landmarks, contourTypes, contourPoints);
+    }
+
+    private static float orNaN(Float value) {
+        return value != null ? value : Float.NaN;
+    }
+
+    public boolean hasLeftEyeOpenProbability() {
+        return !Float.isNaN(leftEyeOpenProbability);
+    }
+
+    public boolean hasRightEyeOpenProbability() {
+        return !Float.isNaN(rightEyeOpenProbability);
+    }
+
+    public boolean hasSmilingProbability() {
+        return !Float.isNaN(smilingProbability);
+    }
+
+    public boolean hasLandmark(int landmarkType) {
+        return landmarkType >= 0 && landmarkType < LANDMARK_SLOTS
+                && !Float.isNaN(landmarks[landmarkType * 2]);
+    }
+
+    public float getLandmarkX(int landmarkType) {
+        return hasLandmark(landmarkType) ? landmarks[landmarkType * 2] : Float.NaN;
+    }
+
+    public float getLandmarkY(int landmarkType) {
+        return hasLandmark(landmarkType) ? landmarks[landmarkType * 2 + 1] : Float.NaN;
+    }
+
+    /**
+     * Fill a scoring feature vector (see {@link FaceFeatures}) from this template
+     * @param features Vector of at least {@link FaceFeatures#SIZE} floats
+     * @return The same vector
+     */
+    public float[] toFeatures(float[] features) {
+        features[FaceFeatures.BOX_WIDTH] = boxWidth;
+        features[FaceFeatures.BOX_HEIGHT] = boxHeight;
+        features[FaceFeatures.HEAD_ANGLE_X] = headEulerAngleX;
+        features[FaceFeatures.HEAD_ANGLE_Y] = headEulerAngleY;
+        features[FaceFeatures.HEAD_ANGLE_Z] = headEulerAngleZ;
+        features[FaceFeatures.LEFT_EYE_OPEN] = leftEyeOpenProbability;
+        features[FaceFeatures.RIGHT_EYE_OPEN] = rightEyeOpenProbability;
+        features[FaceFeatures.SMILING] = smilingProbability;
+        features[FaceFeatures.LEFT_EYE_X] = getLandmarkX(FaceLandmark.LEFT_EYE);
+        features[FaceFeatures.RIGHT_EYE_X] = getLandmarkX(FaceLandmark.RIGHT_EYE);
+        return features;
+    }
+
+    public int getContourCount() {
+        return contourTypes.length;
+    }
+
+    public int getContourType(int index) {
+        return contourTypes[index];
+    }
+
+    public float[] getContourPoints(int index) {
+        return contourPoints[index];
+    }
+
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(imageWidth);
+        out.writeInt(imageHeight);
+        out.writeFloat(boxLeft);
+        out.writeFloat(boxTop);
+        out.writeFloat(boxWidth);
+        out.writeFloat(boxHeight);
+        out.writeFloat(headEulerAngleX);
+        out.writeFloat(headEulerAngleY);
+        out.writeFloat(headEulerAngleZ);
+        out.writeFloat(leftEyeOpenProbability);
+        out.writeFloat(rightEyeOpenProbability);
+        out.writeFloat(smilingProbability);
+
+        out.writeInt(landmarks.length);
+        for (float value : landmarks) {
+            out.writeFloat(value);
+        }
+
+        out.writeInt(contourTypes.length);
+        for (int i = 0; i < contourTypes.length; i++) {
+            out.writeInt(contourTypes[i]);
+            out.writeInt(contourPoints[i].length);
+            for (float value : contourPoints[i]) {
+                out.writeFloat(value);
+            }
+        }
+    }
+
+    public static FaceTemplate readFrom(DataInputStream in) throws IOException {
+        int version = in.readInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported face template version: " + version);
+        }
+
+        int imageWidth = in.readInt();
+        int imageHeight = in.readInt();
+        float boxLeft = in.readFloat();
+        float boxTop = in.readFloat();
+        float boxWidth = in.readFloat();
+        float boxHeight = in.readFloat();
+        float eulerX = in.readFloat();
+        float eulerY = in.readFloat();
+        float eulerZ = in.readFloat();
+        float leftEye = in.readFloat();
+        float rightEye = in.readFloat();
+        float smiling = in.readFloat();
+
+        int landmarkCount = in.readInt();
+        if (landmarkCount != LANDMARK_SLOTS * 2) {
+            throw new IOException("Unexpected landmark count: " + landmarkCount);
+        }
+        float[] landmarks = new float[landmarkCount];
+        for (int i = 0; i < landmarkCount; i++) {
+            landmarks[i] = in.readFloat();
+        }
+
+        int contourCount = in.readInt();
+        int[] contourTypes = new int[contourCount];
+        float[][] contourPoints = new float[contourCount][];
+        for (int i = 0; i < contourCount; i++) {
+            contourTypes[i] = in.readInt();
+            float[] points = new float[in.readInt()];
+            for (int p = 0; p < points.length; p++) {
+                points[p] = in.readFloat();
+            }
+            contourPoints[i] = points;
+        }
+
+        return new FaceTemplate(imageWidth, imageHeight,
+                boxLeft, boxTop, boxWidth, boxHeight,
+                eulerX, eulerY, eulerZ,
+                leftEye, rightEye, smiling,
+                landmarks, contourTypes, contourPoints);
+    }
+}
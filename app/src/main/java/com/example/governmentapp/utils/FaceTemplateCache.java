@@ -0,0 +1,277 @@
+package com.example.governmentapp.utils;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.security.crypto.EncryptedFile;
+import androidx.security.crypto.MasterKey;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Persistent, encrypted on-device cache of processed reference faces.
+ * Entries are keyed by sevarthId and the Firebase Storage generation of
+ * faces/{sevarthId}.jpg, so a replaced reference image is never matched
+ * against a stale template.
+ * Methods perform file I/O and should be called off the main thread.
+ */
+public class FaceTemplateCache {
+    private static final String TAG = "FaceTemplateCache";
+    private static final String CACHE_DIR = "face_templates";
+    private static final String USER_SUFFIX = ".user";
+
+    private static FaceTemplateCache instance;
+
+    private final Context context;
+    private final File cacheDir;
+    private final Map<String, CacheEntry> memoryCache = new HashMap<>();
+    private final Map<String, CachedUser> users = new HashMap<>();
+    private MasterKey masterKey;
+
+    private FaceTemplateCache(Context context) {
+        this.context = context.getApplicationContext();
+        this.cacheDir = new File(this.context.getFilesDir(), CACHE_DIR);
+    }
+
+    public static synchronized FaceTemplateCache getInstance(Context context) {
+        if (instance == null) {
+            instance = new FaceTemplateCache(context);
+        }
+        return instance;
+    }
+
+    /**
+     * Get the cached template for a user
+     * @param sevarthId User's sevarthId
+     * @param generation Storage object generation of the current reference image
+     * @return The template, or null if nothing is cached for this generation
+     */
+    public synchronized FaceTemplate get(String sevarthId, String generation) {
+        if (sevarthId == null || generation == null) return null;
+
+        CacheEntry entry = memoryCache.get(sevarthId);
+        if (entry == null) {
+            entry = readEntry(sevarthId);
+            if (entry != null) {
+                memoryCache.put(sevarthId, entry);
+            }
+        }
+
+        if (entry == null) {
+            Log.d(TAG, "No cached template for " + sevarthId);
+            return null;
+        }
+        if (!generation.equals(entry.generation)) {
+            Log.d(TAG, "Cached template for " + sevarthId + " is stale (cached generation: "
+                    + entry.generation + ", current: " + generation + ")");
+            invalidate(sevarthId);
+            return null;
+        }
+        return entry.template;
+    }
+
+    /**
+     * Get the cached template for a user whatever its generation, for verifying without
+     * a network round trip. Callers should revalidate it with {@link #get} when online.
+     * @return The last cached template, or null if nothing is cached
+     */
+    public synchronized FaceTemplate getLatest(String sevarthId) {
+        if (sevarthId == null) return null;
+
+        CacheEntry entry = memoryCache.get(sevarthId);
+        if (entry == null) {
+            entry = readEntry(sevarthId);
+            if (entry != null) {
+                memoryCache.put(sevarthId, entry);
+            }
+        }
+        return entry != null ? entry.template : null;
+    }
+
+    /**
+     * Remember which sevarthId and display name belong to a login email, so the user
+     * lookup can be skipped when verifying offline
+     */
+    public synchronized void putUser(String email, String sevarthId, String name) {
+        if (email == null || sevarthId == null) return;
+        CachedUser cached = getUser(email);
+        if (cached != null && sevarthId.equals(cached.sevarthId)
+                && (name == null ? cached.name == null : name.equals(cached.name))) {
+            return;
+        }
+
+        users.put(email, new CachedUser(sevarthId, name));
+        File file = getFile(email, USER_SUFFIX);
+        try {
+            if (!cacheDir.exists() && !cacheDir.mkdirs()) {
+                throw new IOException("Could not create " + cacheDir);
+            }
+            if (file.exists() && !file.delete()) {
+                throw new IOException("Could not replace " + file);
+            }
+            try (DataOutputStream out = new DataOutputStream(getEncryptedFile(file).openFileOutput())) {
+                out.writeUTF(sevarthId);
+                out.writeUTF(name != null ? name : "");
+            }
+        } catch (GeneralSecurityException | IOException e) {
+            Log.e(TAG, "Error caching user: " + e.getMessage(), e);
+            file.delete();
+        }
+    }
+
+    /**
+     * @return The sevarthId last seen for this email, or null if unknown
+     */
+    public synchronized String getUserId(String email) {
+        CachedUser cached = getUser(email);
+        return cached != null ? cached.sevarthId : null;
+    }
+
+    /**
+     * @return The display name last seen for this email, or null if unknown
+     */
+    public synchronized String getUserName(String email) {
+        CachedUser cached = getUser(email);
+        return cached != null ? cached.name : null;
+    }
+
+    private CachedUser getUser(String email) {
+        if (email == null) return null;
+
+        CachedUser cached = users.get(email);
+        if (cached != null) return cached;
+
+        File file = getFile(email, USER_SUFFIX);
+        if (!file.exists()) return null;
+        try (DataInputStream in = new DataInputStream(getEncryptedFile(file).openFileInput())) {
+            String sevarthId = in.readUTF();
+            String name = in.readUTF();
+            cached = new CachedUser(sevarthId, name.isEmpty() ? null : name);
+            users.put(email, cached);
+            return cached;
+        } catch (GeneralSecurityException | IOException e) {
+            Log.e(TAG, "Error reading cached user: " + e.getMessage(), e);
+            file.delete();
+            return null;
+        }
+    }
+
+    /**
+     * Store the processed reference template for a user
+     */
+    public synchronized void put(String sevarthId, String generation, FaceTemplate template) {
+        if (sevarthId == null || generation == null || template == null) return;
+
+        memoryCache.put(sevarthId, new CacheEntry(generation, template));
+
+        File file = getFile(sevarthId);
+        try {
+            if (!cacheDir.exists() && !cacheDir.mkdirs()) {
+                throw new IOException("Could not create " + cacheDir);
+            }
+            // EncryptedFile refuses to overwrite an existing file
+            if (file.exists() && !file.delete()) {
+                throw new IOException("Could not replace " + file);
+            }
+
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    getEncryptedFile(file).openFileOutput()))) {
+                out.writeUTF(generation);
+                template.writeTo(out);
+            }
+            Log.d(TAG, "Cached template for " + sevarthId + " (generation: " + generation + ")");
+        } catch (GeneralSecurityException | IOException e) {
+            Log.e(TAG, "Error writing face template cache: " + e.getMessage(), e);
+            file.delete();
+        }
+    }
+
+    public synchronized void invalidate(String sevarthId) {
+        if (sevarthId == null) return;
+        memoryCache.remove(sevarthId);
+        File file = getFile(sevarthId);
+        if (file.exists()) {
+            file.delete();
+        }
+    }
+
+    private CacheEntry readEntry(String sevarthId) {
+        File file = getFile(sevarthId);
+        if (!file.exists()) return null;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                getEncryptedFile(file).openFileInput()))) {
+            String generation = in.readUTF();
+            FaceTemplate template = FaceTemplate.readFrom(in);
+            return new CacheEntry(generation, template);
+        } catch (GeneralSecurityException | IOException e) {
+            // Corrupt or unreadable entry (e.g. keystore reset), drop it and re-fetch
+            Log.e(TAG, "Error reading face template cache: " + e.getMessage(), e);
+            file.delete();
+            return null;
+        }
+    }
+
+    private EncryptedFile getEncryptedFile(File file) throws GeneralSecurityException, IOException {
+        if (masterKey == null) {
+            masterKey = new MasterKey.Builder(context)
+                    .setKeyScheme(MasterKey.KeyScheme.AES256_GCM)
+                    .build();
+        }
+        return new EncryptedFile.Builder(
+                context,
+                file,
+                masterKey,
+                EncryptedFile.FileEncryptionScheme.AES256_GCM_HKDF_4KB
+        ).build();
+    }
+
+    private File getFile(String sevarthId) {
+        return getFile(sevarthId, ".bin");
+    }
+
+    // Hash the key so no user identifier appears in a file name
+    private File getFile(String key, String suffix) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder name = new StringBuilder();
+            for (byte b : hash) {
+                name.append(String.format("%02x", b));
+            }
+            return new File(cacheDir, name + suffix);
+        } catch (Exception e) {
+            return new File(cacheDir, Integer.toHexString(key.hashCode()) + suffix);
+        }
+    }
+
+    private static class CachedUser {
+        final String sevarthId;
+        final String name;
+
+        CachedUser(String sevarthId, String name) {
+            this.sevarthId = sevarthId;
+            this.name = name;
+        }
+    }
+
+    private static class CacheEntry {
+        final String generation;
+        final FaceTemplate template;
+
+        CacheEntry(String generation, FaceTemplate template) {
+            this.generation = generation;
+            this.template = template;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.governmentapp.utils;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.Query;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Loads the results of one or more ordered Firestore queries page by page as a RecyclerView
+ * scrolls, using {@code limit} and a {@code startAfter} cursor on the last document.
+ * Queries are read one after the other, so a list can continue with a compatibility query
+ * once the main one is exhausted; a document returned by more than one query is shown once.
+ * <p>
+ * Each page is mapped to rows and the accumulated list is handed to the listener, typically
+ * straight into {@code ListAdapter.submitList} so DiffUtil only binds the new rows.
+ * Call from the main thread.
+ */
+public class FirestorePager<T> {
+    private static final String TAG = "FirestorePager";
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    // Start the next page while this many rows are still below the last visible one
+    public static final int DEFAULT_PREFETCH_DISTANCE = 15;
+
+    public interface RowMapper<T> {
+        /**
+         * @return The row for a document, or null to leave it out
+         */
+        T map(DocumentSnapshot document);
+    }
+
+    public interface Listener<T> {
+        /**
+         * @param rows All rows loaded so far
+         * @param complete Whether every query has been read to the end
+         */
+        void onRowsLoaded(List<T> rows, boolean complete);
+
+        void onError(Exception e);
+    }
+
+    private final List<Query> queries;
+    private final int pageSize;
+    private final int prefetchDistance;
+    private final RowMapper<T> mapper;
+    private final Listener<T> listener;
+
+    private final List<T> rows = new ArrayList<>();
+    private final Set<String> seenIds = new HashSet<>();
+    private int queryIndex = 0;
+    private DocumentSnapshot cursor;
+    private boolean loading = false;
+    private boolean cancelled = false;
+    private Runnable onComplete;
+
+    private RecyclerView recyclerView;
+    private final RecyclerView.OnScrollListener scrollListener = new RecyclerView.OnScrollListener() {
+        @Override
+        public void onScrolled(@NonNull RecyclerView view, int dx, int dy) {
+            loadIfNearEnd();
+        }
+    };
+
+    public FirestorePager(List<Query> queries, RowMapper<T> mapper, Listener<T> listener) {
+        this(queries, DEFAULT_PAGE_SIZE, DEFAULT_PREFETCH_DISTANCE, mapper, listener);
+    }
+
+    public FirestorePager(List<Query> queries, int pageSize, int prefetchDistance,
+                          RowMapper<T> mapper, Listener<T> listener) {
+        this.queries = queries;
+        this.pageSize = pageSize;
+        this.prefetchDistance = prefetchDistance;
+        this.mapper = mapper;
+        this.listener = listener;
+    }
+
+    /**
+     * Load pages as the list scrolls, and the first page right away
+     */
+    public void attachTo(RecyclerView recyclerView) {
+        this.recyclerView = recyclerView;
+        recyclerView.addOnScrollListener(scrollListener);
+        loadNextPage();
+    }
+
+    /**
+     * Stop loading and ignore pages still in flight
+     */
+    public void cancel() {
+        cancelled = true;
+        if (recyclerView != null) {
+            recyclerView.removeOnScrollListener(scrollListener);
+        }
+    }
+
+    public boolean isComplete() {
+        return queryIndex >= queries.size();
+    }
+
+    public List<T> getRows() {
+        return Collections.unmodifiableList(rows);
+    }
+
+    /**
+     * Load every remaining page, e.g. before exporting the whole list
+     */
+    public void loadAll(Runnable onComplete) {
+        if (isComplete()) {
+            onComplete.run();
+            return;
+        }
+        this.onComplete = onComplete;
+        loadNextPage();
+    }
+
+    public void loadNextPage() {
+        if (loading || cancelled || isComplete()) return;
+        loading = true;
+
+        Query page = queries.get(queryIndex).limit(pageSize);
+        if (cursor != null) {
+            page = page.startAfter(cursor);
+        }
+        long startTime = System.currentTimeMillis();
+        page.get()
+            .addOnSuccessListener(snapshot -> {
+                if (cancelled) return;
+                loading = false;
+
+                List<DocumentSnapshot> documents = snapshot.getDocuments();
+                for (DocumentSnapshot document : documents) {
+                    if (!seenIds.add(document.getId())) continue;
+                    T row = mapper.map(document);
+                    if (row != null) {
+                        rows.add(row);
+                    }
+                }
+                if (documents.size() < pageSize) {
+                    queryIndex++;
+                    cursor = null;
+                } else {
+                    cursor = documents.get(documents.size() - 1);
+                }
+                Log.d(TAG, "Page of " + documents.size() + " in " + (System.currentTimeMillis() - startTime)
+                        + " ms, " + rows.size() + " rows");
+
+                listener.onRowsLoaded(new ArrayList<>(rows), isComplete());
+                if (onComplete != null) {
+                    if (isComplete()) {
+                        Runnable callback = onComplete;
+                        onComplete = null;
+                        callback.run();
+                    } else {
+                        loadNextPage();
+                    }
+                } else if (recyclerView != null) {
+                    // Keep going until the list fills the screen plus the prefetch distance
+                    recyclerView.post(this::loadIfNearEnd);
+                }
+            })
+            .addOnFailureListener(e -> {
+                if (cancelled) return;
+                loading = false;
+                onComplete = null;
+                Log.e(TAG, "Error loading page", e);
+                listener.onError(e);
+            });
+    }
+
+    private void loadIfNearEnd() {
+        if (recyclerView == null || !(recyclerView.getLayoutManager() instanceof LinearLayoutManager)) return;
+        LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+        int lastVisible = layoutManager.findLastVisibleItemPosition();
+        if (lastVisible + prefetchDistance >= layoutManager.getItemCount()) {
+            loadNextPage();
+        }
+    }
+}
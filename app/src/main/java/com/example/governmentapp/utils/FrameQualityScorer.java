@@ -0,0 +1,121 @@
+package com.example.governmentapp.utils;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Scores live preview frames for auto-capture. A frame gets 0 when it would be
+ * rejected by verification anyway (face too small or too large, head turned too far,
+ * eyes closed), otherwise a weighted 0..1 score of face size, pose, eye openness
+ * and sharpness.
+ */
+public class FrameQualityScorer {
+    // Face width relative to the frame at which the size score saturates
+    private static final float IDEAL_FACE_PROPORTION = 0.35f;
+
+    // Mean squared luminance gradient at which the sharpness score saturates
+    private static final float SHARP_GRADIENT_ENERGY = 400.0f;
+
+    private static final float SIZE_WEIGHT = 0.25f;
+    private static final float POSE_WEIGHT = 0.30f;
+    private static final float EYES_WEIGHT = 0.20f;
+    private static final float SHARPNESS_WEIGHT = 0.25f;
+
+    private final int minFaceSizePixels;
+    private final float minFaceProportion;
+    private final float maxFaceProportion;
+    private final float maxHeadAngle;
+    private final float minEyeOpenProbability;
+
+    public FrameQualityScorer(int minFaceSizePixels, float minFaceProportion, float maxFaceProportion,
+                              float maxHeadAngle, float minEyeOpenProbability) {
+        this.minFaceSizePixels = minFaceSizePixels;
+        this.minFaceProportion = minFaceProportion;
+        this.maxFaceProportion = maxFaceProportion;
+        this.maxHeadAngle = maxHeadAngle;
+        this.minEyeOpenProbability = minEyeOpenProbability;
+    }
+
+    /**
+     * Score a single detected face
+     * @param leftEyeOpen Eye open probability, NaN when unknown
+     * @param rightEyeOpen Eye open probability, NaN when unknown
+     * @param sharpness Sharpness in 0..1 from {@link #sharpness}
+     * @return Quality score in 0..1, 0 meaning unusable
+     */
+    public float score(float faceWidth, float faceHeight, int imageWidth, int imageHeight,
+                       float headEulerAngleX, float headEulerAngleY,
+                       float leftEyeOpen, float rightEyeOpen, float sharpness) {
+        if (imageWidth <= 0 || imageHeight <= 0) return 0f;
+
+        // Face size
+        if (faceWidth < minFaceSizePixels || faceHeight < minFaceSizePixels) {
+            return 0f;
+        }
+        float widthProportion = faceWidth / imageWidth;
+        float heightProportion = faceHeight / imageHeight;
+        if (widthProportion < minFaceProportion || heightProportion < minFaceProportion
+                || widthProportion > maxFaceProportion || heightProportion > maxFaceProportion) {
+            return 0f;
+        }
+        float sizeScore = Math.min(1f, (widthProportion - minFaceProportion)
+                / (IDEAL_FACE_PROPORTION - minFaceProportion));
+
+        // Head pose
+        float worstAngle = Math.max(Math.abs(headEulerAngleX), Math.abs(headEulerAngleY));
+        if (worstAngle > maxHeadAngle) {
+            return 0f;
+        }
+        float poseScore = 1f - worstAngle / maxHeadAngle;
+
+        // Eye openness, unknown probabilities count as neutral
+        float eyesScore = 0.5f;
+        if (!Float.isNaN(leftEyeOpen) && !Float.isNaN(rightEyeOpen)) {
+            if (leftEyeOpen < minEyeOpenProbability && rightEyeOpen < minEyeOpenProbability) {
+                return 0f;
+            }
+            eyesScore = Math.min(leftEyeOpen, rightEyeOpen);
+        }
+
+        return SIZE_WEIGHT * sizeScore
+                + POSE_WEIGHT * poseScore
+                + EYES_WEIGHT * eyesScore
+                + SHARPNESS_WEIGHT * Math.max(0f, Math.min(1f, sharpness));
+    }
+
+    /**
+     * Estimate sharpness of a region of a luminance plane from the mean squared
+     * horizontal and vertical gradient on a subsampled grid.
+     * Coordinates are in buffer (sensor) orientation.
+     * @return Sharpness in 0..1
+     */
+    public static float sharpness(ByteBuffer yPlane, int rowStride, int pixelStride,
+                                  int left, int top, int right, int bottom) {
+        if (yPlane == null || right - left < 4 || bottom - top < 4) return 0f;
+
+        // About 64x64 sample points over the region
+        int step = Math.max(1, Math.min(right - left, bottom - top) / 64);
+        int limit = yPlane.limit();
+        long energy = 0;
+        int samples = 0;
+
+        for (int y = top; y < bottom - step; y += step) {
+            int row = y * rowStride;
+            int nextRow = (y + step) * rowStride;
+            for (int x = left; x < right - step; x += step) {
+                int index = row + x * pixelStride;
+                int rightIndex = index + step * pixelStride;
+                int belowIndex = nextRow + x * pixelStride;
+                if (rightIndex >= limit || belowIndex >= limit) continue;
+
+                int center = yPlane.get(index) & 0xFF;
+                int dx = (yPlane.get(rightIndex) & 0xFF) - center;
+                int dy = (yPlane.get(belowIndex) & 0xFF) - center;
+                energy += dx * dx + dy * dy;
+                samples++;
+            }
+        }
+
+        if (samples == 0) return 0f;
+        return Math.min(1f, (float) energy / samples / SHARP_GRADIENT_ENERGY);
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.governmentapp.utils;
+
+import android.util.Log;
+
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.Query;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Keeps the results of a query current with a long-lived snapshot listener.
+ * <p>
+ * The first snapshot delivers every document as added; after that only documents that were
+ * added, changed or removed are read and passed on, each with its position in the query's
+ * order, so a list on screen can update just the affected rows. The documents are also kept
+ * here, in query order, for redrawing a list without reading anything again.
+ */
+public class LiveQuery {
+    private static final String TAG = "LiveQuery";
+
+    public interface Listener {
+        /**
+         * Called on the main thread for each change, in the order they apply
+         */
+        void onAdded(int index, DocumentSnapshot document);
+
+        void onModified(int oldIndex, int newIndex, DocumentSnapshot document);
+
+        /**
+         * @param document The document as it was before it was removed
+         */
+        void onRemoved(int index, DocumentSnapshot document);
+
+        /**
+         * Called after the changes of one snapshot have been delivered
+         * @param first Whether this was the first snapshot since {@link #start()}
+         */
+        void onSnapshot(boolean first);
+
+        void onError(Exception e);
+    }
+
+    private final Query query;
+    private final List<DocumentSnapshot> documents = new ArrayList<>();
+    private Listener listener;
+    private ListenerRegistration registration;
+    private boolean loaded = false;
+
+    public LiveQuery(Query query) {
+        this.query = query;
+    }
+
+    public LiveQuery setListener(Listener listener) {
+        this.listener = listener;
+        return this;
+    }
+
+    /**
+     * Start listening, unless already listening
+     */
+    public void start() {
+        if (registration != null) return;
+        documents.clear();
+        loaded = false;
+        registration = query.addSnapshotListener((snapshot, e) -> {
+            if (e != null) {
+                Log.e(TAG, "Listen failed", e);
+                stop();
+                if (listener != null) {
+                    listener.onError(e);
+                }
+                return;
+            }
+            if (snapshot == null) return;
+
+            boolean first = !loaded;
+            List<DocumentChange> changes = snapshot.getDocumentChanges();
+            for (DocumentChange change : changes) {
+                apply(change);
+            }
+            loaded = true;
+            if (listener != null) {
+                listener.onSnapshot(first);
+            }
+            Log.d(TAG, (first ? "Loaded " : "Applied ") + changes.size() + " change(s), "
+                    + documents.size() + " document(s)");
+        });
+    }
+
+    public void stop() {
+        if (registration != null) {
+            registration.remove();
+            registration = null;
+        }
+    }
+
+    public boolean isListening() {
+        return registration != null;
+    }
+
+    /**
+     * Whether the first snapshot has arrived
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Current documents, in query order
+     */
+    public List<DocumentSnapshot> getDocuments() {
+        return Collections.unmodifiableList(documents);
+    }
+
+    public int size() {
+        return documents.size();
+    }
+
+    // Indexes refer to the list with every earlier change of the snapshot already applied
+    private void apply(DocumentChange change) {
+        DocumentSnapshot document = change.getDocument();
+        switch (change.getType()) {
+            case ADDED:
+                documents.add(change.getNewIndex(), document);
+                if (listener != null) {
+                    listener.onAdded(change.getNewIndex(), document);
+                }
+                break;
+            case MODIFIED:
+                documents.remove(change.getOldIndex());
+                documents.add(change.getNewIndex(), document);
+                if (listener != null) {
+                    listener.onModified(change.getOldIndex(), change.getNewIndex(), document);
+                }
+                break;
+            case REMOVED:
+                DocumentSnapshot removed = documents.remove(change.getOldIndex());
+                if (listener != null) {
+                    listener.onRemoved(change.getOldIndex(), removed);
+                }
+                break;
+        }
+    }
+}
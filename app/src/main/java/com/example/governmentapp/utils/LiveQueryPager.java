@@ -0,0 +1,250 @@
+package com.example.governmentapp.utils;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.Query;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Keeps an ordered query live one page at a time, loading the next page as a RecyclerView
+ * scrolls near the end of what is loaded.
+ * <p>
+ * Every page has its own {@link LiveQuery}. The last page is open ({@code limit}); when the
+ * next one is requested it is pinned to the range it covers ({@code startAfter} the previous
+ * page's last document, {@code endAt} its own), so documents added inside it later stay on
+ * it rather than pushing its last document into a gap. Pinning re-reads that one page, so
+ * scrolling to the end reads each document about twice; after that only changes are read.
+ * The listener gets the rows of all pages on each change, for {@code ListAdapter.submitList}.
+ * Call from the main thread.
+ */
+public class LiveQueryPager {
+    private static final String TAG = "LiveQueryPager";
+
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    // Start the next page while this many rows are still below the last visible one
+    public static final int DEFAULT_PREFETCH_DISTANCE = 30;
+
+    public interface Listener {
+        /**
+         * @param rows Rows of every page loaded so far, in query order
+         * @param complete Whether the last page reaches the end of the query
+         */
+        void onRowsChanged(List<DocumentRow> rows, boolean complete);
+
+        void onError(Exception e);
+    }
+
+    private class Page {
+        // Last document of the page before, or null for the first page
+        final DocumentSnapshot after;
+        LiveQuery live;
+        // Listener for the pinned range, taking over from the open one at its first snapshot
+        LiveQuery pinned;
+        List<DocumentRow> rows = Collections.emptyList();
+
+        Page(DocumentSnapshot after) {
+            this.after = after;
+        }
+    }
+
+    private final Query query;
+    private final int pageSize;
+    private final int prefetchDistance;
+    private final Listener listener;
+
+    private final List<Page> pages = new ArrayList<>();
+    private List<DocumentRow> rows = Collections.emptyList();
+    private boolean complete = false;
+
+    private RecyclerView recyclerView;
+    private final RecyclerView.OnScrollListener scrollListener = new RecyclerView.OnScrollListener() {
+        @Override
+        public void onScrolled(@NonNull RecyclerView view, int dx, int dy) {
+            loadIfNearEnd();
+        }
+    };
+
+    public LiveQueryPager(Query query, Listener listener) {
+        this(query, DEFAULT_PAGE_SIZE, DEFAULT_PREFETCH_DISTANCE, listener);
+    }
+
+    public LiveQueryPager(Query query, int pageSize, int prefetchDistance, Listener listener) {
+        this.query = query;
+        this.pageSize = pageSize;
+        this.prefetchDistance = prefetchDistance;
+        this.listener = listener;
+    }
+
+    /**
+     * Start listening to the first page, unless already listening
+     */
+    public void start() {
+        if (!pages.isEmpty()) return;
+        rows = Collections.emptyList();
+        complete = false;
+        Page first = new Page(null);
+        pages.add(first);
+        first.live = listen(first, query.limit(pageSize));
+    }
+
+    /**
+     * Stop every listener and drop the rows
+     */
+    public void stop() {
+        for (Page page : pages) {
+            page.live.stop();
+            if (page.pinned != null) {
+                page.pinned.stop();
+            }
+        }
+        pages.clear();
+    }
+
+    public boolean isListening() {
+        return !pages.isEmpty();
+    }
+
+    /**
+     * Whether the first page has arrived
+     */
+    public boolean isLoaded() {
+        return !pages.isEmpty() && pages.get(0).live.isLoaded();
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public List<DocumentRow> getRows() {
+        return rows;
+    }
+
+    /**
+     * Load pages as the list scrolls; the list's adapter must show this pager's rows
+     */
+    public void attachTo(RecyclerView recyclerView) {
+        detach();
+        this.recyclerView = recyclerView;
+        recyclerView.addOnScrollListener(scrollListener);
+        recyclerView.post(this::loadIfNearEnd);
+    }
+
+    public void detach() {
+        if (recyclerView != null) {
+            recyclerView.removeOnScrollListener(scrollListener);
+            recyclerView = null;
+        }
+    }
+
+    /**
+     * Open the next page, unless the last one is still loading or reaches the end
+     */
+    public void loadNextPage() {
+        if (pages.isEmpty()) return;
+        Page last = pages.get(pages.size() - 1);
+        if (!last.live.isLoaded() || last.live.size() < pageSize) return;
+
+        List<DocumentSnapshot> documents = last.live.getDocuments();
+        DocumentSnapshot boundary = documents.get(documents.size() - 1);
+        last.pinned = listen(last, after(last.after).endAt(boundary));
+
+        Page next = new Page(boundary);
+        pages.add(next);
+        next.live = listen(next, after(boundary).limit(pageSize));
+        Log.d(TAG, "Opening page " + pages.size() + " after " + rows.size() + " rows");
+    }
+
+    private Query after(DocumentSnapshot document) {
+        return document != null ? query.startAfter(document) : query;
+    }
+
+    private LiveQuery listen(Page page, Query pageQuery) {
+        LiveQuery live = new LiveQuery(pageQuery);
+        live.setListener(new LiveQuery.Listener() {
+            // Pages are re-read as a whole below; the adapter's differ finds the changed rows
+            @Override
+            public void onAdded(int index, DocumentSnapshot document) {
+            }
+
+            @Override
+            public void onModified(int oldIndex, int newIndex, DocumentSnapshot document) {
+            }
+
+            @Override
+            public void onRemoved(int index, DocumentSnapshot document) {
+            }
+
+            @Override
+            public void onSnapshot(boolean first) {
+                onPageSnapshot(page, live);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                if (!pages.contains(page)) return;
+                stop();
+                listener.onError(e);
+            }
+        });
+        live.start();
+        return live;
+    }
+
+    private void onPageSnapshot(Page page, LiveQuery live) {
+        if (live == page.pinned) {
+            page.live.stop();
+            page.live = live;
+            page.pinned = null;
+        } else if (live != page.live) {
+            return;
+        }
+        List<DocumentRow> pageRows = new ArrayList<>(live.size());
+        for (DocumentSnapshot document : live.getDocuments()) {
+            pageRows.add(DocumentRow.of(document));
+        }
+        page.rows = pageRows;
+        publish();
+    }
+
+    private void publish() {
+        // While a page is being pinned its open listener can briefly overlap the next page
+        Set<String> seenIds = new HashSet<>();
+        List<DocumentRow> all = new ArrayList<>(rows.size() + pageSize);
+        for (Page page : pages) {
+            for (DocumentRow row : page.rows) {
+                if (seenIds.add(row.id)) {
+                    all.add(row);
+                }
+            }
+        }
+        Page last = pages.get(pages.size() - 1);
+        complete = last.live.isLoaded() && last.live.size() < pageSize;
+        rows = Collections.unmodifiableList(all);
+        listener.onRowsChanged(rows, complete);
+
+        if (recyclerView != null) {
+            // Keep going until the list fills the screen plus the prefetch distance
+            recyclerView.post(this::loadIfNearEnd);
+        }
+    }
+
+    private void loadIfNearEnd() {
+        if (recyclerView == null || !(recyclerView.getLayoutManager() instanceof LinearLayoutManager)) return;
+        LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+        int lastVisible = layoutManager.findLastVisibleItemPosition();
+        // Against the rows published rather than the adapter's count, which lags while it diffs
+        if (lastVisible + prefetchDistance >= rows.size()) {
+            loadNextPage();
+        }
+    }
+}
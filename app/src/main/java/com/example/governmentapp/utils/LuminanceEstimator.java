@@ -0,0 +1,126 @@
+package com.example.governmentapp.utils;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Streaming exposure statistics computed from the luminance (Y) plane of camera frames.
+ * Each frame is subsampled into a fixed 256-bin histogram that is reused between frames,
+ * so updating allocates nothing. The smoothed mean and percentiles are published through
+ * volatile fields and can be read from any thread in constant time.
+ */
+public class LuminanceEstimator {
+    // Aim for roughly this many samples per frame regardless of resolution
+    private static final int TARGET_SAMPLES = 4096;
+
+    // Weight of the newest frame in the exponential moving averages
+    private static final float SMOOTHING = 0.2f;
+
+    private final int[] histogram = new int[256];
+
+    private volatile boolean hasData = false;
+    private volatile float meanLuminance = 0f;
+    private volatile float darkPercentile = 0f;    // 10th percentile
+    private volatile float medianLuminance = 0f;   // 50th percentile
+    private volatile float brightPercentile = 0f;  // 90th percentile
+    private volatile long frameCount = 0;
+
+    /**
+     * Fold one frame's Y plane into the rolling statistics.
+     * Must only be called from the analysis thread.
+     * @param yPlane Luminance plane buffer
+     * @param rowStride Bytes between the start of consecutive rows
+     * @param pixelStride Bytes between consecutive pixels in a row
+     * @param width Frame width in pixels
+     * @param height Frame height in pixels
+     */
+    public void update(ByteBuffer yPlane, int rowStride, int pixelStride, int width, int height) {
+        if (yPlane == null || width <= 0 || height <= 0) return;
+
+        // Square sampling grid with about TARGET_SAMPLES points
+        int step = (int) Math.max(1, Math.sqrt((double) width * height / TARGET_SAMPLES));
+
+        Arrays.fill(histogram, 0);
+        long sum = 0;
+        int samples = 0;
+        int limit = yPlane.limit();
+
+        for (int y = step / 2; y < height; y += step) {
+            int rowOffset = y * rowStride;
+            for (int x = step / 2; x < width; x += step) {
+                int index = rowOffset + x * pixelStride;
+                if (index >= limit) break;
+                int luma = yPlane.get(index) & 0xFF;
+                histogram[luma]++;
+                sum += luma;
+                samples++;
+            }
+        }
+
+        if (samples == 0) return;
+
+        float frameMean = (float) sum / samples;
+        float frameDark = percentile(samples, 0.10f);
+        float frameMedian = percentile(samples, 0.50f);
+        float frameBright = percentile(samples, 0.90f);
+
+        if (!hasData) {
+            meanLuminance = frameMean;
+            darkPercentile = frameDark;
+            medianLuminance = frameMedian;
+            brightPercentile = frameBright;
+            hasData = true;
+        } else {
+            meanLuminance += SMOOTHING * (frameMean - meanLuminance);
+            darkPercentile += SMOOTHING * (frameDark - darkPercentile);
+            medianLuminance += SMOOTHING * (frameMedian - medianLuminance);
+            brightPercentile += SMOOTHING * (frameBright - brightPercentile);
+        }
+        frameCount++;
+    }
+
+    private float percentile(int samples, float fraction) {
+        int target = (int) Math.ceil(samples * fraction);
+        int cumulative = 0;
+        for (int luma = 0; luma < histogram.length; luma++) {
+            cumulative += histogram[luma];
+            if (cumulative >= target) {
+                return luma;
+            }
+        }
+        return 255;
+    }
+
+    public boolean hasData() {
+        return hasData;
+    }
+
+    public float getMeanLuminance() {
+        return meanLuminance;
+    }
+
+    public float getDarkPercentile() {
+        return darkPercentile;
+    }
+
+    public float getMedianLuminance() {
+        return medianLuminance;
+    }
+
+    public float getBrightPercentile() {
+        return brightPercentile;
+    }
+
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    public void reset() {
+        hasData = false;
+        meanLuminance = 0f;
+        darkPercentile = 0f;
+        medianLuminance = 0f;
+        brightPercentile = 0f;
+        frameCount = 0;
+    }
+}
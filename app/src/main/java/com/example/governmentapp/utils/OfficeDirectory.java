@@ -0,0 +1,162 @@
+package com.example.governmentapp.utils;
+
+import android.util.Log;
+
+import com.example.governmentapp.search.PrefixIndex;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+/**
+ * Process-wide copy of the {@code locations} collection, kept current by one {@link LiveQuery}
+ * while any screen is listening, so the office pickers and the dashboard search read it from
+ * memory instead of querying Firestore each time. Offices are also held in a
+ * {@link PrefixIndex} for type-ahead search by office name and taluka, updated one document
+ * at a time as the listener reports changes. Call from the main thread.
+ */
+public class OfficeDirectory {
+    private static final String TAG = "OfficeDirectory";
+    private static final String COLLECTION = "locations";
+
+    private static OfficeDirectory instance;
+
+    public interface Listener {
+        /**
+         * Called after each snapshot, the first one included
+         */
+        void onOfficesChanged();
+
+        void onError(Exception e);
+    }
+
+    private final LiveQuery live;
+    private final Map<String, DocumentRow> byId = new HashMap<>();
+    private final PrefixIndex searchIndex = new PrefixIndex();
+    private final Set<Listener> listeners = new CopyOnWriteArraySet<>();
+    private List<DocumentRow> sorted;
+
+    private OfficeDirectory() {
+        live = new LiveQuery(FirebaseFirestore.getInstance().collection(COLLECTION));
+        live.setListener(new LiveQuery.Listener() {
+            @Override
+            public void onAdded(int index, DocumentSnapshot document) {
+                index(DocumentRow.of(document));
+            }
+
+            @Override
+            public void onModified(int oldIndex, int newIndex, DocumentSnapshot document) {
+                index(DocumentRow.of(document));
+            }
+
+            @Override
+            public void onRemoved(int index, DocumentSnapshot document) {
+                byId.remove(document.getId());
+                searchIndex.remove(document.getId());
+                sorted = null;
+            }
+
+            @Override
+            public void onSnapshot(boolean first) {
+                if (first) {
+                    Log.d(TAG, "Loaded " + byId.size() + " offices");
+                }
+                for (Listener listener : listeners) {
+                    listener.onOfficesChanged();
+                }
+            }
+
+            @Override
+            public void onError(Exception e) {
+                for (Listener listener : listeners) {
+                    listener.onError(e);
+                }
+            }
+        });
+    }
+
+    public static synchronized OfficeDirectory getInstance() {
+        if (instance == null) {
+            instance = new OfficeDirectory();
+        }
+        return instance;
+    }
+
+    /**
+     * Start listening for offices if this is the first listener, or again after an error;
+     * otherwise the listener is called at once if the offices have loaded
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+        if (!live.isListening()) {
+            // The first snapshot delivers every office again, and drops ones deleted meanwhile
+            byId.clear();
+            searchIndex.clear();
+            sorted = null;
+            live.start();
+        } else if (live.isLoaded()) {
+            listener.onOfficesChanged();
+        }
+    }
+
+    /**
+     * Stop listening once no screen is
+     */
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+        if (listeners.isEmpty()) {
+            live.stop();
+        }
+    }
+
+    public boolean isLoaded() {
+        return live.isLoaded();
+    }
+
+    public DocumentRow findById(String officeId) {
+        return officeId != null ? byId.get(officeId) : null;
+    }
+
+    /**
+     * All offices with a name, sorted by it
+     */
+    public List<DocumentRow> getOffices() {
+        if (sorted == null) {
+            List<DocumentRow> offices = new ArrayList<>();
+            for (DocumentRow office : byId.values()) {
+                if (office.getString("officeName") != null) {
+                    offices.add(office);
+                }
+            }
+            Collections.sort(offices, (a, b) -> a.getString("officeName").compareTo(b.getString("officeName")));
+            sorted = Collections.unmodifiableList(offices);
+        }
+        return sorted;
+    }
+
+    /**
+     * Offices with an office name or taluka word starting with each word typed, best first
+     */
+    public List<DocumentRow> search(String query, int limit) {
+        List<String> ids = searchIndex.search(query, limit);
+        List<DocumentRow> offices = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            DocumentRow office = byId.get(id);
+            if (office != null) offices.add(office);
+        }
+        return offices;
+    }
+
+    private void index(DocumentRow office) {
+        byId.put(office.id, office);
+        String name = office.getString("officeName");
+        searchIndex.put(office.id, name, name, office.getString("taluka"));
+        sorted = null;
+    }
+}
@@ -0,0 +1,252 @@
+package com.example.governmentapp.utils;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Typeface;
+import android.graphics.pdf.PdfDocument;
+import android.text.TextPaint;
+import android.text.TextUtils;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Renders attendance records as a printable register: landscape A4 pages, each with the
+ * report title, column headings and as many rows as fit, numbered at the foot.
+ * <p>
+ * Rows are drawn onto the current page as they stream in and the page is finished as soon as
+ * it is full, so only one page is being drawn at a time. {@link PdfDocument} still holds every
+ * finished page in memory until it is written out, so a long register is split into part
+ * files of at most {@link #PAGES_PER_PART} pages, e.g. {@code Monthly_..._part1.pdf}; page
+ * numbers run on from one part to the next. A register that fits in one part is written to
+ * {@link #getFile()} as before.
+ */
+public class PdfReportExporter extends ReportExporter {
+    private static final String TAG = "PdfReportExporter";
+    public static final String MIME_TYPE = "application/pdf";
+
+    // Landscape A4 in PostScript points
+    private static final int PAGE_WIDTH = 842;
+    private static final int PAGE_HEIGHT = 595;
+    private static final float MARGIN = 36f;
+    private static final float TITLE_HEIGHT = 40f;
+    private static final float ROW_HEIGHT = 16f;
+    private static final float FOOTER_HEIGHT = 24f;
+    private static final float CELL_PADDING = 4f;
+    // Share of the printable width for each of ReportExporter.COLUMNS
+    private static final float[] COLUMN_WEIGHTS = {70, 55, 140, 170, 150, 80, 105};
+    // About 1,350 rows; what a PdfDocument holds before it is written out
+    static final int PAGES_PER_PART = 50;
+
+    private final String title;
+    private final String generatedAt;
+    private final float[] columnX = new float[COLUMNS.length];
+    private final float[] columnWidth = new float[COLUMNS.length];
+    private final int rowsPerPage;
+
+    private final TextPaint titlePaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+    private final TextPaint headerPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+    private final TextPaint textPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint fillPaint = new Paint();
+    private final Paint linePaint = new Paint();
+
+    private PdfDocument document;
+    private PdfDocument.Page page;
+    private int pageNumber;
+    private int rowOnPage;
+    private int pagesInPart;
+    // Parts written so far, once the register needs more than one
+    private final List<File> parts = new ArrayList<>();
+
+    /**
+     * @param reportType Prefix of the file name, e.g. {@code Daily_2025-05-01}; also the title
+     */
+    public PdfReportExporter(Context context, String reportType) {
+        super(context, reportType, ".pdf");
+        this.title = reportType.replace('_', ' ') + " Attendance Register";
+        this.generatedAt = "Generated " + new SimpleDateFormat("dd MMM yyyy, HH:mm", Locale.getDefault())
+                .format(new Date());
+
+        float printableWidth = PAGE_WIDTH - 2 * MARGIN;
+        float totalWeight = 0;
+        for (float weight : COLUMN_WEIGHTS) {
+            totalWeight += weight;
+        }
+        float x = MARGIN;
+        for (int i = 0; i < COLUMNS.length; i++) {
+            columnX[i] = x;
+            columnWidth[i] = printableWidth * COLUMN_WEIGHTS[i] / totalWeight;
+            x += columnWidth[i];
+        }
+        // The column headings take one row
+        rowsPerPage = (int) ((PAGE_HEIGHT - 2 * MARGIN - TITLE_HEIGHT - FOOTER_HEIGHT) / ROW_HEIGHT) - 1;
+
+        titlePaint.setTextSize(14f);
+        titlePaint.setTypeface(Typeface.DEFAULT_BOLD);
+        titlePaint.setColor(Color.BLACK);
+        headerPaint.setTextSize(9f);
+        headerPaint.setTypeface(Typeface.DEFAULT_BOLD);
+        headerPaint.setColor(Color.BLACK);
+        textPaint.setTextSize(9f);
+        textPaint.setColor(Color.DKGRAY);
+        fillPaint.setStyle(Paint.Style.FILL);
+        linePaint.setColor(Color.LTGRAY);
+        linePaint.setStrokeWidth(0.5f);
+    }
+
+    @Override
+    public String getMimeType() {
+        return MIME_TYPE;
+    }
+
+    /**
+     * @return The report file, or its parts in order if the register was split
+     */
+    @Override
+    public List<File> getFiles() {
+        return parts.isEmpty() ? super.getFiles() : Collections.unmodifiableList(parts);
+    }
+
+    @Override
+    protected void begin(File file) {
+        document = new PdfDocument();
+        pageNumber = 0;
+        pagesInPart = 0;
+        page = null;
+        parts.clear();
+    }
+
+    @Override
+    protected void writeRow(String[] columns) throws IOException {
+        if (page == null || rowOnPage == rowsPerPage) {
+            finishPage();
+            if (pagesInPart == PAGES_PER_PART) {
+                // Write out this part and free its pages before drawing more
+                writePart(partFile(parts.size() + 1));
+                document = new PdfDocument();
+                pagesInPart = 0;
+            }
+            startPage();
+        }
+        Canvas canvas = page.getCanvas();
+        float top = MARGIN + TITLE_HEIGHT + ROW_HEIGHT * (rowOnPage + 1);
+        if (rowOnPage % 2 == 1) {
+            fillPaint.setColor(0xFFF5F7FA);
+            canvas.drawRect(MARGIN, top, PAGE_WIDTH - MARGIN, top + ROW_HEIGHT, fillPaint);
+        }
+        drawCells(canvas, columns, top, textPaint);
+        canvas.drawLine(MARGIN, top + ROW_HEIGHT, PAGE_WIDTH - MARGIN, top + ROW_HEIGHT, linePaint);
+        rowOnPage++;
+    }
+
+    @Override
+    protected void end(boolean complete) throws IOException {
+        boolean written = false;
+        try {
+            if (complete && document != null) {
+                if (page == null) {
+                    // Keep an empty report a valid document
+                    startPage();
+                }
+                Canvas canvas = page.getCanvas();
+                canvas.drawText("Total records: " + getRowsWritten(), MARGIN,
+                        PAGE_HEIGHT - MARGIN, textPaint);
+                finishPage();
+                writePart(parts.isEmpty() ? getFile() : partFile(parts.size() + 1));
+                written = true;
+            }
+        } finally {
+            if (document != null) {
+                document.close();
+                document = null;
+            }
+            page = null;
+            if (!written) {
+                // The report file itself is deleted by the caller
+                deleteParts();
+            }
+        }
+    }
+
+    // Writes the document to the file and closes it; any file but the report file is a part
+    private void writePart(File file) throws IOException {
+        if (!file.equals(getFile())) {
+            parts.add(file);
+        }
+        try (OutputStream out = new FileOutputStream(file)) {
+            document.writeTo(out);
+        } finally {
+            document.close();
+            document = null;
+        }
+    }
+
+    private File partFile(int part) {
+        return new File(getFile().getParentFile(), baseName + "_part" + part + ".pdf");
+    }
+
+    private void deleteParts() {
+        for (File part : parts) {
+            if (part.exists() && !part.delete()) {
+                Log.w(TAG, "Could not delete partial register " + part);
+            }
+        }
+        parts.clear();
+    }
+
+    private void startPage() {
+        checkCancelled();
+        pageNumber++;
+        pagesInPart++;
+        page = document.startPage(new PdfDocument.PageInfo.Builder(PAGE_WIDTH, PAGE_HEIGHT, pageNumber).create());
+        rowOnPage = 0;
+
+        Canvas canvas = page.getCanvas();
+        canvas.drawText(title, MARGIN, MARGIN + 14f, titlePaint);
+        canvas.drawText(generatedAt, MARGIN, MARGIN + 30f, textPaint);
+
+        float top = MARGIN + TITLE_HEIGHT;
+        fillPaint.setColor(0xFFE3EAF5);
+        canvas.drawRect(MARGIN, top, PAGE_WIDTH - MARGIN, top + ROW_HEIGHT, fillPaint);
+        drawCells(canvas, COLUMNS, top, headerPaint);
+
+        String footer = "Page " + pageNumber;
+        canvas.drawText(footer, PAGE_WIDTH - MARGIN - textPaint.measureText(footer),
+                PAGE_HEIGHT - MARGIN, textPaint);
+    }
+
+    private void finishPage() {
+        if (page != null) {
+            document.finishPage(page);
+            page = null;
+        }
+    }
+
+    // One row of text, cut short with an ellipsis where a value is wider than its column
+    private void drawCells(Canvas canvas, String[] values, float top, TextPaint paint) {
+        float baseline = top + ROW_HEIGHT - CELL_PADDING - 1f;
+        for (int i = 0; i < values.length; i++) {
+            String value = values[i];
+            if (value == null || value.isEmpty()) continue;
+            float available = columnWidth[i] - 2 * CELL_PADDING;
+            float x = columnX[i] + CELL_PADDING;
+            if (paint.measureText(value) <= available) {
+                canvas.drawText(value, x, baseline, paint);
+            } else {
+                CharSequence shortened = TextUtils.ellipsize(value, paint, available, TextUtils.TruncateAt.END);
+                canvas.drawText(shortened, 0, shortened.length(), x, baseline, paint);
+            }
+        }
+    }
+}
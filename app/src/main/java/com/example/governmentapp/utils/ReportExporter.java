@@ -0,0 +1,316 @@
+package com.example.governmentapp.utils;
+
+import android.content.Context;
+import android.os.Environment;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.Query;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Writes attendance records to a report file on a background thread; subclasses decide the
+ * file format.
+ * <p>
+ * Records are streamed: pages are pulled from the Firestore queries with {@code limit} and a
+ * {@code startAfter} cursor and each page is written out before the next is requested, so only
+ * one page of records is held in memory. Progress is posted to the main thread once per page,
+ * and {@link #cancel()} stops the export at the next row and deletes the partial file; the
+ * task then fails with a {@link CancellationException}.
+ */
+public abstract class ReportExporter {
+    private static final String TAG = "ReportExporter";
+
+    public static final int PAGE_SIZE = 500;
+    private static final long REQUEST_TIMEOUT_SECONDS = 60;
+
+    static final String[] COLUMNS = {"Date", "Time", "User Name", "Email", "Location", "Type", "Status"};
+
+    // One export at a time; a second one queues behind it
+    private static final Executor EXECUTOR = Executors.newSingleThreadExecutor();
+
+    public interface ProgressListener {
+        /**
+         * Called on the main thread
+         * @param rows Rows written so far
+         */
+        void onProgress(int rows);
+    }
+
+    protected final String reportType;
+    protected final String baseName;
+    private final File file;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private volatile ProgressListener progressListener;
+    private volatile boolean cancelled = false;
+    private volatile int rowsWritten = 0;
+
+    // Columns of the row being written, reused for every record
+    private final String[] columns = new String[COLUMNS.length];
+
+    /**
+     * @param reportType Prefix of the file name, e.g. {@code Daily_2025-05-01}
+     * @param extension File name extension, including the dot
+     */
+    protected ReportExporter(Context context, String reportType, String extension) {
+        String timestamp = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault()).format(new Date());
+        this.reportType = reportType;
+        this.baseName = reportType + "_report_" + timestamp;
+        this.file = new File(context.getExternalFilesDir(Environment.DIRECTORY_DOCUMENTS), baseName + extension);
+    }
+
+    public abstract String getMimeType();
+
+    /**
+     * Open the file and write anything that comes before the rows
+     */
+    protected abstract void begin(File file) throws IOException;
+
+    /**
+     * Write one row, in the order of {@link #COLUMNS}
+     */
+    protected abstract void writeRow(String[] columns) throws IOException;
+
+    /**
+     * Write anything that comes after the rows and close the file; also called, with
+     * {@code complete} false, after a failure or cancellation
+     */
+    protected abstract void end(boolean complete) throws IOException;
+
+    public ReportExporter setProgressListener(ProgressListener listener) {
+        this.progressListener = listener;
+        return this;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * @return The files a finished export wrote, to attach in this order; just
+     * {@link #getFile()} unless the format splits long reports into parts
+     */
+    public List<File> getFiles() {
+        return Collections.singletonList(file);
+    }
+
+    public int getRowsWritten() {
+        return rowsWritten;
+    }
+
+    /**
+     * Stop at the next row and delete the partial file
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Stream every document of the queries into the report, one after the other; a document
+     * returned by more than one query is written once
+     * @param queries Ordered queries, e.g. from {@link AttendanceQueries#rangeQueries}
+     * @param mapper Record to write for a document, or null to leave it out; runs on the export thread
+     */
+    public Task<File> export(Task<List<Query>> queries, FirestorePager.RowMapper<Map<String, Object>> mapper) {
+        return Tasks.call(EXECUTOR, () -> write(() -> {
+            Set<String> seenIds = new HashSet<>();
+            for (Query query : await(queries)) {
+                DocumentSnapshot cursor = null;
+                while (true) {
+                    checkCancelled();
+                    Query page = query.limit(PAGE_SIZE);
+                    if (cursor != null) {
+                        page = page.startAfter(cursor);
+                    }
+                    List<DocumentSnapshot> documents = await(page.get()).getDocuments();
+                    for (DocumentSnapshot document : documents) {
+                        if (!seenIds.add(document.getId())) continue;
+                        Map<String, Object> record = mapper.map(document);
+                        if (record != null) {
+                            writeRecord(record);
+                        }
+                    }
+                    postProgress();
+                    if (documents.size() < PAGE_SIZE) break;
+                    cursor = documents.get(documents.size() - 1);
+                }
+            }
+        }));
+    }
+
+    /**
+     * Stream records from the local mirror, without Firestore reads
+     */
+    public Task<File> export(AttendanceMirror mirror, AttendanceMirror.Selection selection) {
+        return Tasks.call(EXECUTOR, () -> write(() -> {
+            mirror.forEachRecord(selection, record -> {
+                writeRecord(record);
+                if (rowsWritten % PAGE_SIZE == 0) {
+                    postProgress();
+                }
+            });
+            postProgress();
+        }));
+    }
+
+    /**
+     * Write records that are already in memory
+     */
+    public Task<File> export(List<Map<String, Object>> records) {
+        return Tasks.call(EXECUTOR, () -> write(() -> {
+            for (Map<String, Object> record : records) {
+                writeRecord(record);
+            }
+            postProgress();
+        }));
+    }
+
+    private interface Body {
+        void run() throws Exception;
+    }
+
+    private File write(Body body) throws Exception {
+        long startTime = System.currentTimeMillis();
+        boolean complete = false;
+        try {
+            begin(file);
+            try {
+                body.run();
+            } catch (Exception | Error e) {
+                try {
+                    end(false);
+                } catch (IOException closeError) {
+                    Log.w(TAG, "Error closing partial report", closeError);
+                }
+                throw e;
+            }
+            // Only once closed, so everything buffered is on disk too
+            end(true);
+            complete = true;
+        } finally {
+            if (!complete && file.exists() && !file.delete()) {
+                Log.w(TAG, "Could not delete partial report " + file);
+            }
+        }
+        long bytes = 0;
+        for (File written : getFiles()) {
+            bytes += written.length();
+        }
+        Log.d(TAG, "Exported " + rowsWritten + " rows to " + getFiles().size() + " file(s) starting "
+                + file.getName() + " (" + bytes + " bytes) in " + (System.currentTimeMillis() - startTime) + " ms");
+        return file;
+    }
+
+    private void writeRecord(Map<String, Object> record) throws IOException {
+        checkCancelled();
+        String date = "";
+        String time = "";
+
+        long recordTime = AttendanceTimes.toMillis(record);
+        Object timestampObj = record.get(AttendanceWriter.FIELD_TIMESTAMP);
+        if (recordTime != AttendanceTimes.UNKNOWN) {
+            date = AttendanceTimes.formatDate(recordTime);
+            time = AttendanceTimes.formatTime(recordTime);
+        } else if (timestampObj instanceof String) {
+            // Keep the stored text rather than dropping the record's time
+            String timestampStr = (String) timestampObj;
+            Log.w(TAG, "Could not parse date: " + timestampStr);
+            int at = timestampStr.indexOf(" at ");
+            if (at >= 0) {
+                date = timestampStr.substring(0, at).trim();
+                time = timestampStr.substring(at + 4).trim();
+            }
+        }
+
+        String userName = stringValue(record.get("userName"));
+        String userEmail = stringValue(record.get("userEmail"));
+        // If we have email but no name, use the part before @ as name
+        if (userName.isEmpty() && !userEmail.isEmpty()) {
+            int at = userEmail.indexOf('@');
+            userName = at >= 0 ? userEmail.substring(0, at) : userEmail;
+        }
+
+        columns[0] = date;
+        columns[1] = time;
+        columns[2] = userName;
+        columns[3] = userEmail;
+        columns[4] = locationName(record);
+        columns[5] = record.get("type") != null ? record.get("type").toString() : "Check-in";
+        columns[6] = record.get("status") != null ? record.get("status").toString() : "Completed";
+        writeRow(columns);
+        rowsWritten++;
+    }
+
+    // Location information under any of the field names records have used
+    private static String locationName(Map<String, Object> record) {
+        if (record.get("locationName") != null) {
+            return record.get("locationName").toString();
+        }
+        Object location = record.get("location");
+        if (location instanceof Map) {
+            Object name = ((Map<?, ?>) location).get("name");
+            if (name == null) {
+                name = ((Map<?, ?>) location).get("locationName");
+            }
+            if (name != null) {
+                return name.toString();
+            }
+        } else if (location != null) {
+            return location.toString();
+        }
+        if (record.get("officeName") != null) {
+            return record.get("officeName").toString();
+        }
+        return "Unknown Location";
+    }
+
+    private static String stringValue(Object value) {
+        return value != null ? value.toString() : "";
+    }
+
+    protected void checkCancelled() {
+        if (cancelled) {
+            throw new CancellationException("Report export cancelled");
+        }
+    }
+
+    private void postProgress() {
+        ProgressListener listener = progressListener;
+        if (listener == null) return;
+        int rows = rowsWritten;
+        mainHandler.post(() -> {
+            if (!cancelled) {
+                listener.onProgress(rows);
+            }
+        });
+    }
+
+    private static <T> T await(Task<T> task)
+            throws ExecutionException, InterruptedException, TimeoutException {
+        return Tasks.await(task, REQUEST_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+}
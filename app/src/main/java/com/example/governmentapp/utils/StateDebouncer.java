@@ -0,0 +1,51 @@
+package com.example.governmentapp.utils;
+
+/**
+ * Debounces a boolean signal such as "a face is visible" so the UI only changes on real
+ * transitions, not on every frame or on a single dropped detection.
+ * Not thread-safe; feed it from one thread.
+ */
+public class StateDebouncer {
+    private final long holdMs;
+    private boolean stableState;
+    private boolean pendingState;
+    private long pendingSinceMs = -1;
+
+    /**
+     * @param holdMs How long a new value must persist before it becomes the stable state
+     * @param initialState Starting stable state
+     */
+    public StateDebouncer(long holdMs, boolean initialState) {
+        this.holdMs = holdMs;
+        this.stableState = initialState;
+        this.pendingState = initialState;
+    }
+
+    /**
+     * Feed the latest observed value
+     * @return true if the stable state changed with this update
+     */
+    public boolean update(boolean value, long nowMs) {
+        if (value == stableState) {
+            pendingState = value;
+            pendingSinceMs = -1;
+            return false;
+        }
+
+        if (value != pendingState || pendingSinceMs < 0) {
+            pendingState = value;
+            pendingSinceMs = nowMs;
+        }
+
+        if (nowMs - pendingSinceMs >= holdMs) {
+            stableState = value;
+            pendingSinceMs = -1;
+            return true;
+        }
+        return false;
+    }
+
+    public boolean getState() {
+        return stableState;
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.governmentapp.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.TaskCompletionSource;
+
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Timeouts and latency budgets for Play services {@link Task}s, which have no built-in timeout.
+ */
+public class TaskTimeouts {
+    private static final Handler handler = new Handler(Looper.getMainLooper());
+
+    /**
+     * Mirror a task, failing with a {@link TimeoutException} if it has not completed in time.
+     * The underlying task keeps running; its late result is ignored.
+     * @param task Task to watch
+     * @param timeoutMs Maximum time to wait
+     * @param stageName Name used in the timeout message
+     */
+    public static <T> Task<T> withTimeout(Task<T> task, long timeoutMs, String stageName) {
+        TaskCompletionSource<T> source = new TaskCompletionSource<>();
+        Runnable timeout = () -> source.trySetException(
+                new TimeoutException(stageName + " timed out after " + timeoutMs + " ms"));
+        handler.postDelayed(timeout, Math.max(0, timeoutMs));
+
+        task.addOnCompleteListener(completed -> {
+            handler.removeCallbacks(timeout);
+            if (completed.isSuccessful()) {
+                source.trySetResult(completed.getResult());
+            } else if (completed.getException() != null) {
+                source.trySetException(completed.getException());
+            } else {
+                source.trySetException(new IllegalStateException(stageName + " was cancelled"));
+            }
+        });
+        return source.getTask();
+    }
+
+    /**
+     * Total latency budget shared by the stages of a pipeline
+     */
+    public static class Budget {
+        private final long startTime;
+        private final long deadline;
+
+        public Budget(long totalMs) {
+            startTime = SystemClock.elapsedRealtime();
+            deadline = startTime + totalMs;
+        }
+
+        public long remainingMs() {
+            return Math.max(0, deadline - SystemClock.elapsedRealtime());
+        }
+
+        public long elapsedMs() {
+            return SystemClock.elapsedRealtime() - startTime;
+        }
+
+        /**
+         * Apply a stage timeout, capped by what is left of the budget
+         */
+        public <T> Task<T> limit(Task<T> task, long stageTimeoutMs, String stageName) {
+            return withTimeout(task, Math.min(stageTimeoutMs, remainingMs()), stageName);
+        }
+    }
+}
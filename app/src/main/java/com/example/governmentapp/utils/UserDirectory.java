@@ -0,0 +1,434 @@
+package com.example.governmentapp.utils;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.security.crypto.EncryptedFile;
+import androidx.security.crypto.MasterKey;
+
+import com.example.governmentapp.search.PrefixIndex;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Process-wide copy of the {@code users} collection for joining names onto attendance records
+ * and listing users, indexed by UID, email and sevarthId.
+ * <p>
+ * The directory is kept in an encrypted file between runs. {@link #refresh()} brings it up to
+ * date with a query for users whose {@code updatedAt} is after the newest one already held, so
+ * opening a report again reads only the users changed since; screens that write users stamp
+ * {@code updatedAt} and update the directory directly. A full read replaces it on first use and
+ * once a day, which also drops users deleted on other devices and picks up users written before
+ * {@code updatedAt} existed.
+ * <p>
+ * Users are also held in a {@link PrefixIndex}, kept up to date with the maps, for type-ahead
+ * search by name, Sevarth ID, email address and taluka.
+ */
+public class UserDirectory {
+    private static final String TAG = "UserDirectory";
+    private static final String COLLECTION = "users";
+    private static final String SNAPSHOT_FILE = "user_directory.json";
+
+    public static final String FIELD_UPDATED_AT = "updatedAt";
+
+    // A refresh this soon after the last one is served from memory
+    private static final long MIN_SYNC_INTERVAL_MS = 30_000L;
+    private static final long FULL_SYNC_INTERVAL_MS = 24 * 60 * 60 * 1000L;
+
+    private static UserDirectory instance;
+
+    private final Context context;
+    private final FirebaseFirestore db;
+    // All file access happens on this thread
+    private final Executor executor = Executors.newSingleThreadExecutor();
+    private MasterKey masterKey;
+
+    private final Map<String, User> byId = new ConcurrentHashMap<>();
+    private final Map<String, User> byEmail = new ConcurrentHashMap<>();
+    private final Map<String, User> bySevarthId = new ConcurrentHashMap<>();
+    // Guarded by itself; updated from the main thread and the file thread
+    private final PrefixIndex searchIndex = new PrefixIndex();
+    private volatile long watermark = 0;
+    private volatile long lastFullSyncAt = 0;
+    private volatile long lastSyncAt = 0;
+
+    private Task<Void> loaded;
+    private Task<UserDirectory> refreshing;
+
+    /**
+     * One user. {@code fields} holds the document's string, number, boolean and list fields.
+     */
+    public static class User {
+        public final String id;
+        public final String name;
+        public final String email;
+        public final String sevarthId;
+        public final Map<String, Object> fields;
+
+        User(String id, Map<String, Object> fields) {
+            this.id = id;
+            this.fields = Collections.unmodifiableMap(fields);
+            this.name = stringField(fields, "name");
+            this.email = stringField(fields, "email");
+            this.sevarthId = stringField(fields, "sevarthId");
+        }
+    }
+
+    private UserDirectory(Context context) {
+        this.context = context.getApplicationContext();
+        this.db = FirebaseFirestore.getInstance();
+    }
+
+    public static synchronized UserDirectory getInstance(Context context) {
+        if (instance == null) {
+            instance = new UserDirectory(context);
+        }
+        return instance;
+    }
+
+    /**
+     * Load the saved directory if needed and sync it with Firestore. Calls made while a refresh
+     * is running share it. If Firestore cannot be reached the task still succeeds with the
+     * directory as it was. Call from the main thread.
+     */
+    public synchronized Task<UserDirectory> refresh() {
+        if (refreshing != null && !refreshing.isComplete()) {
+            return refreshing;
+        }
+        if (loaded == null) {
+            loaded = Tasks.call(executor, () -> {
+                readSnapshot();
+                return null;
+            });
+        }
+        refreshing = loaded.continueWithTask(task -> sync());
+        return refreshing;
+    }
+
+    public User findById(String userId) {
+        return userId != null ? byId.get(userId) : null;
+    }
+
+    public User findByEmail(String email) {
+        return email != null ? byEmail.get(email.trim().toLowerCase(Locale.US)) : null;
+    }
+
+    /**
+     * Sevarth IDs are matched ignoring case, as at login
+     */
+    public User findBySevarthId(String sevarthId) {
+        return sevarthId != null ? bySevarthId.get(sevarthId.trim().toUpperCase(Locale.US)) : null;
+    }
+
+    /**
+     * Name of the user with this email, or null if unknown or unnamed
+     */
+    public String getName(String email) {
+        User user = findByEmail(email);
+        return user != null && user.name != null && !user.name.trim().isEmpty() ? user.name : null;
+    }
+
+    /**
+     * All users, sorted by name
+     */
+    public List<User> getUsers() {
+        List<User> users = new ArrayList<>(byId.values());
+        Collections.sort(users, (a, b) -> {
+            if (a.name == null) return b.name == null ? 0 : 1;
+            if (b.name == null) return -1;
+            return a.name.compareTo(b.name);
+        });
+        return users;
+    }
+
+    /**
+     * Users with a name, Sevarth ID, email address or taluka word starting with each word
+     * typed, best first. Answered from memory, so it can run on every keystroke.
+     */
+    public List<User> search(String query, int limit) {
+        List<String> ids;
+        synchronized (searchIndex) {
+            ids = searchIndex.search(query, limit);
+        }
+        List<User> users = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            User user = byId.get(id);
+            if (user != null) users.add(user);
+        }
+        return users;
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    /**
+     * Record a user written on this device. Fields merge into any the directory already holds,
+     * so the map passed to a Firestore {@code update} can be used as is.
+     */
+    public void put(String userId, Map<String, Object> fields) {
+        User existing = byId.get(userId);
+        Map<String, Object> merged = existing != null ? new HashMap<>(existing.fields) : new HashMap<>();
+        merged.putAll(storableFields(fields));
+        index(new User(userId, merged));
+        saveSnapshot();
+    }
+
+    /**
+     * Record a user deleted on this device
+     */
+    public void remove(String userId) {
+        User user = byId.get(userId);
+        if (user != null) {
+            unindex(user);
+            saveSnapshot();
+        }
+    }
+
+    private Task<UserDirectory> sync() {
+        long now = System.currentTimeMillis();
+        if (now - lastSyncAt < MIN_SYNC_INTERVAL_MS) {
+            return Tasks.forResult(this);
+        }
+        boolean full = byId.isEmpty() || now - lastFullSyncAt > FULL_SYNC_INTERVAL_MS;
+        Query query = db.collection(COLLECTION);
+        if (!full) {
+            query = query.whereGreaterThan(FIELD_UPDATED_AT, new Timestamp(watermark / 1000,
+                    (int) (watermark % 1000) * 1_000_000))
+                    .orderBy(FIELD_UPDATED_AT);
+        }
+        long startTime = System.currentTimeMillis();
+        return query.get().continueWith(task -> {
+            if (!task.isSuccessful()) {
+                Log.e(TAG, "Error syncing users, keeping " + byId.size() + " cached", task.getException());
+                return this;
+            }
+            List<DocumentSnapshot> documents = task.getResult().getDocuments();
+            if (full) {
+                clearIndexes();
+                lastFullSyncAt = now;
+            }
+            for (DocumentSnapshot document : documents) {
+                Map<String, Object> data = document.getData();
+                if (data == null) continue;
+                index(new User(document.getId(), storableFields(data)));
+                Timestamp updatedAt = document.getTimestamp(FIELD_UPDATED_AT);
+                if (updatedAt != null) {
+                    watermark = Math.max(watermark, updatedAt.toDate().getTime());
+                }
+            }
+            lastSyncAt = now;
+            Log.d(TAG, (full ? "Full" : "Incremental") + " sync read " + documents.size() + " users in "
+                    + (System.currentTimeMillis() - startTime) + " ms, " + byId.size() + " cached");
+            if (full || !documents.isEmpty()) {
+                saveSnapshot();
+                prepareSearch();
+            }
+            return this;
+        });
+    }
+
+    private void index(User user) {
+        User previous = byId.put(user.id, user);
+        if (previous != null) {
+            unindexKeys(previous);
+        }
+        if (user.email != null) byEmail.put(user.email.trim().toLowerCase(Locale.US), user);
+        if (user.sevarthId != null) bySevarthId.put(user.sevarthId.trim().toUpperCase(Locale.US), user);
+        // Only the part of the email before the domain, which most users share
+        String emailName = user.email;
+        if (emailName != null && emailName.indexOf('@') >= 0) {
+            emailName = emailName.substring(0, emailName.indexOf('@'));
+        }
+        synchronized (searchIndex) {
+            searchIndex.put(user.id, user.name, user.name, user.sevarthId, emailName,
+                    stringField(user.fields, "taluka"));
+        }
+    }
+
+    private void unindex(User user) {
+        byId.remove(user.id);
+        unindexKeys(user);
+        synchronized (searchIndex) {
+            searchIndex.remove(user.id);
+        }
+    }
+
+    private void clearIndexes() {
+        byId.clear();
+        byEmail.clear();
+        bySevarthId.clear();
+        synchronized (searchIndex) {
+            searchIndex.clear();
+        }
+    }
+
+    // Sort the search index after a batch of changes here rather than on the next keystroke
+    private void prepareSearch() {
+        executor.execute(() -> {
+            synchronized (searchIndex) {
+                searchIndex.prepare();
+            }
+        });
+    }
+
+    private void unindexKeys(User user) {
+        if (user.email != null) byEmail.remove(user.email.trim().toLowerCase(Locale.US), user);
+        if (user.sevarthId != null) bySevarthId.remove(user.sevarthId.trim().toUpperCase(Locale.US), user);
+    }
+
+    // Only values that survive a round trip through JSON; sentinels and Timestamps are left out
+    private static Map<String, Object> storableFields(Map<String, Object> data) {
+        Map<String, Object> fields = new HashMap<>();
+        for (Map.Entry<String, Object> field : data.entrySet()) {
+            Object value = field.getValue();
+            if (value instanceof String || value instanceof Number || value instanceof Boolean) {
+                fields.put(field.getKey(), value);
+            } else if (value instanceof List) {
+                List<Object> list = new ArrayList<>();
+                for (Object item : (List<?>) value) {
+                    if (item instanceof String || item instanceof Number || item instanceof Boolean) {
+                        list.add(item);
+                    }
+                }
+                fields.put(field.getKey(), list);
+            }
+        }
+        return fields;
+    }
+
+    private static String stringField(Map<String, Object> fields, String key) {
+        Object value = fields.get(key);
+        return value instanceof String ? (String) value : null;
+    }
+
+    private void saveSnapshot() {
+        List<User> users = new ArrayList<>(byId.values());
+        long savedWatermark = watermark;
+        long savedFullSyncAt = lastFullSyncAt;
+        executor.execute(() -> {
+            try {
+                writeSnapshot(users, savedWatermark, savedFullSyncAt);
+            } catch (GeneralSecurityException | IOException | JSONException e) {
+                Log.e(TAG, "Error saving user directory: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    private void writeSnapshot(List<User> users, long savedWatermark, long savedFullSyncAt)
+            throws GeneralSecurityException, IOException, JSONException {
+        JSONArray array = new JSONArray();
+        for (User user : users) {
+            JSONObject fields = new JSONObject();
+            for (Map.Entry<String, Object> field : user.fields.entrySet()) {
+                Object value = field.getValue();
+                fields.put(field.getKey(), value instanceof List ? new JSONArray((List<?>) value) : value);
+            }
+            JSONObject entry = new JSONObject();
+            entry.put("id", user.id);
+            entry.put("fields", fields);
+            array.put(entry);
+        }
+        JSONObject snapshot = new JSONObject();
+        snapshot.put("watermark", savedWatermark);
+        snapshot.put("lastFullSyncAt", savedFullSyncAt);
+        snapshot.put("users", array);
+
+        // EncryptedFile refuses to overwrite an existing file
+        File file = new File(context.getFilesDir(), SNAPSHOT_FILE);
+        if (file.exists() && !file.delete()) {
+            throw new IOException("Could not replace " + file);
+        }
+        try (OutputStream out = getEncryptedFile(file).openFileOutput()) {
+            out.write(snapshot.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        Log.d(TAG, "Saved " + users.size() + " users");
+    }
+
+    private void readSnapshot() {
+        File file = new File(context.getFilesDir(), SNAPSHOT_FILE);
+        if (!file.exists()) return;
+        try (InputStream in = getEncryptedFile(file).openFileInput()) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            byte[] chunk = new byte[4096];
+            int read;
+            while ((read = in.read(chunk)) != -1) {
+                buffer.write(chunk, 0, read);
+            }
+
+            JSONObject snapshot = new JSONObject(new String(buffer.toByteArray(), StandardCharsets.UTF_8));
+            JSONArray users = snapshot.getJSONArray("users");
+            for (int i = 0; i < users.length(); i++) {
+                JSONObject entry = users.getJSONObject(i);
+                JSONObject json = entry.getJSONObject("fields");
+                Map<String, Object> fields = new HashMap<>();
+                Iterator<String> keys = json.keys();
+                while (keys.hasNext()) {
+                    String key = keys.next();
+                    Object value = json.get(key);
+                    if (value instanceof JSONArray) {
+                        JSONArray array = (JSONArray) value;
+                        List<Object> list = new ArrayList<>();
+                        for (int j = 0; j < array.length(); j++) {
+                            list.add(array.get(j));
+                        }
+                        fields.put(key, list);
+                    } else if (value != JSONObject.NULL) {
+                        fields.put(key, value);
+                    }
+                }
+                index(new User(entry.getString("id"), fields));
+            }
+            watermark = snapshot.getLong("watermark");
+            lastFullSyncAt = snapshot.getLong("lastFullSyncAt");
+            Log.d(TAG, "Loaded " + byId.size() + " users from disk");
+            prepareSearch();
+        } catch (GeneralSecurityException | IOException | JSONException e) {
+            // Unreadable snapshot (e.g. keystore reset); the next sync reads everything again
+            Log.e(TAG, "Error reading user directory: " + e.getMessage(), e);
+            clearIndexes();
+            file.delete();
+        }
+    }
+
+    private EncryptedFile getEncryptedFile(File file) throws GeneralSecurityException, IOException {
+        if (masterKey == null) {
+            masterKey = new MasterKey.Builder(context)
+                    .setKeyScheme(MasterKey.KeyScheme.AES256_GCM)
+                    .build();
+        }
+        return new EncryptedFile.Builder(
+                context,
+                file,
+                masterKey,
+                EncryptedFile.FileEncryptionScheme.AES256_GCM_HKDF_4KB
+        ).build();
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.governmentapp.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the pacing of {@link AnalysisGovernor} on a simulated clock: at most the configured
+ * FPS, one detection in flight, and the detector busy at most half the time.
+ */
+public class AnalysisGovernorTest {
+    // System.nanoTime() is some way past zero
+    private static final long START = 5_000_000_000L;
+    private static final long MS = 1_000_000L;
+
+    @Test
+    public void oneFrameInFlight() {
+        AnalysisGovernor governor = new AnalysisGovernor(15f);
+        assertTrue(governor.tryBeginFrame(START));
+        assertFalse(governor.tryBeginFrame(START + 100 * MS));
+        assertFalse(governor.tryBeginFrame(START + 200 * MS));
+        assertEquals(2, governor.getSkippedFrames());
+
+        governor.onFrameProcessed(START, START + 250 * MS);
+        assertTrue(governor.tryBeginFrame(START + 600 * MS));
+    }
+
+    @Test
+    public void fastDetectorIsCappedByMaxFps() {
+        AnalysisGovernor governor = new AnalysisGovernor(15f);
+        assertEquals(1000f / 15f, governor.getTargetIntervalMs(), 0.001f);
+
+        assertTrue(governor.tryBeginFrame(START));
+        governor.onFrameProcessed(START, START + 10 * MS);
+        assertFalse(governor.tryBeginFrame(START + 33 * MS));
+        assertFalse(governor.tryBeginFrame(START + 66 * MS));
+        assertTrue(governor.tryBeginFrame(START + 67 * MS));
+
+        // Stepping the level down lowers the rate at once
+        governor.onFrameProcessed(START + 67 * MS, START + 77 * MS);
+        governor.setMaxFps(4f);
+        assertEquals(4f, governor.getMaxFps(), 0f);
+        assertFalse(governor.tryBeginFrame(START + 300 * MS));
+        assertTrue(governor.tryBeginFrame(START + 317 * MS));
+    }
+
+    @Test
+    public void slowDetectorIsKeptAtHalfDuty() {
+        AnalysisGovernor governor = new AnalysisGovernor(15f);
+        assertTrue(governor.tryBeginFrame(START));
+        governor.onFrameProcessed(START, START + 200 * MS);
+        assertEquals(200f, governor.getAverageLatencyMs(), 0.001f);
+        assertEquals(400f, governor.getTargetIntervalMs(), 0.001f);
+        assertFalse(governor.tryBeginFrame(START + 399 * MS));
+        assertTrue(governor.tryBeginFrame(START + 400 * MS));
+
+        // Latency is smoothed: 200 + 0.2 * (100 - 200)
+        governor.onFrameProcessed(START + 400 * MS, START + 500 * MS);
+        assertEquals(180f, governor.getAverageLatencyMs(), 0.001f);
+        assertEquals(360f, governor.getTargetIntervalMs(), 0.001f);
+
+        // Without an FPS cap only the latency paces frames
+        governor.setMaxFps(0f);
+        assertEquals(360f, governor.getTargetIntervalMs(), 0.001f);
+    }
+
+    @Test
+    public void paceOverManyFrames() {
+        // Camera frames every 33 ms, detection taking 40 ms: every third frame, about 10 FPS
+        AnalysisGovernor governor = new AnalysisGovernor(15f);
+        int analyzed = 0;
+        long busyUntil = 0;
+        long begun = -1;
+        for (int frame = 0; frame < 300; frame++) {
+            long now = START + frame * 33 * MS;
+            if (begun >= 0 && now >= busyUntil) {
+                governor.onFrameProcessed(begun, busyUntil);
+                begun = -1;
+            }
+            if (governor.tryBeginFrame(now)) {
+                assertEquals(-1, begun);
+                begun = now;
+                busyUntil = now + 40 * MS;
+                analyzed++;
+            }
+        }
+        assertEquals(100, analyzed);
+        assertEquals(200, governor.getSkippedFrames());
+        assertEquals(40f, governor.getAverageLatencyMs(), 0.001f);
+        assertEquals(1000f / 99f, governor.getEffectiveFps(), 0.5f);
+    }
+}
@@ -0,0 +1,270 @@
+package com.example.governmentapp.utils;
+
+import com.example.governmentapp.time.AttendanceTimeParser;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the single-pass rollups of {@link AttendanceAggregator} against a separate,
+ * straightforward fold per rollup over the same events, with Calendar for the local days
+ * and hours.
+ */
+public class AttendanceAggregatorTest {
+    private static final int EVENT_COUNT = 300_000;
+    private static final int LATE_AFTER_MINUTES = 10 * 60;
+
+    private static final String[] LOCATIONS = {"Pune Office", "Nashik Office", "Satara Office", null};
+    private static final String[] TYPES = {"CHECK_IN", "CHECK_OUT", "check in", "check out", null, ""};
+
+    // 2025-03-01 00:00 UTC, and 40 days after
+    private static final long FROM = 1_740_787_200_000L;
+    private static final long SPAN = 40L * 86_400_000L;
+
+    /**
+     * One attendance event
+     */
+    private static class Event {
+        final String location;
+        final String user;
+        final String userName;
+        final String type;
+        final long time;
+
+        Event(String location, String user, String userName, String type, long time) {
+            this.location = location;
+            this.user = user;
+            this.userName = userName;
+            this.type = type;
+            this.time = time;
+        }
+    }
+
+    @Test
+    public void matchesNaiveFoldInIndia() {
+        checkAgainstNaiveFold(TimeZone.getTimeZone("Asia/Kolkata"), 1);
+    }
+
+    @Test
+    public void matchesNaiveFoldAcrossDaylightSaving() {
+        // The span covers the 2025-03-09 transition
+        checkAgainstNaiveFold(TimeZone.getTimeZone("America/New_York"), 2);
+    }
+
+    @Test
+    public void keepsFirstCheckInAndLastCheckOut() {
+        AttendanceTimeParser parser = new AttendanceTimeParser(TimeZone.getTimeZone("Asia/Kolkata"));
+        AttendanceAggregator aggregator = new AttendanceAggregator(parser);
+        long day = parser.parse("2025-05-13");
+        long nine = day + 9 * 3_600_000L;
+        long eleven = day + 11 * 3_600_000L;
+        long five = day + 17 * 3_600_000L;
+        long seven = day + 19 * 3_600_000L;
+
+        aggregator.add("Pune Office", "a@example.com", null, "CHECK_IN", eleven);
+        aggregator.add("Pune Office", "a@example.com", "Asha", "CHECK_IN", nine);
+        aggregator.add("Pune Office", "a@example.com", "Other", "CHECK_OUT", five);
+        aggregator.add("Pune Office", "a@example.com", null, "CHECK_OUT", seven);
+        // A duplicate counts again but changes neither time
+        aggregator.add("Pune Office", "a@example.com", null, "CHECK_IN", eleven);
+        aggregator.add(null, "b@example.com", "Bala", "CHECK_IN", eleven);
+        aggregator.add(null, null, null, null, AttendanceTimeParser.INVALID);
+
+        assertEquals(7, aggregator.getTotal());
+        assertEquals(2, aggregator.getCheckOuts());
+        assertEquals(5, aggregator.getCheckIns());
+        assertEquals(1, aggregator.getUndated());
+        assertEquals(2, aggregator.getUniqueUsers());
+        assertEquals("Asha", aggregator.getUserName("a@example.com"));
+        assertEquals(Integer.valueOf(2), aggregator.getLocationCounts().get("Unknown Location"));
+
+        List<AttendanceAggregator.UserDay> days = aggregator.getUserDays();
+        assertEquals(2, days.size());
+        assertEquals(nine, days.get(0).firstIn);
+        assertEquals(seven, days.get(0).lastOut);
+        assertEquals(AttendanceTimeParser.INVALID, days.get(1).lastOut);
+
+        List<AttendanceAggregator.UserDay> late = aggregator.getLatecomers(5, LATE_AFTER_MINUTES);
+        assertEquals(1, late.size());
+        assertEquals("b@example.com", late.get(0).user);
+        assertTrue(aggregator.getLatecomers(0, LATE_AFTER_MINUTES).isEmpty());
+    }
+
+    private static void checkAgainstNaiveFold(TimeZone zone, long seed) {
+        AttendanceTimeParser parser = new AttendanceTimeParser(zone);
+        List<Event> events = randomEvents(new Random(seed));
+        AttendanceAggregator aggregator = new AttendanceAggregator(parser);
+        for (Event event : events) {
+            aggregator.add(event.location, event.user, event.userName, event.type, event.time);
+        }
+
+        // Totals
+        int checkOuts = 0;
+        int undated = 0;
+        for (Event event : events) {
+            if (event.type != null && event.type.toLowerCase(Locale.US).contains("out")) checkOuts++;
+            if (event.time == AttendanceTimeParser.INVALID) undated++;
+        }
+        assertEquals(events.size(), aggregator.getTotal());
+        assertEquals(checkOuts, aggregator.getCheckOuts());
+        assertEquals(events.size() - checkOuts, aggregator.getCheckIns());
+        assertEquals(undated, aggregator.getUndated());
+
+        // Counts by location, user and type, in first-seen order
+        Map<String, Integer> locationCounts = new LinkedHashMap<>();
+        for (Event event : events) {
+            String location = event.location != null ? event.location : "Unknown Location";
+            locationCounts.put(location, locationCounts.getOrDefault(location, 0) + 1);
+        }
+        assertEquals(new ArrayList<>(locationCounts.entrySet()), new ArrayList<>(aggregator.getLocationCounts().entrySet()));
+
+        Map<String, Integer> userCounts = new LinkedHashMap<>();
+        for (Event event : events) {
+            if (event.user != null) userCounts.put(event.user, userCounts.getOrDefault(event.user, 0) + 1);
+        }
+        assertEquals(new ArrayList<>(userCounts.entrySet()), new ArrayList<>(aggregator.getUserCounts().entrySet()));
+        assertEquals(userCounts.size(), aggregator.getUniqueUsers());
+
+        Map<String, Integer> typeCounts = new LinkedHashMap<>();
+        for (Event event : events) {
+            String type = event.type != null ? event.type : "";
+            typeCounts.put(type, typeCounts.getOrDefault(type, 0) + 1);
+        }
+        assertEquals(new ArrayList<>(typeCounts.entrySet()), new ArrayList<>(aggregator.getTypeCounts().entrySet()));
+
+        // First non-blank name of each user
+        for (String user : userCounts.keySet()) {
+            String name = null;
+            for (Event event : events) {
+                if (user.equals(event.user) && event.userName != null && !event.userName.trim().isEmpty()) {
+                    name = event.userName;
+                    break;
+                }
+            }
+            assertEquals(user, name, aggregator.getUserName(user));
+        }
+
+        // Counts by local hour and day
+        Calendar calendar = Calendar.getInstance(zone, Locale.US);
+        int[] hourCounts = new int[24];
+        Map<Long, Integer> dayCounts = new LinkedHashMap<>();
+        for (Event event : events) {
+            if (event.time == AttendanceTimeParser.INVALID) continue;
+            calendar.setTimeInMillis(event.time);
+            hourCounts[calendar.get(Calendar.HOUR_OF_DAY)]++;
+            long day = epochDay(calendar);
+            dayCounts.put(day, dayCounts.getOrDefault(day, 0) + 1);
+        }
+        assertArrayEquals(hourCounts, aggregator.getHourCounts());
+        for (Map.Entry<Long, Integer> day : dayCounts.entrySet()) {
+            assertEquals((int) day.getValue(), aggregator.getDayCount(day.getKey()));
+        }
+        for (long from : dayCounts.keySet()) {
+            int count = 0;
+            for (Map.Entry<Long, Integer> day : dayCounts.entrySet()) {
+                if (day.getKey() >= from) count += day.getValue();
+            }
+            assertEquals(count, aggregator.countFromDay(from));
+        }
+
+        // First check-in and last check-out per user and day, in first-seen order
+        Map<String, long[]> userDays = new LinkedHashMap<>();
+        for (Event event : events) {
+            if (event.user == null || event.time == AttendanceTimeParser.INVALID) continue;
+            calendar.setTimeInMillis(event.time);
+            String key = event.user + "|" + epochDay(calendar);
+            long[] times = userDays.get(key);
+            if (times == null) {
+                times = new long[]{AttendanceTimeParser.INVALID, AttendanceTimeParser.INVALID};
+                userDays.put(key, times);
+            }
+            boolean checkOut = event.type != null && event.type.toLowerCase(Locale.US).contains("out");
+            if (checkOut) {
+                if (times[1] == AttendanceTimeParser.INVALID || event.time > times[1]) times[1] = event.time;
+            } else if (times[0] == AttendanceTimeParser.INVALID || event.time < times[0]) {
+                times[0] = event.time;
+            }
+        }
+        List<AttendanceAggregator.UserDay> actualDays = aggregator.getUserDays();
+        assertEquals(userDays.size(), actualDays.size());
+        int i = 0;
+        List<String> keys = new ArrayList<>(userDays.keySet());
+        for (Map.Entry<String, long[]> day : userDays.entrySet()) {
+            AttendanceAggregator.UserDay actual = actualDays.get(i++);
+            assertEquals(day.getKey(), actual.user + "|" + actual.epochDay);
+            assertEquals(day.getKey(), day.getValue()[0], actual.firstIn);
+            assertEquals(day.getKey(), day.getValue()[1], actual.lastOut);
+        }
+
+        // Latest first check-ins after the cut-off: sort every late user-day, latest first,
+        // and among equally late ones the last seen first
+        List<Integer> late = new ArrayList<>();
+        List<long[]> days = new ArrayList<>(userDays.values());
+        long[] minutesLate = new long[days.size()];
+        for (int d = 0; d < days.size(); d++) {
+            long firstIn = days.get(d)[0];
+            if (firstIn == AttendanceTimeParser.INVALID) continue;
+            calendar.setTimeInMillis(firstIn);
+            calendar.set(Calendar.HOUR_OF_DAY, 0);
+            calendar.set(Calendar.MINUTE, 0);
+            calendar.set(Calendar.SECOND, 0);
+            calendar.set(Calendar.MILLISECOND, 0);
+            long minute = (firstIn - calendar.getTimeInMillis()) / 60_000L;
+            if (minute > LATE_AFTER_MINUTES) {
+                minutesLate[d] = minute - LATE_AFTER_MINUTES;
+                late.add(d);
+            }
+        }
+        late.sort((a, b) -> minutesLate[a] != minutesLate[b]
+                ? Long.compare(minutesLate[b], minutesLate[a]) : Integer.compare(b, a));
+        for (int limit : new int[]{1, 5, 50, late.size() + 10}) {
+            List<AttendanceAggregator.UserDay> latecomers = aggregator.getLatecomers(limit, LATE_AFTER_MINUTES);
+            assertEquals(Math.min(limit, late.size()), latecomers.size());
+            for (int l = 0; l < latecomers.size(); l++) {
+                AttendanceAggregator.UserDay actual = latecomers.get(l);
+                assertEquals("limit " + limit + " rank " + l, keys.get(late.get(l)), actual.user + "|" + actual.epochDay);
+            }
+        }
+    }
+
+    // Users check in and out on most days, some several times, some events repeated exactly,
+    // and some missing their user, location, type or time
+    private static List<Event> randomEvents(Random random) {
+        List<Event> events = new ArrayList<>(EVENT_COUNT);
+        while (events.size() < EVENT_COUNT) {
+            if (!events.isEmpty() && random.nextInt(20) == 0) {
+                events.add(events.get(random.nextInt(events.size())));
+                continue;
+            }
+            int user = random.nextInt(2_000);
+            String userKey = random.nextInt(50) == 0 ? null : "user" + user + "@example.com";
+            String userName = random.nextInt(3) == 0 ? null : random.nextInt(10) == 0 ? " " : "User " + user;
+            String location = LOCATIONS[random.nextInt(LOCATIONS.length)];
+            String type = TYPES[random.nextInt(TYPES.length)];
+            long time = random.nextInt(40) == 0 ? AttendanceTimeParser.INVALID
+                    : FROM + (long) (random.nextDouble() * SPAN) / 1000 * 1000;
+            events.add(new Event(location, userKey, userName, type, time));
+        }
+        return events;
+    }
+
+    private static long epochDay(Calendar calendar) {
+        Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"), Locale.US);
+        utc.clear();
+        utc.set(calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH), calendar.get(Calendar.DAY_OF_MONTH));
+        return Math.floorDiv(utc.getTimeInMillis(), 86_400_000L);
+    }
+}
@@ -0,0 +1,201 @@
+package com.example.governmentapp.utils;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks the {@link AttendanceQueue} journal on plain files: which write under an ID is kept,
+ * that a replacement queued during an upload survives it, and that a failed write leaves
+ * the queued entry alone.
+ */
+public class AttendanceQueueTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final PlainStorage storage = new PlainStorage();
+    private AttendanceQueue queue;
+
+    @Before
+    public void setUp() {
+        queue = new AttendanceQueue(new File(folder.getRoot(), "journal"), storage);
+    }
+
+    @Test
+    public void firstCheckInAndLastCheckOutStayQueued() throws Exception {
+        assertTrue(queue.replaceEntry(write("check in", at(9, 0), 1)));
+        assertFalse(queue.replaceEntry(write("check in", at(9, 30), 2)));
+        assertEquals(at(9, 0), onlyWrite("check in").fields.get(AttendanceWriter.FIELD_TIMESTAMP));
+        assertTrue(queue.replaceEntry(write("check in", at(8, 45), 3)));
+        assertEquals(at(8, 45), onlyWrite("check in").fields.get(AttendanceWriter.FIELD_TIMESTAMP));
+
+        // The day's check-out is queued next to the check-in, not over it
+        assertTrue(queue.replaceEntry(write("check out", at(17, 0), 4)));
+        assertEquals(2, queue.getPendingCount());
+        assertFalse(queue.replaceEntry(write("check out", at(16, 30), 5)));
+        assertTrue(queue.replaceEntry(write("check out", at(18, 0), 6)));
+        assertEquals(at(18, 0), onlyWrite("check out").fields.get(AttendanceWriter.FIELD_TIMESTAMP));
+        assertEquals(2, queue.getPendingCount());
+    }
+
+    @Test
+    public void otherCollectionsAreReplaced() throws Exception {
+        Map<String, Object> first = new HashMap<>();
+        first.put("name", "first");
+        Map<String, Object> second = new HashMap<>();
+        second.put("name", "second");
+        assertTrue(queue.replaceEntry(new AttendanceQueue.PendingWrite("u1", "users", 1, first)));
+        assertTrue(queue.replaceEntry(new AttendanceQueue.PendingWrite("u1", "users", 2, second)));
+
+        List<AttendanceQueue.PendingWrite> pending = queue.peek(10);
+        assertEquals(1, pending.size());
+        assertEquals("second", pending.get(0).fields.get("name"));
+        assertEquals("users", pending.get(0).collection);
+    }
+
+    @Test
+    public void uploadedWritesAreRemoved() throws Exception {
+        queue.replaceEntry(write("check in", at(9, 0), 1));
+        queue.replaceEntry(write("check out", at(17, 0), 2));
+        List<AttendanceQueue.PendingWrite> batch = queue.peek(10);
+        assertEquals(2, batch.size());
+
+        queue.remove(batch);
+        assertEquals(0, queue.getPendingCount());
+        assertTrue(queue.peek(10).isEmpty());
+        // Removing again, e.g. after a retried upload, is harmless
+        queue.remove(batch);
+    }
+
+    @Test
+    public void replacementQueuedDuringAnUploadIsKept() throws Exception {
+        queue.replaceEntry(write("check out", at(17, 0), 100));
+        List<AttendanceQueue.PendingWrite> batch = queue.peek(10);
+
+        // A later check-out arrives while the batch is uploading, within the same millisecond
+        assertTrue(queue.replaceEntry(write("check out", at(18, 0), 100)));
+        queue.remove(batch);
+        assertEquals(1, queue.getPendingCount());
+        AttendanceQueue.PendingWrite kept = onlyWrite("check out");
+        assertEquals(at(18, 0), kept.fields.get(AttendanceWriter.FIELD_TIMESTAMP));
+
+        // The next run uploads and removes it
+        queue.remove(queue.peek(10));
+        assertEquals(0, queue.getPendingCount());
+    }
+
+    @Test
+    public void writeThatIsKeptOutLeavesTheUploadAlone() throws Exception {
+        queue.replaceEntry(write("check in", at(9, 0), 1));
+        List<AttendanceQueue.PendingWrite> batch = queue.peek(10);
+        assertFalse(queue.replaceEntry(write("check in", at(9, 30), 2)));
+        queue.remove(batch);
+        assertEquals(0, queue.getPendingCount());
+    }
+
+    @Test
+    public void failedWriteKeepsTheQueuedEntry() throws Exception {
+        queue.replaceEntry(write("check in", at(9, 0), 1));
+
+        storage.failWrites = true;
+        try {
+            queue.replaceEntry(write("check in", at(8, 30), 2));
+            fail("The write should have failed");
+        } catch (IOException expected) {
+            // Disk full
+        }
+        assertEquals(1, queue.getPendingCount());
+        assertEquals(at(9, 0), onlyWrite("check in").fields.get(AttendanceWriter.FIELD_TIMESTAMP));
+
+        // The half-written entry is not picked up and does not block the next write
+        storage.failWrites = false;
+        assertTrue(queue.replaceEntry(write("check in", at(8, 30), 3)));
+        assertEquals(1, queue.getPendingCount());
+        assertEquals(at(8, 30), onlyWrite("check in").fields.get(AttendanceWriter.FIELD_TIMESTAMP));
+    }
+
+    @Test
+    public void fieldsSurviveTheJournal() throws Exception {
+        queue.replaceEntry(write("check out", at(17, 5), 7));
+        AttendanceQueue.PendingWrite queued = onlyWrite("check out");
+        assertEquals(AttendanceWriter.documentId("uid1", at(17, 5), "check out"), queued.documentId);
+        assertEquals(AttendanceWriter.COLLECTION, queued.collection);
+        assertEquals(7, queued.queuedAt);
+        assertEquals(AttendanceWriter.TYPE_CHECK_OUT, queued.fields.get(AttendanceWriter.FIELD_TYPE));
+        assertEquals("Office 1", queued.fields.get(AttendanceWriter.FIELD_LOCATION_NAME));
+        assertEquals(true, queued.fields.get(AttendanceWriter.FIELD_VERIFIED));
+        assertTrue(queued.fields.containsKey(AttendanceWriter.FIELD_SERVER_TIMESTAMP));
+    }
+
+    private AttendanceQueue.PendingWrite onlyWrite(String type) {
+        String documentId = AttendanceWriter.documentId("uid1", at(12, 0), type);
+        for (AttendanceQueue.PendingWrite write : queue.peek(10)) {
+            if (write.documentId.equals(documentId)) return write;
+        }
+        throw new AssertionError("Nothing queued under " + documentId);
+    }
+
+    private static AttendanceQueue.PendingWrite write(String type, Date time, long queuedAt) {
+        AttendanceWriter.Record record = new AttendanceWriter.Record();
+        record.userId = "uid1";
+        record.locationName = "Office 1";
+        record.type = type;
+        record.time = time;
+        record.verified = true;
+        return new AttendanceQueue.PendingWrite(AttendanceWriter.documentId(record.userId, time, type),
+                AttendanceWriter.COLLECTION, queuedAt, AttendanceWriter.toFields(record));
+    }
+
+    // 2025-05-13 at the given local time
+    private static Date at(int hour, int minute) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(2025, Calendar.MAY, 13, hour, minute);
+        return calendar.getTime();
+    }
+
+    private static class PlainStorage implements AttendanceQueue.Storage {
+        boolean failWrites;
+
+        @Override
+        public InputStream openInput(File file) throws IOException {
+            return new FileInputStream(file);
+        }
+
+        @Override
+        public OutputStream openOutput(File file) throws IOException {
+            if (file.exists()) {
+                throw new IOException(file + " exists");
+            }
+            OutputStream out = new FileOutputStream(file);
+            if (!failWrites) return out;
+            return new FilterOutputStream(out) {
+                @Override
+                public void write(byte[] bytes, int offset, int length) throws IOException {
+                    // Part of the entry reaches the disk, then the write fails
+                    out.write(bytes, offset, Math.min(length, 10));
+                    throw new IOException("No space left on device");
+                }
+            };
+        }
+    }
+}
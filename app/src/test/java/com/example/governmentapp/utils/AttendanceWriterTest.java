@@ -0,0 +1,118 @@
+package com.example.governmentapp.utils;
+
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the IDs and the first-in/last-out rule of {@link AttendanceWriter} with the types
+ * AttendanceActivity launches the face screen with ("check in", "check out").
+ */
+public class AttendanceWriterTest {
+    private static final String CHECK_IN = "check in";
+    private static final String CHECK_OUT = "check out";
+
+    @Test
+    public void launcherTypesAreNormalized() {
+        assertEquals(AttendanceWriter.TYPE_CHECK_IN, AttendanceWriter.normalizeType(CHECK_IN));
+        assertEquals(AttendanceWriter.TYPE_CHECK_OUT, AttendanceWriter.normalizeType(CHECK_OUT));
+        assertEquals(AttendanceWriter.TYPE_CHECK_OUT, AttendanceWriter.normalizeType("Check-out"));
+        assertEquals(AttendanceWriter.TYPE_CHECK_OUT, AttendanceWriter.normalizeType("CHECK_OUT"));
+        assertEquals(AttendanceWriter.TYPE_CHECK_IN, AttendanceWriter.normalizeType("CHECK_IN"));
+        assertEquals(AttendanceWriter.TYPE_CHECK_IN, AttendanceWriter.normalizeType("checkin"));
+        assertEquals(AttendanceWriter.TYPE_CHECK_IN, AttendanceWriter.normalizeType(null));
+
+        assertEquals(AttendanceWriter.TYPE_CHECK_OUT, fields(CHECK_OUT, at(17, 30)).get(AttendanceWriter.FIELD_TYPE));
+        assertEquals(AttendanceWriter.TYPE_CHECK_IN, fields(CHECK_IN, at(9, 30)).get(AttendanceWriter.FIELD_TYPE));
+    }
+
+    @Test
+    public void checkInAndCheckOutHaveTheirOwnDocuments() {
+        Date morning = at(9, 30);
+        Date evening = at(17, 30);
+        String checkIn = AttendanceWriter.documentId("uid1", morning, CHECK_IN);
+        String checkOut = AttendanceWriter.documentId("uid1", evening, CHECK_OUT);
+        assertEquals("uid1_2025-05-13_check_in", checkIn);
+        assertEquals("uid1_2025-05-13_check_out", checkOut);
+        assertNotEquals(checkIn, checkOut);
+
+        // However the type was spelled, the day has one document per type
+        assertEquals(checkOut, AttendanceWriter.documentId("uid1", morning, "CHECK_OUT"));
+        assertEquals(checkOut, AttendanceWriter.documentId("uid1", evening, "Check-out"));
+        assertEquals(checkIn, AttendanceWriter.documentId("uid1", evening, AttendanceWriter.TYPE_CHECK_IN));
+        assertNotEquals(checkIn, AttendanceWriter.documentId("uid2", morning, CHECK_IN));
+    }
+
+    @Test
+    public void isCheckOutReadsEveryStoredSpelling() {
+        assertTrue(AttendanceWriter.isCheckOut(fields(CHECK_OUT, at(17, 0))));
+        assertFalse(AttendanceWriter.isCheckOut(fields(CHECK_IN, at(9, 0))));
+        assertTrue(AttendanceWriter.isCheckOut(typed("check out")));
+        assertTrue(AttendanceWriter.isCheckOut(typed("Check-out")));
+        assertFalse(AttendanceWriter.isCheckOut(typed("check in")));
+        assertFalse(AttendanceWriter.isCheckOut(typed(null)));
+    }
+
+    @Test
+    public void firstCheckInAndLastCheckOutWin() {
+        String collection = AttendanceWriter.COLLECTION;
+        Map<String, Object> checkIn = fields(CHECK_IN, at(9, 0));
+        assertTrue(AttendanceWriter.supersedes(collection, checkIn, fields(CHECK_IN, at(8, 50))));
+        assertFalse(AttendanceWriter.supersedes(collection, checkIn, fields(CHECK_IN, at(9, 30))));
+        // A retry of the same write
+        assertTrue(AttendanceWriter.supersedes(collection, checkIn, fields(CHECK_IN, at(9, 0))));
+
+        Map<String, Object> checkOut = fields(CHECK_OUT, at(17, 0));
+        assertTrue(AttendanceWriter.supersedes(collection, checkOut, fields(CHECK_OUT, at(18, 15))));
+        assertFalse(AttendanceWriter.supersedes(collection, checkOut, fields(CHECK_OUT, at(16, 45))));
+        assertTrue(AttendanceWriter.supersedes(collection, checkOut, fields(CHECK_OUT, at(17, 0))));
+
+        assertTrue(AttendanceWriter.supersedes(collection, null, fields(CHECK_OUT, at(17, 0))));
+        assertTrue(AttendanceWriter.supersedes("user_attendance", checkIn, fields(CHECK_IN, at(9, 30))));
+    }
+
+    @Test
+    public void unknownTimesNeverBeatAKnownOne() {
+        String collection = AttendanceWriter.COLLECTION;
+        Map<String, Object> unknown = typed(CHECK_IN);
+        Map<String, Object> known = fields(CHECK_IN, at(9, 0));
+        assertTrue(AttendanceWriter.supersedes(collection, unknown, known));
+        assertFalse(AttendanceWriter.supersedes(collection, known, unknown));
+
+        // Legacy date and time strings count as known
+        Map<String, Object> legacy = typed(CHECK_IN);
+        legacy.put(AttendanceWriter.FIELD_DATE, "2025-05-13");
+        legacy.put(AttendanceWriter.FIELD_TIME, "08:45:00");
+        assertFalse(AttendanceWriter.supersedes(collection, legacy, known));
+    }
+
+    private static Map<String, Object> fields(String type, Date time) {
+        AttendanceWriter.Record record = new AttendanceWriter.Record();
+        record.userId = "uid1";
+        record.type = type;
+        record.time = time;
+        return AttendanceWriter.toFields(record);
+    }
+
+    private static Map<String, Object> typed(String type) {
+        Map<String, Object> fields = new HashMap<>();
+        fields.put(AttendanceWriter.FIELD_TYPE, type);
+        return fields;
+    }
+
+    // 2025-05-13 at the given local time
+    private static Date at(int hour, int minute) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(2025, Calendar.MAY, 13, hour, minute);
+        return calendar.getTime();
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.governmentapp.utils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks {@link BestFrameSelector} against keeping every offered frame and sorting them,
+ * with the buffer size, quality bar and frame count the face screen uses.
+ */
+public class BestFrameSelectorTest {
+    private static final int CAPACITY = 3;
+    private static final float QUALITY_BAR = 0.70f;
+    private static final int MIN_FRAMES = 3;
+
+    @Test
+    public void keepsTheBestFramesSeen() {
+        Random random = new Random(4);
+        for (int run = 0; run < 2_000; run++) {
+            BestFrameSelector<Integer> selector = new BestFrameSelector<>(CAPACITY, QUALITY_BAR, MIN_FRAMES);
+            List<Float> accepted = new ArrayList<>();
+            int qualifying = 0;
+            int frames = 1 + random.nextInt(40);
+            for (int frame = 0; frame < frames; frame++) {
+                // Scorer output: 0 for unusable frames, some repeated scores
+                float score = random.nextInt(4) == 0 ? 0f : Math.round(random.nextFloat() * 20) / 20f;
+
+                Collections.sort(accepted, Collections.reverseOrder());
+                boolean expected = score > 0
+                        && (accepted.size() < CAPACITY || score > accepted.get(CAPACITY - 1));
+                assertEquals("run " + run + " frame " + frame, expected, selector.wouldAccept(score));
+
+                selector.offer(score, frame);
+                if (expected) {
+                    accepted.add(score);
+                    if (score >= QUALITY_BAR) qualifying++;
+                }
+            }
+
+            Collections.sort(accepted, Collections.reverseOrder());
+            float best = accepted.isEmpty() ? 0f : accepted.get(0);
+            assertEquals(best, selector.getBestScore(), 0f);
+            assertEquals(best >= QUALITY_BAR && qualifying >= MIN_FRAMES, selector.isReady());
+        }
+    }
+
+    @Test
+    public void bestIsTheFirstFrameWithTheTopScore() {
+        BestFrameSelector<String> selector = new BestFrameSelector<>(CAPACITY, QUALITY_BAR, MIN_FRAMES);
+        assertNull(selector.getBest());
+        assertEquals(0f, selector.getBestScore(), 0f);
+
+        selector.offer(0.5f, "a");
+        selector.offer(0.9f, "b");
+        selector.offer(0.9f, "c");
+        selector.offer(0.7f, "d");
+        assertEquals("b", selector.getBest());
+        assertEquals(0.9f, selector.getBestScore(), 0f);
+
+        // Full with 0.9, 0.9, 0.7: only better frames get in
+        assertFalse(selector.wouldAccept(0.7f));
+        assertTrue(selector.wouldAccept(0.8f));
+        selector.offer(0.95f, "e");
+        assertEquals("e", selector.getBest());
+    }
+
+    @Test
+    public void readyOnlyAfterEnoughGoodFrames() {
+        BestFrameSelector<String> selector = new BestFrameSelector<>(CAPACITY, QUALITY_BAR, MIN_FRAMES);
+        selector.offer(0.9f, "a");
+        selector.offer(0.6f, "b");
+        selector.offer(0.65f, "c");
+        assertFalse(selector.isReady());
+
+        // Frames below the bar never count, unusable ones are not taken at all
+        selector.offer(0.69f, "d");
+        selector.offer(0f, "e");
+        assertFalse(selector.wouldAccept(0f));
+        assertFalse(selector.wouldAccept(-1f));
+        selector.offer(0.75f, "f");
+        assertFalse(selector.isReady());
+        selector.offer(0.70f, "g");
+        assertTrue(selector.isReady());
+        assertEquals("a", selector.getBest());
+
+        selector.clear();
+        assertFalse(selector.isReady());
+        assertNull(selector.getBest());
+        selector.offer(0.9f, "h");
+        assertEquals("h", selector.getBest());
+        assertFalse(selector.isReady());
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.governmentapp.utils;
+
+import android.os.PowerManager;
+
+import com.example.governmentapp.utils.DevicePerformancePolicy.Level;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks how {@link DevicePerformancePolicy} picks the camera pipeline level: straight down
+ * when conditions get worse, back up one level per 30 seconds that better conditions hold.
+ */
+public class DevicePerformancePolicyTest {
+    private static final long HOLD_MS = 30_000;
+
+    @Test
+    public void targetFromThermalStatusAndBatterySaver() {
+        assertEquals(Level.NORMAL, DevicePerformancePolicy.targetLevel(PowerManager.THERMAL_STATUS_NONE, false));
+        assertEquals(Level.NORMAL, DevicePerformancePolicy.targetLevel(PowerManager.THERMAL_STATUS_LIGHT, false));
+        assertEquals(Level.REDUCED, DevicePerformancePolicy.targetLevel(PowerManager.THERMAL_STATUS_NONE, true));
+        assertEquals(Level.REDUCED, DevicePerformancePolicy.targetLevel(PowerManager.THERMAL_STATUS_LIGHT, true));
+        assertEquals(Level.REDUCED, DevicePerformancePolicy.targetLevel(PowerManager.THERMAL_STATUS_MODERATE, false));
+        assertEquals(Level.REDUCED, DevicePerformancePolicy.targetLevel(PowerManager.THERMAL_STATUS_MODERATE, true));
+        assertEquals(Level.MINIMAL, DevicePerformancePolicy.targetLevel(PowerManager.THERMAL_STATUS_SEVERE, false));
+        assertEquals(Level.MINIMAL, DevicePerformancePolicy.targetLevel(PowerManager.THERMAL_STATUS_CRITICAL, true));
+        assertEquals(Level.MINIMAL, DevicePerformancePolicy.targetLevel(PowerManager.THERMAL_STATUS_EMERGENCY, false));
+        assertEquals(Level.MINIMAL, DevicePerformancePolicy.targetLevel(PowerManager.THERMAL_STATUS_SHUTDOWN, false));
+    }
+
+    @Test
+    public void worseConditionsDropAtOnce() {
+        DevicePerformancePolicy.Stepper stepper = new DevicePerformancePolicy.Stepper();
+        assertEquals(Level.NORMAL, stepper.getLevel());
+        assertEquals(Level.REDUCED, stepper.update(Level.REDUCED, 0));
+        assertEquals(Level.MINIMAL, stepper.update(Level.MINIMAL, 5));
+        assertEquals(-1, stepper.getStepUpDelayMs(5));
+    }
+
+    @Test
+    public void holdCountsFromWhenConditionsImproved() {
+        DevicePerformancePolicy.Stepper stepper = new DevicePerformancePolicy.Stepper();
+        stepper.update(Level.REDUCED, 0);
+
+        // Long after the last change, the first good reading still has to hold
+        assertEquals(Level.REDUCED, stepper.update(Level.NORMAL, 100_000));
+        assertEquals(HOLD_MS, stepper.getStepUpDelayMs(100_000));
+        assertEquals(Level.REDUCED, stepper.update(Level.NORMAL, 100_000 + HOLD_MS - 1));
+        assertEquals(1, stepper.getStepUpDelayMs(100_000 + HOLD_MS - 1));
+        assertEquals(Level.NORMAL, stepper.update(Level.NORMAL, 100_000 + HOLD_MS));
+        assertEquals(-1, stepper.getStepUpDelayMs(100_000 + HOLD_MS));
+    }
+
+    @Test
+    public void relapseRestartsTheHold() {
+        DevicePerformancePolicy.Stepper stepper = new DevicePerformancePolicy.Stepper();
+        stepper.update(Level.REDUCED, 0);
+        stepper.update(Level.NORMAL, 10_000);
+        // Back at the boundary before the hold is over
+        assertEquals(Level.REDUCED, stepper.update(Level.REDUCED, 30_000));
+        assertEquals(-1, stepper.getStepUpDelayMs(30_000));
+        assertEquals(Level.REDUCED, stepper.update(Level.NORMAL, 35_000));
+        assertEquals(Level.REDUCED, stepper.update(Level.NORMAL, 40_000));
+        assertEquals(Level.REDUCED, stepper.update(Level.NORMAL, 35_000 + HOLD_MS - 1));
+        assertEquals(Level.NORMAL, stepper.update(Level.NORMAL, 35_000 + HOLD_MS));
+    }
+
+    @Test
+    public void stepsUpOneLevelPerHold() {
+        DevicePerformancePolicy.Stepper stepper = new DevicePerformancePolicy.Stepper();
+        stepper.update(Level.MINIMAL, 0);
+        assertEquals(Level.MINIMAL, stepper.update(Level.NORMAL, 1_000));
+        assertEquals(Level.REDUCED, stepper.update(Level.NORMAL, 1_000 + HOLD_MS));
+        assertEquals(HOLD_MS, stepper.getStepUpDelayMs(1_000 + HOLD_MS));
+        assertEquals(Level.REDUCED, stepper.update(Level.NORMAL, 1_000 + 2 * HOLD_MS - 1));
+        assertEquals(Level.NORMAL, stepper.update(Level.NORMAL, 1_000 + 2 * HOLD_MS));
+
+        // Improving only part of the way stops there
+        stepper.update(Level.MINIMAL, 200_000);
+        stepper.update(Level.REDUCED, 200_000);
+        assertEquals(Level.REDUCED, stepper.update(Level.REDUCED, 200_000 + HOLD_MS));
+        assertEquals(-1, stepper.getStepUpDelayMs(200_000 + HOLD_MS));
+        assertEquals(Level.REDUCED, stepper.update(Level.REDUCED, 200_000 + 10 * HOLD_MS));
+    }
+
+    @Test
+    public void unchangedConditionsKeepTheLevel() {
+        for (Level level : Level.values()) {
+            DevicePerformancePolicy.Stepper stepper = new DevicePerformancePolicy.Stepper();
+            stepper.update(level, 0);
+            assertEquals(level, stepper.update(level, 10 * HOLD_MS));
+            assertEquals(-1, stepper.getStepUpDelayMs(10 * HOLD_MS));
+        }
+    }
+
+    @Test
+    public void levelsGetCheaper() {
+        Level[] levels = Level.values();
+        for (int i = 1; i < levels.length; i++) {
+            assertTrue(levels[i].maxAnalysisFps < levels[i - 1].maxAnalysisFps);
+            assertTrue(levels[i].lowPowerDetector || !levels[i - 1].lowPowerDetector);
+        }
+        assertTrue(Level.MINIMAL.analysisWidth * Level.MINIMAL.analysisHeight
+                < Level.NORMAL.analysisWidth * Level.NORMAL.analysisHeight);
+        assertFalse(Level.NORMAL.lowPowerDetector);
+        assertTrue(Level.MINIMAL.lowPowerDetector);
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.governmentapp.utils;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks {@link FrameQualityScorer} with the limits the face screen uses: faces of at least
+ * 120 pixels and 15-85% of the frame, heads turned at most 35 degrees, eyes open above 0.35.
+ */
+public class FrameQualityScorerTest {
+    private static final float DELTA = 1e-5f;
+    private static final float NO_EYES = Float.NaN;
+
+    private final FrameQualityScorer scorer = new FrameQualityScorer(120, 0.15f, 0.85f, 35.0f, 0.35f);
+
+    @Test
+    public void framesVerificationWouldRejectScoreZero() {
+        // Too few pixels, too small or too large a share of the frame
+        assertEquals(0f, scorer.score(119, 200, 640, 480, 0, 0, 1, 1, 1), 0f);
+        assertEquals(0f, scorer.score(200, 119, 640, 480, 0, 0, 1, 1, 1), 0f);
+        assertEquals(0f, scorer.score(150, 150, 1280, 960, 0, 0, 1, 1, 1), 0f);
+        assertEquals(0f, scorer.score(560, 300, 640, 480, 0, 0, 1, 1, 1), 0f);
+        assertEquals(0f, scorer.score(300, 420, 640, 480, 0, 0, 1, 1, 1), 0f);
+
+        // Head turned too far either way
+        assertEquals(0f, scorer.score(224, 224, 640, 480, 35.5f, 0, 1, 1, 1), 0f);
+        assertEquals(0f, scorer.score(224, 224, 640, 480, 0, -36, 1, 1, 1), 0f);
+
+        // Both eyes closed
+        assertEquals(0f, scorer.score(224, 224, 640, 480, 0, 0, 0.2f, 0.34f, 1), 0f);
+
+        // No frame size
+        assertEquals(0f, scorer.score(224, 224, 0, 480, 0, 0, 1, 1, 1), 0f);
+        assertEquals(0f, scorer.score(224, 224, 640, -1, 0, 0, 1, 1, 1), 0f);
+    }
+
+    @Test
+    public void weighsSizePoseEyesAndSharpness() {
+        // Ideal size, straight, eyes open, sharp
+        assertEquals(1f, scorer.score(224, 224, 640, 480, 0, 0, 1, 1, 1), DELTA);
+
+        // Size (0.25 - 0.15) / (0.35 - 0.15) = 0.5, pose 1 - 14 / 35 = 0.6, eyes min(0.9, 0.3)
+        float expected = 0.25f * 0.5f + 0.30f * 0.6f + 0.20f * 0.3f + 0.25f * 0.4f;
+        assertEquals(expected, scorer.score(160, 160, 640, 480, 7, -14, 0.9f, 0.3f, 0.4f), DELTA);
+
+        // Size saturates past the ideal proportion; exactly at the limits still counts
+        assertEquals(1f, scorer.score(400, 400, 640, 480, 0, 0, 1, 1, 1), DELTA);
+        assertEquals(0.25f * 0f + 0.30f + 0.20f + 0.25f, scorer.score(120, 120, 800, 600, 0, 0, 1, 1, 1), DELTA);
+        assertEquals(0.25f + 0.30f * 0f + 0.20f + 0.25f, scorer.score(224, 224, 640, 480, 35, 0, 1, 1, 1), DELTA);
+    }
+
+    @Test
+    public void unknownEyesAreNeutralAndSharpnessIsClamped() {
+        float base = 0.25f + 0.30f;
+        assertEquals(base + 0.20f * 0.5f + 0.25f, scorer.score(224, 224, 640, 480, 0, 0, NO_EYES, NO_EYES, 1), DELTA);
+        assertEquals(base + 0.20f * 0.5f + 0.25f, scorer.score(224, 224, 640, 480, 0, 0, 0.1f, NO_EYES, 1), DELTA);
+        assertEquals(base + 0.20f, scorer.score(224, 224, 640, 480, 0, 0, 1, 1, -0.5f), DELTA);
+        assertEquals(base + 0.20f + 0.25f, scorer.score(224, 224, 640, 480, 0, 0, 1, 1, 3f), DELTA);
+    }
+
+    @Test
+    public void sharpnessFromLuminanceGradients() {
+        int width = 64;
+        int height = 64;
+
+        // Flat grey
+        ByteBuffer flat = plane(width, height, width, 1, (x, y) -> 128);
+        assertEquals(0f, FrameQualityScorer.sharpness(flat, width, 1, 0, 0, width, height), 0f);
+
+        // A ramp of 2 per pixel: mean squared gradient 4 against 400 at saturation
+        ByteBuffer ramp = plane(width, height, width, 1, (x, y) -> 2 * x);
+        assertEquals(0.01f, FrameQualityScorer.sharpness(ramp, width, 1, 0, 0, width, height), DELTA);
+        ByteBuffer diagonal = plane(width, height, width, 1, (x, y) -> x + y);
+        assertEquals(0.005f, FrameQualityScorer.sharpness(diagonal, width, 1, 0, 0, width, height), DELTA);
+
+        // Pixel-sized checks saturate
+        ByteBuffer checks = plane(width, height, width, 1, (x, y) -> (x + y) % 2 == 0 ? 0 : 255);
+        assertEquals(1f, FrameQualityScorer.sharpness(checks, width, 1, 0, 0, width, height), 0f);
+
+        // Only the region counts
+        ByteBuffer half = plane(width, height, width, 1, (x, y) -> x < 32 ? 128 : (x + y) % 2 == 0 ? 0 : 255);
+        assertEquals(0f, FrameQualityScorer.sharpness(half, width, 1, 0, 0, 31, height), 0f);
+        assertEquals(1f, FrameQualityScorer.sharpness(half, width, 1, 32, 0, width, height), 0f);
+    }
+
+    @Test
+    public void sharpnessFollowsStrides() {
+        // Interleaved chroma and row padding read the same luminance values
+        int width = 96;
+        int height = 80;
+        Pixel pixel = (x, y) -> (x * 7 + y * 3) % 40;
+        ByteBuffer packed = plane(width, height, width, 1, pixel);
+        ByteBuffer strided = plane(width, height, 2 * width + 16, 2, pixel);
+        float expected = FrameQualityScorer.sharpness(packed, width, 1, 8, 4, 88, 76);
+        assertEquals(expected, FrameQualityScorer.sharpness(strided, 2 * width + 16, 2, 8, 4, 88, 76), 0f);
+    }
+
+    @Test
+    public void tooSmallOrMissingPlanesHaveNoSharpness() {
+        ByteBuffer checks = plane(16, 16, 16, 1, (x, y) -> (x + y) % 2 == 0 ? 0 : 255);
+        assertEquals(0f, FrameQualityScorer.sharpness(null, 16, 1, 0, 0, 16, 16), 0f);
+        assertEquals(0f, FrameQualityScorer.sharpness(checks, 16, 1, 0, 0, 3, 16), 0f);
+        assertEquals(0f, FrameQualityScorer.sharpness(checks, 16, 1, 0, 0, 16, 3), 0f);
+
+        // A region past the end of the buffer is skipped rather than read
+        assertEquals(0f, FrameQualityScorer.sharpness(checks, 16, 1, 0, 20, 16, 40), 0f);
+    }
+
+    private interface Pixel {
+        int value(int x, int y);
+    }
+
+    private static ByteBuffer plane(int width, int height, int rowStride, int pixelStride, Pixel pixel) {
+        ByteBuffer buffer = ByteBuffer.allocate(rowStride * height);
+        for (int i = 0; i < buffer.capacity(); i++) {
+            // Whatever sits between pixels must be ignored
+            buffer.put(i, (byte) 0xA5);
+        }
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                buffer.put(y * rowStride + x * pixelStride, (byte) pixel.value(x, y));
+            }
+        }
+        return buffer;
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.governmentapp.utils;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks {@link StateDebouncer} with the face screen's 300 ms hold.
+ */
+public class StateDebouncerTest {
+    private static final long HOLD_MS = 300;
+
+    @Test
+    public void changesOnlyAfterTheHold() {
+        StateDebouncer debouncer = new StateDebouncer(HOLD_MS, false);
+        assertFalse(debouncer.update(true, 1_000));
+        assertFalse(debouncer.update(true, 1_299));
+        assertFalse(debouncer.getState());
+        assertTrue(debouncer.update(true, 1_300));
+        assertTrue(debouncer.getState());
+
+        // Reported once, not on every later frame
+        assertFalse(debouncer.update(true, 1_400));
+        assertFalse(debouncer.update(true, 5_000));
+
+        assertFalse(debouncer.update(false, 5_100));
+        assertTrue(debouncer.update(false, 5_400));
+        assertFalse(debouncer.getState());
+    }
+
+    @Test
+    public void singleDroppedDetectionsAreIgnored() {
+        StateDebouncer debouncer = new StateDebouncer(HOLD_MS, true);
+        long now = 0;
+        for (int frame = 0; frame < 100; frame++) {
+            now += 33;
+            // Every fifth frame misses the face
+            assertFalse(debouncer.update(frame % 5 != 4, now));
+            assertTrue(debouncer.getState());
+        }
+
+        // A flicker restarts the hold
+        StateDebouncer presence = new StateDebouncer(HOLD_MS, false);
+        presence.update(true, 0);
+        presence.update(false, 250);
+        assertFalse(presence.update(true, 300));
+        assertFalse(presence.update(true, 599));
+        assertTrue(presence.update(true, 600));
+    }
+
+    @Test
+    public void matchesHoldingEachValue() {
+        Random random = new Random(8);
+        for (int run = 0; run < 500; run++) {
+            StateDebouncer debouncer = new StateDebouncer(HOLD_MS, false);
+            boolean stable = false;
+            boolean last = false;
+            long since = 0;
+            long now = 0;
+            for (int frame = 0; frame < 200; frame++) {
+                now += 1 + random.nextInt(120);
+                boolean value = random.nextInt(3) != 0 ? last : !last;
+                if (frame == 0 || value != last) {
+                    since = now;
+                }
+                last = value;
+
+                // The value has been seen unchanged for the whole hold
+                boolean changed = value != stable && now - since >= HOLD_MS;
+                if (changed) {
+                    stable = value;
+                }
+                assertEquals("run " + run + " frame " + frame, changed, debouncer.update(value, now));
+                assertEquals(stable, debouncer.getState());
+            }
+        }
+    }
+
+    @Test
+    public void zeroHoldFollowsEveryChange() {
+        StateDebouncer debouncer = new StateDebouncer(0, false);
+        assertTrue(debouncer.update(true, 10));
+        assertFalse(debouncer.update(true, 10));
+        assertTrue(debouncer.update(false, 11));
+    }
+}
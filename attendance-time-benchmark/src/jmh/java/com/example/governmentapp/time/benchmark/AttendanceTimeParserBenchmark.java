@@ -0,0 +1,112 @@
+package com.example.governmentapp.time.benchmark;
+
+import com.example.governmentapp.time.AttendanceTimeParser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+
+/**
+ * Cost per record of turning 100k legacy timestamp strings into a time of day, as the report
+ * screens do for every row. The baseline is what the screens did before: strip the zone,
+ * build a SimpleDateFormat to parse and another to format, per record.
+ * Records are spread over a month in India Standard Time, like a monthly user report.
+ */
+@State(Scope.Thread)
+public class AttendanceTimeParserBenchmark {
+    private static final int RECORD_COUNT = 100_000;
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+
+    // Days the records are spread over
+    @Param({"30"})
+    public int days;
+
+    private final TimeZone zone = TimeZone.getTimeZone("Asia/Kolkata");
+    private AttendanceTimeParser parser;
+    private String[] timestamps;
+    private String[] dates;
+    private String[] times;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        TimeZone.setDefault(zone);
+        parser = new AttendanceTimeParser(zone);
+
+        Random random = new Random(42);
+        SimpleDateFormat legacy = new SimpleDateFormat("MMM dd, yyyy 'at' hh:mm:ssa", Locale.US);
+        SimpleDateFormat date = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
+        SimpleDateFormat time = new SimpleDateFormat("HH:mm:ss", Locale.US);
+        legacy.setTimeZone(zone);
+        date.setTimeZone(zone);
+        time.setTimeZone(zone);
+
+        long start = 1_746_057_600_000L; // 2025-05-01
+        timestamps = new String[RECORD_COUNT];
+        dates = new String[RECORD_COUNT];
+        times = new String[RECORD_COUNT];
+        for (int i = 0; i < RECORD_COUNT; i++) {
+            Date recordTime = new Date(start + (long) (random.nextDouble() * days * MILLIS_PER_DAY));
+            timestamps[i] = legacy.format(recordTime) + " UTC+5:30";
+            dates[i] = date.format(recordTime);
+            times[i] = time.format(recordTime);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORD_COUNT)
+    public void simpleDateFormatPerRecord(Blackhole blackhole) throws ParseException {
+        for (String timestamp : timestamps) {
+            String value = timestamp;
+            if (value.contains("UTC")) {
+                value = value.substring(0, value.indexOf("UTC")).trim();
+            }
+            Date recordDate = new SimpleDateFormat("MMM dd, yyyy 'at' hh:mm:ssa", Locale.US).parse(value);
+            blackhole.consume(new SimpleDateFormat("HH:mm:ss", Locale.getDefault()).format(recordDate));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORD_COUNT)
+    public void parser(Blackhole blackhole) {
+        for (String timestamp : timestamps) {
+            blackhole.consume(parser.formatTime(parser.parse(timestamp)));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORD_COUNT)
+    public void parserMillisOnly(Blackhole blackhole) {
+        for (String timestamp : timestamps) {
+            blackhole.consume(parser.parse(timestamp));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORD_COUNT)
+    public void dateTimeFieldsSimpleDateFormatPerRecord(Blackhole blackhole) throws ParseException {
+        for (int i = 0; i < RECORD_COUNT; i++) {
+            blackhole.consume(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.US)
+                    .parse(dates[i] + " " + times[i]).getTime());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORD_COUNT)
+    public void dateTimeFieldsParser(Blackhole blackhole) {
+        for (int i = 0; i < RECORD_COUNT; i++) {
+            blackhole.consume(parser.parseDateTime(dates[i], times[i]));
+        }
+    }
+}
@@ -0,0 +1,470 @@
+package com.example.governmentapp.time;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Converts the timestamp layouts found in attendance records to epoch milliseconds, and
+ * epoch milliseconds back to the canonical {@code yyyy-MM-dd} / {@code HH:mm:ss} strings.
+ * <p>
+ * The known layouts are read by hand, without allocating:
+ * <ul>
+ *   <li>legacy strings such as "May 13, 2025 at 10:18:10PM UTC+5:30", as shown by the
+ *       Firebase console; an explicit UTC/GMT offset is honoured, otherwise the parser's zone
+ *       is used</li>
+ *   <li>{@code yyyy-MM-dd}, optionally followed by {@code HH:mm[:ss]}, and the separate
+ *       {@code date} and {@code time} fields of canonical records</li>
+ * </ul>
+ * Anything else falls back to a per-thread SimpleDateFormat with the pattern the screens used
+ * before, so every string that parsed then still parses.
+ * <p>
+ * The start and end of each local day are cached, so converting a page of records
+ * from the same few days costs a table lookup per record. Instances are immutable apart from
+ * that cache and are safe to share between threads.
+ */
+public final class AttendanceTimeParser {
+    /** Returned when a value cannot be read as a time */
+    public static final long INVALID = Long.MIN_VALUE;
+
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+    private static final String LEGACY_PATTERN = "MMM dd, yyyy 'at' hh:mm:ssa";
+    private static final String DATE_TIME_PATTERN = "yyyy-MM-dd HH:mm:ss";
+
+    // Power of two; a report rarely spans more days than this
+    private static final int DAY_CACHE_SIZE = 64;
+
+    private static final String[] MONTHS = {
+            "jan", "feb", "mar", "apr", "may", "jun", "jul", "aug", "sep", "oct", "nov", "dec"
+    };
+
+    private static volatile AttendanceTimeParser systemDefault;
+
+    private final TimeZone zone;
+    private final DayBoundary[] days = new DayBoundary[DAY_CACHE_SIZE];
+    private volatile DayBoundary lastDay;
+
+    private final ThreadLocal<SimpleDateFormat> legacyFormat;
+    private final ThreadLocal<SimpleDateFormat> dateTimeFormat;
+
+    /**
+     * A local calendar day. Fields are final, so an entry read from the cache without
+     * synchronisation is always complete.
+     */
+    private static final class DayBoundary {
+        final long epochDay;
+        final long start;
+        final long end;
+        // False on days with a daylight saving transition, where the offset is looked up per call
+        final boolean uniform;
+
+        DayBoundary(long epochDay, long start, long end, boolean uniform) {
+            this.epochDay = epochDay;
+            this.start = start;
+            this.end = end;
+            this.uniform = uniform;
+        }
+    }
+
+    public AttendanceTimeParser(TimeZone zone) {
+        this.zone = (TimeZone) zone.clone();
+        this.legacyFormat = formatFor(LEGACY_PATTERN, this.zone);
+        this.dateTimeFormat = formatFor(DATE_TIME_PATTERN, this.zone);
+    }
+
+    /**
+     * Shared parser for the device's current time zone. A new one is made if the zone changes.
+     */
+    public static AttendanceTimeParser systemDefault() {
+        TimeZone current = TimeZone.getDefault();
+        AttendanceTimeParser parser = systemDefault;
+        if (parser == null || !parser.zone.getID().equals(current.getID())) {
+            parser = new AttendanceTimeParser(current);
+            systemDefault = parser;
+        }
+        return parser;
+    }
+
+    public TimeZone getTimeZone() {
+        return (TimeZone) zone.clone();
+    }
+
+    /**
+     * @param text A legacy timestamp string or {@code yyyy-MM-dd[ HH:mm[:ss]]}
+     * @return Epoch milliseconds, or {@link #INVALID}
+     */
+    public long parse(String text) {
+        if (text == null) return INVALID;
+        long millis = parseLegacy(text);
+        if (millis == INVALID) {
+            millis = parseIso(text, 0, text.length());
+        }
+        return millis != INVALID ? millis : parseSlow(text);
+    }
+
+    /**
+     * @param date {@code yyyy-MM-dd}
+     * @param time {@code HH:mm[:ss]}, or null for midnight
+     * @return Epoch milliseconds, or {@link #INVALID}
+     */
+    public long parseDateTime(String date, String time) {
+        if (date == null) return INVALID;
+        long epochDay = parseIsoDate(date, 0, date.length());
+        if (epochDay != INVALID && date.length() == 10) {
+            int millisOfDay = time == null ? 0 : parseIsoTime(time, 0, time.length());
+            if (millisOfDay >= 0) {
+                return toEpochMillis(epochDay, millisOfDay);
+            }
+        }
+        try {
+            Date parsed = dateTimeFormat.get().parse(date + " " + (time != null ? time : "00:00:00"));
+            return parsed != null ? parsed.getTime() : INVALID;
+        } catch (ParseException e) {
+            return INVALID;
+        }
+    }
+
+    /**
+     * Midnight at the start of the local day containing {@code millis}
+     */
+    public long startOfDay(long millis) {
+        return dayOf(millis).start;
+    }
+
+    /**
+     * Days since 1970-01-01 of the local day containing {@code millis}
+     */
+    public long epochDay(long millis) {
+        return dayOf(millis).epochDay;
+    }
+
+    /**
+     * Whether two times fall on the same local day
+     */
+    public boolean isSameDay(long first, long second) {
+        DayBoundary day = dayOf(first);
+        return second >= day.start && second < day.end;
+    }
+
+    /**
+     * Local hour of day, 0-23
+     */
+    public int hourOfDay(long millis) {
+        return (int) (millisOfDay(millis) / 3_600_000L);
+    }
+
+    /**
+     * @return The local date as {@code yyyy-MM-dd}
+     */
+    public String formatDate(long millis) {
+        long epochDay = dayOf(millis).epochDay;
+        // Civil-from-days, proleptic Gregorian (H. Hinnant)
+        long z = epochDay + 719_468;
+        long era = (z >= 0 ? z : z - 146_096) / 146_097;
+        long dayOfEra = z - era * 146_097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long monthIndex = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * monthIndex + 2) / 5 + 1);
+        int month = (int) (monthIndex < 10 ? monthIndex + 3 : monthIndex - 9);
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+        char[] out = new char[10];
+        appendDigits(out, 0, (int) year, 4);
+        out[4] = '-';
+        appendDigits(out, 5, month, 2);
+        out[7] = '-';
+        appendDigits(out, 8, day, 2);
+        return new String(out);
+    }
+
+    /**
+     * @return The local time as {@code HH:mm:ss}
+     */
+    public String formatTime(long millis) {
+        int seconds = (int) (millisOfDay(millis) / 1000);
+        char[] out = new char[8];
+        appendDigits(out, 0, seconds / 3600, 2);
+        out[2] = ':';
+        appendDigits(out, 3, seconds / 60 % 60, 2);
+        out[5] = ':';
+        appendDigits(out, 6, seconds % 60, 2);
+        return new String(out);
+    }
+
+    // "MMM d, yyyy at h:mm:ss[ ]a[ UTC+h[:mm]]"
+    private long parseLegacy(String s) {
+        int length = s.length();
+        if (length < 22) return INVALID;
+
+        int month = monthIndex(s);
+        if (month < 0) return INVALID;
+        int i = 3;
+        // Full month names and "Sept." parse the same as their abbreviation
+        while (i < length && (Character.isLetter(s.charAt(i)) || s.charAt(i) == '.')) i++;
+        i = skipSpaces(s, i);
+
+        int day = 0;
+        int start = i;
+        while (i < length && i - start < 2 && isDigit(s.charAt(i))) day = day * 10 + (s.charAt(i++) - '0');
+        if (i == start || i >= length || s.charAt(i) != ',') return INVALID;
+        i = skipSpaces(s, i + 1);
+
+        if (i + 4 > length) return INVALID;
+        int year = 0;
+        for (int end = i + 4; i < end; i++) {
+            if (!isDigit(s.charAt(i))) return INVALID;
+            year = year * 10 + (s.charAt(i) - '0');
+        }
+        i = skipSpaces(s, i);
+        if (i + 2 > length || s.charAt(i) != 'a' || s.charAt(i + 1) != 't') return INVALID;
+        i = skipSpaces(s, i + 2);
+
+        int hour = 0;
+        start = i;
+        while (i < length && i - start < 2 && isDigit(s.charAt(i))) hour = hour * 10 + (s.charAt(i++) - '0');
+        if (i == start || i + 6 > length || s.charAt(i) != ':') return INVALID;
+        int minute = twoDigits(s, i + 1);
+        if (minute < 0 || s.charAt(i + 3) != ':') return INVALID;
+        int second = twoDigits(s, i + 4);
+        if (second < 0) return INVALID;
+        i = skipSpaces(s, i + 6);
+
+        if (i + 2 > length || (s.charAt(i + 1) | 0x20) != 'm') return INVALID;
+        char marker = (char) (s.charAt(i) | 0x20);
+        if (marker != 'a' && marker != 'p') return INVALID;
+        i = skipSpaces(s, i + 2);
+
+        if (day < 1 || day > daysInMonth(year, month) || hour < 1 || hour > 12
+                || minute > 59 || second > 59) {
+            return INVALID;
+        }
+        hour = hour % 12 + (marker == 'p' ? 12 : 0);
+        long epochDay = epochDayOf(year, month, day);
+        int millisOfDay = ((hour * 60 + minute) * 60 + second) * 1000;
+
+        if (i == length) {
+            return toEpochMillis(epochDay, millisOfDay);
+        }
+        int offset = parseOffset(s, i);
+        if (offset == Integer.MIN_VALUE) return INVALID;
+        return epochDay * MILLIS_PER_DAY + millisOfDay - offset;
+    }
+
+    // "UTC+5:30", "GMT-4", "UTC" -> offset in millis, or MIN_VALUE
+    private static int parseOffset(String s, int i) {
+        int length = s.length();
+        if (i + 3 > length) return Integer.MIN_VALUE;
+        boolean utc = s.regionMatches(i, "UTC", 0, 3) || s.regionMatches(i, "GMT", 0, 3);
+        if (!utc) return Integer.MIN_VALUE;
+        i += 3;
+        if (i == length) return 0;
+
+        char sign = s.charAt(i++);
+        if (sign != '+' && sign != '-' && sign != '\u2212') return Integer.MIN_VALUE;
+        int hours = 0;
+        int start = i;
+        while (i < length && i - start < 2 && isDigit(s.charAt(i))) hours = hours * 10 + (s.charAt(i++) - '0');
+        if (i == start) return Integer.MIN_VALUE;
+        int minutes = 0;
+        if (i < length && s.charAt(i) == ':') {
+            minutes = i + 3 <= length ? twoDigits(s, i + 1) : -1;
+            if (minutes < 0) return Integer.MIN_VALUE;
+            i += 3;
+        }
+        if (skipSpaces(s, i) != length || hours > 18 || minutes > 59) return Integer.MIN_VALUE;
+        int offset = (hours * 60 + minutes) * 60_000;
+        return sign == '+' ? offset : -offset;
+    }
+
+    // "yyyy-MM-dd", "yyyy-MM-dd HH:mm[:ss[.SSS]]" or with 'T' as the separator
+    private long parseIso(String s, int from, int to) {
+        if (to - from < 10) return INVALID;
+        long epochDay = parseIsoDate(s, from, from + 10);
+        if (epochDay == INVALID) return INVALID;
+        if (to - from == 10) {
+            return toEpochMillis(epochDay, 0);
+        }
+        char separator = s.charAt(from + 10);
+        if (separator != ' ' && separator != 'T') return INVALID;
+        int millisOfDay = parseIsoTime(s, from + 11, to);
+        return millisOfDay >= 0 ? toEpochMillis(epochDay, millisOfDay) : INVALID;
+    }
+
+    private static long parseIsoDate(String s, int from, int to) {
+        if (to - from != 10 || s.length() < to || s.charAt(from + 4) != '-' || s.charAt(from + 7) != '-') {
+            return INVALID;
+        }
+        int year = 0;
+        for (int i = from; i < from + 4; i++) {
+            if (!isDigit(s.charAt(i))) return INVALID;
+            year = year * 10 + (s.charAt(i) - '0');
+        }
+        int month = twoDigits(s, from + 5);
+        int day = twoDigits(s, from + 8);
+        if (month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month - 1)) return INVALID;
+        return epochDayOf(year, month - 1, day);
+    }
+
+    // "HH:mm", "HH:mm:ss" or "HH:mm:ss.SSS" -> millis of day, or -1
+    private static int parseIsoTime(String s, int from, int to) {
+        int length = to - from;
+        if (length != 5 && length != 8 && length != 12) return -1;
+        int hour = twoDigits(s, from);
+        if (hour < 0 || hour > 23 || s.charAt(from + 2) != ':') return -1;
+        int minute = twoDigits(s, from + 3);
+        if (minute < 0 || minute > 59) return -1;
+        int second = 0;
+        int millis = 0;
+        if (length >= 8) {
+            if (s.charAt(from + 5) != ':') return -1;
+            second = twoDigits(s, from + 6);
+            if (second < 0 || second > 59) return -1;
+        }
+        if (length == 12) {
+            if (s.charAt(from + 8) != '.') return -1;
+            for (int i = from + 9; i < to; i++) {
+                if (!isDigit(s.charAt(i))) return -1;
+                millis = millis * 10 + (s.charAt(i) - '0');
+            }
+        }
+        return ((hour * 60 + minute) * 60 + second) * 1000 + millis;
+    }
+
+    // The screens used to drop any zone suffix and read the rest in the device's zone
+    private long parseSlow(String text) {
+        String value = text.trim();
+        if (value.contains("UTC")) {
+            value = value.substring(0, value.indexOf("UTC")).trim();
+        }
+        try {
+            Date parsed = legacyFormat.get().parse(value.replace('\u202f', ' ').replace(" AM", "AM").replace(" PM", "PM"));
+            return parsed != null ? parsed.getTime() : INVALID;
+        } catch (ParseException e) {
+            return INVALID;
+        }
+    }
+
+    private long toEpochMillis(long epochDay, int millisOfDay) {
+        DayBoundary day = dayForEpochDay(epochDay);
+        if (day.uniform) {
+            return day.start + millisOfDay;
+        }
+        long local = epochDay * MILLIS_PER_DAY + millisOfDay;
+        return local - zone.getOffset(local - zone.getOffset(local - zone.getRawOffset()));
+    }
+
+    private long millisOfDay(long millis) {
+        DayBoundary day = dayOf(millis);
+        if (day.uniform) {
+            return millis - day.start;
+        }
+        return millis + zone.getOffset(millis) - day.epochDay * MILLIS_PER_DAY;
+    }
+
+    private DayBoundary dayOf(long millis) {
+        DayBoundary day = lastDay;
+        if (day != null && millis >= day.start && millis < day.end) {
+            return day;
+        }
+        long epochDay = Math.floorDiv(millis + zone.getOffset(millis), MILLIS_PER_DAY);
+        day = dayForEpochDay(epochDay);
+        lastDay = day;
+        return day;
+    }
+
+    private DayBoundary dayForEpochDay(long epochDay) {
+        int slot = (int) (epochDay & (DAY_CACHE_SIZE - 1));
+        DayBoundary day = days[slot];
+        if (day != null && day.epochDay == epochDay) {
+            return day;
+        }
+        long localStart = epochDay * MILLIS_PER_DAY;
+        long start = localStart - zone.getOffset(localStart - zone.getRawOffset());
+        long localEnd = localStart + MILLIS_PER_DAY;
+        long end = localEnd - zone.getOffset(localEnd - zone.getRawOffset());
+        boolean uniform = zone.getOffset(start) == zone.getOffset(end - 1);
+        day = new DayBoundary(epochDay, start, end, uniform);
+        // A racing thread may overwrite the slot with an equal entry; entries are immutable
+        days[slot] = day;
+        return day;
+    }
+
+    private static int monthIndex(String s) {
+        char c0 = (char) (s.charAt(0) | 0x20);
+        char c1 = (char) (s.charAt(1) | 0x20);
+        char c2 = (char) (s.charAt(2) | 0x20);
+        for (int m = 0; m < MONTHS.length; m++) {
+            String month = MONTHS[m];
+            if (month.charAt(0) == c0 && month.charAt(1) == c1 && month.charAt(2) == c2) {
+                return m;
+            }
+        }
+        return -1;
+    }
+
+    // Days since 1970-01-01; month is 0-based (H. Hinnant's days-from-civil)
+    private static long epochDayOf(int year, int month, int day) {
+        int m = month + 1;
+        long y = m <= 2 ? year - 1 : year;
+        long era = (y >= 0 ? y : y - 399) / 400;
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153 * (m > 2 ? m - 3 : m + 9) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146_097 + dayOfEra - 719_468;
+    }
+
+    private static int daysInMonth(int year, int month) {
+        switch (month) {
+            case 1:
+                boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+                return leap ? 29 : 28;
+            case 3:
+            case 5:
+            case 8:
+            case 10:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    private static int skipSpaces(String s, int i) {
+        while (i < s.length()) {
+            char c = s.charAt(i);
+            // The console separates the AM/PM marker with a narrow no-break space
+            if (c != ' ' && c != '\u00a0' && c != '\u202f') break;
+            i++;
+        }
+        return i;
+    }
+
+    private static int twoDigits(String s, int i) {
+        if (i + 2 > s.length()) return -1;
+        char tens = s.charAt(i);
+        char units = s.charAt(i + 1);
+        if (!isDigit(tens) || !isDigit(units)) return -1;
+        return (tens - '0') * 10 + (units - '0');
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static void appendDigits(char[] out, int at, int value, int width) {
+        for (int i = at + width - 1; i >= at; i--) {
+            out[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    private static ThreadLocal<SimpleDateFormat> formatFor(String pattern, TimeZone zone) {
+        return ThreadLocal.withInitial(() -> {
+            SimpleDateFormat format = new SimpleDateFormat(pattern, Locale.US);
+            format.setTimeZone(zone);
+            return format;
+        });
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.governmentapp.time;
+
+import org.junit.Test;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks {@link AttendanceTimeParser} against SimpleDateFormat, which the screens used before,
+ * over random times in India, a zone with daylight saving time and UTC.
+ */
+public class AttendanceTimeParserTest {
+    private static final String[] ZONES = {"Asia/Kolkata", "America/New_York", "UTC"};
+    private static final int SAMPLES_PER_ZONE = 70_000;
+
+    // 2015-01-01 to 2035-01-01
+    private static final long FROM = 1_420_070_400_000L;
+    private static final long TO = 2_051_222_400_000L;
+
+    @Test
+    public void matchesSimpleDateFormat() throws ParseException {
+        Random random = new Random(17);
+        for (String zoneId : ZONES) {
+            TimeZone zone = TimeZone.getTimeZone(zoneId);
+            AttendanceTimeParser parser = new AttendanceTimeParser(zone);
+            SimpleDateFormat legacy = format("MMM d, yyyy 'at' h:mm:ssa", zone);
+            SimpleDateFormat legacyPadded = format("MMM dd, yyyy 'at' hh:mm:ss a", zone);
+            SimpleDateFormat dateTime = format("yyyy-MM-dd HH:mm:ss", zone);
+            SimpleDateFormat date = format("yyyy-MM-dd", zone);
+            SimpleDateFormat time = format("HH:mm:ss", zone);
+            Calendar calendar = Calendar.getInstance(zone, Locale.US);
+
+            for (int i = 0; i < SAMPLES_PER_ZONE; i++) {
+                // Whole seconds, as the strings carry no milliseconds
+                long millis = (FROM + (long) (random.nextDouble() * (TO - FROM))) / 1000 * 1000;
+                Date instant = new Date(millis);
+                String message = zoneId + " " + millis;
+
+                // Strings are made from real instants, so they never fall in a spring-forward
+                // gap; autumn's repeated hour must resolve the way SimpleDateFormat does
+                String legacyText = legacy.format(instant);
+                assertEquals(message + " " + legacyText, legacy.parse(legacyText).getTime(), parser.parse(legacyText));
+                String paddedText = legacyPadded.format(instant);
+                assertEquals(message + " " + paddedText, legacyPadded.parse(paddedText).getTime(), parser.parse(paddedText));
+
+                String dateTimeText = dateTime.format(instant);
+                long expected = dateTime.parse(dateTimeText).getTime();
+                assertEquals(message + " " + dateTimeText, expected, parser.parse(dateTimeText));
+                String dateText = date.format(instant);
+                String timeText = time.format(instant);
+                assertEquals(message, expected, parser.parseDateTime(dateText, timeText));
+                assertEquals(message, date.parse(dateText).getTime(), parser.parse(dateText));
+
+                assertEquals(message, dateText, parser.formatDate(millis));
+                assertEquals(message, timeText, parser.formatTime(millis));
+
+                calendar.setTimeInMillis(millis);
+                assertEquals(message, calendar.get(Calendar.HOUR_OF_DAY), parser.hourOfDay(millis));
+                calendar.set(Calendar.HOUR_OF_DAY, 0);
+                calendar.set(Calendar.MINUTE, 0);
+                calendar.set(Calendar.SECOND, 0);
+                calendar.set(Calendar.MILLISECOND, 0);
+                assertEquals(message, calendar.getTimeInMillis(), parser.startOfDay(millis));
+                assertTrue(message, parser.isSameDay(millis, calendar.getTimeInMillis()));
+                assertFalse(message, parser.isSameDay(millis, calendar.getTimeInMillis() - 1));
+            }
+        }
+    }
+
+    @Test
+    public void explicitOffsetIsHonoured() {
+        AttendanceTimeParser kolkata = new AttendanceTimeParser(TimeZone.getTimeZone("Asia/Kolkata"));
+        AttendanceTimeParser newYork = new AttendanceTimeParser(TimeZone.getTimeZone("America/New_York"));
+
+        // 2025-05-13T16:48:10Z
+        long expected = 1_747_154_890_000L;
+        String console = "May 13, 2025 at 10:18:10PM UTC+5:30";
+        assertEquals(expected, kolkata.parse(console));
+        assertEquals(expected, newYork.parse(console));
+        assertEquals(expected, newYork.parse("May 13, 2025 at 10:18:10 PM UTC+5:30"));
+        assertEquals(expected, newYork.parse("May 13, 2025 at 4:48:10 PM UTC"));
+        assertEquals(expected, newYork.parse("May 13, 2025 at 12:48:10PM GMT-4"));
+
+        // Without an offset the parser's zone applies
+        assertEquals(expected, kolkata.parse("May 13, 2025 at 10:18:10PM"));
+        assertEquals(expected, newYork.parse("May 13, 2025 at 12:48:10PM"));
+    }
+
+    @Test
+    public void singleDigitDaysAndHours() throws ParseException {
+        TimeZone zone = TimeZone.getTimeZone("Asia/Kolkata");
+        AttendanceTimeParser parser = new AttendanceTimeParser(zone);
+        SimpleDateFormat legacy = format("MMM dd, yyyy 'at' hh:mm:ssa", zone);
+
+        assertEquals(legacy.parse("Jun 03, 2025 at 09:05:07AM").getTime(), parser.parse("Jun 3, 2025 at 9:05:07AM"));
+        assertEquals(legacy.parse("Jun 03, 2025 at 09:05:07AM").getTime(), parser.parse("June 3, 2025 at 9:05:07 am"));
+        assertEquals(legacy.parse("Sep 01, 2025 at 12:00:00AM").getTime(), parser.parse("Sept. 1, 2025 at 12:00:00AM"));
+        assertEquals(legacy.parse("Sep 01, 2025 at 12:00:00PM").getTime(), parser.parse("Sep 1, 2025 at 12:00:00PM"));
+        assertEquals("2025-09-01", parser.formatDate(parser.parse("Sep 1, 2025 at 12:00:00AM")));
+        assertEquals("12:00:00", parser.formatTime(parser.parse("Sep 1, 2025 at 12:00:00PM")));
+    }
+
+    @Test
+    public void daylightSavingTransitions() throws ParseException {
+        TimeZone zone = TimeZone.getTimeZone("America/New_York");
+        AttendanceTimeParser parser = new AttendanceTimeParser(zone);
+        SimpleDateFormat dateTime = format("yyyy-MM-dd HH:mm:ss", zone);
+
+        // 2025-03-09 is 23 hours long, 2025-11-02 is 25
+        long march = parser.parse("2025-03-09");
+        assertEquals(dateTime.parse("2025-03-09 00:00:00").getTime(), march);
+        assertEquals(23 * 3_600_000L, parser.parse("2025-03-10") - march);
+        long november = parser.parse("2025-11-02");
+        assertEquals(25 * 3_600_000L, parser.parse("2025-11-03") - november);
+
+        // Every quarter hour across both days, as instants and as local strings
+        for (long millis = march; millis < parser.parse("2025-03-10"); millis += 900_000L) {
+            assertDay(parser, dateTime, millis, "2025-03-09");
+        }
+        for (long millis = november; millis < parser.parse("2025-11-03"); millis += 900_000L) {
+            assertDay(parser, dateTime, millis, "2025-11-02");
+        }
+        assertEquals(dateTime.parse("2025-11-02 01:30:00").getTime(), parser.parse("2025-11-02 01:30:00"));
+        assertEquals(dateTime.parse("2025-11-02 01:30:00").getTime(), parser.parseDateTime("2025-11-02", "01:30:00"));
+    }
+
+    @Test
+    public void malformedInputIsInvalid() {
+        AttendanceTimeParser parser = new AttendanceTimeParser(TimeZone.getTimeZone("Asia/Kolkata"));
+        String[] malformed = {
+                "", "   ", "hello", "13/05/2025", "2025-13-01", "2025-02-29", "2025-05-32", "2025-5-13",
+                "2025-05-13 24:00", "2025-05-13 10:60:00", "2025-05-13X10:00:00", "2025-05-13 10:00:00.5",
+                "May 13, 2025", "May 13 2025 at 10:18:10PM", "Foo 13, 2025 at 10:18:10PM",
+                "May 13, 2025 at 10:18PM", "May 13, 2025 at 10:18:10", "May 13, 2025 at 10:18:10XM"
+        };
+        for (String text : malformed) {
+            assertEquals("\"" + text + "\"", AttendanceTimeParser.INVALID, parser.parse(text));
+        }
+        assertEquals(AttendanceTimeParser.INVALID, parser.parse(null));
+        assertEquals(AttendanceTimeParser.INVALID, parser.parseDateTime(null, "10:00:00"));
+        assertEquals(AttendanceTimeParser.INVALID, parser.parseDateTime("2025-05-13", "ten"));
+        assertEquals(AttendanceTimeParser.INVALID, parser.parseDateTime("13 May", null));
+    }
+
+    @Test
+    public void looseLegacyStringsParseAsBefore() throws ParseException {
+        // The screens dropped any UTC suffix and parsed the rest leniently, ignoring trailing
+        // text, so out-of-range fields and unknown suffixes were still read; they still are
+        TimeZone zone = TimeZone.getTimeZone("Asia/Kolkata");
+        AttendanceTimeParser parser = new AttendanceTimeParser(zone);
+        SimpleDateFormat legacy = format("MMM dd, yyyy 'at' hh:mm:ssa", zone);
+        String[] loose = {
+                "Feb 30, 2025 at 10:00:00AM", "May 13, 2025 at 13:05:00PM", "May 13, 2025 at 10:18:10PM EST",
+                "May 13, 2025 at 10:18:10PM UTC+", "May 13, 2025 at 10:18:10PM UTC+5:3"
+        };
+        for (String text : loose) {
+            String withoutZone = text.contains("UTC") ? text.substring(0, text.indexOf("UTC")).trim() : text;
+            assertEquals(text, legacy.parse(withoutZone).getTime(), parser.parse(text));
+        }
+    }
+
+    private static void assertDay(AttendanceTimeParser parser, SimpleDateFormat dateTime, long millis, String date)
+            throws ParseException {
+        String text = dateTime.format(new Date(millis));
+        assertEquals(text, date, parser.formatDate(millis));
+        assertEquals(text, text.substring(11), parser.formatTime(millis));
+        assertEquals(text, Integer.parseInt(text.substring(11, 13)), parser.hourOfDay(millis));
+        assertEquals(text, parser.parse(date), parser.startOfDay(millis));
+        assertEquals(text, dateTime.parse(text).getTime(), parser.parse(text));
+    }
+
+    private static SimpleDateFormat format(String pattern, TimeZone zone) {
+        SimpleDateFormat format = new SimpleDateFormat(pattern, Locale.US);
+        format.setTimeZone(zone);
+        return format;
+    }
+}
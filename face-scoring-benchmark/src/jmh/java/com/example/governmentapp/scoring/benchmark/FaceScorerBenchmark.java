@@ -0,0 +1,114 @@
+package com.example.governmentapp.scoring.benchmark;
+
+import com.example.governmentapp.scoring.ComparisonResult;
+import com.example.governmentapp.scoring.FaceFeatures;
+import com.example.governmentapp.scoring.FaceScorer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+
+/**
+ * Cost of one reference-vs-captured comparison on synthetic faces.
+ * Each invocation scores the next pair from a pre-generated set, so branch prediction
+ * sees the same mix of passes and rejections as real check-ins.
+ * Run with the gc profiler; gc.alloc.rate.norm should stay at 0 B/op.
+ */
+@State(Scope.Thread)
+public class FaceScorerBenchmark {
+    private static final int PAIR_COUNT = 1024;
+
+    // Share of captured faces generated from the reference (the rest are random impostors)
+    @Param({"0.8"})
+    public double genuineRate;
+
+    private final FaceScorer scorer = new FaceScorer(35.0f, 0.35f);
+    private final ComparisonResult result = new ComparisonResult();
+
+    private float[][] references;
+    private float[][] captures;
+    private float[] luminances;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        references = new float[PAIR_COUNT][];
+        captures = new float[PAIR_COUNT][];
+        luminances = new float[PAIR_COUNT];
+        for (int i = 0; i < PAIR_COUNT; i++) {
+            references[i] = randomFace(random);
+            captures[i] = random.nextDouble() < genuineRate
+                    ? perturb(references[i], random)
+                    : randomFace(random);
+            luminances[i] = 60f + random.nextFloat() * 160f;
+        }
+    }
+
+    @Benchmark
+    public boolean compare() {
+        int i = next++ & (PAIR_COUNT - 1);
+        return scorer.compare(references[i], captures[i], FaceScorer.THRESHOLD_NORMAL, result);
+    }
+
+    @Benchmark
+    public void compareWithAdaptiveThreshold(Blackhole blackhole) {
+        int i = next++ & (PAIR_COUNT - 1);
+        float threshold = FaceScorer.adaptiveThreshold(luminances[i]);
+        blackhole.consume(scorer.compare(references[i], captures[i], threshold, result));
+        blackhole.consume(result.score);
+    }
+
+    @Benchmark
+    public boolean proportionsMatch() {
+        int i = next++ & (PAIR_COUNT - 1);
+        return scorer.proportionsMatch(references[i], captures[i], result);
+    }
+
+    private static float[] randomFace(Random random) {
+        float[] face = FaceFeatures.newVector();
+        float width = 250f + random.nextFloat() * 250f;
+        face[FaceFeatures.BOX_WIDTH] = width;
+        face[FaceFeatures.BOX_HEIGHT] = width * (1.1f + random.nextFloat() * 0.3f);
+        face[FaceFeatures.HEAD_ANGLE_X] = gaussian(random, 8f);
+        face[FaceFeatures.HEAD_ANGLE_Y] = gaussian(random, 10f);
+        face[FaceFeatures.HEAD_ANGLE_Z] = gaussian(random, 5f);
+        face[FaceFeatures.LEFT_EYE_OPEN] = 0.5f + random.nextFloat() * 0.5f;
+        face[FaceFeatures.RIGHT_EYE_OPEN] = 0.5f + random.nextFloat() * 0.5f;
+        face[FaceFeatures.SMILING] = random.nextFloat();
+        float eyeSpacing = width * (0.38f + random.nextFloat() * 0.08f);
+        face[FaceFeatures.LEFT_EYE_X] = 400f - eyeSpacing / 2;
+        face[FaceFeatures.RIGHT_EYE_X] = 400f + eyeSpacing / 2;
+        return face;
+    }
+
+    private static float[] perturb(float[] reference, Random random) {
+        float[] face = reference.clone();
+        float scale = 0.8f + random.nextFloat() * 0.4f;
+        face[FaceFeatures.BOX_WIDTH] *= scale;
+        face[FaceFeatures.BOX_HEIGHT] *= scale * (1f + gaussian(random, 0.02f));
+        face[FaceFeatures.HEAD_ANGLE_X] += gaussian(random, 4f);
+        face[FaceFeatures.HEAD_ANGLE_Y] += gaussian(random, 4f);
+        face[FaceFeatures.HEAD_ANGLE_Z] += gaussian(random, 3f);
+        face[FaceFeatures.LEFT_EYE_OPEN] = clamp(face[FaceFeatures.LEFT_EYE_OPEN] + gaussian(random, 0.1f));
+        face[FaceFeatures.RIGHT_EYE_OPEN] = clamp(face[FaceFeatures.RIGHT_EYE_OPEN] + gaussian(random, 0.1f));
+        face[FaceFeatures.SMILING] = clamp(face[FaceFeatures.SMILING] + gaussian(random, 0.2f));
+        face[FaceFeatures.LEFT_EYE_X] *= scale;
+        face[FaceFeatures.RIGHT_EYE_X] *= scale;
+        return face;
+    }
+
+    private static float gaussian(Random random, float sigma) {
+        return (float) random.nextGaussian() * sigma;
+    }
+
+    private static float clamp(float probability) {
+        return Math.max(0f, Math.min(1f, probability));
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.governmentapp.scoring;
+
+/**
+ * Outcome of one face comparison. Mutable and reusable, so repeated comparisons
+ * do not allocate: pass the same instance to {@link FaceScorer#compare} each time.
+ */
+public final class ComparisonResult {
+    public enum Outcome {
+        PASSED,
+        EYES_CLOSED,
+        HEAD_ANGLE_TOO_EXTREME,
+        PROPORTIONS_MISMATCH,
+        BELOW_THRESHOLD,
+        CRITICAL_FEATURES_MISMATCH
+    }
+
+    // Indexes into featureScores
+    public static final int FACE_RATIO = 0;
+    public static final int LEFT_EYE = 1;
+    public static final int RIGHT_EYE = 2;
+    public static final int SMILE = 3;
+    public static final int HEAD_ANGLE_X = 4;
+    public static final int HEAD_ANGLE_Y = 5;
+    public static final int HEAD_ANGLE_Z = 6;
+    public static final int FEATURE_COUNT = 7;
+
+    private static final String[] FEATURE_NAMES = {"Face proportions", "Left eye", "Right eye",
+            "Smile", "Head tilt up/down", "Head rotation left/right", "Head tilt sideways"};
+
+    public Outcome outcome;
+    public float threshold;
+
+    // Weighted similarity, only set once the comparison got past the quality checks
+    public float score;
+
+    // Per-feature similarities in [0, 1], 0 for features that were not compared
+    public final float[] featureScores = new float[FEATURE_COUNT];
+
+    // Average of the face ratio and head angle similarities
+    public float criticalFeatureAverage;
+
+    // Proportions check details
+    public float ratioDifference;
+    public float eyeSpacingDifference;
+    public boolean eyeSpacingMatch;
+    public boolean expressionMatch;
+
+    public boolean isVerified() {
+        return outcome == Outcome.PASSED;
+    }
+
+    /**
+     * Index of the lowest non-zero feature score, or -1 if every feature scored 0 or 1
+     */
+    public int getWeakestFeature() {
+        float minScore = 1.0f;
+        int weakest = -1;
+        for (int i = 0; i < FEATURE_COUNT; i++) {
+            if (featureScores[i] > 0 && featureScores[i] < minScore) {
+                minScore = featureScores[i];
+                weakest = i;
+            }
+        }
+        return weakest;
+    }
+
+    public static String getFeatureName(int feature) {
+        return feature >= 0 && feature < FEATURE_COUNT ? FEATURE_NAMES[feature] : "Unknown";
+    }
+
+    void reset(float threshold) {
+        outcome = null;
+        this.threshold = threshold;
+        score = 0f;
+        for (int i = 0; i < FEATURE_COUNT; i++) {
+            featureScores[i] = 0f;
+        }
+        criticalFeatureAverage = 0f;
+        ratioDifference = 0f;
+        eyeSpacingDifference = 0f;
+        eyeSpacingMatch = true;
+        expressionMatch = true;
+    }
+}
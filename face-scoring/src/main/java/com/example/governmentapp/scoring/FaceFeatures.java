@@ -0,0 +1,46 @@
+package com.example.governmentapp.scoring;
+
+import java.util.Arrays;
+
+/**
+ * Layout of the primitive feature vector the scorer works on. One face is one
+ * {@code float[SIZE]}; optional features (classification probabilities, eye landmarks)
+ * are NaN when the detector did not provide them.
+ */
+public final class FaceFeatures {
+    // Bounding box size in pixels
+    public static final int BOX_WIDTH = 0;
+    public static final int BOX_HEIGHT = 1;
+
+    // Head pose in degrees
+    public static final int HEAD_ANGLE_X = 2;
+    public static final int HEAD_ANGLE_Y = 3;
+    public static final int HEAD_ANGLE_Z = 4;
+
+    // Classification probabilities, NaN when missing
+    public static final int LEFT_EYE_OPEN = 5;
+    public static final int RIGHT_EYE_OPEN = 6;
+    public static final int SMILING = 7;
+
+    // Horizontal eye landmark positions in pixels, NaN when missing
+    public static final int LEFT_EYE_X = 8;
+    public static final int RIGHT_EYE_X = 9;
+
+    public static final int SIZE = 10;
+
+    private FaceFeatures() {
+    }
+
+    /**
+     * Allocate a feature vector with every optional feature marked missing
+     */
+    public static float[] newVector() {
+        float[] features = new float[SIZE];
+        Arrays.fill(features, Float.NaN);
+        return features;
+    }
+
+    public static boolean has(float[] features, int index) {
+        return !Float.isNaN(features[index]);
+    }
+}
@@ -0,0 +1,214 @@
+package com.example.governmentapp.scoring;
+
+import static com.example.governmentapp.scoring.FaceFeatures.BOX_HEIGHT;
+import static com.example.governmentapp.scoring.FaceFeatures.BOX_WIDTH;
+import static com.example.governmentapp.scoring.FaceFeatures.HEAD_ANGLE_X;
+import static com.example.governmentapp.scoring.FaceFeatures.HEAD_ANGLE_Y;
+import static com.example.governmentapp.scoring.FaceFeatures.HEAD_ANGLE_Z;
+import static com.example.governmentapp.scoring.FaceFeatures.LEFT_EYE_OPEN;
+import static com.example.governmentapp.scoring.FaceFeatures.LEFT_EYE_X;
+import static com.example.governmentapp.scoring.FaceFeatures.RIGHT_EYE_OPEN;
+import static com.example.governmentapp.scoring.FaceFeatures.RIGHT_EYE_X;
+import static com.example.governmentapp.scoring.FaceFeatures.SMILING;
+import static com.example.governmentapp.scoring.FaceFeatures.has;
+
+/**
+ * Face verification scoring on primitive feature vectors (see {@link FaceFeatures}).
+ * Compares a reference face with a captured one using weighted similarities of face shape,
+ * eye openness, smile and head pose, after quality and proportion checks.
+ * Scoring does not allocate, so it can be benchmarked and run in tight loops.
+ * Thread-safe as long as each thread uses its own {@link ComparisonResult}.
+ */
+public final class FaceScorer {
+    // Match thresholds for good, normal and poor lighting
+    public static final float THRESHOLD_STRICT = 0.92f;
+    public static final float THRESHOLD_NORMAL = 0.82f;
+    public static final float THRESHOLD_RELAXED = 0.78f;
+
+    // Mean luminance (0-255) at or above which lighting is good, and at or below which it is poor
+    public static final float GOOD_LIGHTING_LUMINANCE = 180.0f;
+    public static final float POOR_LIGHTING_LUMINANCE = 100.0f;
+
+    // Feature weights
+    private static final float RATIO_WEIGHT = 6.0f;
+    private static final float EYE_WEIGHT = 2.5f;
+    private static final float SMILE_WEIGHT = 0.5f;
+    private static final float HEAD_ANGLE_WEIGHT = 5.5f;
+
+    // Similarity falloff
+    private static final float RATIO_PENALTY = 4.5f;
+    private static final float ANGLE_XY_TOLERANCE = 20.0f;
+    private static final float ANGLE_Z_TOLERANCE = 16.0f;
+
+    // Proportions check tolerances
+    private static final float MAX_RATIO_DIFFERENCE = 0.15f;
+    private static final float MAX_PROPORTION_ANGLE_DIFFERENCE = 32.0f;
+    private static final float MAX_EYE_SPACING_DIFFERENCE = 0.12f;
+    private static final float MAX_SMILE_DIFFERENCE = 0.85f;
+
+    // Scores this close above the threshold must also match on the critical features
+    private static final float NEAR_THRESHOLD_MARGIN = 0.05f;
+    private static final float MIN_CRITICAL_FEATURE_AVERAGE = 0.76f;
+
+    private final float maxHeadAngle;
+    private final float minEyeOpenProbability;
+
+    /**
+     * @param maxHeadAngle Largest head pitch or yaw, in degrees, accepted for the captured face
+     * @param minEyeOpenProbability Captured faces with both eyes below this are rejected
+     */
+    public FaceScorer(float maxHeadAngle, float minEyeOpenProbability) {
+        this.maxHeadAngle = maxHeadAngle;
+        this.minEyeOpenProbability = minEyeOpenProbability;
+    }
+
+    /**
+     * Compare a captured face against the reference
+     * @param reference Reference face features
+     * @param captured Captured face features
+     * @param threshold Minimum weighted similarity, see {@link #adaptiveThreshold}
+     * @param result Filled with the outcome and the per-feature scores
+     * @return true if the faces match
+     */
+    public boolean compare(float[] reference, float[] captured, float threshold, ComparisonResult result) {
+        result.reset(threshold);
+
+        // Eyes must be open enough for a reliable comparison
+        if (has(captured, LEFT_EYE_OPEN) && has(captured, RIGHT_EYE_OPEN)
+                && captured[LEFT_EYE_OPEN] < minEyeOpenProbability
+                && captured[RIGHT_EYE_OPEN] < minEyeOpenProbability) {
+            result.outcome = ComparisonResult.Outcome.EYES_CLOSED;
+            return false;
+        }
+
+        // Head angle must be within range
+        if (Math.abs(captured[HEAD_ANGLE_X]) > maxHeadAngle || Math.abs(captured[HEAD_ANGLE_Y]) > maxHeadAngle) {
+            result.outcome = ComparisonResult.Outcome.HEAD_ANGLE_TOO_EXTREME;
+            return false;
+        }
+
+        // Fundamental face proportions must match
+        if (!proportionsMatch(reference, captured, result)) {
+            result.outcome = ComparisonResult.Outcome.PROPORTIONS_MISMATCH;
+            return false;
+        }
+
+        float[] scores = result.featureScores;
+        float similarityScore = 0.0f;
+        float totalWeight = 0.0f;
+
+        // Face shape (width/height ratio) is a strong identifier
+        float ratioDiff = Math.abs(aspectRatio(reference) - aspectRatio(captured));
+        scores[ComparisonResult.FACE_RATIO] = Math.max(0, 1.0f - (ratioDiff * RATIO_PENALTY));
+        similarityScore += scores[ComparisonResult.FACE_RATIO] * RATIO_WEIGHT;
+        totalWeight += RATIO_WEIGHT;
+
+        // Eye openness is somewhat stable
+        if (has(reference, LEFT_EYE_OPEN) && has(captured, LEFT_EYE_OPEN)) {
+            scores[ComparisonResult.LEFT_EYE] = 1.0f - Math.abs(reference[LEFT_EYE_OPEN] - captured[LEFT_EYE_OPEN]);
+            similarityScore += scores[ComparisonResult.LEFT_EYE] * EYE_WEIGHT;
+            totalWeight += EYE_WEIGHT;
+        }
+        if (has(reference, RIGHT_EYE_OPEN) && has(captured, RIGHT_EYE_OPEN)) {
+            scores[ComparisonResult.RIGHT_EYE] = 1.0f - Math.abs(reference[RIGHT_EYE_OPEN] - captured[RIGHT_EYE_OPEN]);
+            similarityScore += scores[ComparisonResult.RIGHT_EYE] * EYE_WEIGHT;
+            totalWeight += EYE_WEIGHT;
+        }
+
+        // Smile changes easily, so it only counts a little
+        if (has(reference, SMILING) && has(captured, SMILING)) {
+            scores[ComparisonResult.SMILE] = 1.0f - Math.abs(reference[SMILING] - captured[SMILING]);
+            similarityScore += scores[ComparisonResult.SMILE] * SMILE_WEIGHT;
+            totalWeight += SMILE_WEIGHT;
+        }
+
+        // Head rotation angles
+        scores[ComparisonResult.HEAD_ANGLE_X] = Math.max(0,
+                1.0f - (Math.abs(reference[HEAD_ANGLE_X] - captured[HEAD_ANGLE_X]) / ANGLE_XY_TOLERANCE));
+        scores[ComparisonResult.HEAD_ANGLE_Y] = Math.max(0,
+                1.0f - (Math.abs(reference[HEAD_ANGLE_Y] - captured[HEAD_ANGLE_Y]) / ANGLE_XY_TOLERANCE));
+        scores[ComparisonResult.HEAD_ANGLE_Z] = Math.max(0,
+                1.0f - (Math.abs(reference[HEAD_ANGLE_Z] - captured[HEAD_ANGLE_Z]) / ANGLE_Z_TOLERANCE));
+        similarityScore += scores[ComparisonResult.HEAD_ANGLE_X] * HEAD_ANGLE_WEIGHT;
+        similarityScore += scores[ComparisonResult.HEAD_ANGLE_Y] * HEAD_ANGLE_WEIGHT;
+        similarityScore += scores[ComparisonResult.HEAD_ANGLE_Z] * HEAD_ANGLE_WEIGHT;
+        totalWeight += HEAD_ANGLE_WEIGHT * 3;
+
+        float finalScore = (totalWeight > 0) ? similarityScore / totalWeight : 0;
+        result.score = finalScore;
+        result.criticalFeatureAverage = (scores[ComparisonResult.HEAD_ANGLE_X] + scores[ComparisonResult.HEAD_ANGLE_Y]
+                + scores[ComparisonResult.HEAD_ANGLE_Z] + scores[ComparisonResult.FACE_RATIO]) / 4.0f;
+
+        if (finalScore < threshold) {
+            result.outcome = ComparisonResult.Outcome.BELOW_THRESHOLD;
+            return false;
+        }
+
+        // Near the threshold, the most stable features have to agree as well
+        if (finalScore < threshold + NEAR_THRESHOLD_MARGIN
+                && result.criticalFeatureAverage < MIN_CRITICAL_FEATURE_AVERAGE) {
+            result.outcome = ComparisonResult.Outcome.CRITICAL_FEATURES_MISMATCH;
+            return false;
+        }
+
+        result.outcome = ComparisonResult.Outcome.PASSED;
+        return true;
+    }
+
+    /**
+     * Check structural aspects of the face that should hold regardless of expression:
+     * aspect ratio, head pitch and yaw, eye spacing and a drastic expression change
+     */
+    public boolean proportionsMatch(float[] reference, float[] captured, ComparisonResult result) {
+        float ratioDifference = Math.abs(aspectRatio(reference) - aspectRatio(captured));
+        float angleXDiff = Math.abs(reference[HEAD_ANGLE_X] - captured[HEAD_ANGLE_X]);
+        float angleYDiff = Math.abs(reference[HEAD_ANGLE_Y] - captured[HEAD_ANGLE_Y]);
+
+        // Eye spacing relative to face width is one of the most stable proportions
+        boolean eyeSpacingMatch = true;
+        float eyeSpacingDiff = 0f;
+        if (has(reference, LEFT_EYE_X) && has(reference, RIGHT_EYE_X)
+                && has(captured, LEFT_EYE_X) && has(captured, RIGHT_EYE_X)) {
+            float refEyeSpacing = Math.abs(reference[LEFT_EYE_X] - reference[RIGHT_EYE_X]) / reference[BOX_WIDTH];
+            float captEyeSpacing = Math.abs(captured[LEFT_EYE_X] - captured[RIGHT_EYE_X]) / captured[BOX_WIDTH];
+            eyeSpacingDiff = Math.abs(refEyeSpacing - captEyeSpacing);
+            eyeSpacingMatch = eyeSpacingDiff < MAX_EYE_SPACING_DIFFERENCE;
+        }
+
+        boolean expressionMatch = true;
+        if (has(reference, SMILING) && has(captured, SMILING)
+                && Math.abs(reference[SMILING] - captured[SMILING]) > MAX_SMILE_DIFFERENCE) {
+            expressionMatch = false;
+        }
+
+        result.ratioDifference = ratioDifference;
+        result.eyeSpacingDifference = eyeSpacingDiff;
+        result.eyeSpacingMatch = eyeSpacingMatch;
+        result.expressionMatch = expressionMatch;
+
+        return ratioDifference < MAX_RATIO_DIFFERENCE
+                && angleXDiff < MAX_PROPORTION_ANGLE_DIFFERENCE
+                && angleYDiff < MAX_PROPORTION_ANGLE_DIFFERENCE
+                && eyeSpacingMatch && expressionMatch;
+    }
+
+    /**
+     * Match threshold for the given mean luminance: strict in good light, relaxed in poor
+     * light, and linearly interpolated in between
+     */
+    public static float adaptiveThreshold(float meanLuminance) {
+        if (meanLuminance >= GOOD_LIGHTING_LUMINANCE) {
+            return THRESHOLD_STRICT;
+        } else if (meanLuminance <= POOR_LIGHTING_LUMINANCE) {
+            return THRESHOLD_RELAXED;
+        }
+        float lightingRange = GOOD_LIGHTING_LUMINANCE - POOR_LIGHTING_LUMINANCE;
+        float thresholdRange = THRESHOLD_STRICT - THRESHOLD_RELAXED;
+        float lightingFactor = (meanLuminance - POOR_LIGHTING_LUMINANCE) / lightingRange;
+        return THRESHOLD_RELAXED + (thresholdRange * lightingFactor);
+    }
+
+    private static float aspectRatio(float[] features) {
+        return features[BOX_WIDTH] / features[BOX_HEIGHT];
+    }
+}
@@ -0,0 +1,399 @@
+package com.example.governmentapp.scoring;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Pins {@link FaceScorer} to the formulas it was ported from ({@code simulateFaceComparison},
+ * {@code checkFacialProportionsMatch} and {@code getAdaptiveThreshold} in the original
+ * FaceDetectionActivity), reproduced in {@link Baseline} with the activity's nullable
+ * detector values and constants.
+ */
+public class FaceScorerTest {
+    private static final float MAX_HEAD_ANGLE = 35.0f;
+    private static final float MIN_EYE_OPEN_PROBABILITY = 0.35f;
+    private static final float EPSILON = 1e-6f;
+
+    private final FaceScorer scorer = new FaceScorer(MAX_HEAD_ANGLE, MIN_EYE_OPEN_PROBABILITY);
+    private final ComparisonResult result = new ComparisonResult();
+
+    @Test
+    public void thresholdsAndLightingBands() {
+        assertEquals(0.92f, FaceScorer.THRESHOLD_STRICT, 0f);
+        assertEquals(0.82f, FaceScorer.THRESHOLD_NORMAL, 0f);
+        assertEquals(0.78f, FaceScorer.THRESHOLD_RELAXED, 0f);
+        assertEquals(180.0f, FaceScorer.GOOD_LIGHTING_LUMINANCE, 0f);
+        assertEquals(100.0f, FaceScorer.POOR_LIGHTING_LUMINANCE, 0f);
+    }
+
+    @Test
+    public void adaptiveThresholdMatchesBaseline() {
+        assertEquals(0.92f, FaceScorer.adaptiveThreshold(180f), 0f);
+        assertEquals(0.92f, FaceScorer.adaptiveThreshold(255f), 0f);
+        assertEquals(0.78f, FaceScorer.adaptiveThreshold(100f), 0f);
+        assertEquals(0.78f, FaceScorer.adaptiveThreshold(0f), 0f);
+        assertEquals(0.85f, FaceScorer.adaptiveThreshold(140f), EPSILON);
+
+        for (float luminance = 0f; luminance <= 255f; luminance += 0.25f) {
+            assertEquals("luminance " + luminance, Baseline.adaptiveThreshold(luminance),
+                    FaceScorer.adaptiveThreshold(luminance), 0f);
+        }
+    }
+
+    @Test
+    public void adaptiveThresholdRisesWithLight() {
+        float previous = FaceScorer.adaptiveThreshold(0f);
+        for (float luminance = 1f; luminance <= 255f; luminance++) {
+            float threshold = FaceScorer.adaptiveThreshold(luminance);
+            assertTrue("luminance " + luminance, threshold >= previous);
+            previous = threshold;
+        }
+    }
+
+    @Test
+    public void identicalFacesPass() {
+        float[] face = face(200, 250, 0, 0, 0);
+        setEyes(face, 0.9f, 0.9f, 60, 140);
+        face[FaceFeatures.SMILING] = 0.2f;
+
+        assertTrue(scorer.compare(face, face.clone(), FaceScorer.THRESHOLD_STRICT, result));
+        assertEquals(ComparisonResult.Outcome.PASSED, result.outcome);
+        assertEquals(1.0f, result.score, EPSILON);
+        assertEquals(-1, result.getWeakestFeature());
+    }
+
+    @Test
+    public void rejectsClosedEyesOnlyWhenBothAreClosed() {
+        float[] reference = face(200, 250, 0, 0, 0);
+        float[] captured = face(200, 250, 0, 0, 0);
+        captured[FaceFeatures.LEFT_EYE_OPEN] = 0.3f;
+        captured[FaceFeatures.RIGHT_EYE_OPEN] = 0.3f;
+        assertFalse(scorer.compare(reference, captured, FaceScorer.THRESHOLD_RELAXED, result));
+        assertEquals(ComparisonResult.Outcome.EYES_CLOSED, result.outcome);
+
+        captured[FaceFeatures.RIGHT_EYE_OPEN] = 0.4f;
+        scorer.compare(reference, captured, FaceScorer.THRESHOLD_RELAXED, result);
+        assertTrue(result.outcome != ComparisonResult.Outcome.EYES_CLOSED);
+
+        // Without both probabilities the check is skipped
+        captured[FaceFeatures.RIGHT_EYE_OPEN] = Float.NaN;
+        scorer.compare(reference, captured, FaceScorer.THRESHOLD_RELAXED, result);
+        assertTrue(result.outcome != ComparisonResult.Outcome.EYES_CLOSED);
+    }
+
+    @Test
+    public void rejectsExtremeHeadAngles() {
+        float[] reference = face(200, 250, 0, 0, 0);
+        assertFalse(scorer.compare(reference, face(200, 250, 36, 0, 0), FaceScorer.THRESHOLD_RELAXED, result));
+        assertEquals(ComparisonResult.Outcome.HEAD_ANGLE_TOO_EXTREME, result.outcome);
+        assertFalse(scorer.compare(reference, face(200, 250, 0, -36, 0), FaceScorer.THRESHOLD_RELAXED, result));
+        assertEquals(ComparisonResult.Outcome.HEAD_ANGLE_TOO_EXTREME, result.outcome);
+
+        // Roll is not limited
+        scorer.compare(reference, face(200, 250, 0, 0, 60), FaceScorer.THRESHOLD_RELAXED, result);
+        assertTrue(result.outcome != ComparisonResult.Outcome.HEAD_ANGLE_TOO_EXTREME);
+    }
+
+    @Test
+    public void proportionLimits() {
+        float[] reference = face(200, 250, 0, 0, 0);
+
+        // Aspect ratio difference must stay under 0.15
+        assertTrue(scorer.proportionsMatch(reference, face(200 + 0.14f * 250, 250, 0, 0, 0), result));
+        assertFalse(scorer.proportionsMatch(reference, face(200 + 0.16f * 250, 250, 0, 0, 0), result));
+
+        // Pitch and yaw differences must stay under 32 degrees
+        float[] tilted = face(200, 250, -20, 0, 0);
+        assertTrue(scorer.proportionsMatch(tilted, face(200, 250, 11, 0, 0), result));
+        assertFalse(scorer.proportionsMatch(tilted, face(200, 250, 13, 0, 0), result));
+        float[] turned = face(200, 250, 0, 20, 0);
+        assertFalse(scorer.proportionsMatch(turned, face(200, 250, 0, -13, 0), result));
+
+        // Eye spacing relative to face width must differ by less than 0.12
+        setEyes(reference, 0.9f, 0.9f, 60, 140);
+        float[] captured = face(200, 250, 0, 0, 0);
+        setEyes(captured, 0.9f, 0.9f, 60, 140 + 0.11f * 200);
+        assertTrue(scorer.proportionsMatch(reference, captured, result));
+        assertTrue(result.eyeSpacingMatch);
+        setEyes(captured, 0.9f, 0.9f, 60, 140 + 0.13f * 200);
+        assertFalse(scorer.proportionsMatch(reference, captured, result));
+        assertFalse(result.eyeSpacingMatch);
+        assertEquals(0.13f, result.eyeSpacingDifference, 1e-5f);
+
+        // Smile may not change by more than 0.85
+        float[] smiling = face(200, 250, 0, 0, 0);
+        float[] neutral = face(200, 250, 0, 0, 0);
+        smiling[FaceFeatures.SMILING] = 0.95f;
+        neutral[FaceFeatures.SMILING] = 0.05f;
+        assertFalse(scorer.proportionsMatch(smiling, neutral, result));
+        assertFalse(result.expressionMatch);
+        neutral[FaceFeatures.SMILING] = 0.15f;
+        assertTrue(scorer.proportionsMatch(smiling, neutral, result));
+    }
+
+    @Test
+    public void nearThresholdNeedsCriticalFeatures() {
+        // Shape, eyes and smile match perfectly and each angle scores 0.66: the weighted score
+        // of about 0.80 clears the relaxed threshold by less than 0.05, but the critical
+        // average of about 0.745 is under 0.76
+        float[] reference = face(200, 250, 0, 0, 0);
+        float[] captured = face(200, 250, 6.8f, 6.8f, 5.44f);
+        setEyes(reference, 0.9f, 0.9f, Float.NaN, Float.NaN);
+        setEyes(captured, 0.9f, 0.9f, Float.NaN, Float.NaN);
+        reference[FaceFeatures.SMILING] = 0.5f;
+        captured[FaceFeatures.SMILING] = 0.5f;
+
+        assertFalse(scorer.compare(reference, captured, FaceScorer.THRESHOLD_RELAXED, result));
+        assertEquals(ComparisonResult.Outcome.CRITICAL_FEATURES_MISMATCH, result.outcome);
+        assertEquals(0.7996f, result.score, 1e-3f);
+        assertEquals(0.745f, result.criticalFeatureAverage, 1e-3f);
+        assertFalse(Baseline.compare(reference, captured, FaceScorer.THRESHOLD_RELAXED).verified);
+
+        // Well clear of the threshold the critical features are not consulted
+        assertTrue(scorer.compare(reference, captured, 0.74f, result));
+    }
+
+    @Test
+    public void randomFacesMatchBaseline() {
+        Random random = new Random(7);
+        int passed = 0;
+        for (int i = 0; i < 100_000; i++) {
+            float[] reference = randomFace(random, null);
+            float[] captured = randomFace(random, reference);
+            float threshold = FaceScorer.adaptiveThreshold(random.nextFloat() * 255f);
+
+            boolean verified = scorer.compare(reference, captured, threshold, result);
+            Baseline.Outcome expected = Baseline.compare(reference, captured, threshold);
+            String message = "case " + i;
+            assertEquals(message, expected.verified, verified);
+            assertEquals(message, expected.proportionsMatch, Baseline.proportionsMatch(reference, captured));
+            assertEquals(message, expected.proportionsMatch, scorer.proportionsMatch(reference, captured, new ComparisonResult()));
+            if (expected.scored) {
+                assertEquals(message, expected.score, result.score, EPSILON);
+            }
+            if (verified) passed++;
+        }
+        // The generator covers both outcomes
+        assertTrue(passed > 1_000);
+        assertTrue(passed < 99_000);
+    }
+
+    private static float[] face(float width, float height, float angleX, float angleY, float angleZ) {
+        float[] features = FaceFeatures.newVector();
+        features[FaceFeatures.BOX_WIDTH] = width;
+        features[FaceFeatures.BOX_HEIGHT] = height;
+        features[FaceFeatures.HEAD_ANGLE_X] = angleX;
+        features[FaceFeatures.HEAD_ANGLE_Y] = angleY;
+        features[FaceFeatures.HEAD_ANGLE_Z] = angleZ;
+        return features;
+    }
+
+    private static void setEyes(float[] features, float leftOpen, float rightOpen, float leftX, float rightX) {
+        features[FaceFeatures.LEFT_EYE_OPEN] = leftOpen;
+        features[FaceFeatures.RIGHT_EYE_OPEN] = rightOpen;
+        features[FaceFeatures.LEFT_EYE_X] = leftX;
+        features[FaceFeatures.RIGHT_EYE_X] = rightX;
+    }
+
+    // A face, or a capture of roughly the same one when a reference is given; optional
+    // features go missing now and then
+    private static float[] randomFace(Random random, float[] reference) {
+        float spread = reference == null ? 1f : 0.25f;
+        float width = reference == null ? 150 + random.nextFloat() * 150
+                : reference[FaceFeatures.BOX_WIDTH] * (0.85f + random.nextFloat() * 0.3f);
+        float height = reference == null ? width * (1.1f + random.nextFloat() * 0.3f)
+                : reference[FaceFeatures.BOX_HEIGHT] * (0.9f + random.nextFloat() * 0.2f);
+        float[] features = face(width, height,
+                around(random, reference, FaceFeatures.HEAD_ANGLE_X, 40 * spread),
+                around(random, reference, FaceFeatures.HEAD_ANGLE_Y, 40 * spread),
+                around(random, reference, FaceFeatures.HEAD_ANGLE_Z, 40 * spread));
+        if (random.nextInt(10) > 0) {
+            features[FaceFeatures.LEFT_EYE_OPEN] = random.nextFloat();
+            features[FaceFeatures.RIGHT_EYE_OPEN] = random.nextFloat();
+        }
+        if (random.nextInt(10) > 0) {
+            features[FaceFeatures.SMILING] = random.nextFloat();
+        }
+        if (random.nextInt(10) > 0) {
+            float spacing = reference != null && FaceFeatures.has(reference, FaceFeatures.LEFT_EYE_X)
+                    ? Math.abs(reference[FaceFeatures.LEFT_EYE_X] - reference[FaceFeatures.RIGHT_EYE_X])
+                    / reference[FaceFeatures.BOX_WIDTH] + (random.nextFloat() - 0.5f) * 0.3f
+                    : 0.3f + random.nextFloat() * 0.2f;
+            features[FaceFeatures.LEFT_EYE_X] = width * 0.3f;
+            features[FaceFeatures.RIGHT_EYE_X] = width * 0.3f + spacing * width;
+        }
+        return features;
+    }
+
+    private static float around(Random random, float[] reference, int index, float range) {
+        float center = reference != null ? reference[index] : 0f;
+        return center + (random.nextFloat() * 2 - 1) * range;
+    }
+
+    /**
+     * The original activity code, with detector values that may be missing as nullable Floats
+     */
+    private static class Baseline {
+        static final float FACE_MATCH_THRESHOLD_STRICT = 0.92f;
+        static final float FACE_MATCH_THRESHOLD_RELAXED = 0.78f;
+        static final float GOOD_LIGHTING_THRESHOLD = 180.0f;
+        static final float POOR_LIGHTING_THRESHOLD = 100.0f;
+
+        static class Outcome {
+            boolean verified;
+            boolean proportionsMatch;
+            boolean scored;
+            float score;
+        }
+
+        static float adaptiveThreshold(float lightingCondition) {
+            if (lightingCondition >= GOOD_LIGHTING_THRESHOLD) {
+                return FACE_MATCH_THRESHOLD_STRICT;
+            } else if (lightingCondition <= POOR_LIGHTING_THRESHOLD) {
+                return FACE_MATCH_THRESHOLD_RELAXED;
+            } else {
+                float lightingRange = GOOD_LIGHTING_THRESHOLD - POOR_LIGHTING_THRESHOLD;
+                float thresholdRange = FACE_MATCH_THRESHOLD_STRICT - FACE_MATCH_THRESHOLD_RELAXED;
+                float lightingFactor = (lightingCondition - POOR_LIGHTING_THRESHOLD) / lightingRange;
+                return FACE_MATCH_THRESHOLD_RELAXED + (thresholdRange * lightingFactor);
+            }
+        }
+
+        static Outcome compare(float[] referenceFace, float[] capturedFace, float currentThreshold) {
+            Outcome outcome = new Outcome();
+            outcome.proportionsMatch = proportionsMatch(referenceFace, capturedFace);
+
+            float similarityScore = 0.0f;
+            float totalWeight = 0.0f;
+            float refWidth = referenceFace[FaceFeatures.BOX_WIDTH];
+            float refHeight = referenceFace[FaceFeatures.BOX_HEIGHT];
+            float captWidth = capturedFace[FaceFeatures.BOX_WIDTH];
+            float captHeight = capturedFace[FaceFeatures.BOX_HEIGHT];
+
+            Float captLeftEye = nullable(capturedFace, FaceFeatures.LEFT_EYE_OPEN);
+            Float captRightEye = nullable(capturedFace, FaceFeatures.RIGHT_EYE_OPEN);
+            if (captRightEye != null && captLeftEye != null) {
+                if (captLeftEye < MIN_EYE_OPEN_PROBABILITY && captRightEye < MIN_EYE_OPEN_PROBABILITY) {
+                    return outcome;
+                }
+            }
+
+            float headAngleX = Math.abs(capturedFace[FaceFeatures.HEAD_ANGLE_X]);
+            float headAngleY = Math.abs(capturedFace[FaceFeatures.HEAD_ANGLE_Y]);
+            if (headAngleX > MAX_HEAD_ANGLE || headAngleY > MAX_HEAD_ANGLE) {
+                return outcome;
+            }
+
+            if (!outcome.proportionsMatch) {
+                return outcome;
+            }
+
+            float refRatio = refWidth / refHeight;
+            float captRatio = captWidth / captHeight;
+            float ratioDiff = Math.abs(refRatio - captRatio);
+            float ratioSimilarity = Math.max(0, 1.0f - (ratioDiff * 4.5f));
+            float ratioWeight = 6.0f;
+            similarityScore += ratioSimilarity * ratioWeight;
+            totalWeight += ratioWeight;
+
+            float eyeWeight = 2.5f;
+            Float refLeftEye = nullable(referenceFace, FaceFeatures.LEFT_EYE_OPEN);
+            Float refRightEye = nullable(referenceFace, FaceFeatures.RIGHT_EYE_OPEN);
+            if (refLeftEye != null && captLeftEye != null) {
+                float eyeDiff = Math.abs(refLeftEye - captLeftEye);
+                similarityScore += (1.0f - eyeDiff) * eyeWeight;
+                totalWeight += eyeWeight;
+            }
+            if (refRightEye != null && captRightEye != null) {
+                float eyeDiff = Math.abs(refRightEye - captRightEye);
+                similarityScore += (1.0f - eyeDiff) * eyeWeight;
+                totalWeight += eyeWeight;
+            }
+
+            float smileWeight = 0.5f;
+            Float refSmile = nullable(referenceFace, FaceFeatures.SMILING);
+            Float captSmile = nullable(capturedFace, FaceFeatures.SMILING);
+            if (refSmile != null && captSmile != null) {
+                float smileDiff = Math.abs(refSmile - captSmile);
+                similarityScore += (1.0f - smileDiff) * smileWeight;
+                totalWeight += smileWeight;
+            }
+
+            float headAngleWeight = 5.5f;
+            float angleDiffX = Math.abs(referenceFace[FaceFeatures.HEAD_ANGLE_X] - capturedFace[FaceFeatures.HEAD_ANGLE_X]);
+            float angleDiffY = Math.abs(referenceFace[FaceFeatures.HEAD_ANGLE_Y] - capturedFace[FaceFeatures.HEAD_ANGLE_Y]);
+            float angleDiffZ = Math.abs(referenceFace[FaceFeatures.HEAD_ANGLE_Z] - capturedFace[FaceFeatures.HEAD_ANGLE_Z]);
+            float angleSimX = Math.max(0, 1.0f - (angleDiffX / 20.0f));
+            float angleSimY = Math.max(0, 1.0f - (angleDiffY / 20.0f));
+            float angleSimZ = Math.max(0, 1.0f - (angleDiffZ / 16.0f));
+            similarityScore += angleSimX * headAngleWeight;
+            similarityScore += angleSimY * headAngleWeight;
+            similarityScore += angleSimZ * headAngleWeight;
+            totalWeight += headAngleWeight * 3;
+
+            float finalScore = (totalWeight > 0) ? similarityScore / totalWeight : 0;
+            outcome.scored = true;
+            outcome.score = finalScore;
+            if (finalScore < currentThreshold) {
+                return outcome;
+            }
+            if (finalScore < currentThreshold + 0.05f) {
+                float criticalFeatureAvg = (angleSimX + angleSimY + angleSimZ + ratioSimilarity) / 4.0f;
+                if (criticalFeatureAvg < 0.76f) {
+                    return outcome;
+                }
+            }
+            outcome.verified = true;
+            return outcome;
+        }
+
+        static boolean proportionsMatch(float[] referenceFace, float[] capturedFace) {
+            float refWidth = referenceFace[FaceFeatures.BOX_WIDTH];
+            float refHeight = referenceFace[FaceFeatures.BOX_HEIGHT];
+            float captWidth = capturedFace[FaceFeatures.BOX_WIDTH];
+            float captHeight = capturedFace[FaceFeatures.BOX_HEIGHT];
+
+            float refRatio = refWidth / refHeight;
+            float captRatio = captWidth / captHeight;
+            float ratioDifference = Math.abs(refRatio - captRatio);
+
+            float angleXDiff = Math.abs(referenceFace[FaceFeatures.HEAD_ANGLE_X] - capturedFace[FaceFeatures.HEAD_ANGLE_X]);
+            float angleYDiff = Math.abs(referenceFace[FaceFeatures.HEAD_ANGLE_Y] - capturedFace[FaceFeatures.HEAD_ANGLE_Y]);
+
+            boolean eyeSpacingMatch = true;
+            Float refLeftEyeX = nullable(referenceFace, FaceFeatures.LEFT_EYE_X);
+            Float refRightEyeX = nullable(referenceFace, FaceFeatures.RIGHT_EYE_X);
+            Float captLeftEyeX = nullable(capturedFace, FaceFeatures.LEFT_EYE_X);
+            Float captRightEyeX = nullable(capturedFace, FaceFeatures.RIGHT_EYE_X);
+            if (refLeftEyeX != null && refRightEyeX != null && captLeftEyeX != null && captRightEyeX != null) {
+                float refEyeSpacing = Math.abs(refLeftEyeX - refRightEyeX) / refWidth;
+                float captEyeSpacing = Math.abs(captLeftEyeX - captRightEyeX) / captWidth;
+                float eyeSpacingDiff = Math.abs(refEyeSpacing - captEyeSpacing);
+                eyeSpacingMatch = eyeSpacingDiff < 0.12;
+            }
+
+            boolean expressionMatch = true;
+            Float refSmile = nullable(referenceFace, FaceFeatures.SMILING);
+            Float captSmile = nullable(capturedFace, FaceFeatures.SMILING);
+            if (refSmile != null && captSmile != null) {
+                float smileDiff = Math.abs(refSmile - captSmile);
+                if (smileDiff > 0.85) {
+                    expressionMatch = false;
+                }
+            }
+
+            return (ratioDifference < 0.15)
+                    && (angleXDiff < 32) && (angleYDiff < 32)
+                    && eyeSpacingMatch && expressionMatch;
+        }
+
+        private static Float nullable(float[] features, int index) {
+            return FaceFeatures.has(features, index) ? features[index] : null;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.governmentapp.search.benchmark;
+
+import com.example.governmentapp.search.PrefixIndex;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Cost of one keystroke in the admin dashboard's search over 50k users: the query is typed a
+ * character at a time and the top 20 matches are found after each one, so a score is the
+ * average over every prefix of the query, from a single letter matching thousands of users to
+ * the full text. The names, Sevarth IDs and email local parts are what the app indexes, drawn
+ * from small pools so common names are shared by many users, as in a real department. The
+ * update benchmark replaces one user, as when their document changes.
+ */
+@State(Scope.Thread)
+public class PrefixIndexBenchmark {
+    private static final int USER_COUNT = 50_000;
+    private static final int LIMIT = 20;
+
+    private static final String[] FIRST_NAMES = {
+            "Aarti", "Abhijit", "Aditya", "Ajay", "Amol", "Anil", "Anita", "Ashok", "Deepak",
+            "Ganesh", "Kavita", "Mahesh", "Manisha", "Nilesh", "Pooja", "Prakash", "Priya",
+            "Rahul", "Rajesh", "Ramesh", "Rohit", "Sachin", "Sandeep", "Sanjay", "Santosh",
+            "Snehal", "Sunil", "Sunita", "Swati", "Vaishali", "Vijay", "Vikas"
+    };
+    private static final String[] LAST_NAMES = {
+            "Bhosale", "Chavan", "Deshmukh", "Gaikwad", "Jadhav", "Joshi", "Kale", "Kadam",
+            "Kulkarni", "More", "Naik", "Patil", "Pawar", "Salunkhe", "Shinde", "Shirke",
+            "Sawant", "Thakur", "Wagh", "Yadav"
+    };
+
+    @Param({"rahul patil", "sa", "kul", "sev012345"})
+    public String query;
+
+    private PrefixIndex index;
+    private String[] keystrokes;
+    private String[][] users;
+    private int keystroke;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        index = new PrefixIndex();
+        users = new String[USER_COUNT][];
+        for (int i = 0; i < USER_COUNT; i++) {
+            String first = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+            String last = LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+            String name = first + " " + last;
+            String sevarthId = String.format(Locale.US, "SEV%06d", i);
+            String emailLocalPart = first.toLowerCase(Locale.US) + "." + last.toLowerCase(Locale.US) + i;
+            users[i] = new String[]{"user" + i, name, sevarthId, emailLocalPart};
+            index.put(users[i][0], name, name, sevarthId, emailLocalPart);
+        }
+
+        keystrokes = new String[query.length()];
+        for (int i = 0; i < keystrokes.length; i++) {
+            keystrokes[i] = query.substring(0, i + 1);
+        }
+    }
+
+    @Benchmark
+    public void searchAsTyped(Blackhole blackhole) {
+        // One keystroke per invocation, cycling through the prefixes of the query
+        blackhole.consume(index.search(keystrokes[keystroke], LIMIT));
+        keystroke = (keystroke + 1) % keystrokes.length;
+    }
+
+    @Benchmark
+    public void replaceUser() {
+        String[] user = users[next];
+        next = (next + 1) % USER_COUNT;
+        index.put(user[0], user[1], user[1], user[2], user[3]);
+    }
+}
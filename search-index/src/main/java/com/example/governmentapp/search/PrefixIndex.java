@@ -0,0 +1,592 @@
+package com.example.governmentapp.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * In-memory type-ahead index: finds entries with a token starting with each word typed, so
+ * "ra pat" finds "Rahul Patil", without going back to Firestore on every keystroke.
+ * <p>
+ * Text is split into tokens at anything that is not a letter, digit or combining mark (so
+ * Devanagari vowel signs stay in their word) and lower-cased. Every token is stored in a
+ * character trie whose nodes list the entries with a token ending there and count the tokens
+ * at and below them. A search starts from the word with the fewest tokens under its node;
+ * entries with that word as a whole token come first, then those with a longer token starting
+ * with it, each group in sort key order. For each group the counts pick the cheaper of:
+ * <ul>
+ *   <li>collecting the group's entries from the trie and checking the other words against each
+ *       one's tokens, which reads every match; best when the word is selective</li>
+ *   <li>reading all entries in sort key order and stopping at the {@code limit}-th match, which
+ *       reads about {@code limit} times the index size over the number of matches; best when
+ *       the word is not, as with a first letter typed</li>
+ * </ul>
+ * Each entry also keeps a 64-bit signature of its tokens' first one and two characters, so
+ * most entries that cannot match are passed over without reading their tokens. The sort order
+ * is kept up to date as entries change, a shift of one array per change; after a large batch
+ * of changes, such as a first load, it is rebuilt by sorting, in {@link #prepare()} or on the
+ * next search.
+ * <p>
+ * The trie is held in parallel arrays rather than node objects, saving an object header and
+ * child references per node, and searches follow array indexes rather than pointers. Trie
+ * nodes are not reclaimed when the last entry using them goes; {@link #clear()} drops
+ * everything. Not thread-safe.
+ */
+public final class PrefixIndex {
+    private static final int ROOT = 0;
+    private static final int NONE = -1;
+    // Past this many changes since the last sort, sorting again is cheaper than shifting
+    private static final int MAX_ORDER_UPDATES = 256;
+
+    // Trie nodes: the character leading to the node, its first child and its next sibling
+    private char[] nodeChars = new char[1024];
+    private int[] firstChild = new int[1024];
+    private int[] nextSibling = new int[1024];
+    // First posting of the entries with a token ending at the node, and that token, which
+    // entries share rather than each holding a copy
+    private int[] postingHead = new int[1024];
+    private String[] nodeTokens = new String[1024];
+    // Postings at the node, and at the node and below it
+    private int[] postingCounts = new int[1024];
+    private int[] subtreeCounts = new int[1024];
+    private int nodeCount;
+
+    // Postings: singly linked lists of entry slots; removed ones are kept for reuse
+    private int[] postingSlots = new int[1024];
+    private int[] postingNext = new int[1024];
+    private int postingCount;
+    private int freePosting = NONE;
+
+    // Entries by slot; slots of removed entries are reused
+    private String[] ids = new String[256];
+    private String[] sortKeys = new String[256];
+    private String[][] tokens = new String[256][];
+    private long[] signatures = new long[256];
+    private int[] freeSlots = new int[64];
+    private int freeSlotCount;
+    private int slotCount;
+    private final Map<String, Integer> slotsById = new HashMap<>();
+
+    // Slots in sort key order, and each slot's position in it, while ordered is set
+    private int[] order = new int[256];
+    private int[] ranks = new int[256];
+    private boolean ordered;
+    private int orderUpdates;
+
+    // Search scratch space: the search that last saw each slot
+    private int[] seen = new int[256];
+    private int searchStamp;
+    private int[] stack = new int[64];
+
+    public PrefixIndex() {
+        clear();
+    }
+
+    /**
+     * Add an entry, or replace the one with the same ID
+     *
+     * @param sortKey Orders results that match equally well, ignoring case; may be null
+     * @param fields Text to find the entry by; null fields are skipped
+     */
+    public void put(String id, String sortKey, String... fields) {
+        String key = sortKey != null ? sortKey.toLowerCase(Locale.ROOT) : null;
+        Integer previous = slotsById.get(id);
+        boolean sameKey = false;
+        if (previous != null) {
+            sameKey = key != null ? key.equals(sortKeys[previous]) : sortKeys[previous] == null;
+            if (!sameKey) {
+                removeFromOrder(previous);
+            }
+            unlink(previous);
+        }
+        String[] entryTokens = tokenize(fields);
+        int slot = allocateSlot();
+        ids[slot] = id;
+        sortKeys[slot] = key;
+        tokens[slot] = entryTokens;
+        signatures[slot] = signature(entryTokens);
+        slotsById.put(id, slot);
+        for (int i = 0; i < entryTokens.length; i++) {
+            int node = insert(entryTokens[i]);
+            if (nodeTokens[node] == null) {
+                nodeTokens[node] = entryTokens[i];
+            }
+            entryTokens[i] = nodeTokens[node];
+            addPosting(node, slot);
+        }
+        // The freed slot is taken straight back, so an unchanged key keeps its place
+        if (!sameKey) {
+            addToOrder(slot);
+        } else if (slot != previous) {
+            ordered = false;
+        }
+    }
+
+    /**
+     * @return Whether there was an entry with this ID
+     */
+    public boolean remove(String id) {
+        Integer slot = slotsById.get(id);
+        if (slot == null) return false;
+        removeFromOrder(slot);
+        unlink(slot);
+        return true;
+    }
+
+    public boolean contains(String id) {
+        return slotsById.containsKey(id);
+    }
+
+    public int size() {
+        return slotsById.size();
+    }
+
+    public void clear() {
+        nodeCount = 1;
+        firstChild[ROOT] = NONE;
+        nextSibling[ROOT] = NONE;
+        postingHead[ROOT] = NONE;
+        postingCounts[ROOT] = 0;
+        subtreeCounts[ROOT] = 0;
+        postingCount = 0;
+        freePosting = NONE;
+        Arrays.fill(ids, null);
+        Arrays.fill(sortKeys, null);
+        Arrays.fill(tokens, null);
+        freeSlotCount = 0;
+        slotCount = 0;
+        slotsById.clear();
+        ordered = false;
+    }
+
+    /**
+     * Bring the sort order up to date now rather than on the next search, so a background
+     * thread can take the cost of sorting after a batch of changes
+     */
+    public void prepare() {
+        if (!ordered) {
+            sortEntries();
+        }
+    }
+
+    /**
+     * IDs of the best matches for text as typed, best first. Every word of the query must
+     * start a token of the entry; an empty query matches nothing.
+     */
+    public List<String> search(String query, int limit) {
+        List<String> words = tokenize(query);
+        if (words.isEmpty() || limit <= 0) return Collections.emptyList();
+
+        String driver = null;
+        int start = NONE;
+        for (String word : words) {
+            int node = find(word);
+            if (node == NONE) return Collections.emptyList();
+            if (start == NONE || subtreeCounts[node] < subtreeCounts[start]) {
+                start = node;
+                driver = word;
+            }
+        }
+        List<String> others = new ArrayList<>(words);
+        others.remove(driver);
+        prepare();
+        long needed = 0;
+        for (String word : words) {
+            needed |= signature(word);
+        }
+        List<String> results = new ArrayList<>(limit);
+
+        // Entries with the driver as a whole token, i.e. posted at its own node
+        int whole = postingCounts[start];
+        if (cheaperInOrder(whole, limit)) {
+            scanInOrder(results, limit, driver, true, others, needed);
+        } else {
+            PriorityQueue<Integer> best = new PriorityQueue<>(limit + 1, (a, b) -> ranks[b] - ranks[a]);
+            for (int posting = postingHead[start]; posting != NONE; posting = postingNext[posting]) {
+                int slot = postingSlots[posting];
+                if (matches(slot, others, needed)) {
+                    offer(best, slot, limit);
+                }
+            }
+            drain(best, results);
+        }
+
+        // Then entries with a longer token starting with it, from the nodes below
+        int wanted = limit - results.size();
+        if (wanted == 0) return results;
+        if (cheaperInOrder(subtreeCounts[start] - whole, wanted)) {
+            scanInOrder(results, wanted, driver, false, others, needed);
+            return results;
+        }
+        PriorityQueue<Integer> best = new PriorityQueue<>(wanted + 1, (a, b) -> ranks[b] - ranks[a]);
+        int stamp = nextStamp();
+        int top = 0;
+        for (int child = firstChild[start]; child != NONE; child = nextSibling[child]) {
+            top = push(top, child);
+        }
+        while (top > 0) {
+            int node = stack[--top];
+            for (int posting = postingHead[node]; posting != NONE; posting = postingNext[posting]) {
+                int slot = postingSlots[posting];
+                // An entry with several tokens under the node is reached once per token
+                if (seen[slot] == stamp) continue;
+                seen[slot] = stamp;
+                if (matches(slot, others, needed) && !hasToken(tokens[slot], driver)) {
+                    offer(best, slot, wanted);
+                }
+            }
+            for (int child = firstChild[node]; child != NONE; child = nextSibling[child]) {
+                top = push(top, child);
+            }
+        }
+        return drain(best, results);
+    }
+
+    /**
+     * Lower-cased words of the text, in order, as the index splits them
+     */
+    public static List<String> tokenize(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) return words;
+        StringBuilder word = new StringBuilder();
+        int i = 0;
+        while (i < text.length()) {
+            int codePoint = text.codePointAt(i);
+            i += Character.charCount(codePoint);
+            if (isWordChar(codePoint)) {
+                word.appendCodePoint(Character.toLowerCase(codePoint));
+            } else if (word.length() > 0) {
+                words.add(word.toString());
+                word.setLength(0);
+            }
+        }
+        if (word.length() > 0) {
+            words.add(word.toString());
+        }
+        return words;
+    }
+
+    private static String[] tokenize(String... fields) {
+        Set<String> unique = new LinkedHashSet<>();
+        for (String field : fields) {
+            unique.addAll(tokenize(field));
+        }
+        return unique.toArray(new String[0]);
+    }
+
+    private static boolean isWordChar(int codePoint) {
+        if (Character.isLetterOrDigit(codePoint)) return true;
+        int type = Character.getType(codePoint);
+        return type == Character.NON_SPACING_MARK || type == Character.COMBINING_SPACING_MARK
+                || type == Character.ENCLOSING_MARK;
+    }
+
+    // Bits for a word's first character and first two; a token starting with the word has them all
+    private static long signature(String word) {
+        long bits = 1L << (word.charAt(0) & 63);
+        if (word.length() > 1) {
+            bits |= 1L << ((word.charAt(0) * 31 + word.charAt(1)) & 63);
+        }
+        return bits;
+    }
+
+    private static long signature(String[] entryTokens) {
+        long bits = 0;
+        for (String token : entryTokens) {
+            bits |= signature(token);
+        }
+        return bits;
+    }
+
+    private boolean matches(int slot, List<String> words, long needed) {
+        return words.isEmpty() || (signatures[slot] & needed) == needed && matchesAll(tokens[slot], words);
+    }
+
+    private static boolean matchesAll(String[] entryTokens, List<String> words) {
+        for (int i = 0, n = words.size(); i < n; i++) {
+            if (!startsAny(entryTokens, words.get(i))) return false;
+        }
+        return true;
+    }
+
+    private static boolean hasToken(String[] entryTokens, String word) {
+        for (String token : entryTokens) {
+            if (token.equals(word)) return true;
+        }
+        return false;
+    }
+
+    private static boolean startsAny(String[] entryTokens, String word) {
+        for (String token : entryTokens) {
+            if (token.startsWith(word)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Whether reading entries in sort key order, which stops at the wanted-th match, should
+     * read fewer than walking the postings of the matches, which reads all of them
+     */
+    private boolean cheaperInOrder(long postings, int wanted) {
+        return postings * postings > (long) wanted * size();
+    }
+
+    // Add the first wanted entries in order that have the driver as a whole token, or only longer ones
+    private void scanInOrder(List<String> results, int wanted, String driver, boolean whole,
+                             List<String> others, long needed) {
+        for (int i = 0, n = size(); i < n && wanted > 0; i++) {
+            int slot = order[i];
+            if ((signatures[slot] & needed) != needed) continue;
+            String[] entryTokens = tokens[slot];
+            if (hasToken(entryTokens, driver) == whole && startsAny(entryTokens, driver)
+                    && matchesAll(entryTokens, others)) {
+                results.add(ids[slot]);
+                wanted--;
+            }
+        }
+    }
+
+    // Keep the limit entries earliest in the order; the queue's head is the latest kept
+    private void offer(PriorityQueue<Integer> queue, int slot, int limit) {
+        if (queue.size() < limit) {
+            queue.add(slot);
+        } else if (ranks[slot] < ranks[queue.peek()]) {
+            queue.poll();
+            queue.add(slot);
+        }
+    }
+
+    private List<String> drain(PriorityQueue<Integer> queue, List<String> results) {
+        String[] drained = new String[queue.size()];
+        for (int i = drained.length - 1; i >= 0; i--) {
+            drained[i] = ids[queue.poll()];
+        }
+        results.addAll(Arrays.asList(drained));
+        return results;
+    }
+
+    private int push(int top, int node) {
+        if (top == stack.length) {
+            stack = Arrays.copyOf(stack, top * 2);
+        }
+        stack[top] = node;
+        return top + 1;
+    }
+
+    private void sortEntries() {
+        Integer[] slots = new Integer[size()];
+        int n = 0;
+        for (int slot : slotsById.values()) {
+            slots[n++] = slot;
+        }
+        Arrays.sort(slots, this::compareKeys);
+        if (order.length < n) {
+            order = new int[ids.length];
+        }
+        for (int i = 0; i < n; i++) {
+            order[i] = slots[i];
+            ranks[slots[i]] = i;
+        }
+        ordered = true;
+        orderUpdates = 0;
+    }
+
+    // Negative if slot a sorts before slot b; entries without a key go last, ties go by ID
+    private int compareKeys(int a, int b) {
+        String keyA = sortKeys[a];
+        String keyB = sortKeys[b];
+        if (keyA == null) {
+            if (keyB != null) return 1;
+        } else if (keyB == null) {
+            return -1;
+        } else {
+            int byKey = keyA.compareTo(keyB);
+            if (byKey != 0) return byKey;
+        }
+        return ids[a].compareTo(ids[b]);
+    }
+
+    // Called with the slot's entry in place; size() already counts it
+    private void addToOrder(int slot) {
+        if (!ordered || ++orderUpdates > MAX_ORDER_UPDATES) {
+            ordered = false;
+            return;
+        }
+        int n = size() - 1;
+        int low = 0;
+        int high = n;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (compareKeys(order[middle], slot) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        if (order.length == n) {
+            order = Arrays.copyOf(order, n * 2);
+        }
+        System.arraycopy(order, low, order, low + 1, n - low);
+        order[low] = slot;
+        for (int i = low; i <= n; i++) {
+            ranks[order[i]] = i;
+        }
+    }
+
+    // Called with the slot's entry still in place; size() still counts it
+    private void removeFromOrder(int slot) {
+        if (!ordered || ++orderUpdates > MAX_ORDER_UPDATES) {
+            ordered = false;
+            return;
+        }
+        int n = size() - 1;
+        int rank = ranks[slot];
+        System.arraycopy(order, rank + 1, order, rank, n - rank);
+        for (int i = rank; i < n; i++) {
+            ranks[order[i]] = i;
+        }
+    }
+
+    private int nextStamp() {
+        if (++searchStamp == 0) {
+            Arrays.fill(seen, 0);
+            searchStamp = 1;
+        }
+        return searchStamp;
+    }
+
+    private int find(String token) {
+        int node = ROOT;
+        for (int i = 0; i < token.length() && node != NONE; i++) {
+            node = findChild(node, token.charAt(i));
+        }
+        return node;
+    }
+
+    private int findChild(int node, char c) {
+        for (int child = firstChild[node]; child != NONE; child = nextSibling[child]) {
+            if (nodeChars[child] == c) return child;
+        }
+        return NONE;
+    }
+
+    // Node of the token, made if needed, counting one more posting on the way
+    private int insert(String token) {
+        int node = ROOT;
+        subtreeCounts[ROOT]++;
+        for (int i = 0; i < token.length(); i++) {
+            char c = token.charAt(i);
+            int child = findChild(node, c);
+            if (child == NONE) {
+                child = newNode(c);
+                nextSibling[child] = firstChild[node];
+                firstChild[node] = child;
+            }
+            node = child;
+            subtreeCounts[node]++;
+        }
+        return node;
+    }
+
+    private int newNode(char c) {
+        if (nodeCount == nodeChars.length) {
+            int capacity = nodeCount * 2;
+            nodeChars = Arrays.copyOf(nodeChars, capacity);
+            firstChild = Arrays.copyOf(firstChild, capacity);
+            nextSibling = Arrays.copyOf(nextSibling, capacity);
+            postingHead = Arrays.copyOf(postingHead, capacity);
+            nodeTokens = Arrays.copyOf(nodeTokens, capacity);
+            postingCounts = Arrays.copyOf(postingCounts, capacity);
+            subtreeCounts = Arrays.copyOf(subtreeCounts, capacity);
+        }
+        int node = nodeCount++;
+        nodeChars[node] = c;
+        firstChild[node] = NONE;
+        nextSibling[node] = NONE;
+        postingHead[node] = NONE;
+        nodeTokens[node] = null;
+        postingCounts[node] = 0;
+        subtreeCounts[node] = 0;
+        return node;
+    }
+
+    private void addPosting(int node, int slot) {
+        int posting;
+        if (freePosting != NONE) {
+            posting = freePosting;
+            freePosting = postingNext[posting];
+        } else {
+            if (postingCount == postingSlots.length) {
+                postingSlots = Arrays.copyOf(postingSlots, postingCount * 2);
+                postingNext = Arrays.copyOf(postingNext, postingCount * 2);
+            }
+            posting = postingCount++;
+        }
+        postingSlots[posting] = slot;
+        postingNext[posting] = postingHead[node];
+        postingHead[node] = posting;
+        postingCounts[node]++;
+    }
+
+    // Take the entry out of the trie and free its slot
+    private void unlink(int slot) {
+        for (String token : tokens[slot]) {
+            removePosting(token, slot);
+        }
+        slotsById.remove(ids[slot]);
+        ids[slot] = null;
+        sortKeys[slot] = null;
+        tokens[slot] = null;
+        if (freeSlotCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeSlotCount * 2);
+        }
+        freeSlots[freeSlotCount++] = slot;
+    }
+
+    private void removePosting(String token, int slot) {
+        int node = ROOT;
+        subtreeCounts[ROOT]--;
+        for (int i = 0; i < token.length(); i++) {
+            node = findChild(node, token.charAt(i));
+            subtreeCounts[node]--;
+        }
+        int previous = NONE;
+        for (int posting = postingHead[node]; posting != NONE; posting = postingNext[posting]) {
+            if (postingSlots[posting] == slot) {
+                if (previous == NONE) {
+                    postingHead[node] = postingNext[posting];
+                } else {
+                    postingNext[previous] = postingNext[posting];
+                }
+                postingNext[posting] = freePosting;
+                freePosting = posting;
+                postingCounts[node]--;
+                return;
+            }
+            previous = posting;
+        }
+    }
+
+    private int allocateSlot() {
+        if (freeSlotCount > 0) {
+            return freeSlots[--freeSlotCount];
+        }
+        if (slotCount == ids.length) {
+            int capacity = slotCount * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            sortKeys = Arrays.copyOf(sortKeys, capacity);
+            tokens = Arrays.copyOf(tokens, capacity);
+            signatures = Arrays.copyOf(signatures, capacity);
+            ranks = Arrays.copyOf(ranks, capacity);
+            seen = Arrays.copyOf(seen, capacity);
+        }
+        return slotCount++;
+    }
+}
@@ -0,0 +1,285 @@
+package com.example.governmentapp.search;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks {@link PrefixIndex} against {@link NaiveIndex}, which scans every entry on each
+ * search, through random puts, replacements and removals.
+ */
+public class PrefixIndexTest {
+    private static final String[] FIRST_NAMES = {
+            "Ram", "Rama", "Ramesh", "Rahul", "Rajesh", "Sachin", "Sa", "Sandeep", "Sunita", "Swati",
+            "Kavita", "Kulkarni", "Priya", "Pooja", "Anil", "Anita", "\u0930\u093e\u0939\u0941\u0932"
+    };
+    private static final String[] LAST_NAMES = {
+            "Patil", "Pawar", "Kulkarni", "Kadam", "Kale", "Ram", "Shinde", "Sawant", "Joshi", "Jadhav",
+            "\u092a\u093e\u091f\u0940\u0932"
+    };
+    private static final String[] TALUKAS = {"Haveli", "Mulshi", "Maval", "Satara", "Karad", null};
+    private static final String[] QUERIES = {
+            "r", "ra", "ram", "rama", "ramesh", "sa", "sachin", "k", "kul", "kulkarni", "p", "pa", "pat",
+            "ra pa", "ram pat", "rahul patil", "patil rahul", "s k", "sa sa", "ka ka", "m", "ma", "mul",
+            "sev0", "sev00", "1", "12", "x", "ram x", "\u0930\u093e", "\u092a\u093e\u091f", "karad ram", "haveli"
+    };
+
+    @Test
+    public void wholeTokenMatchesComeFirst() {
+        PrefixIndex index = new PrefixIndex();
+        index.put("1", "Ramesh Ahire", "Ramesh Ahire");
+        index.put("2", "Sita Ram", "Sita Ram");
+        index.put("3", "Ram Patil", "Ram Patil");
+        index.put("4", "Abhiram Joshi", "Abhiram Joshi");
+        index.put("5", "Rama Ram", "Rama Ram");
+
+        // Sorted by name within each group, whole "ram" tokens before longer ones; an entry
+        // with both is listed once, with the whole ones
+        assertEquals(Arrays.asList("3", "5", "2", "1"), index.search("ram", 10));
+        assertEquals(Arrays.asList("3", "5"), index.search("ram", 2));
+        assertEquals(Collections.singletonList("5"), index.search("rama ram", 10));
+        assertEquals(Collections.singletonList("1"), index.search("Rame", 10));
+        assertEquals(Arrays.asList("3"), index.search("ram pat", 10));
+        assertEquals(Arrays.asList("4"), index.search("abhi", 10));
+        assertTrue(index.search("", 10).isEmpty());
+        assertTrue(index.search("ram", 0).isEmpty());
+        assertTrue(index.search("zzz", 10).isEmpty());
+    }
+
+    @Test
+    public void replaceAndRemoveKeepTheOrder() {
+        PrefixIndex index = new PrefixIndex();
+        index.put("a", "Amol", "Amol Patil");
+        index.put("b", "Bharat", "Bharat Patil");
+        index.put("c", "Chetan", "Chetan Patil");
+        index.put("d", null, "Dinesh Patil");
+        index.prepare();
+        assertEquals(Arrays.asList("a", "b", "c", "d"), index.search("patil", 10));
+
+        // Inserted and removed in place
+        index.put("g", "Anand", "Anand Patil");
+        assertEquals(Arrays.asList("a", "g", "b", "c", "d"), index.search("patil", 10));
+        index.remove("g");
+        assertEquals(Arrays.asList("a", "b", "c", "d"), index.search("patil", 10));
+
+        // Same key, new text: keeps its place
+        index.put("b", "bharat", "Bharat Patil", "Haveli");
+        assertEquals(Arrays.asList("a", "b", "c", "d"), index.search("patil", 10));
+        assertEquals(Collections.singletonList("b"), index.search("hav", 10));
+
+        // New key: moves
+        index.put("a", "Zubin", "Amol Patil");
+        assertEquals(Arrays.asList("b", "c", "a", "d"), index.search("patil", 10));
+
+        // Text no longer matching
+        index.put("c", "Chetan", "Chetan Pawar");
+        assertEquals(Arrays.asList("b", "a", "d"), index.search("patil", 10));
+        assertEquals(Collections.singletonList("c"), index.search("paw", 10));
+
+        assertTrue(index.remove("b"));
+        assertFalse(index.remove("b"));
+        assertFalse(index.contains("b"));
+        assertEquals(Arrays.asList("a", "d"), index.search("patil", 10));
+        assertTrue(index.search("hav", 10).isEmpty());
+
+        // Ties on the key go by ID
+        index.put("e", "zubin", "Ela Patil");
+        assertEquals(Arrays.asList("a", "e", "d"), index.search("patil", 10));
+        assertEquals(4, index.size());
+
+        index.clear();
+        assertEquals(0, index.size());
+        assertTrue(index.search("patil", 10).isEmpty());
+        index.put("f", "Farhan", "Farhan Patil");
+        assertEquals(Collections.singletonList("f"), index.search("pat", 10));
+    }
+
+    @Test
+    public void tokenizesLikeTheApp() {
+        assertEquals(Arrays.asList("rahul", "patil1985"), PrefixIndex.tokenize("rahul.patil1985"));
+        assertEquals(Arrays.asList("sev", "012"), PrefixIndex.tokenize(" SEV-012 "));
+        assertEquals(Arrays.asList("o", "brien"), PrefixIndex.tokenize("O'Brien"));
+        // Devanagari vowel signs and the virama stay in their word
+        assertEquals(Arrays.asList("\u0930\u093e\u0939\u0941\u0932", "\u0915\u094d\u0937"),
+                PrefixIndex.tokenize("\u0930\u093e\u0939\u0941\u0932 \u0915\u094d\u0937"));
+        assertTrue(PrefixIndex.tokenize(null).isEmpty());
+        assertTrue(PrefixIndex.tokenize(" ,.- ").isEmpty());
+    }
+
+    @Test
+    public void smallChangesBetweenSearches() {
+        // A few changes between searches keep the order up to date incrementally
+        checkRandomChanges(11, 1_500, 1, 8);
+    }
+
+    @Test
+    public void largeBatchesBetweenSearches() {
+        // More than MAX_ORDER_UPDATES changes between searches make the next search re-sort
+        checkRandomChanges(12, 1_500, 200, 600);
+    }
+
+    @Test
+    public void sameKeyReplacementsBetweenSearches() {
+        Random random = new Random(13);
+        PrefixIndex index = new PrefixIndex();
+        NaiveIndex naive = new NaiveIndex();
+        for (int i = 0; i < 2_000; i++) {
+            put(index, naive, "u" + i, random);
+        }
+        for (int round = 0; round < 150; round++) {
+            // Only the text changes, so every entry keeps its slot and place
+            for (int j = 0; j < 20; j++) {
+                String id = "u" + random.nextInt(2_000);
+                String key = naive.sortKeys.get(id);
+                String[] fields = {key, "SEV" + random.nextInt(1000), TALUKAS[random.nextInt(TALUKAS.length)]};
+                index.put(id, key, fields);
+                naive.put(id, key, fields);
+            }
+            assertSearches(index, naive, random, round);
+        }
+    }
+
+    private static void checkRandomChanges(long seed, int users, int minChanges, int maxChanges) {
+        Random random = new Random(seed);
+        PrefixIndex index = new PrefixIndex();
+        NaiveIndex naive = new NaiveIndex();
+        for (int i = 0; i < users; i++) {
+            put(index, naive, "u" + i, random);
+        }
+
+        for (int round = 0; round < 100; round++) {
+            int changes = minChanges + random.nextInt(maxChanges - minChanges + 1);
+            for (int c = 0; c < changes; c++) {
+                String id = "u" + random.nextInt(users + users / 4);
+                int action = random.nextInt(10);
+                if (action < 2) {
+                    assertEquals(naive.remove(id), index.remove(id));
+                } else if (action < 4 && naive.sortKeys.containsKey(id)) {
+                    // Same key, maybe new text
+                    String key = naive.sortKeys.get(id);
+                    String[] fields = {key, "SEV" + String.format(Locale.US, "%05d", random.nextInt(100_000))};
+                    index.put(id, key, fields);
+                    naive.put(id, key, fields);
+                } else {
+                    put(index, naive, id, random);
+                }
+            }
+            if (random.nextInt(5) == 0) {
+                index.prepare();
+            }
+            assertEquals(naive.sortKeys.size(), index.size());
+            assertSearches(index, naive, random, round);
+        }
+    }
+
+    private static void assertSearches(PrefixIndex index, NaiveIndex naive, Random random, int round) {
+        for (String query : QUERIES) {
+            int limit = 1 + random.nextInt(random.nextBoolean() ? 5 : 100);
+            assertEquals("round " + round + " \"" + query + "\" limit " + limit,
+                    naive.search(query, limit), index.search(query, limit));
+        }
+    }
+
+    private static void put(PrefixIndex index, NaiveIndex naive, String id, Random random) {
+        String name = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " "
+                + LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+        // Some entries have no sort key, some share one
+        String key = random.nextInt(20) == 0 ? null : random.nextInt(4) == 0 ? name.toUpperCase(Locale.ROOT) : name;
+        String sevarthId = "SEV" + String.format(Locale.US, "%05d", random.nextInt(100_000));
+        String email = name.toLowerCase(Locale.ROOT).replace(' ', '.') + random.nextInt(100);
+        String[] fields = {name, sevarthId, email, TALUKAS[random.nextInt(TALUKAS.length)]};
+        index.put(id, key, fields);
+        naive.put(id, key, fields);
+    }
+
+    /**
+     * The search rules spelled out, scanning every entry
+     */
+    private static class NaiveIndex {
+        final Map<String, String> sortKeys = new HashMap<>();
+        final Map<String, List<String>> tokens = new HashMap<>();
+
+        void put(String id, String sortKey, String... fields) {
+            Set<String> unique = new LinkedHashSet<>();
+            for (String field : fields) {
+                unique.addAll(PrefixIndex.tokenize(field));
+            }
+            sortKeys.put(id, sortKey);
+            tokens.put(id, new ArrayList<>(unique));
+        }
+
+        boolean remove(String id) {
+            tokens.remove(id);
+            boolean had = sortKeys.containsKey(id);
+            sortKeys.remove(id);
+            return had;
+        }
+
+        List<String> search(String query, int limit) {
+            List<String> words = PrefixIndex.tokenize(query);
+            if (words.isEmpty() || limit <= 0) return Collections.emptyList();
+
+            // The word with the fewest tokens starting with it, the first of equals
+            String driver = null;
+            long fewest = Long.MAX_VALUE;
+            for (String word : words) {
+                long count = 0;
+                for (List<String> entryTokens : tokens.values()) {
+                    for (String token : entryTokens) {
+                        if (token.startsWith(word)) count++;
+                    }
+                }
+                if (count < fewest) {
+                    fewest = count;
+                    driver = word;
+                }
+            }
+
+            List<String> whole = new ArrayList<>();
+            List<String> longer = new ArrayList<>();
+            for (Map.Entry<String, List<String>> entry : tokens.entrySet()) {
+                boolean all = true;
+                for (String word : words) {
+                    boolean found = false;
+                    for (String token : entry.getValue()) {
+                        if (token.startsWith(word)) {
+                            found = true;
+                            break;
+                        }
+                    }
+                    all &= found;
+                }
+                if (all) {
+                    (entry.getValue().contains(driver) ? whole : longer).add(entry.getKey());
+                }
+            }
+            Comparator<String> bySortKey = (a, b) -> {
+                String keyA = sortKeys.get(a) != null ? sortKeys.get(a).toLowerCase(Locale.ROOT) : null;
+                String keyB = sortKeys.get(b) != null ? sortKeys.get(b).toLowerCase(Locale.ROOT) : null;
+                if (keyA == null && keyB != null) return 1;
+                if (keyA != null && keyB == null) return -1;
+                if (keyA != null && !keyA.equals(keyB)) return keyA.compareTo(keyB);
+                return a.compareTo(b);
+            };
+            whole.sort(bySortKey);
+            longer.sort(bySortKey);
+            List<String> results = new ArrayList<>(whole);
+            results.addAll(longer);
+            return results.size() > limit ? results.subList(0, limit) : results;
+        }
+    }
+}